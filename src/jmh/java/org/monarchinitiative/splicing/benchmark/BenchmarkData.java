@@ -0,0 +1,71 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.PositionalWeightMatrixParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Data shared by the benchmarks, taken from the test data.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+        // static utility class
+    }
+
+
+    /**
+     * @return annotator with the splice site definitions that are used by the app
+     */
+    static SplicingInformationContentAnnotator annotator() {
+        try (InputStream is = BenchmarkData.class.getResourceAsStream("/org/monarchinitiative/splicing/spliceSites.yaml")) {
+            PositionalWeightMatrixParser parser = new PositionalWeightMatrixParser(is);
+            return new SplicingInformationContentAnnotator(parser.getDonorFrequencies(), parser.getAcceptorFrequencies());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return accessor serving the sequences of the {@link TestingData} transcripts from memory, therefore the scoring
+     * benchmarks do not measure I/O
+     */
+    static GenomeSequenceAccessor inMemoryAccessor() {
+        byte[] hist1h1a = TestingData.getHIST1H1ASeq().getBytes();
+        byte[] gjb2 = TestingData.GJB2Seq().getBytes();
+        byte[] yae1 = TestingData.getYAE1Seq().getBytes();
+        return new GenomeSequenceAccessor() {
+            @Override
+            public byte[] fetchBases(String chr, int start, int end) {
+                switch (chr) {
+                    case "chr6":
+                        return slice(hist1h1a, 26017259, start, end);
+                    case "chr13":
+                        return slice(gjb2, 20761601, start, end);
+                    case "chr7":
+                        return slice(yae1, 39606002, start, end);
+                    default:
+                        return null;
+                }
+            }
+
+            private byte[] slice(byte[] bases, int begin, int start, int end) {
+                if (start < begin || end > begin + bases.length || start > end)
+                    return null;
+                byte[] result = new byte[end - start];
+                System.arraycopy(bases, start - begin, result, 0, result.length);
+                return result;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.io.ResultsWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting and writing of the scored transcripts. The bytes are discarded, the benchmark does not measure I/O.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultsWriterBenchmark {
+
+    private ResultsWriter writer;
+
+    private ScoredTranscriptModel model;
+
+
+    @Setup
+    public void setUp() {
+        writer = new ResultsWriter(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        model = TestingData.threeExonScoredTranscriptModel();
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        writer.close();
+    }
+
+
+    @Benchmark
+    public void writeThreeExonTranscript() {
+        writer.write(model);
+    }
+}
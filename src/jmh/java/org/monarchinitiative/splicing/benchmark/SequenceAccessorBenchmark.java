@@ -0,0 +1,89 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import org.monarchinitiative.splicing.io.FastaToTwoBitConverter;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.IndexedFastaSequenceAccessor;
+import org.monarchinitiative.splicing.io.TwoBitSequenceAccessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetching of splice site sized sequences at random positions of the small test genome. The FASTA file is converted
+ * into 2bit file during the setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequenceAccessorBenchmark {
+
+    private static final int N_QUERIES = 1024;
+
+    private static final int CHR1_LENGTH = 1110;
+
+    @Param({"fasta", "2bit"})
+    public String format;
+
+    @Param({"27"})
+    public int length;
+
+    private Path tmpDir;
+
+    private GenomeSequenceAccessor accessor;
+
+    private int[] starts;
+
+    private int query;
+
+
+    @Setup
+    public void setUp() throws Exception {
+        File fasta = new File(SequenceAccessorBenchmark.class.getResource("/org/monarchinitiative/splicing/io/small_genome.fa").toURI());
+        if (format.equals("fasta")) {
+            accessor = new IndexedFastaSequenceAccessor(fasta);
+        } else {
+            tmpDir = Files.createTempDirectory("splicing-benchmark");
+            File twoBit = tmpDir.resolve("small_genome.2bit").toFile();
+            new FastaToTwoBitConverter(fasta).convert(twoBit);
+            accessor = new TwoBitSequenceAccessor(twoBit);
+        }
+
+        Random random = new Random(42);
+        starts = new int[N_QUERIES];
+        for (int i = 0; i < N_QUERIES; i++) {
+            starts[i] = random.nextInt(CHR1_LENGTH - length);
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() throws IOException {
+        accessor.close();
+        if (tmpDir != null) {
+            Files.deleteIfExists(tmpDir.resolve("small_genome.2bit"));
+            Files.delete(tmpDir);
+        }
+    }
+
+
+    @Benchmark
+    public String fetchSequence() {
+        int start = starts[query++ & (N_QUERIES - 1)];
+        return accessor.fetchSequence("chr1", start, start + length);
+    }
+
+
+    @Benchmark
+    public byte[] fetchBases() {
+        int start = starts[query++ & (N_QUERIES - 1)];
+        return accessor.fetchBases("chr1", start, start + length);
+    }
+}
@@ -0,0 +1,50 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.Strand;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SequenceInterval;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of splice site sequences from {@link SequenceInterval} on both strands.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequenceIntervalBenchmark {
+
+    private SequenceInterval interval;
+
+    private GenomeInterval forwardSite, reverseSite;
+
+
+    @Setup
+    public void setUp() {
+        ReferenceDictionary rd = HG19RefDictBuilder.build();
+        int chr7 = rd.getContigNameToID().get("7");
+        interval = new SequenceInterval(TestingData.getYAE1Seq(), new GenomeInterval(rd, Strand.FWD, chr7, 39606002, 39612480));
+        // donor site of the 1st exon of YAE1 and the same region on the reverse strand
+        forwardSite = new GenomeInterval(rd, Strand.FWD, chr7, 39606143, 39606152);
+        reverseSite = forwardSite.withStrand(Strand.REV);
+    }
+
+
+    @Benchmark
+    public String sequenceForForwardStrand() {
+        return interval.sequenceFor(forwardSite);
+    }
+
+
+    @Benchmark
+    public String sequenceForReverseStrand() {
+        return interval.sequenceFor(reverseSite);
+    }
+}
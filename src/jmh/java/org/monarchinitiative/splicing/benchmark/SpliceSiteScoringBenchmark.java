@@ -0,0 +1,85 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring of standalone splice site sequences and of sites located within a larger sequence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpliceSiteScoringBenchmark {
+
+    private SplicingInformationContentAnnotator annotator;
+
+    /**
+     * Donor site of the 1st exon and acceptor site of the 2nd exon of YAE1.
+     */
+    private String donorSite, acceptorSite;
+
+    private byte[] yae1;
+
+
+    @Setup
+    public void setUp() {
+        annotator = BenchmarkData.annotator();
+        String sequence = TestingData.getYAE1Seq();
+        // 1st exon ends at 39606146, 2nd exon begins at 39610104
+        donorSite = sequence.substring(39606146 - 3 - 39606002, 39606146 + 6 - 39606002);
+        acceptorSite = sequence.substring(39610104 - 25 - 39606002, 39610104 + 2 - 39606002);
+        yae1 = sequence.getBytes();
+    }
+
+
+    @Benchmark
+    public double donorScore() {
+        return annotator.getSpliceDonorScore(donorSite);
+    }
+
+
+    @Benchmark
+    public double acceptorScore() {
+        return annotator.getSpliceAcceptorScore(acceptorSite);
+    }
+
+
+    @Benchmark
+    public double donorScoreInPlace() {
+        return annotator.getSpliceDonorScore(yae1, 39606146 - 3 - 39606002, Strand.FWD);
+    }
+
+
+    @Benchmark
+    public double donorScoreInPlaceReverseComplement() {
+        return annotator.getSpliceDonorScore(yae1, 39606146 - 3 - 39606002, Strand.REV);
+    }
+
+
+    @Benchmark
+    public double acceptorScoreInPlace() {
+        return annotator.getSpliceAcceptorScore(yae1, 39610104 - 25 - 39606002, Strand.FWD);
+    }
+
+
+    /**
+     * Scoring without the k-mer tables, the baseline of the in-place scoring.
+     */
+    @Benchmark
+    public double donorScoreInformationContentTable() {
+        return annotator.getDonorTable().score(yae1, 39606146 - 3 - 39606002);
+    }
+
+
+    @Benchmark
+    public double acceptorScoreInformationContentTable() {
+        return annotator.getAcceptorTable().score(yae1, 39610104 - 25 - 39606002);
+    }
+}
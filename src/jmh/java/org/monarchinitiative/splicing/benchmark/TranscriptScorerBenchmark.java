@@ -0,0 +1,55 @@
+package org.monarchinitiative.splicing.benchmark;
+
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.calculate.SiteScoreCache;
+import org.monarchinitiative.splicing.calculate.TranscriptScorer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Scoring of all {@link TestingData} transcripts, including fetching of the sequences from memory. With the cache
+ * enabled, the sites are scored once during the warmup and looked up afterwards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranscriptScorerBenchmark {
+
+    @Param({"0", "1024"})
+    public int cacheSize;
+
+    @Param({"WHOLE_REGION", "WINDOWS"})
+    public TranscriptScorer.FetchStrategy strategy;
+
+    private Function<TranscriptModel, ScoredTranscriptModel> scorer;
+
+    private List<TranscriptModel> transcripts;
+
+
+    @Setup
+    public void setUp() {
+        TranscriptScorer transcriptScorer = new TranscriptScorer(BenchmarkData.annotator(), BenchmarkData.inMemoryAccessor(),
+                new SiteScoreCache(cacheSize), strategy);
+        scorer = transcriptScorer.scoreTranscriptModel();
+        transcripts = Arrays.asList(TestingData.getSingleExonTranscriptModel(), TestingData.getTwoExonTranscriptModel(),
+                TestingData.getThreeExonTranscriptModel());
+    }
+
+
+    @Benchmark
+    public void scoreTranscriptModels(Blackhole blackhole) {
+        for (TranscriptModel transcript : transcripts) {
+            blackhole.consume(scorer.apply(transcript));
+        }
+    }
+}
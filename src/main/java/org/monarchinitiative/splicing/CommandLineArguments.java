@@ -0,0 +1,31 @@
+package org.monarchinitiative.splicing;
+
+import org.springframework.boot.ApplicationArguments;
+
+/**
+ * Parsing of the options shared by multiple commands.
+ */
+public final class CommandLineArguments {
+
+    private CommandLineArguments() {
+        // static utility class
+    }
+
+
+    /**
+     * Get number of worker threads from the <code>--threads</code> option. Value <code>0</code> means that all
+     * available processors should be used.
+     *
+     * @param args application arguments
+     * @return number of worker threads, <code>1</code> if the option is absent
+     */
+    public static int getThreads(ApplicationArguments args) {
+        if (!args.containsOption("threads") || args.getOptionValues("threads").isEmpty())
+            return 1;
+
+        int threads = Integer.parseInt(args.getOptionValues("threads").get(0));
+        if (threads < 0)
+            throw new IllegalArgumentException(String.format("Number of threads must not be negative: '%d'", threads));
+        return threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+}
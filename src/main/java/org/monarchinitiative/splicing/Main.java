@@ -1,10 +1,17 @@
 package org.monarchinitiative.splicing;
 
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.List;
+
 /**
  * Main method of the app.
+ * <p>
+ * The help message is displayed without starting the application context, if the arguments are empty or contain a word
+ * <code>help</code>.
  *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
  */
@@ -12,6 +19,54 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class Main {
 
     public static void main(String[] args) {
+        ApplicationArguments arguments = new DefaultApplicationArguments(args);
+        List<String> nonOptionArgs = arguments.getNonOptionArgs();
+        if (nonOptionArgs.isEmpty() || nonOptionArgs.contains("help")) {
+            System.out.println(makeHelpMessage());
+            return;
+        }
         SpringApplication.run(Main.class, args);
     }
+
+
+    /**
+     * @return String with help message for command line
+     */
+    static String makeHelpMessage() {
+        return "\n\nUSAGE:\n\n" +
+                "" +
+                "Available actions - {calculate, analyze_selected_exons, annotate_vcf, scan, serve, merge, pack_genome, pack_transcripts, help}\n\n" +
+                "calculate - run calculate task\n" +
+                "            --threads=N  score transcripts using N worker threads (0 - all processors, 1 by default)\n" +
+                "            --by-contig  read each contig once and score its transcripts, results are sorted by position\n" +
+                "            --metrics=FILE  write metrics of the run in JSON format to FILE\n" +
+                "            --resume  continue an interrupted run from its checkpoint, appending to 'main.output.file'\n" +
+                "            --shard=i/n  score the i-th of n shards of the transcripts balanced by estimated work\n" +
+                "            --incremental[=FILE]  reuse scores of unchanged transcripts from the score index FILE of a previous\n" +
+                "                        run, can be repeated ('main.output.file' + '.fingerprints' by default)\n" +
+                "            results are BGZF compressed and indexed by tabix if 'main.output.file' ends with '.bgz'\n" +
+                "analyze_selected_exons - analyze exons present in the TSV file provided by Peter and Guy\n" +
+                "            --input=path  --output=path  TSV files with the exons and with the results\n" +
+                "            --threads=N  score batches of exons using N worker threads (0 - all processors, 1 by default)\n" +
+                "annotate_vcf - score REF and ALT alleles of VCF variants located in splice donor and acceptor sites\n" +
+                "            --input=path  VCF file, may be compressed by gzip or bgzip\n" +
+                "            --output=path  TSV file with the results, compressed if the path ends with '.gz'\n" +
+                "            --threads=N  score batches of variants using N worker threads (0 - all processors, 1 by default)\n" +
+                "scan      - score every position of the genome as donor and acceptor site on both strands\n" +
+                "            --output=path  TSV file with the sites, compressed if the path ends with '.gz'\n" +
+                "            --threshold=X  report sites with score at least X (6 by default)\n" +
+                "            --region=chr7:39606001-39612480  scan the region only, can be repeated (all contigs by default)\n" +
+                "            --threads=N  scan chunks of the genome using N worker threads (0 - all processors, 1 by default)\n" +
+                "serve     - keep transcripts and genome loaded and answer scoring queries on http://localhost:PORT/\n" +
+                "            --port=N  port to listen on (8080 by default)\n" +
+                "            --threads=N  answer queries using N threads (all processors by default)\n" +
+                "merge     - merge results of the shards of a calculate run into a single file\n" +
+                "            --input=path  results of a shard, repeated for all shards in the order of the shards\n" +
+                "            --output=path  merged results, BGZF compressed and indexed if the path ends with '.bgz'\n" +
+                "pack_genome - convert reference genome FASTA file into 2bit file\n" +
+                "            --output=path  where to write the 2bit file, use it as 'ref.genome.2bit.file'\n" +
+                "pack_transcripts - convert Jannovar transcript database into compact snapshot\n" +
+                "            --output=path  where to write the snapshot, use it as 'transcript.snapshot.file'\n" +
+                "help      - display this message\n";
+    }
 }
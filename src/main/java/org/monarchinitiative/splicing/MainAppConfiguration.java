@@ -3,39 +3,196 @@ package org.monarchinitiative.splicing;
 import de.charite.compbio.jannovar.data.JannovarData;
 import de.charite.compbio.jannovar.data.JannovarDataSerializer;
 import de.charite.compbio.jannovar.data.SerializationException;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.monarchinitiative.splicing.calculate.Checkpoint;
+import org.monarchinitiative.splicing.calculate.SiteScoreCache;
 import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
 import org.monarchinitiative.splicing.calculate.TranscriptScorer;
+import org.monarchinitiative.splicing.io.BgzfOutputStream;
+import org.monarchinitiative.splicing.io.ConcatenatedGzipOutputStream;
 import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.IndexedFastaSequenceAccessor;
+import org.monarchinitiative.splicing.io.IndexedResultsWriter;
 import org.monarchinitiative.splicing.io.PositionalWeightMatrixParser;
 import org.monarchinitiative.splicing.io.ResultsWriter;
+import org.monarchinitiative.splicing.io.JannovarTranscriptSource;
+import org.monarchinitiative.splicing.io.MeteredGenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.TranscriptSnapshot;
+import org.monarchinitiative.splicing.io.TranscriptSource;
+import org.monarchinitiative.splicing.io.TwoBitSequenceAccessor;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Beans for the app's function.
+ * <p>
+ * All beans are lazy, therefore each command creates only the beans it uses. The resources that take long to load
+ * (Jannovar cache, reference genome and splice site definitions) are loaded concurrently on background threads as soon
+ * as the configuration is created, the beans wait for the resources to be loaded.
  *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
  */
 @Configuration
+@Lazy
 public class MainAppConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MainAppConfiguration.class);
 
+    /**
+     * Results are flushed to the disk in chunks of this size.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    private static final String SPLICE_SITES_RESOURCE = "spliceSites.yaml";
+
+    private static final String JANNOVAR_DATA = "transcripts";
+
+    private static final String GENOME = "reference genome";
+
+    private static final String SPLICE_SITES = "splice site definitions";
+
     private final Environment env;
 
+    /**
+     * Resources that are being loaded or have been loaded on background threads.
+     */
+    private final Map<String, CompletableFuture<?>> resources = new ConcurrentHashMap<>();
+
 
-    public MainAppConfiguration(Environment env) {
+    public MainAppConfiguration(Environment env, ApplicationArguments args) {
         this.env = env;
+        preload(args.getNonOptionArgs());
+    }
+
+
+    /**
+     * Start loading the resources needed by the commands, so that e.g. the Jannovar cache is deserialized while the
+     * reference genome index and the splice site definitions are being read.
+     */
+    private void preload(List<String> commands) {
+        boolean needsJannovarData = commands.contains("annotate_vcf") || commands.contains("serve")
+                // the transcripts are read from the snapshot on demand
+                || (commands.contains("calculate") && getSnapshotFile() == null);
+        boolean needsScoring = needsJannovarData || commands.contains("calculate")
+                || commands.contains("analyze_selected_exons") || commands.contains("scan");
+        if (needsJannovarData)
+            loadAsync(JANNOVAR_DATA, this::loadJannovarData);
+        if (needsScoring) {
+            loadAsync(GENOME, this::openGenomeSequenceAccessor);
+            loadAsync(SPLICE_SITES, this::parseSpliceSites);
+        }
+    }
+
+
+    /**
+     * Start loading the resource on a background thread, unless it is being loaded already.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> loadAsync(String name, Callable<T> loader) {
+        return (CompletableFuture<T>) resources.computeIfAbsent(name, k -> {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    future.complete(loader.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }, "loading " + name);
+            thread.setDaemon(true);
+            thread.start();
+            return future;
+        });
+    }
+
+
+    /**
+     * Wait for the resource to be loaded, start loading the resource if it has not been preloaded.
+     */
+    private <T> T load(String name, Callable<T> loader) throws IOException {
+        try {
+            return loadAsync(name, loader).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(String.format("Interrupted while loading %s", name), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(String.format("Unable to load %s", name), e.getCause());
+        }
+    }
+
+
+    private File getSnapshotFile() {
+        String snapshotPath = env.getProperty("transcript.snapshot.file");
+        return snapshotPath == null || snapshotPath.isEmpty() ? null : new File(snapshotPath);
+    }
+
+
+    /**
+     * The transcripts are read from the compact snapshot if the <code>transcript.snapshot.file</code> property is set,
+     * from the Jannovar cache otherwise.
+     */
+    private JannovarData loadJannovarData() throws SerializationException, IOException {
+        File snapshotFile = getSnapshotFile();
+        if (snapshotFile != null) {
+            LOGGER.info("Using transcript snapshot '{}'", snapshotFile.getAbsolutePath());
+            return new TranscriptSnapshot(snapshotFile).toJannovarData();
+        }
+        Path jannovarDataFile = Paths.get(Objects.requireNonNull(env.getProperty("jannovar.cache.file")));
+        LOGGER.info("Using Jannovar cache '{}'", jannovarDataFile.toAbsolutePath());
+        return new JannovarDataSerializer(jannovarDataFile.toString()).load();
+    }
+
+
+    /**
+     * The genome is read from 2bit file if the <code>ref.genome.2bit.file</code> property is set, from indexed FASTA
+     * file otherwise.
+     */
+    private GenomeSequenceAccessor openGenomeSequenceAccessor() throws IOException {
+        String twoBitPath = env.getProperty("ref.genome.2bit.file");
+        if (twoBitPath != null && !twoBitPath.isEmpty()) {
+            File refGenomeTwoBitFile = new File(twoBitPath);
+            LOGGER.info("Using reference genome 2bit file '{}'", refGenomeTwoBitFile.getAbsolutePath());
+            return new TwoBitSequenceAccessor(refGenomeTwoBitFile);
+        }
+        File refGenomeFastaFile = new File(Objects.requireNonNull(env.getProperty("ref.genome.fasta.file")));
+        File refGenomeFastaIndex = new File(refGenomeFastaFile.getAbsolutePath() + ".fai");
+        LOGGER.info("Using reference genome FASTA file '{}' and index file '{}'", refGenomeFastaFile.getAbsolutePath(), refGenomeFastaIndex.getAbsolutePath());
+        return new IndexedFastaSequenceAccessor(refGenomeFastaFile, refGenomeFastaIndex);
+    }
+
+
+    private SplicingInformationContentAnnotator parseSpliceSites() throws IOException {
+        URL spliceSitesUrl = MainAppConfiguration.class.getResource(SPLICE_SITES_RESOURCE);
+        LOGGER.info("Parsing splice site definitions from '{}'", spliceSitesUrl.toExternalForm());
+        try (InputStream is = new BufferedInputStream(spliceSitesUrl.openStream())) {
+            PositionalWeightMatrixParser parser = new PositionalWeightMatrixParser(is);
+            return new SplicingInformationContentAnnotator(parser.getDonorFrequencies(), parser.getAcceptorFrequencies());
+        }
     }
 
 
@@ -44,48 +201,73 @@ public class MainAppConfiguration {
         return Paths.get(Objects.requireNonNull(env.getProperty("jannovar.cache.file")));
     }
 
+
+    @Bean
+    public JannovarData jannovarData() throws IOException {
+        return load(JANNOVAR_DATA, this::loadJannovarData);
+    }
+
+
+    /**
+     * The transcripts are created on demand from the snapshot if the <code>transcript.snapshot.file</code> property is
+     * set, therefore only the transcripts being scored are kept in memory.
+     */
     @Bean
-    public JannovarData jannovarData(Path jannovarDataFile) throws SerializationException {
-        return new JannovarDataSerializer(jannovarDataFile.toString()).load();
+    public TranscriptSource transcriptSource(ObjectProvider<JannovarData> jannovarData) throws IOException {
+        File snapshotFile = getSnapshotFile();
+        if (snapshotFile != null)
+            return new TranscriptSnapshot(snapshotFile);
+        return new JannovarTranscriptSource(jannovarData.getObject());
     }
 
 
     @Bean
     public TranscriptScorer transcriptScorer(SplicingInformationContentAnnotator splicingInformationContentAnnotator,
-                                             GenomeSequenceAccessor genomeSequenceAccessor) {
-        return new TranscriptScorer(splicingInformationContentAnnotator, genomeSequenceAccessor);
+                                             GenomeSequenceAccessor genomeSequenceAccessor,
+                                             SiteScoreCache siteScoreCache,
+                                             PipelineMetrics pipelineMetrics) {
+        return new TranscriptScorer(splicingInformationContentAnnotator, genomeSequenceAccessor, siteScoreCache,
+                TranscriptScorer.FetchStrategy.AUTO, pipelineMetrics);
     }
 
 
+    /**
+     * Metrics of the scoring pipeline, observable over JMX during the run.
+     */
     @Bean
-    public File refGenomeFastaFile() {
-        return new File(Objects.requireNonNull(env.getProperty("ref.genome.fasta.file")));
+    public PipelineMetrics pipelineMetrics() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.registerMBean();
+        return metrics;
     }
 
 
+    /**
+     * The cache takes 16 bytes per site, the number of sites is set by <code>splicing.site.cache.size</code> property.
+     */
     @Bean
-    public GenomeSequenceAccessor genomeSequenceAccessor(File refGenomeFastaFile) {
-        File refGenomeFastaIndex = new File(refGenomeFastaFile.getAbsolutePath() + ".fai");
-        LOGGER.info("Using reference genome FASTA file '{}' and index file '{}'", refGenomeFastaFile.getAbsolutePath(), refGenomeFastaIndex.getAbsolutePath());
-        return new GenomeSequenceAccessor(refGenomeFastaFile, refGenomeFastaIndex);
+    public SiteScoreCache siteScoreCache() {
+        int capacity = Integer.parseInt(env.getProperty("splicing.site.cache.size", "2097152"));
+        LOGGER.info("Caching scores of up to {} splice sites", capacity);
+        return new SiteScoreCache(capacity);
     }
 
 
     @Bean
-    public URL spliceSitesUrl() {
-        return getClass().getResource("spliceSites.yaml");
+    public File refGenomeFastaFile() {
+        return new File(Objects.requireNonNull(env.getProperty("ref.genome.fasta.file")));
     }
 
 
     @Bean
-    public SplicingInformationContentAnnotator splicingInformationContentAnnotator(URL spliceSitesUrl) throws IOException {
-        SplicingInformationContentAnnotator icAnnotator;
-        LOGGER.info("Parsing splice site definitions from '{}'", spliceSitesUrl.toExternalForm());
-        try (InputStream is = new BufferedInputStream(spliceSitesUrl.openStream())) {
-            PositionalWeightMatrixParser parser = new PositionalWeightMatrixParser(is);
-            icAnnotator = new SplicingInformationContentAnnotator(parser.getDonorMatrix(), parser.getAcceptorMatrix());
-        }
-        return icAnnotator;
+    public GenomeSequenceAccessor genomeSequenceAccessor(PipelineMetrics pipelineMetrics) throws IOException {
+        return new MeteredGenomeSequenceAccessor(load(GENOME, this::openGenomeSequenceAccessor), pipelineMetrics);
+    }
+
+
+    @Bean
+    public SplicingInformationContentAnnotator splicingInformationContentAnnotator() throws IOException {
+        return load(SPLICE_SITES, this::parseSpliceSites);
     }
 
 
@@ -95,19 +277,59 @@ public class MainAppConfiguration {
     }
 
 
+    /**
+     * The results are appended to the output file of an interrupted run if the <code>--resume</code> option is set and
+     * the checkpoint of the run exists. The file is truncated to the length recorded in the checkpoint first.
+     */
     @Bean
-    public ResultsWriter resultsWriter(File mainOutputFile) throws IOException {
+    public ResultsWriter resultsWriter(File mainOutputFile, PipelineMetrics pipelineMetrics, ApplicationArguments args) throws IOException {
         if (!mainOutputFile.getParentFile().isDirectory() && !mainOutputFile.getParentFile().mkdirs())
             // try to create parent folders if they do not exist
             throw new RuntimeException("Unable to create file " + mainOutputFile.getAbsolutePath());
 
-        if (mainOutputFile.getName().endsWith(".gz")) {
+        long resumedLength = resumedLength(mainOutputFile, args);
+        boolean append = resumedLength > 0;
+        if (append)
+            LOGGER.info("Appending results to the first {} bytes of '{}'", resumedLength, mainOutputFile.getAbsolutePath());
+        FileChannel channel = FileChannel.open(mainOutputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(resumedLength);
+        channel.position(resumedLength);
+        OutputStream os = Channels.newOutputStream(channel);
+
+        if (mainOutputFile.getName().endsWith(".bgz")) {
+            int threads = Integer.parseInt(env.getProperty("bgzf.compression.threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            File indexFile = new File(mainOutputFile.getAbsolutePath() + ".tbi");
+            LOGGER.info("Writing results in BGZF format to '{}' using {} compression threads, index to '{}'",
+                    mainOutputFile.getAbsolutePath(), threads, indexFile.getAbsolutePath());
+            BgzfOutputStream bgzf = new BgzfOutputStream(new BufferedOutputStream(os, OUTPUT_BUFFER_SIZE), threads,
+                    BlockCompressedStreamConstants.DEFAULT_COMPRESSION_LEVEL, resumedLength);
+            InputStream existing = append ? new BufferedInputStream(new FileInputStream(mainOutputFile)) : null;
+            return new IndexedResultsWriter(bgzf, channel, existing, indexFile, pipelineMetrics);
+        } else if (mainOutputFile.getName().endsWith(".gz")) {
             LOGGER.info("Writing results in compressed format to '{}'", mainOutputFile.getAbsolutePath());
-            return new ResultsWriter(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(mainOutputFile))));
+            return new ResultsWriter(new BufferedOutputStream(new ConcatenatedGzipOutputStream(os, OUTPUT_BUFFER_SIZE), OUTPUT_BUFFER_SIZE), channel, append, pipelineMetrics);
         } else {
             LOGGER.info("Writing results to '{}'", mainOutputFile.getAbsolutePath());
-            return new ResultsWriter(new BufferedOutputStream(new FileOutputStream(mainOutputFile)));
+            return new ResultsWriter(new BufferedOutputStream(os, OUTPUT_BUFFER_SIZE), channel, append, pipelineMetrics);
         }
     }
 
+
+    /**
+     * @return length of the output file recorded in the checkpoint of the resumed run, or <code>0</code> if the results
+     * are written from the beginning
+     */
+    private static long resumedLength(File outputFile, ApplicationArguments args) throws IOException {
+        if (!args.containsOption("resume"))
+            return 0;
+        Checkpoint checkpoint = Checkpoint.read(Checkpoint.fileFor(outputFile));
+        if (checkpoint == null)
+            return 0;
+        if (checkpoint.getLength() > outputFile.length())
+            throw new IOException(String.format("Output file '%s' is shorter than recorded in the checkpoint: %d < %d",
+                    outputFile.getAbsolutePath(), outputFile.length(), checkpoint.getLength()));
+        return checkpoint.getLength();
+    }
+
 }
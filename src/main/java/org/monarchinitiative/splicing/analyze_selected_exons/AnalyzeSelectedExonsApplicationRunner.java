@@ -1,77 +1,63 @@
 package org.monarchinitiative.splicing.analyze_selected_exons;
 
-import de.charite.compbio.jannovar.data.JannovarData;
-import de.charite.compbio.jannovar.data.ReferenceDictionary;
-import de.charite.compbio.jannovar.reference.GenomeInterval;
-import de.charite.compbio.jannovar.reference.Strand;
+import org.monarchinitiative.splicing.CommandLineArguments;
 import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.concurrent.OrderedBatchExecutor;
 import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.LineBatchIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AnalyzeSelectedExonsApplicationRunner implements ApplicationRunner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnalyzeSelectedExonsApplicationRunner.class);
 
-    private final GenomeSequenceAccessor sequenceAccessor;
+    /**
+     * Number of lines scored by a single task.
+     */
+    private static final int BATCH_SIZE = 10_000;
 
-    private final SplicingInformationContentAnnotator splicingInformationContentAnnotator;
+    /**
+     * Cumulative statistics are logged after this number of batches.
+     */
+    private static final int REPORT_EVERY_N_BATCHES = 100;
 
-    private final JannovarData jannovarData;
+    private final ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider;
 
-    public AnalyzeSelectedExonsApplicationRunner(GenomeSequenceAccessor sequenceAccessor,
-                                                 SplicingInformationContentAnnotator splicingInformationContentAnnotator,
-                                                 JannovarData jannovarData) {
-        this.sequenceAccessor = sequenceAccessor;
-        this.splicingInformationContentAnnotator = splicingInformationContentAnnotator;
-        this.jannovarData = jannovarData;
-    }
+    private final ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider;
 
-    private static String reverseComplement(String seq) {
-        char[] oldSeq = seq.toCharArray();
-        char[] newSeq = new char[oldSeq.length];
-        int idx = oldSeq.length - 1;
-        for (int i = 0; i < oldSeq.length; i++) {
-            if (oldSeq[i] == 'A') {
-                newSeq[idx - i] = 'T';
-            } else if (oldSeq[i] == 'a') {
-                newSeq[idx - i] = 't';
-            } else if (oldSeq[i] == 'T') {
-                newSeq[idx - i] = 'A';
-            } else if (oldSeq[i] == 't') {
-                newSeq[idx - i] = 'a';
-            } else if (oldSeq[i] == 'C') {
-                newSeq[idx - i] = 'G';
-            } else if (oldSeq[i] == 'c') {
-                newSeq[idx - i] = 'g';
-            } else if (oldSeq[i] == 'G') {
-                newSeq[idx - i] = 'C';
-            } else if (oldSeq[i] == 'g') {
-                newSeq[idx - i] = 'c';
-            } else if (oldSeq[i] == 'N') {
-                newSeq[idx - i] = 'N';
-            } else if (oldSeq[i] == 'n') {
-                newSeq[idx - i] = 'n';
-            } else throw new IllegalArgumentException(String.format("Illegal nucleotide %s in sequence %s",
-                    oldSeq[i], seq));
-        }
-        return new String(newSeq);
+    /**
+     * The resources are loaded only if the command is run.
+     */
+    public AnalyzeSelectedExonsApplicationRunner(ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider,
+                                                 ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider) {
+        this.sequenceAccessorProvider = sequenceAccessorProvider;
+        this.splicingInformationContentAnnotatorProvider = splicingInformationContentAnnotatorProvider;
     }
 
+
     /**
      * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
      * analyze_selected_exons --input=/home/ielis/dwn/fromGTF.SE.tsv --output=analysis_of_given_exons.tsv</code>
+     * <p>
+     * The lines are read in batches, the batches are scored on <code>--threads</code> worker threads and written in
+     * the order of the input file.
+     *
      * @param args application args
      * @throws Exception if troubles
      */
@@ -96,64 +82,88 @@ public class AnalyzeSelectedExonsApplicationRunner implements ApplicationRunner
                 return;
             }
             outputPath = Paths.get(args.getOptionValues("output").get(0));
+            int threads = CommandLineArguments.getThreads(args);
 
             LOGGER.info("Reading data from '{}'", inputPath);
             LOGGER.info("Writing results to '{}'", outputPath);
 
             try (BufferedReader reader = Files.newBufferedReader(inputPath);
                  BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-                ReferenceDictionary rd = jannovarData.getRefDict();
-
                 String header = reader.readLine();
+                if (header == null) {
+                    LOGGER.warn("Input file '{}' is empty", inputPath);
+                    return;
+                }
                 header = header + "\t" + "donorIC" + "\t" + "acceptorIC";
                 writer.write(header);
                 writer.newLine();
 
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    final String[] tokens = line.split("\t");
-                    String contig = tokens[3];
-                    Strand strand = tokens[4].equals("+") ? Strand.FWD : Strand.REV;
-                    int begin = Integer.parseInt(tokens[5]); // 0-based (excluded) coordinate on FWD string
-                    int end = Integer.parseInt(tokens[6]); // 0-based (included) coordinate on FWD string
-
-                    GenomeInterval exon = new GenomeInterval(rd, Strand.FWD, rd.getContigNameToID().get(contig), begin, end).withStrand(strand);
-                    GenomeInterval donor = new GenomeInterval(exon.getGenomeEndPos().shifted(-3), 9);
-                    String donorSeq;
-                    if (strand.isForward()) {
-                        donorSeq = sequenceAccessor.fetchSequence(contig,
-                                donor.getBeginPos(),
-                                donor.getEndPos());
-                    } else {
-                        donorSeq = sequenceAccessor.fetchSequence(contig,
-                                donor.getGenomeEndPos().withStrand(Strand.FWD).getPos() + 1,
-                                donor.getGenomeBeginPos().withStrand(Strand.FWD).getPos() + 1);
-                        donorSeq = reverseComplement(donorSeq);
+                SelectedExonScorer scorer = new SelectedExonScorer(sequenceAccessorProvider.getObject(), splicingInformationContentAnnotatorProvider.getObject());
+                BatchCounter counter = new BatchCounter(writer);
+                if (threads == 1) {
+                    new LineBatchIterator(reader, BATCH_SIZE).forEachRemaining(batch -> counter.accept(scorer.scoreBatch(batch)));
+                } else {
+                    LOGGER.info("Scoring exons using {} worker threads", threads);
+                    try (OrderedBatchExecutor executor = new OrderedBatchExecutor(threads, 1)) {
+                        // each item is a batch of lines already
+                        executor.process(new LineBatchIterator(reader, BATCH_SIZE), scorer::scoreBatch, counter::accept);
                     }
-                    final double spliceDonorScore = splicingInformationContentAnnotator.getSpliceDonorScore(donorSeq);
-
-
-                    GenomeInterval acceptor = new GenomeInterval(exon.getGenomeBeginPos().shifted(-25), 27);
-                    String acceptorSeq;
-                    if (strand.isForward()) {
-                        acceptorSeq = sequenceAccessor.fetchSequence(contig,
-                                acceptor.getBeginPos(),
-                                acceptor.getEndPos());
-                    } else {
-                        acceptorSeq = sequenceAccessor.fetchSequence(contig,
-                                acceptor.getGenomeEndPos().withStrand(Strand.FWD).getPos() + 1,
-                                acceptor.getGenomeBeginPos().withStrand(Strand.FWD).getPos() + 1);
-                        acceptorSeq = reverseComplement(acceptorSeq);
-                    }
-                    final double spliceAcceptorScore = splicingInformationContentAnnotator.getSpliceAcceptorScore(acceptorSeq);
-
-                    writer.write(line + "\t" + spliceDonorScore + "\t" + spliceAcceptorScore);
-                    writer.newLine();
                 }
-
+                counter.logTotals();
             }
         } catch (Exception e) {
             LOGGER.error("Exception: ", e);
         }
     }
+
+
+    /**
+     * Writes the scored batches and keeps track of the throughput.
+     */
+    private static final class BatchCounter {
+
+        private final BufferedWriter writer;
+
+        private final long start = System.nanoTime();
+
+        private int batches;
+
+        private long lines;
+
+        private long unscoredSites;
+
+        private long scoringNanos;
+
+        private BatchCounter(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        private static double perSecond(long count, long nanos) {
+            return nanos == 0 ? 0. : count * 1E9 / nanos;
+        }
+
+        private void accept(SelectedExonScorer.ScoredBatch batch) {
+            try {
+                writer.write(batch.getOutput());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            batches++;
+            lines += batch.getLines();
+            unscoredSites += batch.getUnscoredSites();
+            scoringNanos += batch.getScoringNanos();
+            LOGGER.debug("Batch {}: scored {} exons in {} ms ({} exons/s), {} sites not scored", batches, batch.getLines(),
+                    TimeUnit.NANOSECONDS.toMillis(batch.getScoringNanos()),
+                    String.format("%.0f", perSecond(batch.getLines(), batch.getScoringNanos())), batch.getUnscoredSites());
+            if (batches % REPORT_EVERY_N_BATCHES == 0)
+                logTotals();
+        }
+
+        private void logTotals() {
+            long elapsed = System.nanoTime() - start;
+            LOGGER.info("Scored {} exons in {} batches, {} exons/s ({} exons/s per worker), {} sites not scored", lines,
+                    batches, String.format("%.0f", perSecond(lines, elapsed)),
+                    String.format("%.0f", perSecond(lines, scoringNanos)), unscoredSites);
+        }
+    }
 }
@@ -0,0 +1,159 @@
+package org.monarchinitiative.splicing.analyze_selected_exons;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.util.List;
+
+import static org.monarchinitiative.splicing.calculate.TranscriptScorer.*;
+
+/**
+ * Score splice donor and acceptor sites of exons described by lines of the input TSV file. The contig, strand and
+ * 0-based begin and end coordinates of the exon on the forward strand are expected in 4th, 5th, 6th and 7th column.
+ * <p>
+ * The coordinates of the sites are calculated directly from the columns. If the exon is short, bases spanning both
+ * sites are fetched in a single read. Sites on the reverse strand are scored in place as reverse complement of the
+ * forward strand bases. Sites that cannot be scored get {@link Double#NaN}.
+ * <p>
+ * Instances are thread safe, if the {@link GenomeSequenceAccessor} is thread safe.
+ */
+public final class SelectedExonScorer {
+
+    private final GenomeSequenceAccessor sequenceAccessor;
+
+    private final SplicingInformationContentAnnotator annotator;
+
+
+    public SelectedExonScorer(GenomeSequenceAccessor sequenceAccessor, SplicingInformationContentAnnotator annotator) {
+        this.sequenceAccessor = sequenceAccessor;
+        this.annotator = annotator;
+    }
+
+
+    private static int nextTab(String line, int from) {
+        int tab = line.indexOf('\t', from);
+        if (tab < 0)
+            throw new IllegalArgumentException(String.format("Expected at least 7 columns in line '%s'", line));
+        return tab;
+    }
+
+
+    /**
+     * Score splice donor and acceptor site of the exon.
+     *
+     * @param contig contig name
+     * @param strand strand of the exon
+     * @param begin  0-based begin coordinate of the exon on {@link Strand#FWD} (excluded)
+     * @param end    0-based end coordinate of the exon on {@link Strand#FWD} (included)
+     * @return array with donor and acceptor score, {@link Double#NaN} if the site cannot be scored
+     */
+    public double[] scoreExon(String contig, Strand strand, int begin, int end) {
+        // on the forward strand, the site located upstream of the exon begin is acceptor for exons on FWD strand
+        // and donor for exons on REV strand, and the other way around for the site downstream of the exon end
+        boolean fwd = strand.isForward();
+        int upstreamLength = fwd ? SPLICE_ACCEPTOR_SITE_LENGTH : SPLICE_DONOR_SITE_LENGTH;
+        int downstreamLength = fwd ? SPLICE_DONOR_SITE_LENGTH : SPLICE_ACCEPTOR_SITE_LENGTH;
+        int upstreamBegin = begin - (fwd ? SPLICE_ACCEPTOR_SITE_INTRONIC_NTS : upstreamLength - SPLICE_DONOR_SITE_EXONIC_NTS);
+        int downstreamBegin = end - (fwd ? SPLICE_DONOR_SITE_EXONIC_NTS : downstreamLength - SPLICE_ACCEPTOR_SITE_INTRONIC_NTS);
+
+        // fetch both sites in a single read if the exon is short, separately if the exon is long or if the
+        // region spanning the sites is not available, e.g. at the end of contig
+        byte[] bases = end - begin < READ_COST_IN_BASES
+                ? sequenceAccessor.fetchBases(contig, upstreamBegin, downstreamBegin + downstreamLength)
+                : null;
+        byte[] upstream, downstream;
+        int downstreamOffset;
+        if (bases != null) {
+            upstream = downstream = bases;
+            downstreamOffset = downstreamBegin - upstreamBegin;
+        } else {
+            upstream = sequenceAccessor.fetchBases(contig, upstreamBegin, upstreamBegin + upstreamLength);
+            downstream = sequenceAccessor.fetchBases(contig, downstreamBegin, downstreamBegin + downstreamLength);
+            downstreamOffset = 0;
+        }
+        double donor = fwd
+                ? annotator.getSpliceDonorScore(downstream, downstreamOffset, strand)
+                : annotator.getSpliceDonorScore(upstream, 0, strand);
+        double acceptor = fwd
+                ? annotator.getSpliceAcceptorScore(upstream, 0, strand)
+                : annotator.getSpliceAcceptorScore(downstream, downstreamOffset, strand);
+        return new double[]{donor, acceptor};
+    }
+
+
+    /**
+     * Score the batch of lines.
+     *
+     * @param lines lines of the input file
+     * @return {@link ScoredBatch} with the input lines extended by donor and acceptor scores
+     */
+    ScoredBatch scoreBatch(List<String> lines) {
+        long start = System.nanoTime();
+        StringBuilder output = new StringBuilder(lines.size() * 128);
+        int unscored = 0;
+        for (String line : lines) {
+            // columns 4-7 contain contig, strand, begin and end
+            int from = nextTab(line, nextTab(line, nextTab(line, 0) + 1) + 1) + 1;
+            int strandFrom = nextTab(line, from) + 1;
+            int beginFrom = nextTab(line, strandFrom) + 1;
+            int endFrom = nextTab(line, beginFrom) + 1;
+            int endTo = line.indexOf('\t', endFrom);
+
+            String contig = line.substring(from, strandFrom - 1);
+            Strand strand = line.startsWith("+\t", strandFrom) ? Strand.FWD : Strand.REV;
+            int begin = Integer.parseInt(line.substring(beginFrom, endFrom - 1)); // 0-based (excluded) coordinate on FWD strand
+            int end = Integer.parseInt(line.substring(endFrom, endTo < 0 ? line.length() : endTo)); // 0-based (included) coordinate on FWD strand
+
+            double[] scores = scoreExon(contig, strand, begin, end);
+            double donor = scores[0], acceptor = scores[1];
+            if (Double.isNaN(donor))
+                unscored++;
+            if (Double.isNaN(acceptor))
+                unscored++;
+            output.append(line).append('\t').append(donor).append('\t').append(acceptor).append(System.lineSeparator());
+        }
+        return new ScoredBatch(output.toString(), lines.size(), unscored, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Scored lines of a batch together with the batch statistics.
+     */
+    static final class ScoredBatch {
+
+        private final String output;
+
+        private final int lines;
+
+        private final int unscoredSites;
+
+        private final long scoringNanos;
+
+        ScoredBatch(String output, int lines, int unscoredSites, long scoringNanos) {
+            this.output = output;
+            this.lines = lines;
+            this.unscoredSites = unscoredSites;
+            this.scoringNanos = scoringNanos;
+        }
+
+        /**
+         * @return the scored lines, each line is terminated by line separator
+         */
+        String getOutput() {
+            return output;
+        }
+
+        int getLines() {
+            return lines;
+        }
+
+        int getUnscoredSites() {
+            return unscoredSites;
+        }
+
+        long getScoringNanos() {
+            return scoringNanos;
+        }
+    }
+}
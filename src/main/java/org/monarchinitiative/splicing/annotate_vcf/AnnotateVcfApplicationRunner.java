@@ -0,0 +1,186 @@
+package org.monarchinitiative.splicing.annotate_vcf;
+
+import de.charite.compbio.jannovar.data.JannovarData;
+import org.monarchinitiative.splicing.CommandLineArguments;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.concurrent.OrderedBatchExecutor;
+import org.monarchinitiative.splicing.io.BgzfOutputStream;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.LineBatchIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Score REF and ALT alleles of the VCF variants that overlap splice donor or acceptor sites of the transcripts.
+ * <p>
+ * The VCF file is streamed in batches of {@link #BATCH_SIZE} lines, the batches are scored on <code>--threads</code>
+ * worker threads and written in the order of the input file. Only a bounded number of batches is held in memory,
+ * regardless of the size of the VCF file.
+ */
+@Component
+public class AnnotateVcfApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotateVcfApplicationRunner.class);
+
+    /**
+     * Number of VCF lines scored by a single task.
+     */
+    private static final int BATCH_SIZE = 50_000;
+
+    /**
+     * Cumulative statistics are logged after this number of batches.
+     */
+    private static final int REPORT_EVERY_N_BATCHES = 100;
+
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    private final ObjectProvider<JannovarData> jannovarDataProvider;
+
+    private final ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider;
+
+    private final ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider;
+
+
+    /**
+     * The resources are loaded only if the command is run.
+     */
+    public AnnotateVcfApplicationRunner(ObjectProvider<JannovarData> jannovarDataProvider,
+                                        ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider,
+                                        ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider) {
+        this.jannovarDataProvider = jannovarDataProvider;
+        this.sequenceAccessorProvider = sequenceAccessorProvider;
+        this.splicingInformationContentAnnotatorProvider = splicingInformationContentAnnotatorProvider;
+    }
+
+
+    /**
+     * The VCF file is decompressed if the name ends with <code>.gz</code>, both gzip and BGZF files are supported.
+     */
+    private static BufferedReader openInput(File input) throws IOException {
+        InputStream is = new FileInputStream(input);
+        if (input.getName().endsWith(".gz"))
+            is = new GZIPInputStream(is, IO_BUFFER_SIZE);
+        return new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+    }
+
+
+    private static Writer openOutput(File output, int threads) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(output), IO_BUFFER_SIZE);
+        if (output.getName().endsWith(".gz"))
+            // BGZF is a valid gzip file and it is compressed on multiple threads
+            os = new BgzfOutputStream(os, threads);
+        return new OutputStreamWriter(os, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
+     * annotate_vcf --input=variants.vcf.gz --output=variants.splicing.tsv.gz --threads=8</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("annotate_vcf")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        try {
+            if (!args.containsOption("input")) {
+                LOGGER.warn("Please provide path to input VCF file");
+                return;
+            }
+            File input = new File(args.getOptionValues("input").get(0));
+            if (!args.containsOption("output")) {
+                LOGGER.warn("Please provide path to output file");
+                return;
+            }
+            File output = new File(args.getOptionValues("output").get(0));
+            int threads = CommandLineArguments.getThreads(args);
+
+            long begin = System.nanoTime();
+            SpliceSiteIndex index = SpliceSiteIndex.build(jannovarDataProvider.getObject().getTmByAccession().values());
+            LOGGER.info("Indexed {} splice sites in {} ms", index.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+
+            LOGGER.info("Reading variants from '{}'", input.getAbsolutePath());
+            LOGGER.info("Writing results to '{}'", output.getAbsolutePath());
+            VariantScorer scorer = new VariantScorer(index, sequenceAccessorProvider.getObject(), splicingInformationContentAnnotatorProvider.getObject());
+            try (BufferedReader reader = openInput(input);
+                 Writer writer = openOutput(output, threads)) {
+                writer.write("#" + String.join("\t", VariantScorer.HEADER) + System.lineSeparator());
+                BatchCounter counter = new BatchCounter(writer);
+                if (threads == 1) {
+                    new LineBatchIterator(reader, BATCH_SIZE).forEachRemaining(batch -> counter.accept(scorer.scoreBatch(batch)));
+                } else {
+                    LOGGER.info("Scoring variants using {} worker threads", threads);
+                    try (OrderedBatchExecutor executor = new OrderedBatchExecutor(threads, 1)) {
+                        // each item is a batch of lines already
+                        executor.process(new LineBatchIterator(reader, BATCH_SIZE), scorer::scoreBatch, counter::accept);
+                    }
+                }
+                counter.logTotals();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception: ", e);
+        }
+    }
+
+
+    /**
+     * Writes the scored batches and keeps track of the throughput.
+     */
+    private static final class BatchCounter {
+
+        private final Writer writer;
+
+        private final long start = System.nanoTime();
+
+        private int batches;
+
+        private long variants;
+
+        private long variantsInSites;
+
+        private long unscoredVariants;
+
+        private long refMismatches;
+
+        private BatchCounter(Writer writer) {
+            this.writer = writer;
+        }
+
+        private void accept(VariantScorer.ScoredBatch batch) {
+            try {
+                writer.write(batch.getOutput());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            batches++;
+            variants += batch.getVariants();
+            variantsInSites += batch.getVariantsInSites();
+            unscoredVariants += batch.getUnscoredVariants();
+            refMismatches += batch.getRefMismatches();
+            LOGGER.debug("Batch {}: scored {} variants in {} ms, {} in splice sites", batches, batch.getVariants(),
+                    TimeUnit.NANOSECONDS.toMillis(batch.getScoringNanos()), batch.getVariantsInSites());
+            if (batches % REPORT_EVERY_N_BATCHES == 0)
+                logTotals();
+        }
+
+        private void logTotals() {
+            long elapsed = System.nanoTime() - start;
+            LOGGER.info("Processed {} variants ({} variants/s), {} in splice sites, {} not scored, {} with REF not matching the reference",
+                    variants, String.format("%.0f", elapsed == 0 ? 0. : variants * 1E9 / elapsed), variantsInSites,
+                    unscoredVariants, refMismatches);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.monarchinitiative.splicing.annotate_vcf;
+
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+import java.util.*;
+
+import static org.monarchinitiative.splicing.calculate.TranscriptScorer.*;
+
+/**
+ * Index of the splice donor and acceptor site windows of all transcripts. The windows are the same as the windows
+ * scored by {@link org.monarchinitiative.splicing.calculate.TranscriptScorer}, i.e. donor sites of all but the last
+ * exon and acceptor sites of all but the first exon, located within the transcript region.
+ * <p>
+ * Windows of each contig are stored sorted by the begin position. Since no window is longer than
+ * {@link #MAX_SITE_LENGTH}, the windows overlapping a query interval are found by a single binary search followed by a
+ * short scan. Sites shared by multiple transcripts are stored once, together with accessions of all the transcripts.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+final class SpliceSiteIndex {
+
+    static final int MAX_SITE_LENGTH = Math.max(SPLICE_DONOR_SITE_LENGTH, SPLICE_ACCEPTOR_SITE_LENGTH);
+
+    private final Map<String, ContigSites> contigs;
+
+    private final int size;
+
+
+    private SpliceSiteIndex(Map<String, ContigSites> contigs) {
+        this.contigs = contigs;
+        this.size = contigs.values().stream().mapToInt(cs -> cs.sites.length).sum();
+    }
+
+
+    /**
+     * Build the index from the <code>transcripts</code>.
+     *
+     * @param transcripts {@link TranscriptModel}s whose sites are indexed
+     * @return the index
+     */
+    static SpliceSiteIndex build(Collection<TranscriptModel> transcripts) {
+        // contig -> site key -> site with accessions of the transcripts
+        Map<String, Map<Long, SiteBuilder>> builders = new HashMap<>();
+        for (TranscriptModel tm : transcripts) {
+            List<GenomeInterval> exons = tm.getExonRegions();
+            GenomeInterval region = tm.getTXRegion().withStrand(Strand.FWD);
+            Map<Long, SiteBuilder> contig = builders.computeIfAbsent(normalizeContig(contigName(region)), k -> new HashMap<>());
+            for (int i = 0; i < exons.size(); i++) {
+                if (i < exons.size() - 1)
+                    addSite(contig, region, donorSiteBegin(exons.get(i)), false, tm);
+                if (i > 0)
+                    addSite(contig, region, acceptorSiteBegin(exons.get(i)), true, tm);
+            }
+        }
+
+        Map<String, ContigSites> contigs = new HashMap<>();
+        for (Map.Entry<String, Map<Long, SiteBuilder>> entry : builders.entrySet()) {
+            Site[] sites = entry.getValue().values().stream()
+                    .map(SiteBuilder::build)
+                    .sorted(Comparator.comparingInt(Site::getBegin)
+                            .thenComparing(Site::isAcceptor)
+                            .thenComparing(Site::getStrand))
+                    .toArray(Site[]::new);
+            if (sites.length > 0)
+                contigs.put(entry.getKey(), new ContigSites(sites));
+        }
+        return new SpliceSiteIndex(contigs);
+    }
+
+
+    private static void addSite(Map<Long, SiteBuilder> contig, GenomeInterval region, int begin, boolean acceptor,
+                                TranscriptModel tm) {
+        int end = begin + (acceptor ? SPLICE_ACCEPTOR_SITE_LENGTH : SPLICE_DONOR_SITE_LENGTH);
+        if (begin < region.getBeginPos() || end > region.getEndPos())
+            // the sites beyond the transcript region are not scored
+            return;
+        long key = (long) begin << 2 | (acceptor ? 2 : 0) | (tm.getStrand().isForward() ? 0 : 1);
+        contig.computeIfAbsent(key, k -> new SiteBuilder(begin, end, acceptor, tm.getStrand()))
+                .accessions.add(tm.getAccession());
+    }
+
+
+    /**
+     * @param contig contig name, e.g. <code>chr7</code> or <code>7</code>
+     * @return the name prefixed with <code>'chr'</code>, the same contig is present under the same name regardless
+     * of the naming scheme
+     */
+    static String normalizeContig(String contig) {
+        return contig.startsWith("chr") ? contig : "chr" + contig;
+    }
+
+
+    /**
+     * @return number of the indexed sites
+     */
+    int size() {
+        return size;
+    }
+
+
+    /**
+     * Find the sites overlapping the interval. The method does not allocate if there are no such sites.
+     *
+     * @param contig contig name, <code>chr</code> prefix is optional
+     * @param begin  0-based begin of the interval on {@link Strand#FWD}
+     * @param end    0-based end of the interval on {@link Strand#FWD}, exclusive
+     * @return sites overlapping the interval sorted by the begin position, an empty list if there are none
+     */
+    List<Site> overlapping(String contig, int begin, int end) {
+        ContigSites cs = contigs.get(normalizeContig(contig));
+        if (cs == null)
+            return Collections.emptyList();
+
+        // the first site that may overlap the interval
+        int idx = Arrays.binarySearch(cs.begins, begin - MAX_SITE_LENGTH + 1);
+        if (idx < 0)
+            idx = -idx - 1;
+        else
+            while (idx > 0 && cs.begins[idx - 1] == cs.begins[idx]) idx--;
+
+        List<Site> result = null;
+        for (int i = idx; i < cs.begins.length && cs.begins[i] < end; i++) {
+            Site site = cs.sites[i];
+            if (site.end > begin) {
+                if (result == null)
+                    result = new ArrayList<>(2);
+                result.add(site);
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+
+    /**
+     * Splice donor or acceptor site window, 0-based coordinates on {@link Strand#FWD}.
+     */
+    static final class Site {
+
+        private final int begin;
+
+        private final int end;
+
+        private final boolean acceptor;
+
+        private final Strand strand;
+
+        private final String transcripts;
+
+        private Site(int begin, int end, boolean acceptor, Strand strand, String transcripts) {
+            this.begin = begin;
+            this.end = end;
+            this.acceptor = acceptor;
+            this.strand = strand;
+            this.transcripts = transcripts;
+        }
+
+        int getBegin() {
+            return begin;
+        }
+
+        int getEnd() {
+            return end;
+        }
+
+        boolean isAcceptor() {
+            return acceptor;
+        }
+
+        Strand getStrand() {
+            return strand;
+        }
+
+        /**
+         * @return comma separated accessions of the transcripts that share the site
+         */
+        String getTranscripts() {
+            return transcripts;
+        }
+    }
+
+
+    private static final class SiteBuilder {
+
+        private final int begin;
+
+        private final int end;
+
+        private final boolean acceptor;
+
+        private final Strand strand;
+
+        private final SortedSet<String> accessions = new TreeSet<>();
+
+        private SiteBuilder(int begin, int end, boolean acceptor, Strand strand) {
+            this.begin = begin;
+            this.end = end;
+            this.acceptor = acceptor;
+            this.strand = strand;
+        }
+
+        private Site build() {
+            return new Site(begin, end, acceptor, strand, String.join(",", accessions));
+        }
+    }
+
+
+    /**
+     * Sites of a contig sorted by the begin position, the begin positions are copied into an array of primitives for
+     * the binary search.
+     */
+    private static final class ContigSites {
+
+        private final Site[] sites;
+
+        private final int[] begins;
+
+        private ContigSites(Site[] sites) {
+            this.sites = sites;
+            this.begins = Arrays.stream(sites).mapToInt(Site::getBegin).toArray();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.monarchinitiative.splicing.annotate_vcf;
+
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.util.List;
+
+import static org.monarchinitiative.splicing.calculate.TranscriptScorer.SPLICE_ACCEPTOR_SITE_LENGTH;
+import static org.monarchinitiative.splicing.calculate.TranscriptScorer.SPLICE_DONOR_SITE_LENGTH;
+
+/**
+ * Score impact of VCF variants on the splice sites. For each ALT allele of a variant that overlaps a splice site
+ * window, the site is scored with the REF and with the ALT allele.
+ * <p>
+ * Variants that do not overlap any window in the {@link SpliceSiteIndex} are skipped before any column besides the
+ * position is parsed. For the remaining variants, a single reference region spanning the variant and all overlapping
+ * windows is fetched. The ALT sequence is obtained by patching the ALT allele into the fetched bases, no sequence is
+ * fetched for the individual alleles. The ALT window is anchored at the begin of the site, or at the end of the site if
+ * the variant begins upstream of the site on the forward strand, so that the bases of the window that are not affected
+ * by an indel stay in place.
+ * <p>
+ * Alleles other than [ACGTNacgtn] (e.g. <code>&lt;DEL&gt;</code>, <code>*</code>) are skipped. Variants whose REF
+ * allele does not match the reference genome are counted and skipped.
+ * <p>
+ * Instances are thread safe, if the {@link GenomeSequenceAccessor} is thread safe.
+ */
+final class VariantScorer {
+
+    static final String[] HEADER = {"CHR", "POS", "REF", "ALT", "SITE", "STRAND", "SITE_BEGIN", "SITE_END",
+            "TRANSCRIPTS", "REF_SCORE", "ALT_SCORE", "DELTA"};
+
+    private final SpliceSiteIndex index;
+
+    private final GenomeSequenceAccessor sequenceAccessor;
+
+    private final SplicingInformationContentAnnotator annotator;
+
+
+    VariantScorer(SpliceSiteIndex index, GenomeSequenceAccessor sequenceAccessor, SplicingInformationContentAnnotator annotator) {
+        this.index = index;
+        this.sequenceAccessor = sequenceAccessor;
+        this.annotator = annotator;
+    }
+
+
+    private static int nextTab(String line, int from) {
+        int tab = line.indexOf('\t', from);
+        if (tab < 0)
+            throw new IllegalArgumentException(String.format("Expected at least 5 columns in line '%s'", line));
+        return tab;
+    }
+
+
+    private static int parsePosition(String line, int begin, int end) {
+        if (begin == end)
+            throw new IllegalArgumentException(String.format("Missing position in line '%s'", line));
+        int value = 0;
+        for (int i = begin; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException(String.format("Invalid position in line '%s'", line));
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+
+    private static boolean isValidAllele(String allele) {
+        if (allele.isEmpty())
+            return false;
+        for (int i = 0; i < allele.length(); i++) {
+            switch (allele.charAt(i)) {
+                case 'A': case 'C': case 'G': case 'T': case 'N':
+                case 'a': case 'c': case 'g': case 't': case 'n':
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean matchesReference(byte[] bases, int offset, String ref) {
+        if (offset < 0 || offset + ref.length() > bases.length)
+            return false;
+        for (int i = 0; i < ref.length(); i++) {
+            if (Character.toUpperCase((char) bases[offset + i]) != Character.toUpperCase(ref.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+
+    private static int siteLength(SpliceSiteIndex.Site site) {
+        return site.isAcceptor() ? SPLICE_ACCEPTOR_SITE_LENGTH : SPLICE_DONOR_SITE_LENGTH;
+    }
+
+
+    /**
+     * @return score of the site starting at <code>offset</code> or {@link Double#NaN} if the site is not contained in
+     * the <code>bases</code>
+     */
+    private double score(byte[] bases, int offset, SpliceSiteIndex.Site site) {
+        if (offset < 0 || offset + siteLength(site) > bases.length)
+            return Double.NaN;
+        return site.isAcceptor()
+                ? annotator.getSpliceAcceptorScore(bases, offset, site.getStrand())
+                : annotator.getSpliceDonorScore(bases, offset, site.getStrand());
+    }
+
+
+    /**
+     * Score the batch of VCF lines, the header lines are skipped.
+     *
+     * @param lines lines of the VCF file
+     * @return {@link ScoredBatch} with one output line per ALT allele and overlapping site
+     */
+    ScoredBatch scoreBatch(List<String> lines) {
+        long start = System.nanoTime();
+        StringBuilder output = new StringBuilder();
+        int variants = 0, inSites = 0, unscored = 0, refMismatches = 0;
+        for (String line : lines) {
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+            variants++;
+
+            // CHROM, POS, ID, REF and ALT columns
+            int chromEnd = nextTab(line, 0);
+            int posEnd = nextTab(line, chromEnd + 1);
+            int idEnd = nextTab(line, posEnd + 1);
+            int refEnd = nextTab(line, idEnd + 1);
+            int variantBegin = parsePosition(line, chromEnd + 1, posEnd) - 1; // 0-based on FWD strand
+            int variantEnd = variantBegin + refEnd - idEnd - 1;
+
+            String contig = line.substring(0, chromEnd);
+            List<SpliceSiteIndex.Site> sites = index.overlapping(contig, variantBegin, variantEnd);
+            if (sites.isEmpty())
+                continue;
+            inSites++;
+
+            int altEnd = line.indexOf('\t', refEnd + 1);
+            String ref = line.substring(idEnd + 1, refEnd);
+            String[] alts = line.substring(refEnd + 1, altEnd < 0 ? line.length() : altEnd).split(",");
+
+            // fetch the region with all sites, extended by the longest deletion so that the ALT windows are available
+            int pad = 0;
+            for (String alt : alts) {
+                if (isValidAllele(alt))
+                    pad = Math.max(pad, ref.length() - alt.length());
+            }
+            int regionBegin = variantBegin, regionEnd = variantEnd;
+            for (SpliceSiteIndex.Site site : sites) {
+                regionBegin = Math.min(regionBegin, site.getBegin());
+                regionEnd = Math.max(regionEnd, site.getEnd());
+            }
+            regionBegin = Math.max(0, regionBegin - pad);
+            regionEnd += pad;
+            byte[] bases = sequenceAccessor.fetchBases(contig, regionBegin, regionEnd);
+            if (bases == null) {
+                unscored++;
+                continue;
+            }
+            int variantOffset = variantBegin - regionBegin;
+            if (!matchesReference(bases, variantOffset, ref)) {
+                refMismatches++;
+                continue;
+            }
+
+            for (String alt : alts) {
+                if (!isValidAllele(alt))
+                    continue;
+                int delta = alt.length() - ref.length();
+                byte[] patched = new byte[bases.length + delta];
+                System.arraycopy(bases, 0, patched, 0, variantOffset);
+                for (int i = 0; i < alt.length(); i++) {
+                    patched[variantOffset + i] = (byte) alt.charAt(i);
+                }
+                System.arraycopy(bases, variantOffset + ref.length(), patched, variantOffset + alt.length(),
+                        bases.length - variantOffset - ref.length());
+
+                for (SpliceSiteIndex.Site site : sites) {
+                    double refScore = score(bases, site.getBegin() - regionBegin, site);
+                    int altOffset = site.getBegin() <= variantBegin
+                            ? site.getBegin() - regionBegin
+                            : site.getEnd() - regionBegin + delta - siteLength(site);
+                    double altScore = score(patched, altOffset, site);
+
+                    output.append(line, 0, posEnd).append('\t') // CHR and POS
+                            .append(ref).append('\t')
+                            .append(alt).append('\t')
+                            .append(site.isAcceptor() ? "ACCEPTOR" : "DONOR").append('\t')
+                            .append(site.getStrand().isForward() ? '+' : '-').append('\t')
+                            .append(site.getBegin()).append('\t')
+                            .append(site.getEnd()).append('\t')
+                            .append(site.getTranscripts()).append('\t')
+                            .append(refScore).append('\t')
+                            .append(altScore).append('\t')
+                            .append(altScore - refScore)
+                            .append(System.lineSeparator());
+                }
+            }
+        }
+        return new ScoredBatch(output.toString(), variants, inSites, unscored, refMismatches, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Scored variants of a batch together with the batch statistics.
+     */
+    static final class ScoredBatch {
+
+        private final String output;
+
+        private final int variants;
+
+        private final int variantsInSites;
+
+        private final int unscoredVariants;
+
+        private final int refMismatches;
+
+        private final long scoringNanos;
+
+        ScoredBatch(String output, int variants, int variantsInSites, int unscoredVariants, int refMismatches, long scoringNanos) {
+            this.output = output;
+            this.variants = variants;
+            this.variantsInSites = variantsInSites;
+            this.unscoredVariants = unscoredVariants;
+            this.refMismatches = refMismatches;
+            this.scoringNanos = scoringNanos;
+        }
+
+        /**
+         * @return the output lines, each line is terminated by line separator
+         */
+        String getOutput() {
+            return output;
+        }
+
+        /**
+         * @return number of the VCF records in the batch
+         */
+        int getVariants() {
+            return variants;
+        }
+
+        /**
+         * @return number of the VCF records overlapping at least one splice site
+         */
+        int getVariantsInSites() {
+            return variantsInSites;
+        }
+
+        /**
+         * @return number of the VCF records overlapping a splice site whose sequence is not available
+         */
+        int getUnscoredVariants() {
+            return unscoredVariants;
+        }
+
+        /**
+         * @return number of the VCF records overlapping a splice site whose REF allele does not match the reference
+         */
+        int getRefMismatches() {
+            return refMismatches;
+        }
+
+        long getScoringNanos() {
+            return scoringNanos;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.monarchinitiative.splicing.calculate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Progress of the <code>calculate</code> command that has been durably written into the output file. The checkpoint
+ * is stored next to the output file and it records the number of transcripts whose lines are written, and the length
+ * of the output file containing exactly those lines. An interrupted run is resumed by truncating the output file to
+ * the recorded length and by scoring the transcripts that follow the written ones.
+ * <p>
+ * The transcripts are written in a deterministic order that depends on whether they are scored contig by contig,
+ * therefore the checkpoint records the mode and the total number of transcripts of the run as well.
+ */
+public final class Checkpoint {
+
+    public static final String SUFFIX = ".checkpoint";
+
+    private static final String TRANSCRIPTS = "transcripts";
+
+    private static final String LENGTH = "length";
+
+    private static final String BY_CONTIG = "by.contig";
+
+    private static final String TOTAL = "total";
+
+    private final int transcripts;
+
+    private final long length;
+
+    private final boolean byContig;
+
+    private final int total;
+
+
+    /**
+     * @param transcripts number of transcripts whose lines are written
+     * @param length      length of the output file containing lines of the <code>transcripts</code>
+     * @param byContig    <code>true</code> if the transcripts are scored contig by contig
+     * @param total       number of all transcripts of the run
+     */
+    public Checkpoint(int transcripts, long length, boolean byContig, int total) {
+        this.transcripts = transcripts;
+        this.length = length;
+        this.byContig = byContig;
+        this.total = total;
+    }
+
+
+    /**
+     * @param outputFile output file of the run
+     * @return path to the checkpoint of the run writing into the <code>outputFile</code>
+     */
+    public static File fileFor(File outputFile) {
+        return new File(outputFile.getAbsolutePath() + SUFFIX);
+    }
+
+
+    /**
+     * @param file checkpoint file
+     * @return checkpoint read from the <code>file</code> or <code>null</code> if the file does not exist
+     * @throws IOException if the file cannot be read or it is not a valid checkpoint
+     */
+    public static Checkpoint read(File file) throws IOException {
+        if (!file.isFile())
+            return null;
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            return new Checkpoint(Integer.parseInt(properties.getProperty(TRANSCRIPTS)),
+                    Long.parseLong(properties.getProperty(LENGTH)),
+                    Boolean.parseBoolean(properties.getProperty(BY_CONTIG)),
+                    Integer.parseInt(properties.getProperty(TOTAL)));
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid checkpoint '%s'", file.getAbsolutePath()), e);
+        }
+    }
+
+
+    /**
+     * Write the checkpoint into a temporary file that replaces the <code>file</code>, therefore the previous checkpoint
+     * stays valid if the run is interrupted while writing.
+     */
+    public void write(File file) throws IOException {
+        Path tmp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        Properties properties = new Properties();
+        properties.setProperty(TRANSCRIPTS, String.valueOf(transcripts));
+        properties.setProperty(LENGTH, String.valueOf(length));
+        properties.setProperty(BY_CONTIG, String.valueOf(byContig));
+        properties.setProperty(TOTAL, String.valueOf(total));
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "SplicingCalculator checkpoint");
+        }
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    public int getTranscripts() {
+        return transcripts;
+    }
+
+
+    public long getLength() {
+        return length;
+    }
+
+
+    public boolean isByContig() {
+        return byContig;
+    }
+
+
+    public int getTotal() {
+        return total;
+    }
+
+
+    @Override
+    public String toString() {
+        return "Checkpoint{" +
+                "transcripts=" + transcripts +
+                ", length=" + length +
+                ", byContig=" + byContig +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package org.monarchinitiative.splicing.calculate;
+
+/**
+ * Nucleotide sequence of a contig region stored as an array of ASCII bytes, one byte per nucleotide. The region
+ * usually spans all transcripts of the contig, therefore the transcripts can be scored without fetching their
+ * sequences from the reference genome.
+ */
+public final class ContigSequence {
+
+    private final String contig;
+
+    private final int begin;
+
+    private final byte[] bases;
+
+
+    /**
+     * @param contig name of the contig
+     * @param begin  0-based begin coordinate of the region on {@link de.charite.compbio.jannovar.reference.Strand#FWD}
+     * @param bases  forward strand nucleotides of the region
+     */
+    public ContigSequence(String contig, int begin, byte[] bases) {
+        this.contig = contig;
+        this.begin = begin;
+        this.bases = bases;
+    }
+
+
+    public String getContig() {
+        return contig;
+    }
+
+
+    public int getBegin() {
+        return begin;
+    }
+
+
+    public int getEnd() {
+        return begin + bases.length;
+    }
+
+
+    /**
+     * @return the bases, the array is not copied
+     */
+    public byte[] getBases() {
+        return bases;
+    }
+
+
+    /**
+     * @return <code>true</code> if the region <code>[begin, end)</code> of the same contig is contained in this sequence
+     */
+    public boolean contains(String contig, int begin, int end) {
+        return this.contig.equals(contig) && this.begin <= begin && end <= getEnd();
+    }
+}
@@ -0,0 +1,238 @@
+package org.monarchinitiative.splicing.calculate;
+
+/**
+ * Information content values of a splice site stored in a flat array of primitive doubles. The value for nucleotide
+ * <code>n</code> at position <code>p</code> of the site is stored at index <code>p * 4 + n</code>, where the
+ * nucleotides A, C, G, T have indices 0, 1, 2, 3.
+ * <p>
+ * The score of a sequence is a sum of information content values of its nucleotides. The values are added in the
+ * order of positions, the score is therefore exactly the same as the sum of the element-wise product of the
+ * information content matrix and the binary mask of the sequence.
+ * <p>
+ * The sites can be scored in place, within a larger sequence represented either by a {@link CharSequence} or by an
+ * array of ASCII bytes. Sites located on the reverse strand are scored directly on the forward strand sequence using
+ * the complemented table with reversed positions, no reverse complement sequence is created. The values are still
+ * added in the order of positions of the site on the reverse strand, therefore the score is exactly the same as the
+ * score of the reverse complement sequence.
+ * <p>
+ * Instances are immutable and thread safe, scoring does not allocate any objects.
+ */
+public final class InformationContentTable {
+
+    private static final int N_NUCLEOTIDES = 4;
+
+    /**
+     * Maps ASCII characters to nucleotide indices, non-nucleotide characters are mapped to <code>-1</code>.
+     */
+    private static final byte[] NT_INDEX = new byte[128];
+
+    static {
+        for (int i = 0; i < NT_INDEX.length; i++) {
+            NT_INDEX[i] = -1;
+        }
+        NT_INDEX['A'] = NT_INDEX['a'] = 0;
+        NT_INDEX['C'] = NT_INDEX['c'] = 1;
+        NT_INDEX['G'] = NT_INDEX['g'] = 2;
+        NT_INDEX['T'] = NT_INDEX['t'] = 3;
+    }
+
+    private final double[] values;
+
+    /**
+     * Complemented values with reversed positions, the value for forward strand nucleotide <code>n</code> at forward
+     * strand position <code>p</code> of a reverse strand site is stored at index <code>p * 4 + n</code>.
+     */
+    private final double[] reverseComplementValues;
+
+    private final int length;
+
+
+    /**
+     * Create the table from nucleotide frequencies.
+     *
+     * @param frequencies array with 4 rows representing nucleotides A, C, G, T and columns representing positions of
+     *                    the splice site. The rows must have the same length
+     */
+    public InformationContentTable(double[][] frequencies) {
+        if (frequencies.length != N_NUCLEOTIDES)
+            throw new IllegalArgumentException(String.format("Expected %d rows for %d nucleotides, got %d",
+                    N_NUCLEOTIDES, N_NUCLEOTIDES, frequencies.length));
+
+        this.length = frequencies[0].length;
+        this.values = new double[length * N_NUCLEOTIDES];
+        for (int nt = 0; nt < N_NUCLEOTIDES; nt++) {
+            if (frequencies[nt].length != length)
+                throw new IllegalArgumentException("Rows of the matrix do not have the same size");
+            for (int pos = 0; pos < length; pos++) {
+                values[pos * N_NUCLEOTIDES + nt] = calculateIC(frequencies[nt][pos]);
+            }
+        }
+        this.reverseComplementValues = new double[values.length];
+        for (int pos = 0; pos < length; pos++) {
+            for (int nt = 0; nt < N_NUCLEOTIDES; nt++) {
+                // complement: A <-> T, C <-> G
+                reverseComplementValues[(length - 1 - pos) * N_NUCLEOTIDES + (N_NUCLEOTIDES - 1 - nt)] = values[pos * N_NUCLEOTIDES + nt];
+            }
+        }
+    }
+
+
+    /**
+     * Calculate information content of the nucleotide from the frequency using formula 1 (Rogan paper from
+     * {@link SplicingInformationContentAnnotator} description). Correction factor is ignored, I assume that the sample
+     * size used to calculate the nucleotide frequency is large enough. In case of the splice sites it was ~220000
+     * sites.
+     *
+     * @param freq {@link Double} frequency of nucleotide occurence at its position from range <0, 1>
+     * @return {@link Double} with information content value
+     */
+    private static double calculateIC(double freq) {
+        return 2d - (-Math.log(freq) / Math.log(2));
+    }
+
+
+    /**
+     * @param c character to be converted
+     * @return index of the nucleotide (A=0, C=1, G=2, T=3) regardless of the case or <code>-1</code> if the character
+     * does not represent one of the four nucleotides
+     */
+    public static int nucleotideIndex(char c) {
+        return c < NT_INDEX.length ? NT_INDEX[c] : -1;
+    }
+
+
+    /**
+     * @param b ASCII byte to be converted
+     * @return index of the nucleotide (A=0, C=1, G=2, T=3) regardless of the case or <code>-1</code> if the byte does
+     * not represent one of the four nucleotides
+     */
+    public static int nucleotideIndex(byte b) {
+        return b >= 0 ? NT_INDEX[b] : -1;
+    }
+
+
+    /**
+     * @return number of positions of the splice site
+     */
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * @param position     position within the splice site
+     * @param nucleotideIdx index of the nucleotide as returned by {@link #nucleotideIndex(char)}
+     * @return information content of the nucleotide at the position
+     */
+    public double get(int position, int nucleotideIdx) {
+        return values[position * N_NUCLEOTIDES + nucleotideIdx];
+    }
+
+
+    /**
+     * @param forwardPosition position within the site on the forward strand, <code>0</code> is the last position of
+     *                        the reverse strand site
+     * @param nucleotideIdx   index of the forward strand nucleotide as returned by {@link #nucleotideIndex(char)}
+     * @return information content of the complement of the nucleotide at the position of the reverse strand site, the
+     * same as <code>get(length() - 1 - forwardPosition, 3 - nucleotideIdx)</code>
+     */
+    public double getReverseComplement(int forwardPosition, int nucleotideIdx) {
+        return reverseComplementValues[forwardPosition * N_NUCLEOTIDES + nucleotideIdx];
+    }
+
+
+    /**
+     * Validate and score the sequence in a single pass. The length of the <code>sequence</code> must be equal to
+     * {@link #length()}.
+     *
+     * @param sequence nucleotide sequence to be scored
+     * @return score of the <code>sequence</code> or {@link Double#NaN} if the sequence contains a character other than
+     * [ACGTacgt]
+     */
+    public double score(CharSequence sequence) {
+        return score(sequence, 0);
+    }
+
+
+    /**
+     * Score the site that starts at <code>offset</code> of the <code>sequence</code>. The caller is responsible for
+     * checking that the site fits into the <code>sequence</code>.
+     *
+     * @param sequence nucleotide sequence containing the site
+     * @param offset   0-based index of the first nucleotide of the site
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double score(CharSequence sequence, int offset) {
+        double score = 0;
+        for (int pos = 0; pos < length; pos++) {
+            int idx = nucleotideIndex(sequence.charAt(offset + pos));
+            if (idx < 0)
+                return Double.NaN;
+            score += values[pos * N_NUCLEOTIDES + idx];
+        }
+        return score;
+    }
+
+
+    /**
+     * Score reverse complement of the site that occupies positions <code>[offset, offset + length())</code> of the
+     * forward strand <code>sequence</code>. The caller is responsible for checking that the site fits into the
+     * <code>sequence</code>.
+     *
+     * @param sequence forward strand nucleotide sequence containing the site
+     * @param offset   0-based index of the first nucleotide of the site on the forward strand
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double scoreReverseComplement(CharSequence sequence, int offset) {
+        double score = 0;
+        // the first position of the reverse strand site is the last position on the forward strand
+        for (int pos = length - 1; pos >= 0; pos--) {
+            int idx = nucleotideIndex(sequence.charAt(offset + pos));
+            if (idx < 0)
+                return Double.NaN;
+            score += reverseComplementValues[pos * N_NUCLEOTIDES + idx];
+        }
+        return score;
+    }
+
+
+    /**
+     * Score the site that starts at <code>offset</code> of the <code>bases</code>. The caller is responsible for
+     * checking that the site fits into the array.
+     *
+     * @param bases  nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the first nucleotide of the site
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double score(byte[] bases, int offset) {
+        double score = 0;
+        for (int pos = 0; pos < length; pos++) {
+            int idx = nucleotideIndex(bases[offset + pos]);
+            if (idx < 0)
+                return Double.NaN;
+            score += values[pos * N_NUCLEOTIDES + idx];
+        }
+        return score;
+    }
+
+
+    /**
+     * Score reverse complement of the site that occupies positions <code>[offset, offset + length())</code> of the
+     * forward strand <code>bases</code>. The caller is responsible for checking that the site fits into the array.
+     *
+     * @param bases  forward strand nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the first nucleotide of the site on the forward strand
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double scoreReverseComplement(byte[] bases, int offset) {
+        double score = 0;
+        // the first position of the reverse strand site is the last position on the forward strand
+        for (int pos = length - 1; pos >= 0; pos--) {
+            int idx = nucleotideIndex(bases[offset + pos]);
+            if (idx < 0)
+                return Double.NaN;
+            score += reverseComplementValues[pos * N_NUCLEOTIDES + idx];
+        }
+        return score;
+    }
+}
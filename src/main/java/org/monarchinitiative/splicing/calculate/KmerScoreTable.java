@@ -0,0 +1,186 @@
+package org.monarchinitiative.splicing.calculate;
+
+/**
+ * Precomputed scores of all k-mers that may occupy the first <code>k</code> positions of a splice site, where
+ * <code>k</code> is the length of the site but at most {@link #MAX_K}. The k-mers are encoded into an index using 2 bits
+ * per nucleotide (A=0, C=1, G=2, T=3), the first nucleotide in the highest bits. The index of the next k-mer of a
+ * sequence is obtained from the index of the previous one by {@link #roll(int, int)}.
+ * <p>
+ * A site that is not longer than {@link #MAX_K} nucleotides (e.g. the 9 nt donor site) is scored by a single lookup.
+ * The remaining positions of longer sites (e.g. the 18 positions of the 27 nt acceptor site following the tabulated
+ * prefix) are added to the prefix score one by one. The prefix scores are calculated by adding the information content
+ * values in the same order as {@link InformationContentTable}, the scores are therefore exactly the same. Note that the
+ * positions beyond the prefix cannot be tabulated as independent segments, since the sum of the segment scores differs
+ * from the sequential sum in the last bits.
+ * <p>
+ * The sites located on the reverse strand are scored using a second table indexed by the last <code>k</code>
+ * nucleotides of the site on the forward strand.
+ * <p>
+ * Instances are immutable and thread safe, scoring does not allocate any objects.
+ */
+public final class KmerScoreTable {
+
+    /**
+     * Maximum length of the tabulated prefix, scores of 4^9 k-mers take 2 MB.
+     */
+    public static final int MAX_K = 9;
+
+    private final InformationContentTable table;
+
+    private final int length;
+
+    private final int k;
+
+    private final int mask;
+
+    /**
+     * Score of the first <code>k</code> positions of the site on the forward strand.
+     */
+    private final double[] prefixScores;
+
+    /**
+     * Score of the first <code>k</code> positions of the site on the reverse strand, indexed by the k-mer that occupies
+     * the last <code>k</code> positions of the site on the forward strand.
+     */
+    private final double[] reverseComplementPrefixScores;
+
+
+    /**
+     * @param table {@link InformationContentTable} of the splice site
+     */
+    public KmerScoreTable(InformationContentTable table) {
+        this.table = table;
+        this.length = table.length();
+        this.k = Math.min(MAX_K, length);
+        this.mask = (1 << 2 * k) - 1;
+        this.prefixScores = new double[1 << 2 * k];
+        this.reverseComplementPrefixScores = new double[1 << 2 * k];
+        for (int index = 0; index <= mask; index++) {
+            double score = 0, rcScore = 0;
+            for (int pos = 0; pos < k; pos++) {
+                // nucleotide at position pos of the k-mer
+                score += table.get(pos, index >>> 2 * (k - 1 - pos) & 3);
+                // position pos on the reverse strand reads the nucleotide at position k - 1 - pos of the k-mer
+                rcScore += table.get(pos, 3 - (index >>> 2 * pos & 3)); // complement: A <-> T, C <-> G
+            }
+            prefixScores[index] = score;
+            reverseComplementPrefixScores[index] = rcScore;
+        }
+    }
+
+
+    /**
+     * @return {@link InformationContentTable} of the splice site
+     */
+    public InformationContentTable getTable() {
+        return table;
+    }
+
+
+    /**
+     * @return number of positions of the splice site
+     */
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * @return length of the tabulated k-mers
+     */
+    public int getK() {
+        return k;
+    }
+
+
+    /**
+     * @param index         index of the k-mer starting at position <code>i</code>
+     * @param nucleotideIdx index of the nucleotide at position <code>i + k</code>, as returned by
+     *                      {@link InformationContentTable#nucleotideIndex(byte)}
+     * @return index of the k-mer starting at position <code>i + 1</code>
+     */
+    public int roll(int index, int nucleotideIdx) {
+        return (index << 2 | nucleotideIdx) & mask;
+    }
+
+
+    /**
+     * @param bases  nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the first nucleotide of the k-mer
+     * @return index of the k-mer or <code>-1</code> if the k-mer contains a character other than [ACGTacgt]
+     */
+    public int index(byte[] bases, int offset) {
+        int index = 0;
+        for (int i = 0; i < k; i++) {
+            int idx = InformationContentTable.nucleotideIndex(bases[offset + i]);
+            if (idx < 0)
+                return -1;
+            index = index << 2 | idx;
+        }
+        return index;
+    }
+
+
+    /**
+     * @param index index of the k-mer occupying the first <code>k</code> positions of the site
+     * @return score of the first <code>k</code> positions of the site
+     */
+    public double prefixScore(int index) {
+        return prefixScores[index];
+    }
+
+
+    /**
+     * @param index index of the k-mer occupying the last <code>k</code> positions of the site on the forward strand
+     * @return score of the first <code>k</code> positions of the reverse complement of the site
+     */
+    public double reverseComplementPrefixScore(int index) {
+        return reverseComplementPrefixScores[index];
+    }
+
+
+    /**
+     * Score the site that starts at <code>offset</code> of the <code>bases</code>. The caller is responsible for
+     * checking that the site fits into the array.
+     *
+     * @param bases  nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the first nucleotide of the site
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double score(byte[] bases, int offset) {
+        int index = index(bases, offset);
+        if (index < 0)
+            return Double.NaN;
+        double score = prefixScores[index];
+        for (int pos = k; pos < length; pos++) {
+            int idx = InformationContentTable.nucleotideIndex(bases[offset + pos]);
+            if (idx < 0)
+                return Double.NaN;
+            score += table.get(pos, idx);
+        }
+        return score;
+    }
+
+
+    /**
+     * Score reverse complement of the site that occupies positions <code>[offset, offset + length())</code> of the
+     * forward strand <code>bases</code>. The caller is responsible for checking that the site fits into the array.
+     *
+     * @param bases  forward strand nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the first nucleotide of the site on the forward strand
+     * @return score of the site or {@link Double#NaN} if the site contains a character other than [ACGTacgt]
+     */
+    public double scoreReverseComplement(byte[] bases, int offset) {
+        int index = index(bases, offset + length - k);
+        if (index < 0)
+            return Double.NaN;
+        double score = reverseComplementPrefixScores[index];
+        for (int pos = length - 1 - k; pos >= 0; pos--) {
+            int idx = InformationContentTable.nucleotideIndex(bases[offset + pos]);
+            if (idx < 0)
+                return Double.NaN;
+            score += table.getReverseComplement(pos, idx);
+        }
+        return score;
+    }
+}
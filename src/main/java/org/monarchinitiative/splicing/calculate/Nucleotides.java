@@ -0,0 +1,48 @@
+package org.monarchinitiative.splicing.calculate;
+
+/**
+ * Reverse complement of nucleotide sequences for the cases where the sequence itself is needed. The sites are scored
+ * on the forward strand by {@link InformationContentTable#scoreReverseComplement(CharSequence, int)}, no reverse
+ * complement needs to be created for scoring.
+ */
+public final class Nucleotides {
+
+    /**
+     * Maps ASCII characters to their complements, the case is preserved. Characters other than [ACGTNacgtn] are mapped
+     * to <code>0</code>.
+     */
+    private static final char[] COMPLEMENT = new char[128];
+
+    static {
+        String nucleotides = "ACGTNacgtn", complements = "TGCANtgcan";
+        for (int i = 0; i < nucleotides.length(); i++) {
+            COMPLEMENT[nucleotides.charAt(i)] = complements.charAt(i);
+        }
+    }
+
+
+    private Nucleotides() {
+        // static utility class
+    }
+
+
+    /**
+     * Convert nucleotide sequence to reverse complement.
+     *
+     * @param sequence of nucleotides, only {a,c,g,t,n,A,C,G,T,N} permitted.
+     * @return reverse complement of given <code>sequence</code>
+     * @throws IllegalArgumentException if the sequence contains other characters
+     */
+    public static String reverseComplement(CharSequence sequence) {
+        int last = sequence.length() - 1;
+        char[] complement = new char[sequence.length()];
+        for (int i = 0; i <= last; i++) {
+            char c = sequence.charAt(i);
+            char complemented = c < COMPLEMENT.length ? COMPLEMENT[c] : 0;
+            if (complemented == 0)
+                throw new IllegalArgumentException(String.format("Illegal nucleotide %s in sequence %s", c, sequence));
+            complement[last - i] = complemented;
+        }
+        return new String(complement);
+    }
+}
@@ -0,0 +1,302 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scores of the transcripts of a <code>calculate</code> run keyed by fingerprints of the transcripts. The index is
+ * written next to the results and it allows the next run to reuse the scores of the transcripts that have not changed,
+ * e.g. after an update of the transcript database.
+ * <p>
+ * Fingerprint of a transcript covers all attributes of the transcript that affect its lines of results (accession,
+ * gene symbol, contig, strand, transcript region and exon coordinates). The scores depend on the splice site
+ * definitions and on the reference genome as well, therefore the index contains a <em>run fingerprint</em> of the
+ * information content tables, of the names and lengths of the reference contigs, and of the size and modification time
+ * of the reference genome file. Scores of an index with different run fingerprint must not be reused.
+ * <p>
+ * The file contains {@link #MAGIC}, version and the run fingerprint followed by a record for each transcript: the
+ * fingerprint, number of exons, donor and acceptor scores of the exons.
+ */
+public final class ScoreIndex {
+
+    public static final String SUFFIX = ".fingerprints";
+
+    private static final int MAGIC = 0x53434F52; // SCOR
+
+    private static final int VERSION = 1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long runFingerprint;
+
+    /**
+     * Sorted fingerprints, scores of the i-th transcript are stored in the range <code>[offsets[i], offsets[i+1])</code>.
+     */
+    private final long[] fingerprints;
+
+    private final int[] offsets;
+
+    private final double[] donors;
+
+    private final double[] acceptors;
+
+
+    private ScoreIndex(long runFingerprint, long[] fingerprints, int[] offsets, double[] donors, double[] acceptors) {
+        this.runFingerprint = runFingerprint;
+        this.fingerprints = fingerprints;
+        this.offsets = offsets;
+        this.donors = donors;
+        this.acceptors = acceptors;
+    }
+
+
+    /**
+     * @param outputFile output file of the run
+     * @return path to the index of the run writing into the <code>outputFile</code>
+     */
+    public static File fileFor(File outputFile) {
+        return new File(outputFile.getAbsolutePath() + SUFFIX);
+    }
+
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+
+    private static long hash(long hash, String value) {
+        if (value == null)
+            return hash(hash, -1L);
+        hash = hash(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = hash(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+
+    /**
+     * @return fingerprint of the attributes of the transcript that affect its lines of results
+     */
+    public static long fingerprint(TranscriptModel tm) {
+        GenomeInterval tx = tm.getTXRegion().withStrand(Strand.FWD);
+        long hash = hash(FNV_OFFSET, tm.getAccession());
+        hash = hash(hash, tm.getGeneSymbol());
+        hash = hash(hash, tx.getRefDict().getContigIDToName().get(tm.getChr()));
+        hash = hash(hash, tm.getStrand().isForward() ? 1 : 0);
+        hash = hash(hash, (long) tx.getBeginPos() << 32 | tx.getEndPos() & 0xffffffffL);
+        hash = hash(hash, tm.getExonRegions().size());
+        for (GenomeInterval exon : tm.getExonRegions()) {
+            hash = hash(hash, (long) exon.getBeginPos() << 32 | exon.getEndPos() & 0xffffffffL);
+        }
+        return hash;
+    }
+
+
+    /**
+     * Calculate the run fingerprint. The reference genome file (FASTA or 2bit) is identified by its size and
+     * modification time, which are cheap to obtain, as the file is not read. A reference with the same contigs but
+     * different sequence or masking, e.g. an N-masked analysis set, has a different fingerprint, because the file has
+     * been written at a different time. Touching the file or copying it without preserving the modification time
+     * changes the fingerprint as well, therefore the scores are recalculated even if the sequence is the same.
+     *
+     * @return fingerprint of the information content tables of the <code>annotator</code>, of names and lengths of
+     * the contigs of the reference genome and of the size and modification time of
+     * {@link GenomeSequenceAccessor#getSequenceFile()}, if the accessor reads the sequence from a file
+     * @throws IOException if the attributes of the reference genome file cannot be read
+     */
+    public static long runFingerprint(SplicingInformationContentAnnotator annotator, GenomeSequenceAccessor accessor) throws IOException {
+        long hash = FNV_OFFSET;
+        for (InformationContentTable table : Arrays.asList(annotator.getDonorTable(), annotator.getAcceptorTable())) {
+            hash = hash(hash, table.length());
+            for (int position = 0; position < table.length(); position++) {
+                for (int nt = 0; nt < 4; nt++) {
+                    hash = hash(hash, Double.doubleToLongBits(table.get(position, nt)));
+                }
+            }
+        }
+        Map<String, Integer> contigs = new TreeMap<>();
+        accessor.getContigNames().forEach(contig -> contigs.put(contig, accessor.getContigLength(contig)));
+        for (Map.Entry<String, Integer> contig : contigs.entrySet()) {
+            hash = hash(hash, contig.getKey());
+            hash = hash(hash, contig.getValue());
+        }
+        File sequenceFile = accessor.getSequenceFile();
+        if (sequenceFile != null) {
+            BasicFileAttributes attributes = Files.readAttributes(sequenceFile.toPath(), BasicFileAttributes.class);
+            hash = hash(hash, attributes.size());
+            hash = hash(hash, attributes.lastModifiedTime().toMillis());
+        }
+        return hash;
+    }
+
+
+    /**
+     * @param file index file
+     * @return index read from the <code>file</code> or <code>null</code> if the file does not exist
+     * @throws IOException if the file cannot be read or it is not a valid index
+     */
+    public static ScoreIndex read(File file) throws IOException {
+        if (!file.isFile())
+            return null;
+        try (DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (is.readInt() != MAGIC)
+                throw new IOException(String.format("'%s' is not an index of scores", file.getAbsolutePath()));
+            int version = is.readInt();
+            if (version != VERSION)
+                throw new IOException(String.format("Unsupported version %d of index '%s'", version, file.getAbsolutePath()));
+            long runFingerprint = is.readLong();
+
+            List<Record> records = new ArrayList<>();
+            int scores = 0;
+            while (true) {
+                long fingerprint;
+                try {
+                    fingerprint = is.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                int exons = is.readInt();
+                double[] donors = new double[exons], acceptors = new double[exons];
+                for (int i = 0; i < exons; i++) {
+                    donors[i] = is.readDouble();
+                    acceptors[i] = is.readDouble();
+                }
+                records.add(new Record(fingerprint, donors, acceptors));
+                scores += exons;
+            }
+
+            records.sort((l, r) -> Long.compare(l.fingerprint, r.fingerprint));
+            long[] fingerprints = new long[records.size()];
+            int[] offsets = new int[records.size() + 1];
+            double[] donors = new double[scores], acceptors = new double[scores];
+            for (int i = 0; i < records.size(); i++) {
+                Record record = records.get(i);
+                fingerprints[i] = record.fingerprint;
+                System.arraycopy(record.donors, 0, donors, offsets[i], record.donors.length);
+                System.arraycopy(record.acceptors, 0, acceptors, offsets[i], record.acceptors.length);
+                offsets[i + 1] = offsets[i] + record.donors.length;
+            }
+            return new ScoreIndex(runFingerprint, fingerprints, offsets, donors, acceptors);
+        }
+    }
+
+
+    public long getRunFingerprint() {
+        return runFingerprint;
+    }
+
+
+    /**
+     * @return number of the transcripts in the index
+     */
+    public int size() {
+        return fingerprints.length;
+    }
+
+
+    /**
+     * @param tm transcript to be scored
+     * @return the transcript with the scores from the index or <code>null</code> if the index does not contain the
+     * transcript
+     */
+    public ScoredTranscriptModel lookup(TranscriptModel tm) {
+        int idx = Arrays.binarySearch(fingerprints, fingerprint(tm));
+        if (idx < 0 || offsets[idx + 1] - offsets[idx] != tm.getExonRegions().size())
+            return null;
+        return new ScoredTranscriptModel(tm, Arrays.copyOfRange(donors, offsets[idx], offsets[idx + 1]),
+                Arrays.copyOfRange(acceptors, offsets[idx], offsets[idx + 1]));
+    }
+
+
+    private static final class Record {
+
+        private final long fingerprint;
+
+        private final double[] donors, acceptors;
+
+        private Record(long fingerprint, double[] donors, double[] acceptors) {
+            this.fingerprint = fingerprint;
+            this.donors = donors;
+            this.acceptors = acceptors;
+        }
+    }
+
+
+    /**
+     * Writes the index into a temporary file that replaces the index file when the writer is closed, therefore the
+     * index of the previous run is kept if the run fails.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final File file;
+
+        private final Path tmp;
+
+        private final DataOutputStream os;
+
+        private boolean aborted;
+
+
+        /**
+         * @param file           index file
+         * @param runFingerprint fingerprint of the splice site definitions and of the reference genome of the run
+         */
+        public Writer(File file, long runFingerprint) throws IOException {
+            this.file = file;
+            this.tmp = new File(file.getAbsolutePath() + ".tmp").toPath();
+            this.os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+            os.writeInt(MAGIC);
+            os.writeInt(VERSION);
+            os.writeLong(runFingerprint);
+        }
+
+
+        public void add(ScoredTranscriptModel model) throws IOException {
+            os.writeLong(fingerprint(model.getTranscriptModel()));
+            os.writeInt(model.getExonCount());
+            for (int i = 0; i < model.getExonCount(); i++) {
+                os.writeDouble(model.getDonorScore(i));
+                os.writeDouble(model.getAcceptorScore(i));
+            }
+        }
+
+
+        /**
+         * Discard the index, the index of the previous run is kept.
+         */
+        public void abort() throws IOException {
+            aborted = true;
+            os.close();
+            Files.deleteIfExists(tmp);
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            if (aborted)
+                return;
+            os.close();
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
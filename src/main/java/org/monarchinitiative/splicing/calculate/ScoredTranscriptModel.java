@@ -1,11 +1,17 @@
 package org.monarchinitiative.splicing.calculate;
 
+import com.google.common.primitives.Doubles;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * This class is a POJO for grouping {@link TranscriptModel} with splice scores of exonic donor/acceptor sites.
+ * <p>
+ * The scores are stored in primitive arrays, no {@link Double} objects are created for the scores of the exons. The
+ * scores are compared by their bits, therefore the models with {@link Double#NaN} scores at the same exons are equal.
  *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
  */
@@ -14,40 +20,84 @@ public class ScoredTranscriptModel {
     private final TranscriptModel transcriptModel;
 
     /**
-     * The scores for each exon are stored in these lists. If the exon is the first exon of the transcript, the accpetor
-     * score should be {@link Double#NaN}. If the exon is the last of the transcript, the donor score should be
+     * The scores for each exon are stored in these arrays. If the exon is the first exon of the transcript, the
+     * accpetor score should be {@link Double#NaN}. If the exon is the last of the transcript, the donor score should be
      * {@link Double#NaN}.
      */
-    private final List<Double> donors, acceptors;
+    private final double[] donors, acceptors;
 
 
-    public ScoredTranscriptModel(TranscriptModel transcriptModel, List<Double> donors, List<Double> acceptors) {
+    /**
+     * @param donors    donor scores of the exons, the array is not copied and must not be modified afterwards
+     * @param acceptors acceptor scores of the exons, the array is not copied and must not be modified afterwards
+     */
+    public ScoredTranscriptModel(TranscriptModel transcriptModel, double[] donors, double[] acceptors) {
+        if (donors.length != acceptors.length)
+            throw new IllegalArgumentException(String.format("Unequal numbers of donor: '%d' and acceptor: '%d' scores",
+                    donors.length, acceptors.length));
         this.transcriptModel = transcriptModel;
         this.donors = donors;
         this.acceptors = acceptors;
     }
 
 
+    public ScoredTranscriptModel(TranscriptModel transcriptModel, List<Double> donors, List<Double> acceptors) {
+        this(transcriptModel, Doubles.toArray(donors), Doubles.toArray(acceptors));
+    }
+
+
     public TranscriptModel getTranscriptModel() {
         return transcriptModel;
     }
 
 
+    /**
+     * @return number of the scored exons
+     */
+    public int getExonCount() {
+        return donors.length;
+    }
+
+
+    /**
+     * @param exon 0-based index of the exon on the transcript's strand
+     * @return donor score of the exon
+     */
+    public double getDonorScore(int exon) {
+        return donors[exon];
+    }
+
+
+    /**
+     * @param exon 0-based index of the exon on the transcript's strand
+     * @return acceptor score of the exon
+     */
+    public double getAcceptorScore(int exon) {
+        return acceptors[exon];
+    }
+
+
+    /**
+     * @return unmodifiable view of the donor scores, the scores are boxed on access
+     */
     public List<Double> getDonors() {
-        return donors;
+        return Collections.unmodifiableList(Doubles.asList(donors));
     }
 
 
+    /**
+     * @return unmodifiable view of the acceptor scores, the scores are boxed on access
+     */
     public List<Double> getAcceptors() {
-        return acceptors;
+        return Collections.unmodifiableList(Doubles.asList(acceptors));
     }
 
 
     @Override
     public int hashCode() {
         int result = transcriptModel != null ? transcriptModel.hashCode() : 0;
-        result = 31 * result + (donors != null ? donors.hashCode() : 0);
-        result = 31 * result + (acceptors != null ? acceptors.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(donors);
+        result = 31 * result + Arrays.hashCode(acceptors);
         return result;
     }
 
@@ -61,8 +111,8 @@ public class ScoredTranscriptModel {
 
         if (transcriptModel != null ? !transcriptModel.equals(that.transcriptModel) : that.transcriptModel != null)
             return false;
-        if (donors != null ? !donors.equals(that.donors) : that.donors != null) return false;
-        return acceptors != null ? acceptors.equals(that.acceptors) : that.acceptors == null;
+        if (!Arrays.equals(donors, that.donors)) return false;
+        return Arrays.equals(acceptors, that.acceptors);
     }
 
 
@@ -70,8 +120,8 @@ public class ScoredTranscriptModel {
     public String toString() {
         return "ScoredTranscriptModel{" +
                 "transcriptModel=" + transcriptModel +
-                ", donors=" + donors +
-                ", acceptors=" + acceptors +
+                ", donors=" + Arrays.toString(donors) +
+                ", acceptors=" + Arrays.toString(acceptors) +
                 '}';
     }
 }
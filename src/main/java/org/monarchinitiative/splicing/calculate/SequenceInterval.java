@@ -15,44 +15,6 @@ public class SequenceInterval {
     private final String sequence;
 
 
-    /**
-     * Convert nucleotide sequence to reverse complement.
-     *
-     * @param sequence of nucleotides, only {a,c,g,t,n,A,C,G,T,N} permitted.
-     * @return reverse complement of given <code>sequence</code>
-     */
-    private static String reverseComplement(String sequence) {
-        char[] oldSeq = sequence.toCharArray();
-        char[] newSeq = new char[oldSeq.length];
-        int idx = oldSeq.length - 1;
-        for (int i = 0; i < oldSeq.length; i++) {
-            if (oldSeq[i] == 'A') {
-                newSeq[idx - i] = 'T';
-            } else if (oldSeq[i] == 'a') {
-                newSeq[idx - i] = 't';
-            } else if (oldSeq[i] == 'T') {
-                newSeq[idx - i] = 'A';
-            } else if (oldSeq[i] == 't') {
-                newSeq[idx - i] = 'a';
-            } else if (oldSeq[i] == 'C') {
-                newSeq[idx - i] = 'G';
-            } else if (oldSeq[i] == 'c') {
-                newSeq[idx - i] = 'g';
-            } else if (oldSeq[i] == 'G') {
-                newSeq[idx - i] = 'C';
-            } else if (oldSeq[i] == 'g') {
-                newSeq[idx - i] = 'c';
-            } else if (oldSeq[i] == 'N') {
-                newSeq[idx - i] = 'N';
-            } else if (oldSeq[i] == 'n') {
-                newSeq[idx - i] = 'n';
-            } else throw new IllegalArgumentException(String.format("Illegal nucleotide %s in sequence %s",
-                    oldSeq[i], sequence));
-        }
-        return new String(newSeq);
-    }
-
-
     /**
      * By instantiating this class you claim that this particular <code>sequence</code> is located in given genome
      * <code>interval</code>.
@@ -84,7 +46,7 @@ public class SequenceInterval {
         int end = sequence.length() - interval.getEndPos() + onStrand.getEndPos();
 
         return query.getStrand().equals(interval.getStrand()) ? sequence.substring(beg, end)
-                : reverseComplement(sequence.substring(beg, end));
+                : Nucleotides.reverseComplement(sequence.subSequence(beg, end));
     }
 
 
@@ -92,7 +54,7 @@ public class SequenceInterval {
 //        if (interval.getStrand().equals(strand))
 //            return new SequenceInterval(sequence, interval); // TODO - return just this?
 //        else
-//            return new SequenceInterval(reverseComplement(sequence), interval.withStrand(strand));
+//            return new SequenceInterval(Nucleotides.reverseComplement(sequence), interval.withStrand(strand));
 //    }
 
 
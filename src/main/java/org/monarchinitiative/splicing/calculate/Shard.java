@@ -0,0 +1,146 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Part of the transcripts scored by a single process when a run is split into <code>n</code> shards, e.g. to be run
+ * on multiple machines. The shard is a contiguous range of the transcripts in the order in which they are written,
+ * therefore the results of the shards concatenated in the order of the shards are equal to the results of a single
+ * run.
+ * <p>
+ * The ranges are balanced by the estimated work, see {@link #weight(TranscriptModel)}, rather than by number of the
+ * transcripts. The ranges are deterministic, they depend only on the transcripts and their order.
+ */
+public final class Shard {
+
+    /**
+     * The whole run in a single shard.
+     */
+    public static final Shard ALL = new Shard(1, 1);
+
+    /**
+     * Estimated cost of scoring sites of an exon expressed as number of bases fetched from the reference genome.
+     */
+    static final int EXON_COST_IN_BASES = 256;
+
+    private final int index;
+
+    private final int count;
+
+
+    /**
+     * @param index 1-based index of the shard
+     * @param count number of the shards
+     */
+    public Shard(int index, int count) {
+        if (count < 1 || index < 1 || index > count)
+            throw new IllegalArgumentException(String.format("Invalid shard %d/%d", index, count));
+        this.index = index;
+        this.count = count;
+    }
+
+
+    /**
+     * @param value shard in format <code>i/n</code>, where <code>i</code> is the 1-based index of the shard and
+     *              <code>n</code> is the number of the shards, e.g. <code>2/4</code>
+     * @return the shard
+     * @throws IllegalArgumentException if the <code>value</code> is not a valid shard
+     */
+    public static Shard parse(String value) {
+        String[] tokens = value.trim().split("/");
+        if (tokens.length != 2)
+            throw new IllegalArgumentException(String.format("Shard must be in format i/n: '%s'", value));
+        try {
+            return new Shard(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Shard must be in format i/n: '%s'", value), e);
+        }
+    }
+
+
+    /**
+     * Estimate work needed to score the transcript from the span of the transcript, which is fetched from the
+     * reference genome, and from the number of exons, whose sites are scored and written.
+     *
+     * @return estimated work expressed as number of bases
+     */
+    public static long weight(TranscriptModel tm) {
+        return TranscriptScorer.READ_COST_IN_BASES + tm.getTXRegion().length()
+                + (long) EXON_COST_IN_BASES * tm.getExonRegions().size();
+    }
+
+
+    /**
+     * Split the transcripts into {@link #getCount()} ranges with approximately equal sum of weights and get the range
+     * of this shard. Range of the <code>k</code>-th shard begins with the first transcript whose preceding transcripts
+     * weigh at least <code>(k - 1) / n</code> of the total weight.
+     *
+     * @param transcripts all transcripts of the run in the order in which they are written
+     * @return <code>[begin, end)</code> indices of the shard's transcripts
+     */
+    public int[] range(Iterator<TranscriptModel> transcripts) {
+        long[] weights = new long[1024];
+        int n = 0;
+        while (transcripts.hasNext()) {
+            if (n == weights.length)
+                weights = Arrays.copyOf(weights, n * 2);
+            weights[n++] = weight(transcripts.next());
+        }
+        return range(weights, n);
+    }
+
+
+    int[] range(long[] weights, int n) {
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += weights[i];
+        }
+        int begin = -1, end = n;
+        long preceding = 0;
+        for (int i = 0; i < n; i++) {
+            // the preceding weight is at least k/count of the total weight
+            if (begin < 0 && preceding * count >= (index - 1) * total)
+                begin = i;
+            if (preceding * count >= index * total) {
+                end = i;
+                break;
+            }
+            preceding += weights[i];
+        }
+        return begin < 0 ? new int[]{n, n} : new int[]{begin, Math.max(begin, end)};
+    }
+
+
+    public int getIndex() {
+        return index;
+    }
+
+
+    public int getCount() {
+        return count;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Shard shard = (Shard) o;
+        return index == shard.index && count == shard.count;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * index + count;
+    }
+
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
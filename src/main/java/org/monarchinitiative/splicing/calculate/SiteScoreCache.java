@@ -0,0 +1,227 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.Strand;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of splice site scores shared by all transcripts. Overlapping transcripts and isoforms share most of
+ * their exon boundaries, therefore each site needs to be fetched and scored only once.
+ * <p>
+ * The site is identified by a primitive <code>long</code> key that packs contig ID, position, strand and site type
+ * (see {@link #key(int, int, Strand, boolean)}). The keys and the score bits are stored in a single <code>long[]</code>
+ * array organized into buckets of {@link #WAYS} entries. A bucket keeps its entries ordered from the most to the least
+ * recently used one and the least recently used entry is evicted when a new entry does not fit into the bucket.
+ * Therefore, the memory footprint is fixed to 16 bytes per entry, regardless of the number of sites.
+ * <p>
+ * Instances are thread safe, the buckets are guarded by striped locks.
+ */
+public final class SiteScoreCache {
+
+    /**
+     * Value returned by {@link #lookup(long)} if the site is not present in the cache. The value does not represent
+     * bits of any score that can be stored in the cache, since {@link Double#NaN} scores are stored in the canonical
+     * form.
+     */
+    public static final long MISSING = 0xFFF8_0000_0000_0001L;
+
+    /**
+     * Number of entries in a single bucket.
+     */
+    static final int WAYS = 4;
+
+    private static final int LOCK_STRIPES = 256;
+
+    private static final long EMPTY_KEY = -1L;
+
+    /**
+     * 1 GiB of memory.
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int POSITION_BITS = 32;
+
+    private static final int MAX_CONTIG_ID = (1 << (63 - POSITION_BITS - 2)) - 1;
+
+    /**
+     * <code>[key, scoreBits, key, scoreBits, ...]</code>, {@link #WAYS} entries per bucket.
+     */
+    private final long[] table;
+
+    private final int bucketMask;
+
+    private final Object[] locks;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+
+    /**
+     * @param capacity maximum number of the cached sites, rounded up to the nearest power of 2. The cache is disabled
+     *                 if the capacity is <code>0</code>
+     */
+    public SiteScoreCache(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException(String.format("Capacity must be in range [0, %d]: '%d'", MAX_CAPACITY, capacity));
+
+        int buckets = capacity == 0 ? 0 : ceilPowerOfTwo((capacity + WAYS - 1) / WAYS);
+        this.bucketMask = buckets - 1;
+        this.table = new long[buckets * WAYS * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            table[i] = EMPTY_KEY;
+        }
+        this.locks = new Object[Math.min(LOCK_STRIPES, Math.max(buckets, 1))];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+
+    /**
+     * Pack the site coordinates into a key.
+     *
+     * @param contigId ID of the contig, as defined by the reference dictionary
+     * @param position 0-based begin position of the site on {@link Strand#FWD}
+     * @param strand   strand of the site
+     * @param acceptor <code>true</code> for the splice acceptor site, <code>false</code> for the splice donor site
+     * @return key of the site
+     * @throws IllegalArgumentException if the contig ID or the position is out of the range that can be stored
+     */
+    public static long key(int contigId, int position, Strand strand, boolean acceptor) {
+        if (contigId < 0 || contigId > MAX_CONTIG_ID)
+            throw new IllegalArgumentException(String.format("Contig ID out of range: '%d'", contigId));
+        if (position < 0)
+            throw new IllegalArgumentException(String.format("Position must not be negative: '%d'", position));
+
+        return ((long) contigId << (POSITION_BITS + 2))
+                | ((long) position << 2)
+                | (strand.isForward() ? 0 : 2)
+                | (acceptor ? 1 : 0);
+    }
+
+
+    private static int ceilPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+
+    private static int spread(long key) {
+        long h = key * 0x9E37_79B9_7F4A_7C15L; // Fibonacci hashing
+        return (int) (h >>> 32);
+    }
+
+
+    /**
+     * @return <code>true</code> if the cache stores no sites at all
+     */
+    public boolean isDisabled() {
+        return table.length == 0;
+    }
+
+
+    /**
+     * Get the cached score.
+     *
+     * @param key key of the site created by {@link #key(int, int, Strand, boolean)}
+     * @return bits of the score as returned by {@link Double#doubleToLongBits(double)} or {@link #MISSING} if the site
+     * is not present in the cache
+     */
+    public long lookup(long key) {
+        if (isDisabled()) {
+            misses.increment();
+            return MISSING;
+        }
+        int bucket = spread(key) & bucketMask;
+        int base = bucket * WAYS * 2;
+        synchronized (locks[bucket % locks.length]) {
+            for (int way = 0; way < WAYS; way++) {
+                int idx = base + way * 2;
+                if (table[idx] == key) {
+                    long bits = table[idx + 1];
+                    if (way > 0) {
+                        // move the entry to the front of the bucket
+                        System.arraycopy(table, base, table, base + 2, way * 2);
+                        table[base] = key;
+                        table[base + 1] = bits;
+                    }
+                    hits.increment();
+                    return bits;
+                }
+            }
+        }
+        misses.increment();
+        return MISSING;
+    }
+
+
+    /**
+     * Store the score of the site. The least recently used site of the bucket is evicted if the bucket is full.
+     *
+     * @param key   key of the site created by {@link #key(int, int, Strand, boolean)}
+     * @param score score of the site
+     */
+    public void put(long key, double score) {
+        if (isDisabled())
+            return;
+        long bits = Double.doubleToLongBits(score); // NaNs are collapsed into the canonical form
+        int bucket = spread(key) & bucketMask;
+        int base = bucket * WAYS * 2;
+        synchronized (locks[bucket % locks.length]) {
+            int way = 0;
+            while (way < WAYS - 1 && table[base + way * 2] != key && table[base + way * 2] != EMPTY_KEY) {
+                way++;
+            }
+            if (table[base + way * 2] != key && table[base + way * 2] != EMPTY_KEY)
+                evictions.increment();
+            // shift the more recently used entries and put the new entry to the front
+            System.arraycopy(table, base, table, base + 2, way * 2);
+            table[base] = key;
+            table[base + 1] = bits;
+        }
+    }
+
+
+    /**
+     * Remove all sites from the cache, the counters are not reset.
+     */
+    public void clear() {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int bucket = stripe; bucket <= bucketMask; bucket += locks.length) {
+                    Arrays.fill(table, bucket * WAYS * 2, (bucket + 1) * WAYS * 2, EMPTY_KEY);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return maximum number of the cached sites
+     */
+    public int getCapacity() {
+        return table.length / 2;
+    }
+
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+
+    @Override
+    public String toString() {
+        long h = getHits(), m = getMisses();
+        return String.format("SiteScoreCache{capacity=%d, hits=%d, misses=%d, hitRate=%.2f%%, evictions=%d}",
+                getCapacity(), h, m, h + m == 0 ? 0. : h * 100. / (h + m), getEvictions());
+    }
+}
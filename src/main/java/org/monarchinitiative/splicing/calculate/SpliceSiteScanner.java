@@ -0,0 +1,274 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.Strand;
+
+/**
+ * Scores every position of a sequence as a potential splice donor and acceptor site on both strands and reports the
+ * sites with score above a threshold.
+ * <p>
+ * The sequence is converted into nucleotide indices once and the length of the run of valid nucleotides starting at
+ * each position is calculated, therefore windows that contain characters other than [ACGTacgt] are skipped without
+ * being scored. The k-mer starting at each position is indexed by a rolling 2-bit index, the score of the first
+ * positions of the window is looked up in {@link KmerScoreTable} and the information content values of the remaining
+ * positions are added in the same order as in {@link InformationContentTable}. The reported scores are therefore
+ * exactly the same as the scores calculated by {@link SplicingInformationContentAnnotator}. Scoring of a window is
+ * abandoned as soon as the score cannot reach the threshold even with the best nucleotides at the remaining positions.
+ * <p>
+ * Instances are immutable and thread safe. Apart from the index arrays allocated once per call of
+ * {@link #scan(byte[], int, int, SiteConsumer)}, scanning does not allocate any objects.
+ */
+public final class SpliceSiteScanner {
+
+    /**
+     * Tolerance of the early abandoning for rounding errors, the sites with scores close to the threshold are always
+     * scored completely.
+     */
+    private static final double BOUND_TOLERANCE = 1E-9;
+
+    private final Pwm donor, acceptor;
+
+    private final double threshold;
+
+
+    /**
+     * @param donorTable    {@link InformationContentTable} of the splice donor site
+     * @param acceptorTable {@link InformationContentTable} of the splice acceptor site
+     * @param threshold     minimum score of the reported sites
+     */
+    public SpliceSiteScanner(InformationContentTable donorTable, InformationContentTable acceptorTable, double threshold) {
+        this(new KmerScoreTable(donorTable), new KmerScoreTable(acceptorTable), threshold);
+    }
+
+
+    /**
+     * @param donorKmers    {@link KmerScoreTable} of the splice donor site
+     * @param acceptorKmers {@link KmerScoreTable} of the splice acceptor site
+     * @param threshold     minimum score of the reported sites
+     */
+    public SpliceSiteScanner(KmerScoreTable donorKmers, KmerScoreTable acceptorKmers, double threshold) {
+        this.donor = new Pwm(donorKmers);
+        this.acceptor = new Pwm(acceptorKmers);
+        this.threshold = threshold;
+    }
+
+
+    /**
+     * @param annotator {@link SplicingInformationContentAnnotator} with the splice site definitions
+     * @param threshold minimum score of the reported sites
+     */
+    public SpliceSiteScanner(SplicingInformationContentAnnotator annotator, double threshold) {
+        this(annotator.getDonorKmerTable(), annotator.getAcceptorKmerTable(), threshold);
+    }
+
+
+    /**
+     * @return length of the longer of the two sites, the sequence must extend <code>getMaxSiteLength() - 1</code>
+     * bases beyond the last scanned position in order to score all sites that start at the position
+     */
+    public int getMaxSiteLength() {
+        return Math.max(donor.length, acceptor.length);
+    }
+
+
+    /**
+     * @return length of the site of given <code>type</code>
+     */
+    public int getSiteLength(SiteType type) {
+        return type == SiteType.DONOR ? donor.length : acceptor.length;
+    }
+
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+
+    /**
+     * Scan the sites that start at positions <code>[from, to)</code> of the forward strand <code>bases</code>. Sites
+     * that would extend beyond the end of <code>bases</code> are not scored.
+     * <p>
+     * The sites are reported ordered by position. Sites starting at the same position are reported in order donor
+     * {@link Strand#FWD}, donor {@link Strand#REV}, acceptor {@link Strand#FWD}, acceptor {@link Strand#REV}.
+     *
+     * @param bases    forward strand nucleotide sequence as ASCII bytes
+     * @param from     0-based index of the first scanned position
+     * @param to       0-based index of the position after the last scanned position
+     * @param consumer {@link SiteConsumer} receiving the sites with score above the threshold
+     * @return number of the reported sites
+     */
+    public int scan(byte[] bases, int from, int to, SiteConsumer consumer) {
+        if (from < 0 || from > to)
+            throw new IllegalArgumentException(String.format("Invalid range [%d, %d)", from, to));
+
+        int end = Math.min(bases.length, to + getMaxSiteLength() - 1);
+        int length = Math.max(0, end - from);
+        byte[] codes = new byte[length];
+        // number of valid nucleotides starting at the position, capped at Byte.MAX_VALUE
+        byte[] validRun = new byte[length + 1];
+        for (int i = length - 1; i >= 0; i--) {
+            int code = InformationContentTable.nucleotideIndex(bases[from + i]);
+            codes[i] = (byte) code;
+            validRun[i] = code < 0 ? 0 : (byte) Math.min(Byte.MAX_VALUE, validRun[i + 1] + 1);
+        }
+        int[] donorKmers = kmerIndices(codes, donor.kmers);
+        int[] acceptorKmers = acceptor.kmers.getK() == donor.kmers.getK() ? donorKmers : kmerIndices(codes, acceptor.kmers);
+
+        int reported = 0;
+        int minSiteLength = Math.min(donor.length, acceptor.length);
+        int last = Math.min(to, bases.length) - from;
+        for (int i = 0; i < last; i++) {
+            int run = validRun[i];
+            if (run < minSiteLength)
+                // no valid site starts here
+                continue;
+            int position = from + i;
+            if (run >= donor.length) {
+                double score = donor.score(codes, i, donorKmers[i], threshold);
+                if (score >= threshold) {
+                    consumer.accept(position, SiteType.DONOR, Strand.FWD, score);
+                    reported++;
+                }
+                score = donor.scoreReverseComplement(codes, i, donorKmers[i + donor.length - donor.k], threshold);
+                if (score >= threshold) {
+                    consumer.accept(position, SiteType.DONOR, Strand.REV, score);
+                    reported++;
+                }
+            }
+            if (run >= acceptor.length) {
+                double score = acceptor.score(codes, i, acceptorKmers[i], threshold);
+                if (score >= threshold) {
+                    consumer.accept(position, SiteType.ACCEPTOR, Strand.FWD, score);
+                    reported++;
+                }
+                score = acceptor.scoreReverseComplement(codes, i, acceptorKmers[i + acceptor.length - acceptor.k], threshold);
+                if (score >= threshold) {
+                    consumer.accept(position, SiteType.ACCEPTOR, Strand.REV, score);
+                    reported++;
+                }
+            }
+        }
+        return reported;
+    }
+
+
+    /**
+     * @return indices of the k-mers starting at each position, the indices of the k-mers containing a character other
+     * than [ACGTacgt] are not valid
+     */
+    private static int[] kmerIndices(byte[] codes, KmerScoreTable kmers) {
+        int k = kmers.getK();
+        int[] indices = new int[codes.length];
+        int index = 0;
+        for (int i = 0; i < codes.length; i++) {
+            // the invalid nucleotide is shifted out of the index after k positions
+            index = codes[i] < 0 ? 0 : kmers.roll(index, codes[i]);
+            if (i >= k - 1)
+                indices[i - k + 1] = index;
+        }
+        return indices;
+    }
+
+
+    public enum SiteType {
+        DONOR, ACCEPTOR
+    }
+
+
+    /**
+     * Receives the sites found by the scanner.
+     */
+    @FunctionalInterface
+    public interface SiteConsumer {
+
+        /**
+         * @param position 0-based position of the first base of the site window on the forward strand. The window
+         *                 occupies the same bases on the forward strand for the sites on both strands
+         * @param type     type of the site
+         * @param strand   strand of the site
+         * @param score    score of the site
+         */
+        void accept(int position, SiteType type, Strand strand, double score);
+    }
+
+
+    /**
+     * Information content values of a site and scores of the k-mers occupying its first positions together with the
+     * upper bounds of the score that can be gained by the remaining positions.
+     */
+    private static final class Pwm {
+
+        private final KmerScoreTable kmers;
+
+        private final int length;
+
+        private final int k;
+
+        private final double[] values;
+
+        /**
+         * Complemented values with reversed positions, indexed by the forward strand position within the site.
+         */
+        private final double[] reverseComplementValues;
+
+        /**
+         * Sum of the maximum values at positions <code>[i, length)</code> stored at index <code>i</code>.
+         */
+        private final double[] maxSuffix;
+
+        private Pwm(KmerScoreTable kmers) {
+            if (kmers.length() > Byte.MAX_VALUE)
+                throw new IllegalArgumentException(String.format("Sites longer than %d bases are not supported: %d",
+                        Byte.MAX_VALUE, kmers.length()));
+            this.kmers = kmers;
+            this.length = kmers.length();
+            this.k = kmers.getK();
+            this.values = new double[length * 4];
+            this.reverseComplementValues = new double[length * 4];
+            this.maxSuffix = new double[length + 1];
+            for (int pos = length - 1; pos >= 0; pos--) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int nt = 0; nt < 4; nt++) {
+                    values[pos * 4 + nt] = kmers.getTable().get(pos, nt);
+                    reverseComplementValues[pos * 4 + nt] = kmers.getTable().getReverseComplement(pos, nt);
+                    max = Math.max(max, values[pos * 4 + nt]);
+                }
+                maxSuffix[pos] = maxSuffix[pos + 1] + max;
+            }
+        }
+
+        /**
+         * @param kmer index of the k-mer starting at <code>offset</code>
+         * @return score of the site starting at <code>offset</code> or {@link Double#NEGATIVE_INFINITY} if the score
+         * cannot reach the <code>threshold</code>
+         */
+        private double score(byte[] codes, int offset, int kmer, double threshold) {
+            double score = kmers.prefixScore(kmer);
+            if (score + maxSuffix[k] < threshold - BOUND_TOLERANCE)
+                return Double.NEGATIVE_INFINITY;
+            for (int pos = k; pos < length; pos++) {
+                score += values[pos * 4 + codes[offset + pos]];
+                if (score + maxSuffix[pos + 1] < threshold - BOUND_TOLERANCE)
+                    return Double.NEGATIVE_INFINITY;
+            }
+            return score;
+        }
+
+        /**
+         * @param kmer index of the k-mer occupying the last <code>k</code> positions of the site on the forward strand
+         * @return score of reverse complement of the site occupying <code>[offset, offset + length)</code> or
+         * {@link Double#NEGATIVE_INFINITY} if the score cannot reach the <code>threshold</code>
+         */
+        private double scoreReverseComplement(byte[] codes, int offset, int kmer, double threshold) {
+            double score = kmers.reverseComplementPrefixScore(kmer);
+            if (score + maxSuffix[k] < threshold - BOUND_TOLERANCE)
+                return Double.NEGATIVE_INFINITY;
+            // position pos of the reverse strand site is the forward strand position length - 1 - pos
+            for (int pos = length - 1 - k; pos >= 0; pos--) {
+                score += reverseComplementValues[pos * 4 + codes[offset + pos]];
+                if (score + maxSuffix[length - pos] < threshold - BOUND_TOLERANCE)
+                    return Double.NEGATIVE_INFINITY;
+            }
+            return score;
+        }
+    }
+}
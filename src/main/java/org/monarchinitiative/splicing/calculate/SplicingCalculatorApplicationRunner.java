@@ -1,14 +1,41 @@
 package org.monarchinitiative.splicing.calculate;
 
-import de.charite.compbio.jannovar.data.JannovarData;
+import com.google.common.collect.Iterators;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.monarchinitiative.splicing.CommandLineArguments;
+import org.monarchinitiative.splicing.concurrent.OrderedBatchExecutor;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
 import org.monarchinitiative.splicing.io.ResultsWriter;
+import org.monarchinitiative.splicing.io.TranscriptSource;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Runner for the app's logic.
@@ -20,21 +47,84 @@ public class SplicingCalculatorApplicationRunner implements ApplicationRunner {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(SplicingCalculatorApplicationRunner.class);
 
-    private final JannovarData jannovarData;
+    /**
+     * Number of transcripts scored by a single task when running with multiple worker threads.
+     */
+    private static final int BATCH_SIZE = 100;
 
-    private final TranscriptScorer transcriptScorer;
+    /**
+     * Number of transcripts written between two checkpoints when the transcripts are not scored contig by contig.
+     */
+    private static final int CHECKPOINT_INTERVAL = 10000;
 
-    private final ResultsWriter resultsWriter;
+    private final ObjectProvider<TranscriptSource> transcriptSourceProvider;
 
-    private int processed = 0;
+    private final ObjectProvider<TranscriptScorer> transcriptScorerProvider;
+
+    private final ObjectProvider<ResultsWriter> resultsWriterProvider;
+
+    private final ObjectProvider<GenomeSequenceAccessor> genomeSequenceAccessorProvider;
+
+    private final ObjectProvider<PipelineMetrics> pipelineMetricsProvider;
+
+    private final ObjectProvider<File> mainOutputFileProvider;
+
+    private TranscriptSource transcriptSource;
+
+    private TranscriptScorer transcriptScorer;
+
+    private ResultsWriter resultsWriter;
+
+    private GenomeSequenceAccessor genomeSequenceAccessor;
+
+    private final AtomicInteger processed = new AtomicInteger();
 
     private int total;
 
+    /**
+     * Index of the first transcript of the shard in the order in which the transcripts are written.
+     */
+    private int first;
+
+    /**
+     * Number of transcripts written by the interrupted run that is resumed.
+     */
+    private int resumed;
 
-    public SplicingCalculatorApplicationRunner(JannovarData jannovarData, TranscriptScorer transcriptScorer, ResultsWriter resultsWriter) {
-        this.jannovarData = jannovarData;
-        this.transcriptScorer = transcriptScorer;
-        this.resultsWriter = resultsWriter;
+    private File checkpointFile;
+
+    /**
+     * Indices of the scores of the previous runs whose scores are reused, empty if the run is not incremental.
+     */
+    private final List<ScoreIndex> previousScores = new ArrayList<>();
+
+    /**
+     * Index of the scores of this run, <code>null</code> if the index is not written.
+     */
+    private ScoreIndex.Writer scoreIndexWriter;
+
+    private final AtomicInteger reused = new AtomicInteger();
+
+    private boolean byContig;
+
+    private long startNanos;
+
+
+    /**
+     * The resources are loaded only if the command is run, therefore the output file is not touched by other commands.
+     */
+    public SplicingCalculatorApplicationRunner(ObjectProvider<TranscriptSource> transcriptSourceProvider,
+                                               ObjectProvider<TranscriptScorer> transcriptScorerProvider,
+                                               ObjectProvider<ResultsWriter> resultsWriterProvider,
+                                               ObjectProvider<GenomeSequenceAccessor> genomeSequenceAccessorProvider,
+                                               ObjectProvider<PipelineMetrics> pipelineMetricsProvider,
+                                               @Qualifier("mainOutputFile") ObjectProvider<File> mainOutputFileProvider) {
+        this.transcriptSourceProvider = transcriptSourceProvider;
+        this.transcriptScorerProvider = transcriptScorerProvider;
+        this.resultsWriterProvider = resultsWriterProvider;
+        this.genomeSequenceAccessorProvider = genomeSequenceAccessorProvider;
+        this.pipelineMetricsProvider = pipelineMetricsProvider;
+        this.mainOutputFileProvider = mainOutputFileProvider;
     }
 
 
@@ -42,32 +132,336 @@ public class SplicingCalculatorApplicationRunner implements ApplicationRunner {
         List<String> nonOptionArgs = args.getNonOptionArgs();
         if (nonOptionArgs.contains("calculate")) {
             try {
-                calculate();
+                transcriptSource = transcriptSourceProvider.getObject();
+                transcriptScorer = transcriptScorerProvider.getObject();
+                checkpointFile = Checkpoint.fileFor(mainOutputFileProvider.getObject());
+                Checkpoint checkpoint = args.containsOption("resume") ? Checkpoint.read(checkpointFile) : null;
+                resultsWriter = resultsWriterProvider.getObject(); // truncated to the checkpoint, if resuming
+                genomeSequenceAccessor = genomeSequenceAccessorProvider.getObject();
+                // indexed results must be grouped by contig
+                byContig = args.containsOption("by-contig") || resultsWriter.isIndexed();
+                selectShard(args.containsOption("shard") ? Shard.parse(args.getOptionValues("shard").get(0)) : Shard.ALL);
+                resume(checkpoint, args.containsOption("resume"));
+                prepareScoreIndices(args);
+
+                startNanos = System.nanoTime();
+                if (byContig)
+                    calculateByContig(CommandLineArguments.getThreads(args));
+                else
+                    calculate(CommandLineArguments.getThreads(args));
+                // all results are written, the remaining lines are flushed by closing the writer
+                resultsWriter.checkpoint();
+                Files.deleteIfExists(checkpointFile.toPath());
+                if (scoreIndexWriter != null)
+                    scoreIndexWriter.close();
+                summarize(args.containsOption("metrics") ? new File(args.getOptionValues("metrics").get(0)) : null);
             } catch (Exception e) {
                 LOGGER.warn("Exception occured: ", e);
+                if (scoreIndexWriter != null)
+                    scoreIndexWriter.abort();
             }
         }
     }
 
 
-    private void calculate() {
-        total = jannovarData.getTmByAccession().values().size();
+    /**
+     * Select the transcripts of the <code>shard</code>. The shards are contiguous ranges of the transcripts in the
+     * order in which they are written, which depends on whether the transcripts are scored contig by contig.
+     */
+    private void selectShard(Shard shard) {
+        if (shard.getCount() == 1) {
+            first = 0;
+            total = transcriptSource.size();
+            return;
+        }
+        Iterator<TranscriptModel> transcripts = byContig
+                ? transcriptSource.getContigs().stream().flatMap(contig -> transcriptSource.getTranscripts(contig).stream()).iterator()
+                : transcriptSource.iterator();
+        int[] range = shard.range(transcripts);
+        first = range[0];
+        total = range[1] - range[0];
+        LOGGER.info("Scoring shard {}: transcripts {}-{} of {}", shard, range[0] + 1, range[1], transcriptSource.size());
+    }
+
+
+    /**
+     * Skip the transcripts written by the interrupted run if there is a checkpoint to resume from, otherwise start from
+     * the beginning and remove checkpoint of any previous run, as it does not match the output file anymore.
+     */
+    private void resume(Checkpoint checkpoint, boolean resumeRequested) throws IOException {
+        if (checkpoint == null) {
+            if (resumeRequested)
+                LOGGER.info("No checkpoint found at '{}', starting from the beginning", checkpointFile.getAbsolutePath());
+            Files.deleteIfExists(checkpointFile.toPath());
+            return;
+        }
+        if (checkpoint.isByContig() != byContig || checkpoint.getTotal() != total)
+            throw new IllegalStateException(String.format("Checkpoint %s does not match the run: byContig=%s, total=%d",
+                    checkpoint, byContig, total));
+        resumed = checkpoint.getTranscripts();
+        processed.set(resumed);
+        LOGGER.info("Resuming from checkpoint '{}', skipping {} written transcripts", checkpointFile.getAbsolutePath(), resumed);
+    }
+
+
+    /**
+     * Read the score indices of the previous runs, if the run is incremental, and start writing the score index of
+     * this run. The indices are read before the index of this run is written, therefore the run can reuse the index
+     * that it replaces. Indices of the runs with different splice site definitions or reference genome are ignored.
+     * <p>
+     * The index is not written when resuming, as the scores of the transcripts written by the interrupted run are not
+     * known.
+     */
+    private void prepareScoreIndices(ApplicationArguments args) throws IOException {
+        File indexFile = ScoreIndex.fileFor(mainOutputFileProvider.getObject());
+        long runFingerprint = ScoreIndex.runFingerprint(transcriptScorer.getInformationContentAnnotator(), genomeSequenceAccessor);
+        if (args.containsOption("incremental")) {
+            Set<File> indexFiles = new LinkedHashSet<>();
+            for (String value : args.getOptionValues("incremental")) {
+                indexFiles.add(value.isEmpty() ? indexFile : new File(value));
+            }
+            if (indexFiles.isEmpty())
+                indexFiles.add(indexFile);
+
+            for (File file : indexFiles) {
+                ScoreIndex index = ScoreIndex.read(file);
+                if (index == null) {
+                    LOGGER.info("No score index found at '{}'", file.getAbsolutePath());
+                } else if (index.getRunFingerprint() != runFingerprint) {
+                    LOGGER.info("Ignoring score index '{}', splice site definitions or reference genome have changed", file.getAbsolutePath());
+                } else {
+                    LOGGER.info("Reusing scores of {} transcripts from '{}'", index.size(), file.getAbsolutePath());
+                    previousScores.add(index);
+                }
+            }
+        }
+
+        if (resumed > 0) {
+            LOGGER.info("Not writing score index of the resumed run to '{}'", indexFile.getAbsolutePath());
+            Files.deleteIfExists(indexFile.toPath()); // it does not match the results anymore
+        } else {
+            scoreIndexWriter = new ScoreIndex.Writer(indexFile, runFingerprint);
+        }
+    }
+
+
+    /**
+     * @return the transcript with scores from the index of a previous run or <code>null</code> if the transcript is
+     * new or changed since the previous run
+     */
+    private ScoredTranscriptModel lookupPreviousScores(TranscriptModel tm) {
+        for (ScoreIndex index : previousScores) {
+            ScoredTranscriptModel scored = index.lookup(tm);
+            if (scored != null)
+                return scored;
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the transcripts of <code>tms</code> that have not changed since the previous run mapped to their scores
+     * from the index of the previous run, the map compares the transcripts by identity
+     */
+    private Map<TranscriptModel, ScoredTranscriptModel> lookupPreviousScores(List<TranscriptModel> tms) {
+        Map<TranscriptModel, ScoredTranscriptModel> unchanged = new IdentityHashMap<>();
+        if (previousScores.isEmpty())
+            return unchanged;
+        for (TranscriptModel tm : tms) {
+            ScoredTranscriptModel scored = lookupPreviousScores(tm);
+            if (scored != null)
+                unchanged.put(tm, scored);
+        }
+        return unchanged;
+    }
+
+
+    /**
+     * @return <code>scorer</code> that reuses scores of the transcripts that have not changed since the previous run
+     */
+    private Function<TranscriptModel, ScoredTranscriptModel> incremental(Function<TranscriptModel, ScoredTranscriptModel> scorer) {
+        if (previousScores.isEmpty())
+            return scorer;
+        return tm -> {
+            ScoredTranscriptModel scored = lookupPreviousScores(tm);
+            if (scored == null)
+                return scorer.apply(tm);
+            reused.incrementAndGet();
+            return scored;
+        };
+    }
+
+
+    /**
+     * @param unchanged transcripts with the scores from the previous run, see {@link #lookupPreviousScores(List)}
+     * @return <code>scorer</code> that reuses the scores of the <code>unchanged</code> transcripts
+     */
+    private Function<TranscriptModel, ScoredTranscriptModel> reusing(Map<TranscriptModel, ScoredTranscriptModel> unchanged,
+                                                                     Function<TranscriptModel, ScoredTranscriptModel> scorer) {
+        if (unchanged.isEmpty())
+            return scorer;
+        return tm -> {
+            ScoredTranscriptModel scored = unchanged.get(tm);
+            if (scored == null)
+                return scorer.apply(tm);
+            reused.incrementAndGet();
+            return scored;
+        };
+    }
+
+
+    /**
+     * Record the number of written transcripts and the length of the output file containing their lines.
+     */
+    private void checkpoint() {
+        try {
+            new Checkpoint(processed.get(), resultsWriter.checkpoint(), byContig, total).write(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private void calculate(int threads) {
         LOGGER.info("Starting splicing calculations for {} transcripts", total);
-        jannovarData.getTmByAccession().values().stream()
-                // score each transcript
-                .map(transcriptScorer.scoreTranscriptModel())
-                // report progress on console
-                .peek(this::progress)
-                // write the transcripts
-                .forEach(resultsWriter::write);
+        Iterator<TranscriptModel> transcripts = transcriptSource.iterator();
+        Iterators.advance(transcripts, first + resumed);
+        transcripts = Iterators.limit(transcripts, total - resumed);
+        if (threads == 1) {
+            process(transcripts, incremental(transcriptScorer.scoreTranscriptModel()), null);
+        } else {
+            LOGGER.info("Scoring transcripts using {} worker threads", threads);
+            try (OrderedBatchExecutor executor = new OrderedBatchExecutor(threads, BATCH_SIZE)) {
+                process(transcripts, incremental(transcriptScorer.scoreTranscriptModel()), executor);
+            }
+        }
         LOGGER.info("Done!");
+        LOGGER.info("Site score cache statistics: {}", transcriptScorer.getSiteScoreCache());
+    }
+
+
+    /**
+     * Score the transcripts contig by contig. Sequence of the region spanning all transcripts of the contig is fetched
+     * in a single read, the transcripts are scored against the sequence and the sequence is released before moving to
+     * the next contig. Therefore, the reference genome is read sequentially and at most one contig sequence is kept in
+     * memory.
+     * <p>
+     * The results are written ordered by contig and by transcript begin position. Transcripts of a single contig are
+     * obtained from the {@link TranscriptSource} at a time, therefore the transcripts and their results can be collected
+     * once the contig is written, if the source creates the transcripts on demand.
+     * <p>
+     * In the incremental run, only the region spanning the new and changed transcripts is fetched, and nothing is
+     * fetched if all transcripts of the contig have been scored by the previous run.
+     */
+    private void calculateByContig(int threads) {
+        List<Integer> contigs = transcriptSource.getContigs();
+        LOGGER.info("Starting splicing calculations for {} transcripts on {} contigs", total, contigs.size());
+        int skip = first + resumed, remaining = total - resumed;
+        try (OrderedBatchExecutor executor = threads == 1 ? null : new OrderedBatchExecutor(threads, BATCH_SIZE)) {
+            if (executor != null)
+                LOGGER.info("Scoring transcripts using {} worker threads", threads);
+
+            for (Integer contigId : contigs) {
+                if (remaining == 0)
+                    break;
+                List<TranscriptModel> tms = transcriptSource.getTranscripts(contigId);
+                if (skip >= tms.size()) { // in the preceding shards or written by the interrupted run
+                    skip -= tms.size();
+                    continue;
+                }
+                tms = tms.subList(skip, Math.min(tms.size(), skip + remaining));
+                skip = 0;
+                remaining -= tms.size();
+                String contig = TranscriptScorer.contigName(tms.get(0).getTXRegion());
+                // each transcript is looked up once, the scores of the unchanged transcripts are kept until the contig is written
+                Map<TranscriptModel, ScoredTranscriptModel> unchanged = lookupPreviousScores(tms);
+                List<TranscriptModel> changed = unchanged.isEmpty()
+                        ? tms
+                        : tms.stream().filter(tm -> !unchanged.containsKey(tm)).collect(Collectors.toList());
+
+                LOGGER.info("Scoring {} transcripts on contig '{}'", changed.size(), contig);
+                Function<TranscriptModel, ScoredTranscriptModel> scorer = transcriptScorer.scoreTranscriptModel();
+                if (!changed.isEmpty()) {
+                    int begin = changed.stream().mapToInt(tm -> tm.getTXRegion().withStrand(Strand.FWD).getBeginPos()).min().getAsInt();
+                    int end = changed.stream().mapToInt(tm -> tm.getTXRegion().withStrand(Strand.FWD).getEndPos()).max().getAsInt();
+                    byte[] bases = genomeSequenceAccessor.fetchBases(contig, begin, end);
+                    // fall back to fetching sequence of each transcript, if the region is not available
+                    if (bases != null)
+                        scorer = transcriptScorer.scoreTranscriptModel(new ContigSequence(contig, begin, bases));
+                }
+                process(tms.iterator(), reusing(unchanged, scorer), executor);
+                checkpoint();
+                // the sequence and the transcripts are not referenced anymore and can be collected before fetching the next contig
+            }
+        }
+        LOGGER.info("Done!");
+        LOGGER.info("Site score cache statistics: {}", transcriptScorer.getSiteScoreCache());
+    }
+
+
+    /**
+     * Score the transcripts and write the results.
+     *
+     * @param executor {@link OrderedBatchExecutor} for scoring using worker threads or <code>null</code> if the
+     *                 transcripts should be scored on the calling thread
+     */
+    private void process(Iterator<TranscriptModel> transcripts, Function<TranscriptModel, ScoredTranscriptModel> scorer,
+                         OrderedBatchExecutor executor) {
+        Consumer<ScoredTranscriptModel> consumer = stm -> {
+            // report progress on console
+            progress(stm);
+            // write the transcripts
+            resultsWriter.write(stm);
+            if (scoreIndexWriter != null) {
+                try {
+                    scoreIndexWriter.add(stm);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (!byContig && processed.get() % CHECKPOINT_INTERVAL == 0)
+                checkpoint();
+        };
+        if (executor == null) {
+            while (transcripts.hasNext()) {
+                consumer.accept(scorer.apply(transcripts.next()));
+            }
+        } else {
+            // transcripts are scored concurrently, but written in the same order as in the single-threaded run
+            executor.process(transcripts, scorer, consumer);
+        }
     }
 
 
     private void progress(ScoredTranscriptModel s) {
-        processed++;
-        if (processed % 10000 == 0) {
-            LOGGER.info(String.format("Processed %.2f%% of transcripts", ((double) processed * 100) / (double) total));
+        int current = processed.incrementAndGet();
+        if (current % 10000 == 0) {
+            double seconds = (System.nanoTime() - startNanos) / 1E9;
+            double throughput = (current - resumed) / seconds;
+            long eta = (long) ((total - current) / throughput);
+            LOGGER.info(String.format("Processed %.2f%% of transcripts (%d/%d), %.0f transcripts/s, ETA %d:%02d:%02d",
+                    ((double) current * 100) / (double) total, current, total, throughput,
+                    TimeUnit.SECONDS.toHours(eta), TimeUnit.SECONDS.toMinutes(eta) % 60, eta % 60));
+        }
+    }
+
+
+    /**
+     * Log the metrics of the run in JSON format and write them to the <code>metricsFile</code>, if not
+     * <code>null</code>.
+     */
+    private void summarize(File metricsFile) throws IOException {
+        String summary = pipelineMetricsProvider.getObject().getSummary();
+        LOGGER.info("Scored {} transcripts in {} ms", processed.get() - resumed - reused.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (!previousScores.isEmpty())
+            LOGGER.info("Reused scores of {} unchanged transcripts", reused.get());
+        LOGGER.info("Pipeline metrics: {}", summary);
+        if (metricsFile != null) {
+            LOGGER.info("Writing pipeline metrics to '{}'", metricsFile.getAbsolutePath());
+            try (Writer writer = Files.newBufferedWriter(metricsFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(summary);
+                writer.write(System.lineSeparator());
+            }
         }
     }
 
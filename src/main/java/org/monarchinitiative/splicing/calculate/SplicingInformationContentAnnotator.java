@@ -1,13 +1,21 @@
 package org.monarchinitiative.splicing.calculate;
 
+import de.charite.compbio.jannovar.reference.Strand;
 import org.jblas.DoubleMatrix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * This annotator implements splice site scoring method described in publication <a
  * href="https://www.ncbi.nlm.nih.gov/pubmed/9711873">Information Analysis of Human Splice Site Mutations</a> by Rogan
  * et al.<p></p>
+ * The scoring is backed by {@link InformationContentTable}s, the annotator does not allocate any objects while
+ * scoring valid sequences. Apart from scoring standalone sequences, the sites can be scored in place within a larger
+ * forward strand sequence, using offset of the site and strand that the site is located on. This way there is no need
+ * to create substrings and reverse complements of the sites. The sites within arrays of ASCII bytes are scored using
+ * {@link KmerScoreTable}s, with a single lookup for the donor site.
  *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
  * @version 0.0.1
@@ -18,112 +26,72 @@ public class SplicingInformationContentAnnotator {
     private static final Logger LOGGER = LoggerFactory.getLogger(SplicingInformationContentAnnotator.class);
 
     /**
-     * Nucleotide sequence submitted for scoring must match this pattern.
+     * Information content tables for splice donor and acceptor sites.
      */
-    private static final String PATTERN = "[ACGTacgt]*";
+    private final InformationContentTable donorTable, acceptorTable;
 
     /**
-     * Double matrices for splice donor and acceptor sites. Columns represent positions and rows represent probabilities
-     * of presence of the nucleotides (A, C, G, T) at the position.
+     * Precomputed scores of the k-mers for splice donor and acceptor sites.
      */
-    private final DoubleMatrix donorMatrix, acceptorMatrix;
+    private final KmerScoreTable donorKmers, acceptorKmers;
 
 
     /**
-     * Convert {@link DoubleMatrix} with nucleotide frequencies into array of information content values.
-     * <p>
-     * Basically, {@link #calculateIC(double)} method is mapped element-wise to given <code>freqMatrix</code>.
+     * Instantiate the annotator. Perform sanity check of provided PWM definitions.
      *
-     * @param freqMatrix {@link DoubleMatrix} containing nucleotide frequencies at positions of splice site
-     * @return {@link DoubleMatrix} containing information content of nucleotides at positions of splice site with the
-     * same shape as <code>freqMatrix</code>
+     * @param donorMatrix    - matrix of nucleotide frequencies observed on splice donor sites genome-wise
+     * @param acceptorMatrix - matrix of nucleotide frequencies observed on splice acceptor sites genome-wise
      */
-    private static DoubleMatrix createICMatrix(DoubleMatrix freqMatrix) {
-        DoubleMatrix icm = new DoubleMatrix(freqMatrix.rows, freqMatrix.columns);
-
-        for (int i = 0; i < freqMatrix.rows; i++) { // iterate through positions/rows of pwm
-            DoubleMatrix row = freqMatrix.getRow(i);
-            for (int j = 0; j < row.columns; j++) { // iterate through nucleotides at position
-                icm.put(i, j, calculateIC(row.get(j)));
-            }
-        }
-        return icm;
+    public SplicingInformationContentAnnotator(DoubleMatrix donorMatrix, DoubleMatrix acceptorMatrix) {
+        this(donorMatrix.toArray2(), acceptorMatrix.toArray2());
     }
 
 
     /**
-     * Calculate information content of the nucleotide from the frequency using formula 1 (Rogan paper from class
-     * description). Correction factor is ignored, I assume that the sample size used to calculate the nucleotide
-     * frequency is large enough. In case of the splice sites it was ~220000 sites.
+     * Instantiate the annotator. Perform sanity check of provided PWM definitions.
      *
-     * @param freq {@link Double} frequency of nucleotide occurence at its position from range <0, 1>
-     * @return {@link Double} with information content value
+     * @param donorFrequencies    - nucleotide frequencies observed on splice donor sites genome-wise. Rows represent
+     *                            nucleotides (A, C, G, T) and columns represent positions
+     * @param acceptorFrequencies - nucleotide frequencies observed on splice acceptor sites genome-wise. Rows represent
+     *                            nucleotides (A, C, G, T) and columns represent positions
      */
-    private static double calculateIC(double freq) {
-        return 2d - (-Math.log(freq) / Math.log(2));
+    public SplicingInformationContentAnnotator(double[][] donorFrequencies, double[][] acceptorFrequencies) {
+        this.donorTable = new InformationContentTable(donorFrequencies);
+        this.acceptorTable = new InformationContentTable(acceptorFrequencies);
+        this.donorKmers = new KmerScoreTable(donorTable);
+        this.acceptorKmers = new KmerScoreTable(acceptorTable);
     }
 
 
     /**
-     * Convert sequence into its binary mask representation. For sequence 'ACGTAT' the corresponding binary mask
-     * is:
-     *
-     * <pre>
-     *    |  0    1    2    3    4    5
-     * ---|------------------------------
-     *  A |  1    0    0    0    1    0
-     *  C |  0    1    0    0    0    0
-     *  G |  0    0    1    0    0    0
-     *  T |  0    0    0    1    0    1
-     * </pre>
-     *
-     * @param sequence String with nucleotides represented by [ACGTacgt] characters.
-     * @return binary mask {@link DoubleMatrix} with <code>i</code> rows and <code>j</code> columns. <code>i</code> =
-     * 4 (nucleotides) and <code>j</code> = length of the <code>sequence</code>. Presence of the nucleotide at given position is
-     * represented by 1d, absence is represented by 0D
+     * @return {@link InformationContentTable} of the splice donor site
      */
-    private static DoubleMatrix binaryMask(String sequence) {
-        DoubleMatrix binary_mask = new DoubleMatrix(4, sequence.length());
-        char[] nts = sequence.toCharArray();
-        for (int i = 0; i < nts.length; i++) {
-            switch (nts[i]) {
-                case 'A':
-                case 'a':
-                    binary_mask.put(0, i, 1D);
-                    break;
-
-                case 'C':
-                case 'c':
-                    binary_mask.put(1, i, 1D);
-                    break;
-
-                case 'G':
-                case 'g':
-                    binary_mask.put(2, i, 1D);
-                    break;
-
-                case 'T':
-                case 't':
-                    binary_mask.put(3, i, 1D);
-                    break;
-                default:
-                    break; // no special action, we check sequence integrity upstream.
-            }
-        }
-        return binary_mask;
+    public InformationContentTable getDonorTable() {
+        return donorTable;
     }
 
 
     /**
-     * Instantiate the annotator. Perform sanity check of provided PWM definitions.
-     *
-     * @param donorMatrix    - matrix of nucleotide frequencies observed on splice donor sites genome-wise
-     * @param acceptorMatrix - matrix of nucleotide frequencies observed on splice acceptor sites genome-wise
+     * @return {@link InformationContentTable} of the splice acceptor site
      */
-    public SplicingInformationContentAnnotator(DoubleMatrix donorMatrix, DoubleMatrix acceptorMatrix) {
-        this.donorMatrix = createICMatrix(donorMatrix);
-        this.acceptorMatrix = createICMatrix(acceptorMatrix);
+    public InformationContentTable getAcceptorTable() {
+        return acceptorTable;
+    }
+
 
+    /**
+     * @return {@link KmerScoreTable} of the splice donor site
+     */
+    public KmerScoreTable getDonorKmerTable() {
+        return donorKmers;
+    }
+
+
+    /**
+     * @return {@link KmerScoreTable} of the splice acceptor site
+     */
+    public KmerScoreTable getAcceptorKmerTable() {
+        return acceptorKmers;
     }
 
 
@@ -137,16 +105,17 @@ public class SplicingInformationContentAnnotator {
         if (sequence == null)
             return Double.NaN;
 
-        if (sequence.length() != this.donorMatrix.columns) {
+        if (sequence.length() != donorTable.length()) {
             LOGGER.warn(String.format("Unable to calculate donor score for sequence '%s'. Length of sequence: %d, length " +
-                    "of donor matrix: %d", sequence, sequence.length(), this.donorMatrix.columns));
+                    "of donor matrix: %d", sequence, sequence.length(), donorTable.length()));
             return Double.NaN;
-        } else if (!sequence.matches(PATTERN)) {
+        }
+        double score = donorTable.score(sequence);
+        if (Double.isNaN(score)) {
             LOGGER.warn(String.format("Unable to calculate donor score for sequence '%s'. Only characters A,C,G,T and a," +
                     "c,g,t are allowed.", sequence));
-            return Double.NaN;
         }
-        return donorMatrix.mul(binaryMask(sequence)).sum();
+        return score;
     }
 
 
@@ -160,16 +129,123 @@ public class SplicingInformationContentAnnotator {
         if (sequence == null)
             return Double.NaN;
 
-        if (sequence.length() != this.acceptorMatrix.columns) {
+        if (sequence.length() != acceptorTable.length()) {
             LOGGER.warn(String.format("Unable to calculate acceptor score for sequence '%s'. Length of sequence: %d, " +
-                    "length of acceptor matrix: %d", sequence, sequence.length(), this.acceptorMatrix.columns));
+                    "length of acceptor matrix: %d", sequence, sequence.length(), acceptorTable.length()));
             return Double.NaN;
-        } else if (!sequence.matches(PATTERN)) {
+        }
+        double score = acceptorTable.score(sequence);
+        if (Double.isNaN(score)) {
             LOGGER.warn(String.format("Unable to calculate acceptor score for sequence '%s'. Only characters A,C,G,T " +
                     "and a,c,g,t are " +
                     "allowed.", sequence));
+        }
+        return score;
+    }
+
+
+    /**
+     * Score splice donor site located within forward strand <code>bases</code>.
+     *
+     * @param bases  forward strand nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the site's first nucleotide on the forward strand
+     * @param strand {@link Strand} the site is located on. Sites on {@link Strand#REV} are scored as reverse complement
+     *               of the forward strand nucleotides
+     * @return score of the site as if it was splice donor site calculated using <em>information content</em> method or
+     * {@link Double#NaN} if the site does not fit into <code>bases</code>, if the site contains characters other than
+     * [ACGTacgt] or if <code>bases</code> is <code>null</code>
+     */
+    public double getSpliceDonorScore(byte[] bases, int offset, Strand strand) {
+        return scoreSite(donorKmers, "donor", bases, offset, strand);
+    }
+
+
+    /**
+     * Score splice acceptor site located within forward strand <code>bases</code>.
+     *
+     * @param bases  forward strand nucleotide sequence as ASCII bytes
+     * @param offset 0-based index of the site's first nucleotide on the forward strand
+     * @param strand {@link Strand} the site is located on. Sites on {@link Strand#REV} are scored as reverse complement
+     *               of the forward strand nucleotides
+     * @return score of the site as if it was splice acceptor site calculated using <em>information content</em> method
+     * or {@link Double#NaN} if the site does not fit into <code>bases</code>, if the site contains characters other
+     * than [ACGTacgt] or if <code>bases</code> is <code>null</code>
+     */
+    public double getSpliceAcceptorScore(byte[] bases, int offset, Strand strand) {
+        return scoreSite(acceptorKmers, "acceptor", bases, offset, strand);
+    }
+
+
+    /**
+     * Score splice donor site located within forward strand <code>sequence</code>.
+     *
+     * @param sequence forward strand nucleotide sequence
+     * @param offset   0-based index of the site's first nucleotide on the forward strand
+     * @param strand   {@link Strand} the site is located on. Sites on {@link Strand#REV} are scored as reverse
+     *                 complement of the forward strand nucleotides
+     * @return score of the site as if it was splice donor site calculated using <em>information content</em> method or
+     * {@link Double#NaN} if the site does not fit into <code>sequence</code>, if the site contains characters other
+     * than [ACGTacgt] or if <code>sequence</code> is <code>null</code>
+     */
+    public double getSpliceDonorScore(CharSequence sequence, int offset, Strand strand) {
+        return scoreSite(donorTable, "donor", sequence, offset, strand);
+    }
+
+
+    /**
+     * Score splice acceptor site located within forward strand <code>sequence</code>.
+     *
+     * @param sequence forward strand nucleotide sequence
+     * @param offset   0-based index of the site's first nucleotide on the forward strand
+     * @param strand   {@link Strand} the site is located on. Sites on {@link Strand#REV} are scored as reverse
+     *                 complement of the forward strand nucleotides
+     * @return score of the site as if it was splice acceptor site calculated using <em>information content</em> method
+     * or {@link Double#NaN} if the site does not fit into <code>sequence</code>, if the site contains characters other
+     * than [ACGTacgt] or if <code>sequence</code> is <code>null</code>
+     */
+    public double getSpliceAcceptorScore(CharSequence sequence, int offset, Strand strand) {
+        return scoreSite(acceptorTable, "acceptor", sequence, offset, strand);
+    }
+
+
+    private static double scoreSite(KmerScoreTable table, String siteName, byte[] bases, int offset, Strand strand) {
+        if (bases == null)
+            return Double.NaN;
+
+        if (offset < 0 || offset + table.length() > bases.length) {
+            LOGGER.warn(String.format("Unable to calculate %s score at offset %d. Length of sequence: %d, length " +
+                    "of %s matrix: %d", siteName, offset, bases.length, siteName, table.length()));
+            return Double.NaN;
+        }
+        double score = strand.isForward()
+                ? table.score(bases, offset)
+                : table.scoreReverseComplement(bases, offset);
+        if (Double.isNaN(score)) {
+            LOGGER.warn(String.format("Unable to calculate %s score for sequence '%s' on strand %s. Only characters " +
+                            "A,C,G,T and a,c,g,t are allowed.", siteName,
+                    new String(bases, offset, table.length(), StandardCharsets.US_ASCII), strand));
+        }
+        return score;
+    }
+
+
+    private static double scoreSite(InformationContentTable table, String siteName, CharSequence sequence, int offset, Strand strand) {
+        if (sequence == null)
+            return Double.NaN;
+
+        if (offset < 0 || offset + table.length() > sequence.length()) {
+            LOGGER.warn(String.format("Unable to calculate %s score at offset %d. Length of sequence: %d, length " +
+                    "of %s matrix: %d", siteName, offset, sequence.length(), siteName, table.length()));
             return Double.NaN;
         }
-        return acceptorMatrix.mul(binaryMask(sequence)).sum();
+        double score = strand.isForward()
+                ? table.score(sequence, offset)
+                : table.scoreReverseComplement(sequence, offset);
+        if (Double.isNaN(score)) {
+            LOGGER.warn(String.format("Unable to calculate %s score for sequence '%s' on strand %s. Only characters " +
+                            "A,C,G,T and a,c,g,t are allowed.", siteName,
+                    sequence.subSequence(offset, offset + table.length()), strand));
+        }
+        return score;
     }
 }
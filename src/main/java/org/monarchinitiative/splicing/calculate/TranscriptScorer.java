@@ -4,8 +4,10 @@ import de.charite.compbio.jannovar.reference.GenomeInterval;
 import de.charite.compbio.jannovar.reference.Strand;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
 import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 
@@ -27,61 +29,367 @@ public class TranscriptScorer {
 
     public static final int SPLICE_ACCEPTOR_SITE_LENGTH = 27;
 
+    /**
+     * Estimated cost of a single read from the reference genome expressed as number of bases that can be read instead.
+     * Windows separated by a smaller gap are coalesced into a single read.
+     */
+    public static final int READ_COST_IN_BASES = 4096;
+
     private final SplicingInformationContentAnnotator informationContentAnnotator;
 
     private final GenomeSequenceAccessor sequenceAccessor;
 
+    private final SiteScoreCache siteScoreCache;
+
+    private final FetchStrategy fetchStrategy;
+
+    private final PipelineMetrics metrics;
 
+
+    /**
+     * Create scorer that does not cache the site scores and fetches the whole transcript region.
+     */
     public TranscriptScorer(SplicingInformationContentAnnotator informationContentAnnotator, GenomeSequenceAccessor sequenceAccessor) {
+        this(informationContentAnnotator, sequenceAccessor, new SiteScoreCache(0), FetchStrategy.WHOLE_REGION);
+    }
+
+
+    /**
+     * Create scorer that chooses the {@link FetchStrategy} automatically.
+     *
+     * @param siteScoreCache {@link SiteScoreCache} consulted before fetching and scoring the sites
+     */
+    public TranscriptScorer(SplicingInformationContentAnnotator informationContentAnnotator, GenomeSequenceAccessor sequenceAccessor,
+                            SiteScoreCache siteScoreCache) {
+        this(informationContentAnnotator, sequenceAccessor, siteScoreCache, FetchStrategy.AUTO);
+    }
+
+
+    /**
+     * @param siteScoreCache {@link SiteScoreCache} consulted before fetching and scoring the sites
+     * @param fetchStrategy  {@link FetchStrategy} used to fetch sequence of the transcript
+     */
+    public TranscriptScorer(SplicingInformationContentAnnotator informationContentAnnotator, GenomeSequenceAccessor sequenceAccessor,
+                            SiteScoreCache siteScoreCache, FetchStrategy fetchStrategy) {
+        this(informationContentAnnotator, sequenceAccessor, siteScoreCache, fetchStrategy, new PipelineMetrics());
+    }
+
+
+    /**
+     * @param siteScoreCache {@link SiteScoreCache} consulted before fetching and scoring the sites
+     * @param fetchStrategy  {@link FetchStrategy} used to fetch sequence of the transcript
+     * @param metrics        {@link PipelineMetrics} where number of the scored sites and duration of scoring of each
+     *                       transcript are recorded
+     */
+    public TranscriptScorer(SplicingInformationContentAnnotator informationContentAnnotator, GenomeSequenceAccessor sequenceAccessor,
+                            SiteScoreCache siteScoreCache, FetchStrategy fetchStrategy, PipelineMetrics metrics) {
         this.informationContentAnnotator = informationContentAnnotator;
         this.sequenceAccessor = sequenceAccessor;
+        this.siteScoreCache = siteScoreCache;
+        this.fetchStrategy = fetchStrategy;
+        this.metrics = metrics;
+    }
+
+
+    /**
+     * @param exon {@link GenomeInterval} of the exon on the strand of its transcript
+     * @return 0-based begin coordinate of the exon's splice donor site on {@link Strand#FWD}
+     */
+    public static int donorSiteBegin(GenomeInterval exon) {
+        GenomeInterval fwd = exon.withStrand(Strand.FWD);
+        return exon.getStrand().isForward()
+                ? fwd.getEndPos() - SPLICE_DONOR_SITE_EXONIC_NTS
+                : fwd.getBeginPos() - (SPLICE_DONOR_SITE_LENGTH - SPLICE_DONOR_SITE_EXONIC_NTS);
     }
 
 
+    /**
+     * @param exon {@link GenomeInterval} of the exon on the strand of its transcript
+     * @return 0-based begin coordinate of the exon's splice acceptor site on {@link Strand#FWD}
+     */
+    public static int acceptorSiteBegin(GenomeInterval exon) {
+        GenomeInterval fwd = exon.withStrand(Strand.FWD);
+        return exon.getStrand().isForward()
+                ? fwd.getBeginPos() - SPLICE_ACCEPTOR_SITE_INTRONIC_NTS
+                : fwd.getEndPos() - (SPLICE_ACCEPTOR_SITE_LENGTH - SPLICE_ACCEPTOR_SITE_INTRONIC_NTS);
+    }
+
+
+    /**
+     * @param interval {@link GenomeInterval} on a contig
+     * @return name of the contig prefixed with <code>'chr'</code>, as used for querying the reference genome
+     */
+    public static String contigName(GenomeInterval interval) {
+        String chr = interval.getRefDict().getContigIDToName().get(interval.getChr());
+        return (chr.startsWith("chr")) ? chr : "chr" + chr;
+    }
+
+
+    public SplicingInformationContentAnnotator getInformationContentAnnotator() {
+        return informationContentAnnotator;
+    }
+
+
+    public SiteScoreCache getSiteScoreCache() {
+        return siteScoreCache;
+    }
+
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Score transcript's exons using the transcript's sequence fetched from the reference genome. The sites are scored
+     * directly within the fetched bases, no substrings or reverse complements of the sites are created.
+     * <p>
+     * The {@link SiteScoreCache} is consulted first and the sequence is fetched only if at least one site of the
+     * transcript is not present in the cache.
+     *
+     * @return function for scoring the {@link TranscriptModel}s. The function is thread safe if the
+     * {@link GenomeSequenceAccessor} is thread safe
+     */
     public Function<TranscriptModel, ScoredTranscriptModel> scoreTranscriptModel() {
+        return tm -> score(tm, new TranscriptSequence(tm));
+    }
+
+
+    /**
+     * Score transcript's exons using the <code>sequence</code> of the contig region that was fetched in advance. No
+     * sequence is fetched from the reference genome, the results are the same as the results of
+     * {@link #scoreTranscriptModel()}.
+     *
+     * @param sequence {@link ContigSequence} that contains regions of all transcripts to be scored
+     * @return thread safe function for scoring the {@link TranscriptModel}s
+     * @throws IllegalArgumentException if the transcript is not contained in the <code>sequence</code>
+     */
+    public Function<TranscriptModel, ScoredTranscriptModel> scoreTranscriptModel(ContigSequence sequence) {
         return tm -> {
-            // transcript interval
             GenomeInterval ti = tm.getTXRegion().withStrand(Strand.FWD);
-            // nucleotide sequence
-            String chr = ti.getRefDict().getContigIDToName().get(ti.getChr());
-            chr = (chr.startsWith("chr")) ? chr : "chr" + chr;
-            SequenceInterval sequenceInterval = new SequenceInterval(sequenceAccessor.fetchSequence(chr, ti.getBeginPos(), ti.getEndPos()), ti);
-
-            List<Double> donors = new ArrayList<>(tm.getExonRegions().size());
-            List<Double> acceptors = new ArrayList<>(tm.getExonRegions().size());
-
-            if (tm.getExonRegions().size() < 2) { // single-exon gene
-                donors.add(Double.NaN);
-                acceptors.add(Double.NaN);
-
-            } else { // multi (min 2) exon gene
-                GenomeInterval donor, acceptor;
-                String donorSeq, acceptorSeq;
-                // process the first exon
-                donor = new GenomeInterval(tm.getExonRegions().get(0).getGenomeEndPos().shifted(-SPLICE_DONOR_SITE_EXONIC_NTS), SPLICE_DONOR_SITE_LENGTH);
-                donorSeq = sequenceInterval.sequenceFor(donor);
-                donors.add(informationContentAnnotator.getSpliceDonorScore(donorSeq));
-                acceptors.add(Double.NaN); // the first exon does not have splice acceptor site
-
-                for (int i = 1; i < tm.getExonRegions().size() - 1; i++) { // process internal exons
-                    // donor site
-                    donor = new GenomeInterval(tm.getExonRegions().get(i).getGenomeEndPos().shifted(-SPLICE_DONOR_SITE_EXONIC_NTS), SPLICE_DONOR_SITE_LENGTH);
-                    donorSeq = sequenceInterval.sequenceFor(donor);
-                    donors.add(informationContentAnnotator.getSpliceDonorScore(donorSeq));
-                    // acceptor site
-                    acceptor = new GenomeInterval(tm.getExonRegions().get(i).getGenomeBeginPos().shifted(-SPLICE_ACCEPTOR_SITE_INTRONIC_NTS), SPLICE_ACCEPTOR_SITE_LENGTH);
-                    acceptorSeq = sequenceInterval.sequenceFor(acceptor);
-                    acceptors.add(informationContentAnnotator.getSpliceAcceptorScore(acceptorSeq));
+            if (!sequence.contains(contigName(ti), ti.getBeginPos(), ti.getEndPos()))
+                throw new IllegalArgumentException(String.format("Transcript '%s' is not contained in the sequence '%s:%d-%d'",
+                        tm.getAccession(), sequence.getContig(), sequence.getBegin(), sequence.getEnd()));
+
+            return score(tm, new TranscriptSequence(tm, sequence));
+        };
+    }
+
+
+    /**
+     * Score the transcript and record the number of scored sites and the duration of scoring, excluding the time spent
+     * fetching the sequence, into the {@link PipelineMetrics}. The metrics are updated once per transcript.
+     */
+    private ScoredTranscriptModel score(TranscriptModel tm, TranscriptSequence sequence) {
+        long begin = System.nanoTime();
+        ScoredTranscriptModel scored = scoreExons(tm, sequence);
+        metrics.recordTranscript(sequence.scoredSites, sequence.cachedSites, System.nanoTime() - begin - sequence.fetchNanos);
+        return scored;
+    }
+
+
+    private ScoredTranscriptModel scoreExons(TranscriptModel tm, TranscriptSequence sequence) {
+        List<GenomeInterval> exons = tm.getExonRegions();
+        int n = Math.max(1, exons.size());
+        double[] donors = new double[n];
+        double[] acceptors = new double[n];
+        // the first exon does not have splice acceptor site, the last exon does not have splice donor site
+        acceptors[0] = Double.NaN;
+        donors[n - 1] = Double.NaN;
+
+        if (exons.size() >= 2) { // multi (min 2) exon gene, nothing more to score in single-exon gene
+            for (int i = 0; i < exons.size(); i++) {
+                GenomeInterval exon = exons.get(i);
+                if (i < exons.size() - 1) // donor site
+                    donors[i] = scoreSite(tm, sequence, donorSiteBegin(exon), false);
+                if (i > 0) // acceptor site
+                    acceptors[i] = scoreSite(tm, sequence, acceptorSiteBegin(exon), true);
+            }
+        }
+
+        return new ScoredTranscriptModel(tm, donors, acceptors);
+    }
+
+
+    /**
+     * Score the site that begins at <code>siteBegin</code>. Sites that reach beyond the transcript region are not
+     * scored, regardless of the size of the available sequence.
+     */
+    private double scoreSite(TranscriptModel tm, TranscriptSequence sequence, int siteBegin, boolean acceptor) {
+        GenomeInterval ti = sequence.region;
+        int siteLength = acceptor ? SPLICE_ACCEPTOR_SITE_LENGTH : SPLICE_DONOR_SITE_LENGTH;
+        if (siteBegin < ti.getBeginPos() || siteBegin + siteLength > ti.getEndPos())
+            return Double.NaN;
+
+        long key = SiteScoreCache.key(ti.getChr(), siteBegin, tm.getStrand(), acceptor);
+        long cached = siteScoreCache.lookup(key);
+        if (cached != SiteScoreCache.MISSING) {
+            sequence.cachedSites++;
+            return Double.longBitsToDouble(cached);
+        }
+
+        int segment = sequence.segmentOf(siteBegin, siteLength);
+        if (segment < 0) // the sequence is not available, do not cache
+            return Double.NaN;
+        byte[] bases = sequence.segmentBases[segment];
+        int offset = siteBegin - sequence.segmentBegins[segment];
+        double score = acceptor
+                ? informationContentAnnotator.getSpliceAcceptorScore(bases, offset, tm.getStrand())
+                : informationContentAnnotator.getSpliceDonorScore(bases, offset, tm.getStrand());
+        siteScoreCache.put(key, score);
+        sequence.scoredSites++;
+        return score;
+    }
+
+
+    /**
+     * Strategies for fetching sequence of a transcript from the reference genome.
+     */
+    public enum FetchStrategy {
+        /**
+         * Fetch the whole transcript region in a single read.
+         */
+        WHOLE_REGION,
+        /**
+         * Fetch only the windows with splice sites, adjacent windows are coalesced into a single read.
+         */
+        WINDOWS,
+        /**
+         * Choose the cheaper of the two strategies above based on transcript span and number of reads needed to fetch
+         * the windows.
+         */
+        AUTO
+    }
+
+
+    /**
+     * Sequence of the transcript's splice sites stored in segments sorted by position. The sequence is fetched from the
+     * reference genome when it is needed for the first time, either as a single segment spanning the whole transcript
+     * region or as segments with coalesced splice site windows.
+     */
+    private final class TranscriptSequence {
+
+        private final TranscriptModel tm;
+
+        private final GenomeInterval region;
+
+        /**
+         * 0-based begin positions of the segments on {@link Strand#FWD} and the bases. The bases are <code>null</code>
+         * if the segment could not be fetched.
+         */
+        private int[] segmentBegins;
+
+        private byte[][] segmentBases;
+
+        /**
+         * Number of the sites scored by the annotator and found in the cache, and time spent fetching the sequence.
+         */
+        private int scoredSites;
+
+        private int cachedSites;
+
+        private long fetchNanos;
+
+        private TranscriptSequence(TranscriptModel tm) {
+            this.tm = tm;
+            this.region = tm.getTXRegion().withStrand(Strand.FWD);
+        }
+
+        private TranscriptSequence(TranscriptModel tm, ContigSequence sequence) {
+            this(tm);
+            this.segmentBegins = new int[]{sequence.getBegin()};
+            this.segmentBases = new byte[][]{sequence.getBases()};
+        }
+
+        /**
+         * @return index of the segment that contains the site or <code>-1</code> if the site is not available
+         */
+        private int segmentOf(int siteBegin, int siteLength) {
+            if (segmentBegins == null)
+                fetch();
+            int idx = Arrays.binarySearch(segmentBegins, siteBegin);
+            if (idx < 0)
+                idx = -idx - 2; // the last segment that begins before the site
+            if (idx < 0 || segmentBases[idx] == null || siteBegin + siteLength > segmentBegins[idx] + segmentBases[idx].length)
+                return -1;
+            return idx;
+        }
+
+        private void fetch() {
+            long begin = System.nanoTime();
+            fetchBases();
+            fetchNanos += System.nanoTime() - begin;
+        }
+
+        private void fetchBases() {
+            String contig = contigName(region);
+            int[][] windows = fetchStrategy == FetchStrategy.WHOLE_REGION ? null : coalescedSiteWindows();
+            if (windows == null || !shouldFetchWindows(windows)) {
+                byte[] bases = sequenceAccessor.fetchBases(contig, region.getBeginPos(), region.getEndPos());
+                if (bases != null && bases.length != region.length())
+                    throw new IllegalArgumentException(String.format("Unequal lengths of the interval: '%d' and the sequence: '%d'", region.length(), bases.length));
+                segmentBegins = new int[]{region.getBeginPos()};
+                segmentBases = new byte[][]{bases};
+            } else {
+                segmentBegins = new int[windows.length];
+                segmentBases = new byte[windows.length][];
+                for (int i = 0; i < windows.length; i++) {
+                    segmentBegins[i] = windows[i][0];
+                    segmentBases[i] = sequenceAccessor.fetchBases(contig, windows[i][0], windows[i][1]);
                 }
+            }
+        }
 
-                // process the last exon
-                donors.add(Double.NaN); // the last exon does not have splice donor site
-                acceptor = new GenomeInterval(tm.getExonRegions().get(tm.getExonRegions().size()-1).getGenomeBeginPos().shifted(-SPLICE_ACCEPTOR_SITE_INTRONIC_NTS), SPLICE_ACCEPTOR_SITE_LENGTH);
-                acceptorSeq = sequenceInterval.sequenceFor(acceptor);
-                acceptors.add(informationContentAnnotator.getSpliceAcceptorScore(acceptorSeq));
+        private boolean shouldFetchWindows(int[][] windows) {
+            if (fetchStrategy == FetchStrategy.WINDOWS)
+                return true;
+            long windowedCost = 0;
+            for (int[] window : windows) {
+                windowedCost += READ_COST_IN_BASES + (window[1] - window[0]);
             }
+            return windowedCost < READ_COST_IN_BASES + (long) region.length();
+        }
 
-            return new ScoredTranscriptModel(tm, donors, acceptors);
-        };
+        /**
+         * @return <code>[begin, end)</code> windows of all splice sites of the transcript located within the transcript
+         * region, sorted by position. The windows separated by less than {@link #READ_COST_IN_BASES} are coalesced
+         */
+        private int[][] coalescedSiteWindows() {
+            List<GenomeInterval> exons = tm.getExonRegions();
+            int[][] windows = new int[Math.max(0, 2 * (exons.size() - 1))][];
+            int n = 0;
+            for (int i = 0; i < exons.size(); i++) {
+                if (i < exons.size() - 1) {
+                    int begin = donorSiteBegin(exons.get(i));
+                    windows[n++] = new int[]{begin, begin + SPLICE_DONOR_SITE_LENGTH};
+                }
+                if (i > 0) {
+                    int begin = acceptorSiteBegin(exons.get(i));
+                    windows[n++] = new int[]{begin, begin + SPLICE_ACCEPTOR_SITE_LENGTH};
+                }
+            }
+            // clip to the transcript region, the sites beyond are not scored
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                if (windows[i][0] >= region.getBeginPos() && windows[i][1] <= region.getEndPos())
+                    windows[kept++] = windows[i];
+            }
+            if (kept == 0)
+                return new int[0][];
+            Arrays.sort(windows, 0, kept, (l, r) -> Integer.compare(l[0], r[0]));
+
+            List<int[]> coalesced = new ArrayList<>();
+            int[] current = windows[0].clone();
+            for (int i = 1; i < kept; i++) {
+                if (windows[i][0] - current[1] < READ_COST_IN_BASES) {
+                    current[1] = Math.max(current[1], windows[i][1]);
+                } else {
+                    coalesced.add(current);
+                    current = windows[i].clone();
+                }
+            }
+            coalesced.add(current);
+            return coalesced.toArray(new int[0][]);
+        }
     }
 }
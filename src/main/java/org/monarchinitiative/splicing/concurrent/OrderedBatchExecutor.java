@@ -0,0 +1,139 @@
+package org.monarchinitiative.splicing.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class applies a function to items on a pool of worker threads, while the results are handed over to a consumer
+ * in exactly the same order in which the items were supplied. Therefore, the consumer is always called from the thread
+ * that invoked {@link #process(Iterator, Function, Consumer)} and the output of the processing is the same as if the
+ * items were processed sequentially.
+ * <p>
+ * Items are grouped into batches in order to amortize the cost of task submission. The number of batches that are
+ * scheduled but not yet consumed is bounded, hence a fast producer is not able to exhaust the heap.
+ */
+public class OrderedBatchExecutor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedBatchExecutor.class);
+
+    /**
+     * How many batches per worker thread can be scheduled before we wait for the oldest batch to complete.
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final ExecutorService executorService;
+
+    private final int batchSize;
+
+    private final int maxBatchesInFlight;
+
+
+    /**
+     * @param threads   number of worker threads, must be positive
+     * @param batchSize number of items processed by a single task, must be positive
+     */
+    public OrderedBatchExecutor(int threads, int batchSize) {
+        if (threads < 1)
+            throw new IllegalArgumentException(String.format("Number of threads must be positive: '%d'", threads));
+        if (batchSize < 1)
+            throw new IllegalArgumentException(String.format("Batch size must be positive: '%d'", batchSize));
+
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = threads * BATCHES_PER_THREAD;
+        this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("splicing-worker-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+
+    private static <I, O> List<O> applyToBatch(List<I> batch, Function<I, O> function) {
+        List<O> results = new ArrayList<>(batch.size());
+        for (I item : batch) {
+            results.add(function.apply(item));
+        }
+        return results;
+    }
+
+
+    private static <O> void consume(Future<List<O>> future, Consumer<O> consumer) {
+        List<O> results;
+        try {
+            results = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the results", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        results.forEach(consumer);
+    }
+
+
+    /**
+     * Apply <code>function</code> to all <code>items</code> concurrently and pass the results to the
+     * <code>consumer</code> in the order of the <code>items</code>.
+     *
+     * @param items    {@link Iterator} with items to be processed. The iterator is consumed by the calling thread
+     * @param function {@link Function} to be applied to each item. The function must be safe to be called concurrently
+     * @param consumer {@link Consumer} of the results, called from the calling thread only
+     * @param <I>      type of the items
+     * @param <O>      type of the results
+     */
+    public <I, O> void process(Iterator<I> items, Function<I, O> function, Consumer<O> consumer) {
+        Deque<Future<List<O>>> inFlight = new ArrayDeque<>(maxBatchesInFlight);
+        try {
+            while (items.hasNext()) {
+                List<I> batch = new ArrayList<>(batchSize);
+                while (items.hasNext() && batch.size() < batchSize) {
+                    batch.add(items.next());
+                }
+                inFlight.addLast(executorService.submit(() -> applyToBatch(batch, function)));
+
+                if (inFlight.size() >= maxBatchesInFlight)
+                    // wait for the oldest batch in order to keep the results in order
+                    consume(inFlight.removeFirst(), consumer);
+            }
+
+            while (!inFlight.isEmpty()) {
+                consume(inFlight.removeFirst(), consumer);
+            }
+        } finally {
+            // there is no point in finishing the remaining batches if one of them failed
+            inFlight.forEach(f -> f.cancel(true));
+        }
+    }
+
+
+    /**
+     * Shut down the worker threads and wait for the running tasks to finish. If the calling thread is interrupted while
+     * waiting, the tasks are cancelled and the interrupt status of the thread is restored.
+     */
+    @Override
+    public void close() {
+        LOGGER.debug("Shutting down the worker threads");
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(1, TimeUnit.MINUTES))
+                executorService.shutdownNow();
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.monarchinitiative.splicing.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * {@link OutputStream} that writes data in the BGZF format, a series of gzip members (blocks) with at most 64 kB of
+ * data each, followed by an empty block marking the end of file. The file can be decompressed by any gzip tool, while
+ * the blocks allow random access using <em>virtual offsets</em> that are stored in tabix indices.
+ * <p>
+ * The blocks are compressed concurrently on a pool of worker threads and written in the order in which the data was
+ * written. The number of blocks that are compressed but not yet written is bounded.
+ * <p>
+ * Virtual offset of any written data can be obtained by {@link #getVirtualOffset(long)} after the block containing the
+ * data has been written, e.g. after {@link #flush()}. Note that each {@link #flush()} ends the current block.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class BgzfOutputStream extends OutputStream {
+
+    /**
+     * Maximum number of uncompressed bytes in a block, the compressed block must fit into 64 kB even if the data is
+     * not compressible.
+     */
+    static final int BLOCK_SIZE = 0xff00;
+
+    /**
+     * How many blocks per worker thread can be scheduled before we wait for the oldest block to be written.
+     */
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private static final int HEADER_LENGTH = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+
+    private static final int FOOTER_LENGTH = BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+
+    private static final int MAX_BLOCK_LENGTH = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE;
+
+    private final OutputStream out;
+
+    /**
+     * <code>null</code> if the blocks are compressed by the writing thread.
+     */
+    private final ExecutorService executorService;
+
+    private final int maxBlocksInFlight;
+
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    private final ThreadLocal<Deflater> deflaters;
+
+    private final ThreadLocal<Deflater> storingDeflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.NO_COMPRESSION, true));
+
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    private int blockLength;
+
+    /**
+     * Number of uncompressed bytes in the submitted blocks.
+     */
+    private long submitted;
+
+    /**
+     * Number of compressed bytes written to the underlying stream.
+     */
+    private long written;
+
+    /**
+     * Uncompressed and compressed offsets of the written blocks, <code>nWritten</code> entries are valid.
+     */
+    private long[] uncompressedOffsets = new long[1024];
+
+    private long[] compressedOffsets = new long[1024];
+
+    private int nWritten;
+
+    /**
+     * Uncompressed offset of the first block that is not yet written.
+     */
+    private long writtenUncompressed;
+
+    private final Deque<Long> inFlightOffsets = new ArrayDeque<>();
+
+    private boolean closed;
+
+
+    /**
+     * Create the stream compressing the blocks with the default compression level.
+     *
+     * @param out     {@link OutputStream} for the compressed data
+     * @param threads number of threads compressing the blocks, must be positive
+     */
+    public BgzfOutputStream(OutputStream out, int threads) {
+        this(out, threads, BlockCompressedStreamConstants.DEFAULT_COMPRESSION_LEVEL);
+    }
+
+
+    /**
+     * @param out              {@link OutputStream} for the compressed data
+     * @param threads          number of threads compressing the blocks, must be positive. With <code>1</code> the
+     *                         blocks are compressed by the writing thread
+     * @param compressionLevel deflate compression level, <code>0-9</code>
+     */
+    public BgzfOutputStream(OutputStream out, int threads, int compressionLevel) {
+        this(out, threads, compressionLevel, 0);
+    }
+
+
+    /**
+     * Create the stream that appends blocks to a BGZF file, e.g. when resuming an interrupted run. The virtual
+     * offsets of the appended data are relative to the beginning of the file.
+     *
+     * @param out              {@link OutputStream} positioned at the end of the last complete block of the file
+     * @param threads          number of threads compressing the blocks, must be positive
+     * @param compressionLevel deflate compression level, <code>0-9</code>
+     * @param compressedOffset length of the file preceding the appended blocks
+     */
+    public BgzfOutputStream(OutputStream out, int threads, int compressionLevel, long compressedOffset) {
+        if (threads < 1)
+            throw new IllegalArgumentException(String.format("Number of threads must be positive: '%d'", threads));
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException(String.format("Invalid compression level: '%d'", compressionLevel));
+
+        if (compressedOffset < 0)
+            throw new IllegalArgumentException(String.format("Offset must not be negative: '%d'", compressedOffset));
+
+        this.out = out;
+        this.written = compressedOffset;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(compressionLevel, true));
+        this.maxBlocksInFlight = threads * BLOCKS_PER_THREAD;
+        this.executorService = threads == 1 ? null : Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("bgzf-deflater-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+
+    private static void writeShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+    }
+
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        writeShort(buffer, offset, value);
+        writeShort(buffer, offset + 2, value >>> 16);
+    }
+
+
+    /**
+     * Compress the <code>data</code> into a complete BGZF block.
+     */
+    private byte[] compressBlock(byte[] data, int length) {
+        byte[] compressed = new byte[MAX_BLOCK_LENGTH];
+        int deflatedLength = deflate(deflaters.get(), data, length, compressed);
+        if (deflatedLength < 0)
+            // the data is not compressible, store it
+            deflatedLength = deflate(storingDeflaters.get(), data, length, compressed);
+
+        // header with the BC extra subfield containing the total block size - 1
+        int blockLength = HEADER_LENGTH + deflatedLength + FOOTER_LENGTH;
+        System.arraycopy(BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE, 0, compressed, 0,
+                BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE.length);
+        writeShort(compressed, BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET, blockLength - 1);
+
+        // footer with CRC32 and size of the uncompressed data
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, length);
+        writeInt(compressed, HEADER_LENGTH + deflatedLength, (int) crc32.getValue());
+        writeInt(compressed, HEADER_LENGTH + deflatedLength + 4, length);
+        return Arrays.copyOf(compressed, blockLength);
+    }
+
+
+    /**
+     * @return number of deflated bytes written after the block header or <code>-1</code> if they do not fit into the
+     * block
+     */
+    private static int deflate(Deflater deflater, byte[] data, int length, byte[] compressed) {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int deflatedLength = deflater.deflate(compressed, HEADER_LENGTH, MAX_BLOCK_LENGTH - HEADER_LENGTH - FOOTER_LENGTH);
+        return deflater.finished() ? deflatedLength : -1;
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == BLOCK_SIZE)
+            submitBlock();
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == BLOCK_SIZE)
+                submitBlock();
+        }
+    }
+
+
+    /**
+     * @return number of uncompressed bytes written into the stream so far
+     */
+    public long getPosition() {
+        return submitted + blockLength;
+    }
+
+
+    /**
+     * Get BGZF virtual offset of the uncompressed <code>position</code>, the upper 48 bits contain offset of the block
+     * in the compressed file and the lower 16 bits contain offset within the uncompressed block.
+     *
+     * @param position uncompressed position that lies in a written block or is equal to {@link #getPosition()} after
+     *                 {@link #flush()}
+     * @return virtual offset of the position
+     * @throws IllegalStateException if the block containing the position has not been written yet
+     */
+    public long getVirtualOffset(long position) {
+        if (position < 0 || position > writtenUncompressed || (position == writtenUncompressed && position != getPosition()))
+            throw new IllegalStateException(String.format("Block containing position %d has not been written yet", position));
+        if (position == writtenUncompressed)
+            // the end of the written data
+            return written << 16;
+
+        int idx = Arrays.binarySearch(uncompressedOffsets, 0, nWritten, position);
+        if (idx < 0)
+            idx = -idx - 2; // the last block starting before the position
+        return compressedOffsets[idx] << 16 | (position - uncompressedOffsets[idx]);
+    }
+
+
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        Future<byte[]> future = executorService == null
+                ? CompletableFuture.completedFuture(compressBlock(data, length))
+                : executorService.submit(() -> compressBlock(data, length));
+        inFlight.addLast(future);
+        inFlightOffsets.addLast(submitted);
+        submitted += length;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        // write the blocks that are ready and wait for the oldest block if there are too many blocks in flight
+        while (!inFlight.isEmpty() && (inFlight.peekFirst().isDone() || inFlight.size() >= maxBlocksInFlight)) {
+            writeOldestBlock();
+        }
+    }
+
+
+    private void writeOldestBlock() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = inFlight.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing the data", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error compressing the data", e.getCause());
+        }
+        long uncompressedOffset = inFlightOffsets.removeFirst();
+        if (nWritten == uncompressedOffsets.length) {
+            uncompressedOffsets = Arrays.copyOf(uncompressedOffsets, nWritten * 2);
+            compressedOffsets = Arrays.copyOf(compressedOffsets, nWritten * 2);
+        }
+        uncompressedOffsets[nWritten] = uncompressedOffset;
+        compressedOffsets[nWritten] = written;
+        nWritten++;
+
+        out.write(compressed);
+        written += compressed.length;
+        writtenUncompressed = inFlightOffsets.isEmpty() ? submitted : inFlightOffsets.peekFirst();
+    }
+
+
+    /**
+     * End the current block, write all blocks and flush the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0)
+            submitBlock();
+        while (!inFlight.isEmpty()) {
+            writeOldestBlock();
+        }
+        out.flush();
+    }
+
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+
+    /**
+     * Write the remaining data, the end-of-file marker block, and close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            written += BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length;
+        } finally {
+            closed = true;
+            inFlight.forEach(f -> f.cancel(true));
+            if (executorService != null) {
+                executorService.shutdown();
+                try {
+                    executorService.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.monarchinitiative.splicing.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link OutputStream} that compresses data in gzip format as a series of gzip members. Each {@link #flush()} ends the
+ * current member, therefore the data written before the flush forms a complete gzip file and more members can be
+ * appended to the file later. Concatenated members are decompressed as a single stream by <code>gunzip</code> and by
+ * {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class ConcatenatedGzipOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    private final int bufferSize;
+
+    /**
+     * The current member or <code>null</code> if no data has been written since the last flush.
+     */
+    private GZIPOutputStream member;
+
+
+    /**
+     * @param out        {@link OutputStream} for the compressed data
+     * @param bufferSize size of the output buffer of the deflater
+     */
+    public ConcatenatedGzipOutputStream(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.bufferSize = bufferSize;
+    }
+
+
+    private GZIPOutputStream member() throws IOException {
+        if (member == null)
+            member = new GZIPOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // the member ends, the underlying stream stays open
+                    out.flush();
+                }
+            }, bufferSize);
+        return member;
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        member().write(b);
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0)
+            member().write(b, off, len);
+    }
+
+
+    /**
+     * End the current member and flush the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (member != null) {
+            member.close();
+            member = null;
+        }
+        out.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+}
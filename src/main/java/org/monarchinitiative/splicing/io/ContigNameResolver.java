@@ -0,0 +1,87 @@
+package org.monarchinitiative.splicing.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * Chromosome names from UCSC are prefixed <code>'chr'</code>, while chromosomes from ENSEMBL are not. Moreover, the
+ * mitochondrial chromosome is called either <code>'M'</code> or <code>'MT'</code>. This class translates the contig
+ * names used in queries into the names used by the reference genome.
+ */
+class ContigNameResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContigNameResolver.class);
+
+    /**
+     * Prefix 'chr' will be prepended to chromosome String of each query.
+     */
+    private final boolean usePrefix;
+
+    /**
+     * Mitochondrial chromosome will be referred to as 'chrM', even if 'chrMT' is present in query.
+     */
+    private final boolean useM;
+
+
+    /**
+     * @param contigNames names of all contigs present in the reference genome
+     */
+    ContigNameResolver(Collection<String> contigNames) {
+        this.usePrefix = figureOutPrefix(contigNames);
+        this.useM = figureOutChrM(contigNames);
+    }
+
+
+    private static boolean figureOutPrefix(Collection<String> contigNames) {
+        boolean usePrefix = contigNames.stream().allMatch(name -> name.startsWith("chr"));
+        boolean doNotUsePrefix = contigNames.stream().noneMatch(name -> name.startsWith("chr"));
+        if (!usePrefix && !doNotUsePrefix) {
+            String msg = String.format("Sequence dictionary contains entries both prefixed with 'chr' and not prefixed.\n'%s'",
+                    String.join(",", contigNames));
+            LOGGER.error(msg);
+            throw new RuntimeException(msg);
+        }
+        return usePrefix;
+    }
+
+
+    private static boolean figureOutChrM(Collection<String> contigNames) {
+        boolean usesM = contigNames.stream().anyMatch(name -> name.equals("chrM") || name.equals("M"));
+        boolean usesMT = contigNames.stream().anyMatch(name -> name.equals("chrMT") || name.equals("MT"));
+        if (!usesM && !usesMT) {
+            String msg = String.format("The FASTA file does not contain entry for mitochondrial DNA\n'%s'",
+                    String.join(",", contigNames));
+            LOGGER.error(msg);
+            throw new RuntimeException(msg);
+        }
+        return usesM;
+    }
+
+
+    /**
+     * @param chr chromosome name used in the query, e.g. <code>chr1</code>, <code>1</code>, <code>MT</code>
+     * @return chromosome name adjusted to the naming scheme of the reference genome
+     */
+    String resolve(String chr) {
+        // deal with the 'chr' prefix issue
+        String chrom = usePrefix
+                ? chr.startsWith("chr") ? chr : "chr" + chr // add prefix, if necessary
+                : chr.startsWith("chr") ? chr.substring(3) : chr; // remove prefix, if necessary
+
+        // deal with the chrM vs. chrMT issue
+        if (chrom.matches("(chr)?M(T)?")) { // query involves mitochondrial chromosome
+            if (useM) {
+                // fix if we have MT and we should have M
+                if (chrom.contains("MT"))
+                    chrom = chrom.replace("MT", "M");
+            } else {
+                // fix if we have M and we should have MT
+                if (!chrom.contains("MT"))
+                    chrom = chrom.replace("M", "MT");
+            }
+        }
+        return chrom;
+    }
+}
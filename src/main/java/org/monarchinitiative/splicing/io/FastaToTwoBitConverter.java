@@ -0,0 +1,373 @@
+package org.monarchinitiative.splicing.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Convert the reference genome FASTA file into UCSC <a href="https://genome.ucsc.edu/goldenPath/help/twoBit.html">2bit
+ * format</a> that is read by {@link TwoBitSequenceAccessor}.
+ * <p>
+ * The FASTA file is streamed twice. The first pass collects lengths of the contigs together with runs of non-ACGT
+ * characters (stored as <code>N</code>) and runs of lowercase characters, the second pass packs the nucleotides. The
+ * memory footprint is therefore independent of the size of the genome.
+ */
+public class FastaToTwoBitConverter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FastaToTwoBitConverter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maps ASCII characters to 2-bit codes T=0, C=1, A=2, G=3. Other characters are packed as T and masked by a run of
+     * <code>N</code>s.
+     */
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        CODES['C'] = CODES['c'] = 1;
+        CODES['A'] = CODES['a'] = 2;
+        CODES['G'] = CODES['g'] = 3;
+    }
+
+    private final File fastaPath;
+
+
+    public FastaToTwoBitConverter(File fastaPath) {
+        this.fastaPath = fastaPath;
+    }
+
+
+    private static boolean isNucleotide(byte b) {
+        switch (b) {
+            case 'A':
+            case 'C':
+            case 'G':
+            case 'T':
+            case 'a':
+            case 'c':
+            case 'g':
+            case 't':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    private static boolean isLowerCase(byte b) {
+        return b >= 'a' && b <= 'z';
+    }
+
+
+    /**
+     * Write the sequences into <code>twoBitPath</code>.
+     *
+     * @param twoBitPath path where the 2bit file will be written
+     * @throws IOException if the FASTA file cannot be read, if it is not valid or if the output cannot be written
+     */
+    public void convert(File twoBitPath) throws IOException {
+        LOGGER.info("Reading contigs from FASTA file {}", fastaPath.getAbsolutePath());
+        LayoutCollector collector = new LayoutCollector();
+        scan(collector);
+        List<ContigLayout> contigs = collector.finish();
+
+        // the record offsets depend on the sizes of the index and of all preceding records
+        long indexSize = 0;
+        long recordsSize = 0;
+        for (ContigLayout contig : contigs) {
+            indexSize += 1 + contig.name.length + 4;
+            recordsSize += contig.recordSize();
+        }
+        int version = 16 + indexSize + recordsSize > 0xFFFFFFFFL
+                ? TwoBitSequenceAccessor.VERSION_64_BIT
+                : TwoBitSequenceAccessor.VERSION_32_BIT;
+        if (version == TwoBitSequenceAccessor.VERSION_64_BIT)
+            indexSize += 4L * contigs.size();
+
+        LOGGER.info("Writing {} contigs into 2bit file {}", contigs.size(), twoBitPath.getAbsolutePath());
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(twoBitPath), BUFFER_SIZE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(TwoBitSequenceAccessor.SIGNATURE).putInt(version).putInt(contigs.size()).putInt(0);
+            os.write(buffer.array(), 0, buffer.position());
+
+            long offset = 16 + indexSize;
+            for (ContigLayout contig : contigs) {
+                os.write(contig.name.length);
+                os.write(contig.name);
+                buffer.clear();
+                if (version == TwoBitSequenceAccessor.VERSION_32_BIT)
+                    buffer.putInt((int) offset);
+                else
+                    buffer.putLong(offset);
+                os.write(buffer.array(), 0, buffer.position());
+                offset += contig.recordSize();
+            }
+
+            Packer packer = new Packer(os, contigs);
+            scan(packer);
+            packer.flushPending();
+        }
+    }
+
+
+    /**
+     * Stream the FASTA file and pass names of the contigs and the sequence lines to the <code>handler</code>.
+     */
+    private void scan(SequenceHandler handler) throws IOException {
+        try (InputStream is = new FileInputStream(fastaPath)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            boolean inHeader = false;
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                int i = 0;
+                while (i < read) {
+                    if (inHeader) {
+                        int lineEnd = i;
+                        while (lineEnd < read && buffer[lineEnd] != '\n') lineEnd++;
+                        header.write(buffer, i, lineEnd - i);
+                        if (lineEnd < read) {
+                            handler.contig(parseName(header.toByteArray()));
+                            header.reset();
+                            inHeader = false;
+                        }
+                        i = lineEnd + 1;
+                    } else if (buffer[i] == '>') {
+                        inHeader = true;
+                        i++;
+                    } else {
+                        // sequence until the end of the line, whitespace is skipped
+                        int from = i;
+                        while (i < read && buffer[i] > ' ') i++;
+                        if (i > from)
+                            handler.sequence(buffer, from, i);
+                        while (i < read && buffer[i] <= ' ') i++;
+                    }
+                }
+            }
+            if (inHeader)
+                handler.contig(parseName(header.toByteArray()));
+        }
+    }
+
+
+    private static byte[] parseName(byte[] header) throws IOException {
+        int end = 0;
+        while (end < header.length && header[end] > ' ') end++;
+        if (end == 0)
+            throw new IOException("Empty contig name in FASTA header");
+        if (end > 255)
+            throw new IOException(String.format("Contig name '%s' is longer than 255 characters",
+                    new String(header, 0, end, StandardCharsets.US_ASCII)));
+        return Arrays.copyOf(header, end);
+    }
+
+
+    private interface SequenceHandler {
+
+        void contig(byte[] name) throws IOException;
+
+        /**
+         * @param bases array with sequence characters
+         * @param from  index of the first character (inclusive)
+         * @param to    index of the last character (exclusive)
+         */
+        void sequence(byte[] bases, int from, int to) throws IOException;
+    }
+
+
+    /**
+     * Growable array of primitive ints.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int idx) {
+            return values[idx];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+
+    private static final class ContigLayout {
+
+        private final byte[] name;
+
+        private final IntList nBlocks = new IntList(); // start, size, start, size, ...
+
+        private final IntList maskBlocks = new IntList();
+
+        private int length;
+
+        private ContigLayout(byte[] name) {
+            this.name = name;
+        }
+
+        private long recordSize() {
+            return 4 // dnaSize
+                    + 4 + 4L * nBlocks.size() // nBlockCount, nBlockStarts, nBlockSizes
+                    + 4 + 4L * maskBlocks.size() // maskBlockCount, maskBlockStarts, maskBlockSizes
+                    + 4 // reserved
+                    + (length + 3L) / 4;
+        }
+    }
+
+
+    /**
+     * The first pass - collect lengths and runs of N and lowercase characters.
+     */
+    private static final class LayoutCollector implements SequenceHandler {
+
+        private final List<ContigLayout> contigs = new ArrayList<>();
+
+        private ContigLayout current;
+
+        private int nStart = -1, maskStart = -1;
+
+        @Override
+        public void contig(byte[] name) {
+            closeRuns();
+            current = new ContigLayout(name);
+            contigs.add(current);
+        }
+
+        @Override
+        public void sequence(byte[] bases, int from, int to) throws IOException {
+            if (current == null)
+                throw new IOException("Sequence found before the first FASTA header");
+            if (current.length + (long) (to - from) > Integer.MAX_VALUE)
+                throw new IOException(String.format("Contig '%s' is too long",
+                        new String(current.name, StandardCharsets.US_ASCII)));
+
+            for (int i = from; i < to; i++) {
+                int pos = current.length + i - from;
+                boolean n = !isNucleotide(bases[i]);
+                if (n && nStart < 0) {
+                    nStart = pos;
+                } else if (!n && nStart >= 0) {
+                    addBlock(current.nBlocks, nStart, pos);
+                    nStart = -1;
+                }
+                boolean lower = isLowerCase(bases[i]);
+                if (lower && maskStart < 0) {
+                    maskStart = pos;
+                } else if (!lower && maskStart >= 0) {
+                    addBlock(current.maskBlocks, maskStart, pos);
+                    maskStart = -1;
+                }
+            }
+            current.length += to - from;
+        }
+
+        private void closeRuns() {
+            if (current == null)
+                return;
+            if (nStart >= 0)
+                addBlock(current.nBlocks, nStart, current.length);
+            if (maskStart >= 0)
+                addBlock(current.maskBlocks, maskStart, current.length);
+            nStart = maskStart = -1;
+        }
+
+        private static void addBlock(IntList blocks, int start, int end) {
+            blocks.add(start);
+            blocks.add(end - start);
+        }
+
+        private List<ContigLayout> finish() {
+            closeRuns();
+            return contigs;
+        }
+    }
+
+
+    /**
+     * The second pass - write the records with packed nucleotides.
+     */
+    private static final class Packer implements SequenceHandler {
+
+        private final OutputStream os;
+
+        private final List<ContigLayout> contigs;
+
+        private final ByteBuffer intBuffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+
+        private int contigIdx = -1;
+
+        /**
+         * Bases of the current contig that were not yet written because they do not fill a whole byte.
+         */
+        private int pending, pendingCount;
+
+        private Packer(OutputStream os, List<ContigLayout> contigs) {
+            this.os = os;
+            this.contigs = contigs;
+        }
+
+        @Override
+        public void contig(byte[] name) throws IOException {
+            flushPending();
+            ContigLayout contig = contigs.get(++contigIdx);
+            writeInt(contig.length);
+            writeBlocks(contig.nBlocks);
+            writeBlocks(contig.maskBlocks);
+            writeInt(0); // reserved
+        }
+
+        @Override
+        public void sequence(byte[] bases, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                pending = (pending << 2) | CODES[bases[i] & 0xFF];
+                if (++pendingCount == 4) {
+                    os.write(pending);
+                    pending = pendingCount = 0;
+                }
+            }
+        }
+
+        private void flushPending() throws IOException {
+            if (pendingCount > 0) {
+                // the first base occupies the most significant bits
+                os.write(pending << (2 * (4 - pendingCount)));
+                pending = pendingCount = 0;
+            }
+        }
+
+        private void writeBlocks(IntList blocks) throws IOException {
+            int count = blocks.size() / 2;
+            writeInt(count);
+            for (int i = 0; i < count; i++) {
+                writeInt(blocks.get(2 * i));
+            }
+            for (int i = 0; i < count; i++) {
+                writeInt(blocks.get(2 * i + 1));
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            intBuffer.clear();
+            intBuffer.putInt(value);
+            os.write(intBuffer.array());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.monarchinitiative.splicing.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class allows to fetch arbitrary nucleotide sequence from the reference genome. To do so it requires single
+ * Fasta file that contains all contigs. Fasta index (*.fai) is required to be present in the same directory. The
+ * index can be created using command <code>samtools faidx file.fa</code> from the <code>samtools</code> suite.
+ * <p>
+ * Chromosome names from UCSC are prefixed <code>'chr'</code>, while chromosomes from ENSEMBL are not. This class is able
+ * to fetch sequence from the ENSEMBL build.
+ * <p>
+ * The sequences are read using positional reads of a single {@link FileChannel} that do not change the state of the
+ * channel. Therefore, the instances are safe to be used by multiple threads and the reads are not serialized. Note that
+ * the channel is closed if a thread is interrupted while reading, the accessor cannot be used anymore in that case.
+ *
+ * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
+ */
+public class IndexedFastaSequenceAccessor implements GenomeSequenceAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexedFastaSequenceAccessor.class);
+
+    private final FileChannel channel;
+
+    private final Map<String, IndexEntry> fastaIndex;
+
+    private final ContigNameResolver contigNameResolver;
+
+    private final File fastaPath;
+
+
+    /**
+     * Create an instance using FASTA file on provided <code>fastaPath</code>.
+     *
+     * @param fastaPath path to FASTA file. FASTA index is expected to be in the same directory with the same
+     *                  basename as the FASTA file + ".fai" suffix
+     */
+    public IndexedFastaSequenceAccessor(File fastaPath) {
+        this(fastaPath, new File(fastaPath.getAbsolutePath() + ".fai"));
+    }
+
+
+    /**
+     * Create an instance using provided FASTA file and index.
+     *
+     * @param fastaPath path to indexed FASTA file
+     * @param indexPath path to FASTA index
+     */
+    public IndexedFastaSequenceAccessor(File fastaPath, File indexPath) {
+        this.fastaPath = fastaPath;
+        try {
+            this.fastaIndex = parseIndex(indexPath);
+            this.channel = FileChannel.open(fastaPath.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open FASTA file " + fastaPath.getAbsolutePath(), e);
+        }
+        this.contigNameResolver = new ContigNameResolver(fastaIndex.keySet());
+    }
+
+
+    /**
+     * Parse the FASTA index, where each line contains contig name, length, offset of the first base, number of bases
+     * per line and number of bytes per line.
+     */
+    private static Map<String, IndexEntry> parseIndex(File indexPath) throws IOException {
+        Map<String, IndexEntry> index = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexPath.toPath())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                String[] tokens = line.split("\t");
+                if (tokens.length < 5)
+                    throw new IOException(String.format("Invalid line '%s' in FASTA index %s", line, indexPath.getAbsolutePath()));
+                index.put(tokens[0], new IndexEntry(Long.parseLong(tokens[1]), Long.parseLong(tokens[2]),
+                        Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4])));
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * @return offset of the 0-based <code>position</code> of the contig within the FASTA file
+     */
+    private static long fileOffset(IndexEntry entry, long position) {
+        return entry.location
+                + position / entry.basesPerLine * entry.bytesPerLine
+                + position % entry.basesPerLine;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bases are returned as they were read from the FASTA file.
+     */
+    @Override
+    public byte[] fetchBases(String chr, int start, int end) {
+        String chrom = contigNameResolver.resolve(chr);
+        IndexEntry entry = fastaIndex.get(chrom);
+        if (entry == null || start < 0 || start > end || end > entry.size) {
+            // chromosome is not present in the FASTA file, start or end position is beyond the end of contig
+            LOGGER.warn("Error fetching sequence for '{}:{}-{}'", chr, start, end);
+            return null;
+        }
+        byte[] bases = new byte[end - start];
+        if (start == end)
+            return bases;
+
+        // read the bytes including the line terminators and then strip them
+        long from = fileOffset(entry, start);
+        long to = fileOffset(entry, end - 1) + 1;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0)
+                    throw new IOException("Unexpected end of FASTA file");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Error reading sequence '%s:%d-%d' from %s", chr, start, end,
+                    fastaPath.getAbsolutePath()), e);
+        }
+
+        byte[] raw = buffer.array();
+        int n = 0;
+        for (byte b : raw) {
+            if (b != '\n' && b != '\r')
+                bases[n++] = b;
+        }
+        return bases;
+    }
+
+
+    /**
+     * @return names of the contigs present in the FASTA index in the order of the index
+     */
+    @Override
+    public Set<String> getContigNames() {
+        return Collections.unmodifiableSet(fastaIndex.keySet());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getContigLength(String chr) {
+        IndexEntry entry = fastaIndex.get(contigNameResolver.resolve(chr));
+        return entry == null ? -1 : (int) entry.size;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File getSequenceFile() {
+        return fastaPath;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        LOGGER.debug("Closing fasta file {}", fastaPath.getAbsolutePath());
+        this.channel.close();
+    }
+
+
+    private static final class IndexEntry {
+
+        private final long size;
+
+        private final long location;
+
+        private final int basesPerLine;
+
+        private final int bytesPerLine;
+
+        private IndexEntry(long size, long location, int basesPerLine, int bytesPerLine) {
+            this.size = size;
+            this.location = location;
+            this.basesPerLine = basesPerLine;
+            this.bytesPerLine = bytesPerLine;
+        }
+    }
+}
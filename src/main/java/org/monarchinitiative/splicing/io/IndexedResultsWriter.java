@@ -0,0 +1,356 @@
+package org.monarchinitiative.splicing.io;
+
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link ResultsWriter} that writes BGZF compressed results together with a tabix index, which allows to fetch lines of
+ * a genomic region without decompressing the whole file, e.g. by <code>tabix results.tsv.bgz 7:39606000-39613000</code>.
+ * <p>
+ * The <code>BEGIN</code> and <code>END</code> columns are positions of the first and of the last base of the exon on
+ * the transcript's strand, therefore <code>BEGIN</code> is greater than <code>END</code> for exons on
+ * {@link Strand#REV}. Each line is extended by the {@link #REGION_COLUMNS} with the 0-based half-open region of the
+ * exon on {@link Strand#FWD}, and the lines are indexed by the contig (<code>CHR</code>) and by the region, so that a
+ * query returns all exons overlapping the queried region on both strands. Tabix requires the lines to be sorted,
+ * therefore lines of each contig are kept in memory and written sorted by the begin of the region once the models of
+ * the next contig start to arrive. Models of each contig must be written together, an {@link IllegalStateException}
+ * is thrown if the models of a contig that has already been written arrive.
+ * <p>
+ * {@link #checkpoint()} writes the lines of the current contig, therefore it should be called only after all models
+ * of the contig have been written.
+ */
+public class IndexedResultsWriter extends ResultsWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexedResultsWriter.class);
+
+    /**
+     * Names of the columns with the 0-based begin and end of the exon region on {@link Strand#FWD}, which follow the
+     * columns of the results.
+     */
+    static final String[] REGION_COLUMNS = {"REGION_BEGIN", "REGION_END"};
+
+    /**
+     * Contig in the 1st column, 0-based half-open region in the region columns, header lines start with '#'.
+     */
+    static final TabixFormat TABIX_FORMAT = new TabixFormat(TabixFormat.GENERIC_FLAGS | TabixFormat.ZERO_BASED,
+            1, N_COLUMNS + 1, N_COLUMNS + 2, '#', 0);
+
+    /**
+     * Upper bound of number of bytes of the region columns.
+     */
+    private static final int MAX_REGION_COLUMNS_LENGTH = 2 * (1 + NumberFormatter.MAX_LONG_LENGTH);
+
+    private final BgzfOutputStream outputStream;
+
+    private final File indexFile;
+
+    private final TabixIndexCreator indexCreator = new TabixIndexCreator(TABIX_FORMAT);
+
+    private final Set<String> writtenContigs = new HashSet<>();
+
+    private String contig;
+
+    /**
+     * Lines of the current contig.
+     */
+    private byte[] lines = new byte[1 << 20];
+
+    private int linesLength;
+
+    private int[] lineStarts = new int[1024];
+
+    /**
+     * Sort keys of the lines, the begin of the region in the upper 32 bits and index of the line in the lower 32 bits.
+     */
+    private long[] keys = new long[1024];
+
+    /**
+     * Ends of the regions of the lines.
+     */
+    private int[] ends = new int[1024];
+
+    private int nLines;
+
+
+    /**
+     * @param outputStream {@link BgzfOutputStream} for the results
+     * @param indexFile    path to the tabix index that is written when the writer is closed
+     */
+    public IndexedResultsWriter(BgzfOutputStream outputStream, File indexFile) {
+        this(outputStream, indexFile, new PipelineMetrics());
+    }
+
+
+    /**
+     * @param outputStream {@link BgzfOutputStream} for the results
+     * @param indexFile    path to the tabix index that is written when the writer is closed
+     * @param metrics      {@link PipelineMetrics} where the written lines are recorded
+     */
+    public IndexedResultsWriter(BgzfOutputStream outputStream, File indexFile, PipelineMetrics metrics) {
+        super(outputStream, null, false, metrics, REGION_COLUMNS);
+        this.outputStream = outputStream;
+        this.indexFile = indexFile;
+    }
+
+
+    /**
+     * Create writer whose progress can be saved by {@link #checkpoint()}. If the lines are appended to the results of
+     * an interrupted run, the lines that are already in the file are added to the index first.
+     *
+     * @param outputStream {@link BgzfOutputStream} writing into the <code>channel</code>, it must be created with offset
+     *                     equal to the current length of the output file
+     * @param channel      {@link FileChannel} of the output file
+     * @param existing     BGZF compressed results of the interrupted run that the lines are appended to, or
+     *                     <code>null</code> if the results are written from the beginning
+     * @param indexFile    path to the tabix index that is written when the writer is closed
+     * @param metrics      {@link PipelineMetrics} where the written lines are recorded
+     * @throws IOException if the existing results cannot be read
+     */
+    public IndexedResultsWriter(BgzfOutputStream outputStream, FileChannel channel, InputStream existing,
+                                File indexFile, PipelineMetrics metrics) throws IOException {
+        super(outputStream, channel, existing != null, metrics, REGION_COLUMNS);
+        this.outputStream = outputStream;
+        this.indexFile = indexFile;
+        if (existing != null)
+            indexExisting(existing);
+    }
+
+
+    /**
+     * Add lines of the existing results to the index, the virtual offsets of the lines are the same as they were when
+     * the lines were written.
+     */
+    private void indexExisting(InputStream existing) throws IOException {
+        int lines = 0;
+        try (BlockCompressedInputStream is = new BlockCompressedInputStream(existing)) {
+            long offset = is.getFilePointer();
+            String line;
+            while ((line = is.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    long region = parseRegion(line);
+                    String chr = line.substring(0, line.indexOf('\t'));
+                    writtenContigs.add(chr);
+                    indexCreator.addFeature(new IndexedLine(chr, (int) (region >>> 32), (int) region), offset);
+                    lines++;
+                }
+                offset = is.getFilePointer();
+            }
+        }
+        LOGGER.info("Indexed {} lines of the existing results on {} contigs", lines, writtenContigs.size());
+    }
+
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+
+    @Override
+    protected void writeLines(ScoredTranscriptModel model, byte[] buffer, int[] lineEnds, int n) throws IOException {
+        TranscriptModel tm = model.getTranscriptModel();
+        startContig(tm.getTXRegion().getRefDict().getContigIDToName().get(tm.getChr()));
+
+        int bufferLength = n == 0 ? 0 : lineEnds[n - 1];
+        ensureCapacity(bufferLength + n * MAX_REGION_COLUMNS_LENGTH, n);
+
+        for (int i = 0; i < n; i++) {
+            GenomeInterval exon = tm.getExonRegions().get(i).withStrand(Strand.FWD);
+            int start = i == 0 ? 0 : lineEnds[i - 1];
+            int length = lineEnds[i] - start - LINE_SEPARATOR.length;
+            // the line without the separator, followed by the region columns
+            lineStarts[nLines] = linesLength;
+            System.arraycopy(buffer, start, lines, linesLength, length);
+            linesLength += length;
+            lines[linesLength++] = '\t';
+            linesLength = NumberFormatter.formatLong(exon.getBeginPos(), lines, linesLength);
+            lines[linesLength++] = '\t';
+            linesLength = NumberFormatter.formatLong(exon.getEndPos(), lines, linesLength);
+            System.arraycopy(LINE_SEPARATOR, 0, lines, linesLength, LINE_SEPARATOR.length);
+            linesLength += LINE_SEPARATOR.length;
+
+            keys[nLines] = (long) exon.getBeginPos() << 32 | nLines;
+            ends[nLines] = exon.getEndPos();
+            nLines++;
+        }
+    }
+
+
+    /**
+     * The <code>line</code> is extended by the region columns and added to the lines of its contig, it is sorted and
+     * indexed by its <code>CHR</code> column and by the region.
+     */
+    @Override
+    protected void writeLine(String line, byte[] bytes) throws IOException {
+        long region = parseRegion(line);
+        int begin = (int) (region >>> 32), end = (int) region;
+        byte[] extended = (line + '\t' + begin + '\t' + end + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        startContig(line.substring(0, line.indexOf('\t')));
+        ensureCapacity(extended.length, 1);
+
+        lineStarts[nLines] = linesLength;
+        keys[nLines] = (long) begin << 32 | nLines;
+        ends[nLines] = end;
+        nLines++;
+        System.arraycopy(extended, 0, lines, linesLength, extended.length);
+        linesLength += extended.length;
+    }
+
+
+    /**
+     * Calculate the region of the exon on {@link Strand#FWD} from the <code>BEGIN</code>, <code>END</code> and
+     * <code>STRAND</code> columns of the line. The columns of the exons on {@link Strand#REV} are positions of the
+     * last and of the first base of the region minus one.
+     *
+     * @return 0-based begin of the region in the upper 32 bits and its end in the lower 32 bits
+     * @throws IOException if the line does not contain the columns
+     */
+    private static long parseRegion(String line) throws IOException {
+        String[] columns = line.split("\t", 7);
+        if (columns.length < 7)
+            throw new IOException(String.format("Invalid line of results: '%s'", line));
+        try {
+            long begin = Integer.parseInt(columns[1]), end = Integer.parseInt(columns[2]);
+            return columns[5].equals("-")
+                    ? (end + 1) << 32 | (begin + 1)
+                    : begin << 32 | end;
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid line of results: '%s'", line), e);
+        }
+    }
+
+
+    /**
+     * Write lines of the current contig if the <code>chr</code> is the next contig.
+     *
+     * @throws IllegalStateException if lines of the <code>chr</code> have already been written
+     */
+    private void startContig(String chr) throws IOException {
+        if (!chr.equals(contig)) {
+            writeContig();
+            if (!writtenContigs.add(chr))
+                throw new IllegalStateException(String.format("Lines of contig '%s' have already been written", chr));
+            contig = chr;
+        }
+    }
+
+
+    private void ensureCapacity(int length, int n) {
+        if (lines.length - linesLength < length)
+            lines = Arrays.copyOf(lines, Math.max(lines.length * 2, linesLength + length));
+        if (lineStarts.length < nLines + n) {
+            lineStarts = Arrays.copyOf(lineStarts, Math.max(lineStarts.length * 2, nLines + n));
+            keys = Arrays.copyOf(keys, lineStarts.length);
+            ends = Arrays.copyOf(ends, lineStarts.length);
+        }
+    }
+
+
+    /**
+     * Write the lines of the current contig, the models of the contig must not be written after the lines are flushed.
+     */
+    @Override
+    protected void flushLines() throws IOException {
+        writeContig();
+        contig = null;
+    }
+
+
+    /**
+     * Write the lines of the current contig sorted by the begin of the region and add them to the index.
+     */
+    private void writeContig() throws IOException {
+        if (nLines == 0)
+            return;
+
+        Arrays.sort(keys, 0, nLines);
+        long[] offsets = new long[nLines];
+        for (int i = 0; i < nLines; i++) {
+            int line = (int) keys[i];
+            int start = lineStarts[line];
+            int end = line + 1 < nLines ? lineStarts[line + 1] : linesLength;
+            offsets[i] = outputStream.getPosition();
+            outputStream.write(lines, start, end - start);
+        }
+        // the lines are written, therefore the virtual offsets of all lines are known
+        outputStream.flush();
+        for (int i = 0; i < nLines; i++) {
+            int begin = (int) (keys[i] >>> 32);
+            indexCreator.addFeature(new IndexedLine(contig, begin, ends[(int) keys[i]]), outputStream.getVirtualOffset(offsets[i]));
+        }
+
+        linesLength = 0;
+        nLines = 0;
+    }
+
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeContig();
+            outputStream.flush();
+            Index index = indexCreator.finalizeIndex(outputStream.getVirtualOffset(outputStream.getPosition()));
+            LOGGER.info("Writing tabix index to '{}'", indexFile.getAbsolutePath());
+            index.write(indexFile);
+        } finally {
+            super.close();
+        }
+    }
+
+
+    /**
+     * Region of a line as seen by the {@link TabixIndexCreator}, 1-based.
+     */
+    private static final class IndexedLine implements Feature {
+
+        private final String contig;
+
+        private final int begin;
+
+        private final int end;
+
+        /**
+         * @param begin 0-based begin of the region
+         * @param end   0-based exclusive end of the region
+         */
+        private IndexedLine(String contig, int begin, int end) {
+            this.contig = contig;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        public String getContig() {
+            return contig;
+        }
+
+        @Override
+        public int getStart() {
+            return begin + 1;
+        }
+
+        @Override
+        public int getEnd() {
+            return end;
+        }
+    }
+}
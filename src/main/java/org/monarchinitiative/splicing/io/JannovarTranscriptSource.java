@@ -0,0 +1,53 @@
+package org.monarchinitiative.splicing.io;
+
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * {@link TranscriptSource} backed by the deserialized Jannovar cache. All transcripts are kept in memory for the whole
+ * lifetime of the source.
+ */
+public class JannovarTranscriptSource implements TranscriptSource {
+
+    private final JannovarData jannovarData;
+
+    /**
+     * Transcripts grouped by contig ID, sorted by position within the contig.
+     */
+    private final Map<Integer, List<TranscriptModel>> byContig;
+
+
+    public JannovarTranscriptSource(JannovarData jannovarData) {
+        this.jannovarData = jannovarData;
+        this.byContig = jannovarData.getTmByAccession().values().stream()
+                .collect(Collectors.groupingBy(TranscriptModel::getChr, TreeMap::new, Collectors.toList()));
+        byContig.values().forEach(tms -> tms.sort(BY_POSITION));
+    }
+
+
+    @Override
+    public int size() {
+        return jannovarData.getTmByAccession().size();
+    }
+
+
+    @Override
+    public Iterator<TranscriptModel> iterator() {
+        return jannovarData.getTmByAccession().values().iterator();
+    }
+
+
+    @Override
+    public List<Integer> getContigs() {
+        return new ArrayList<>(byContig.keySet());
+    }
+
+
+    @Override
+    public List<TranscriptModel> getTranscripts(int contig) {
+        return byContig.getOrDefault(contig, Collections.emptyList());
+    }
+}
@@ -0,0 +1,66 @@
+package org.monarchinitiative.splicing.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Iterator} over batches of lines read from a {@link BufferedReader}. The lines are read lazily, one batch ahead,
+ * therefore at most two batches are held by the iterator at any time. {@link IOException}s are rethrown as
+ * {@link UncheckedIOException}s.
+ */
+public class LineBatchIterator implements Iterator<List<String>> {
+
+    private final BufferedReader reader;
+
+    private final int batchSize;
+
+    private List<String> next;
+
+
+    /**
+     * @param reader    {@link BufferedReader} to read the lines from, the reader is not closed by the iterator
+     * @param batchSize maximum number of lines in a batch, must be positive
+     */
+    public LineBatchIterator(BufferedReader reader, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException(String.format("Batch size must be positive: '%d'", batchSize));
+        this.reader = reader;
+        this.batchSize = batchSize;
+        this.next = readBatch();
+    }
+
+
+    private List<String> readBatch() {
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            String line;
+            while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+                batch.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+
+    @Override
+    public List<String> next() {
+        if (next == null)
+            throw new NoSuchElementException();
+        List<String> current = next;
+        next = readBatch();
+        return current;
+    }
+}
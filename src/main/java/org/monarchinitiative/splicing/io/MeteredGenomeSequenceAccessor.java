@@ -0,0 +1,57 @@
+package org.monarchinitiative.splicing.io;
+
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * {@link GenomeSequenceAccessor} that records number of the fetched bases and duration of each read into
+ * {@link PipelineMetrics}. The reads are delegated to another accessor.
+ */
+public class MeteredGenomeSequenceAccessor implements GenomeSequenceAccessor {
+
+    private final GenomeSequenceAccessor accessor;
+
+    private final PipelineMetrics metrics;
+
+
+    public MeteredGenomeSequenceAccessor(GenomeSequenceAccessor accessor, PipelineMetrics metrics) {
+        this.accessor = accessor;
+        this.metrics = metrics;
+    }
+
+
+    @Override
+    public byte[] fetchBases(String chr, int start, int end) {
+        long begin = System.nanoTime();
+        byte[] bases = accessor.fetchBases(chr, start, end);
+        metrics.recordFetch(bases == null ? 0 : bases.length, System.nanoTime() - begin);
+        return bases;
+    }
+
+
+    @Override
+    public Set<String> getContigNames() {
+        return accessor.getContigNames();
+    }
+
+
+    @Override
+    public int getContigLength(String chr) {
+        return accessor.getContigLength(chr);
+    }
+
+
+    @Override
+    public File getSequenceFile() {
+        return accessor.getSequenceFile();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        accessor.close();
+    }
+}
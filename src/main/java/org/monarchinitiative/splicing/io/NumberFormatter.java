@@ -0,0 +1,247 @@
+package org.monarchinitiative.splicing.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Format numbers directly into an array of ASCII bytes without creating any {@link String}s.
+ * <p>
+ * Doubles are formatted using the shortest decimal representation that is parsed back to exactly the same double by
+ * {@link Double#parseDouble(String)}. The notation is the same as in {@link Double#toString(double)}, i.e. plain
+ * notation with at least one fractional digit for magnitudes in range <code>[1e-3, 1e7)</code>. The shortest
+ * representation is found using exact integer arithmetic for magnitudes in range <code>[1e-3, 1e7)</code>, which is the
+ * range of the splicing scores, other values are formatted by {@link Double#toString(double)}.
+ */
+public final class NumberFormatter {
+
+    /**
+     * Maximum number of bytes written by {@link #formatDouble(double, byte[], int)}.
+     */
+    public static final int MAX_DOUBLE_LENGTH = 26;
+
+    /**
+     * Maximum number of bytes written by {@link #formatLong(long, byte[], int)}.
+     */
+    public static final int MAX_LONG_LENGTH = 20;
+
+    private static final int MAX_FRACTION_DIGITS = 18;
+
+    private static final long[] POW10 = new long[MAX_FRACTION_DIGITS + 1];
+
+    /**
+     * <code>1e-3, 1e-2, ..., 1e7</code>, <code>10^e</code> is stored at index <code>e + 3</code>.
+     */
+    private static final double[] POW10_DOUBLE = {1e-3, 1e-2, 1e-1, 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7};
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final long MASK_32 = 0xFFFF_FFFFL;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private NumberFormatter() {
+        // static utility class
+    }
+
+
+    /**
+     * Write decimal representation of the <code>value</code>.
+     *
+     * @param value value to be written
+     * @param dest  destination array with at least {@link #MAX_LONG_LENGTH} bytes available after <code>pos</code>
+     * @param pos   index where the first byte is written
+     * @return index after the last written byte
+     */
+    public static int formatLong(long value, byte[] dest, int pos) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(MIN_LONG, 0, dest, pos, MIN_LONG.length);
+            return pos + MIN_LONG.length;
+        }
+        if (value < 0) {
+            dest[pos++] = '-';
+            value = -value;
+        }
+        int end = pos + digitCount(value);
+        int i = end;
+        do {
+            dest[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+
+    /**
+     * Write the shortest decimal representation of the <code>value</code> that is parsed back to the same
+     * <code>value</code>.
+     *
+     * @param value value to be written
+     * @param dest  destination array with at least {@link #MAX_DOUBLE_LENGTH} bytes available after <code>pos</code>
+     * @param pos   index where the first byte is written
+     * @return index after the last written byte
+     */
+    public static int formatDouble(double value, byte[] dest, int pos) {
+        double abs = Math.abs(value);
+        if (abs >= 1e-3 && abs < 1e7) {
+            int written = formatPlain(value, dest, pos);
+            if (written >= 0)
+                return written;
+        }
+        // NaN, infinities, zeros, scientific notation and the values that need more than 18 fractional digits
+        String s = Double.toString(value);
+        for (int i = 0; i < s.length(); i++) {
+            dest[pos++] = (byte) s.charAt(i);
+        }
+        return pos;
+    }
+
+
+    /**
+     * @return index after the last written byte or <code>-1</code> if the value cannot be written with at most
+     * {@link #MAX_FRACTION_DIGITS} fractional digits
+     */
+    private static int formatPlain(double value, byte[] dest, int pos) {
+        // value = m * 2^-k, where 2^52 <= m < 2^53 and 29 <= k <= 62 for the supported magnitudes
+        long bits = Double.doubleToRawLongBits(value);
+        long m = (bits & 0x000F_FFFF_FFFF_FFFFL) | 0x0010_0000_0000_0000L;
+        int k = 1075 - (int) ((bits >>> 52) & 0x7FF);
+
+        // if the value can be written with p fractional digits, it can be written with p + 1 digits as well. Most values
+        // need 16 or 17 significant digits, hence these are tried first and binary search is used for the shorter ones
+        int exponent10 = exponent10(Math.abs(value));
+        int p16 = Math.max(1, 15 - exponent10);
+        int low = 1, high;
+        if (shortestDigits(m, k, p16) < 0) {
+            int p17 = p16 + 1;
+            if (p17 > MAX_FRACTION_DIGITS || shortestDigits(m, k, p17) < 0)
+                return -1;
+            low = high = p17;
+        } else if (p16 > 1 && shortestDigits(m, k, p16 - 1) < 0) {
+            low = high = p16;
+        } else {
+            high = Math.max(1, p16 - 1);
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (shortestDigits(m, k, mid) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return writePlain(value < 0, shortestDigits(m, k, low), low, dest, pos);
+    }
+
+
+    /**
+     * @param abs magnitude in range <code>[1e-3, 1e7)</code>
+     * @return floor(log10(abs))
+     */
+    private static int exponent10(double abs) {
+        int exponent = -3;
+        while (exponent < 6 && abs >= POW10_DOUBLE[exponent + 4]) {
+            exponent++;
+        }
+        return exponent;
+    }
+
+
+    /**
+     * Find digits of the decimal number with <code>p</code> fractional digits that is the closest to
+     * <code>m * 2^-k</code> and that is parsed back to <code>m * 2^-k</code>.
+     *
+     * @return the digits without the decimal point or <code>-1</code> if there is no such number
+     */
+    private static long shortestDigits(long m, int k, int p) {
+        long pow = POW10[p];
+        // exact product m * 10^p as unsigned 128-bit number
+        long lo = m * pow;
+        long hi = multiplyHigh(m, pow);
+        if ((hi >>> (k - 1)) != 0) // n would not fit into 63 bits
+            return -1;
+        // n = floor(m * 10^p / 2^k), rem = (m * 10^p) mod 2^k
+        long n = (hi << (64 - k)) | (lo >>> k);
+        long rem = lo & ((1L << k) - 1);
+
+        // candidates n (below the value) and n + 1 (above the value) are parsed back to the value if they lie within
+        // the rounding interval: |candidate * 2^k - m * 10^p| <= 10^p / 2, the interval below the value is half as
+        // wide if m is a power of 2. The candidate in the middle rounds to the value only if m is even
+        boolean mIsEven = (m & 1) == 0;
+        long lowerDistance = rem;
+        long upperDistance = (1L << k) - rem;
+        boolean lowerOk = m == 0x0010_0000_0000_0000L
+                ? within(lowerDistance, pow >>> 2, (pow & 3) == 0, mIsEven)
+                : within(lowerDistance, pow >>> 1, (pow & 1) == 0, mIsEven);
+        boolean upperOk = within(upperDistance, pow >>> 1, (pow & 1) == 0, mIsEven);
+        if (lowerOk && (!upperOk || lowerDistance <= upperDistance))
+            return n;
+        return upperOk ? n + 1 : -1;
+    }
+
+
+    /**
+     * @param distance   scaled distance of the candidate from the value
+     * @param limit      floor of the scaled half-width of the rounding interval
+     * @param limitExact <code>true</code> if the half-width is an integer
+     * @param inclusive  <code>true</code> if the candidate in the middle between two doubles rounds to the value
+     */
+    private static boolean within(long distance, long limit, boolean limitExact, boolean inclusive) {
+        if (distance < limit)
+            return true;
+        return distance == limit && (!limitExact || inclusive);
+    }
+
+
+    private static int writePlain(boolean negative, long digits, int fractionDigits, byte[] dest, int pos) {
+        if (negative)
+            dest[pos++] = '-';
+        long integerPart = digits / POW10[fractionDigits];
+        long fraction = digits % POW10[fractionDigits];
+        pos = formatLong(integerPart, dest, pos);
+        dest[pos++] = '.';
+        int end = pos + fractionDigits;
+        int i = end;
+        // write the digits using int arithmetic, which is faster than long arithmetic
+        while (fraction > Integer.MAX_VALUE) {
+            int chunk = (int) (fraction % 1_000_000_000);
+            fraction /= 1_000_000_000;
+            for (int j = 0; j < 9; j++) {
+                dest[--i] = (byte) ('0' + chunk % 10);
+                chunk /= 10;
+            }
+        }
+        int rest = (int) fraction;
+        while (i > pos) {
+            dest[--i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return end;
+    }
+
+
+    /**
+     * @return high 64 bits of the unsigned 128-bit product of two non-negative longs
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & MASK_32, x1 = x >>> 32;
+        long y0 = y & MASK_32, y1 = y >>> 32;
+        long p00 = x0 * y0;
+        long p01 = x0 * y1;
+        long p10 = x1 * y0;
+        long p11 = x1 * y1;
+        long middle = (p00 >>> 32) + (p01 & MASK_32) + (p10 & MASK_32);
+        return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+    }
+
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < 19 && value >= POW10[count]) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -34,13 +34,16 @@ public class PositionalWeightMatrixParser {
      */
     private static final double EPSILON = 0.004;
 
-    private final DoubleMatrix donorMatrix;
+    /**
+     * Nucleotide frequencies, rows represent nucleotides (A, C, G, T) and columns represent positions of the site.
+     */
+    private final double[][] donorFrequencies;
 
-    private final DoubleMatrix acceptorMatrix;
+    private final double[][] acceptorFrequencies;
 
 
     /**
-     * Map {@link PositionWeightMatrix} to {@link DoubleMatrix} and perform sanity checks:
+     * Map {@link PositionWeightMatrix} to array of primitive doubles and perform sanity checks:
      * <ul>
      * <li>entries for all 4 nucleotides must be present</li>
      * <li>entries for all nucleotides must have the same size</li>
@@ -48,9 +51,9 @@ public class PositionalWeightMatrixParser {
      * </ul>
      *
      * @param pwm {@link PositionWeightMatrix} to be converted
-     * @return {@link DoubleMatrix} with data from <code>pwm</code>
+     * @return array with 4 rows (A, C, G, T) and columns corresponding to positions with data from <code>pwm</code>
      */
-    private static DoubleMatrix mapToDoubleMatrix(PositionWeightMatrix pwm) {
+    private static double[][] mapToArray(PositionWeightMatrix pwm) {
         // This list should contain another four lists. Each inner list represents one of the nucleotides A, C, G, T in this order.
         List<List<Double>> vals = pwm.getMatrix();
         if (vals == null)
@@ -76,14 +79,14 @@ public class PositionalWeightMatrixParser {
         }
 
         // checks are done
-        DoubleMatrix dm = new DoubleMatrix(vals.size(), vals.get(0).size());
+        double[][] array = new double[vals.size()][size];
         for (int rowIdx = 0; rowIdx < vals.size(); rowIdx++) {
             List<Double> row = vals.get(rowIdx);
             for (int colIdx = 0; colIdx < row.size(); colIdx++) {
-                dm.put(rowIdx, colIdx, row.get(colIdx));
+                array[rowIdx][colIdx] = row.get(colIdx);
             }
         }
-        return dm;
+        return array;
     }
 
 
@@ -120,8 +123,8 @@ public class PositionalWeightMatrixParser {
      */
     public PositionalWeightMatrixParser(InputStream is) throws IOException {
         Map<String, PositionWeightMatrix> matrixMap = parseAll(is);
-        this.donorMatrix = mapToDoubleMatrix(matrixMap.get(DONOR_M_NAME));
-        this.acceptorMatrix = mapToDoubleMatrix(matrixMap.get(ACCEPTOR_M_NAME));
+        this.donorFrequencies = mapToArray(matrixMap.get(DONOR_M_NAME));
+        this.acceptorFrequencies = mapToArray(matrixMap.get(ACCEPTOR_M_NAME));
     }
 
 
@@ -136,19 +139,37 @@ public class PositionalWeightMatrixParser {
     public PositionalWeightMatrixParser(File matrixFile) throws IOException {
         try (InputStream is = new FileInputStream(matrixFile)) {
             Map<String, PositionWeightMatrix> matrixMap = parseAll(is);
-            this.donorMatrix = mapToDoubleMatrix(matrixMap.get(DONOR_M_NAME));
-            this.acceptorMatrix = mapToDoubleMatrix(matrixMap.get(ACCEPTOR_M_NAME));
+            this.donorFrequencies = mapToArray(matrixMap.get(DONOR_M_NAME));
+            this.acceptorFrequencies = mapToArray(matrixMap.get(ACCEPTOR_M_NAME));
         }
     }
 
 
     public DoubleMatrix getDonorMatrix() {
-        return donorMatrix;
+        return new DoubleMatrix(donorFrequencies);
     }
 
 
     public DoubleMatrix getAcceptorMatrix() {
-        return acceptorMatrix;
+        return new DoubleMatrix(acceptorFrequencies);
+    }
+
+
+    /**
+     * @return nucleotide frequencies of the splice donor site, rows represent nucleotides (A, C, G, T) and columns
+     * represent positions
+     */
+    public double[][] getDonorFrequencies() {
+        return donorFrequencies;
+    }
+
+
+    /**
+     * @return nucleotide frequencies of the splice acceptor site, rows represent nucleotides (A, C, G, T) and columns
+     * represent positions
+     */
+    public double[][] getAcceptorFrequencies() {
+        return acceptorFrequencies;
     }
 
 }
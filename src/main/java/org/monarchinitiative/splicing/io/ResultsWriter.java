@@ -5,15 +5,21 @@ import de.charite.compbio.jannovar.reference.GenomeInterval;
 import de.charite.compbio.jannovar.reference.Strand;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
 import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.charset.Charset;
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
+ * Write {@link ScoredTranscriptModel}s in <em>one-exon-per-line</em> TSV format.
+ * <p>
+ * The lines are formatted directly into a reusable array of ASCII bytes. Numbers are formatted by
+ * {@link NumberFormatter}, no intermediate {@link String}s are created. Lines of each model are handed over to the
+ * underlying {@link OutputStream} by a single write, the stream should be buffered with a large buffer.
+ *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
  */
 public class ResultsWriter implements AutoCloseable {
@@ -22,12 +28,42 @@ public class ResultsWriter implements AutoCloseable {
 
     private static final String[] HEADER = {"CHR", "BEGIN", "END", "BEGIN_T", "END_T", "STRAND", "SYMBOL", "ACCESSION_ID", "DONOR", "ACCEPTOR"};
 
-    private static final char D = '\t';
+    private static final byte D = '\t';
 
-    private static final Charset CHARSET = Charset.forName("UTF-8");
+    static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Number of columns of a line of results.
+     */
+    static final int N_COLUMNS = HEADER.length;
+
+    /**
+     * Upper bound of number of bytes in a line besides the contig name, symbol and accession.
+     */
+    private static final int MAX_FIXED_LINE_LENGTH = 4 * NumberFormatter.MAX_LONG_LENGTH
+            + 2 * NumberFormatter.MAX_DOUBLE_LENGTH + 1 + 9 + 4;
 
     private final OutputStream outputStream;
 
+    private final PipelineMetrics metrics;
+
+    /**
+     * Channel of the output file or <code>null</code> if the results are not written into a file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Buffer for the lines of a single model, reused by all calls of {@link #write(ScoredTranscriptModel)}.
+     */
+    private byte[] buffer = new byte[8192];
+
+    private int pos;
+
+    /**
+     * End offsets of the lines in the {@link #buffer}.
+     */
+    private int[] lineEnds = new int[64];
+
 
     public ResultsWriter(File outFile) throws FileNotFoundException {
         this(new FileOutputStream(outFile));
@@ -35,53 +71,261 @@ public class ResultsWriter implements AutoCloseable {
 
 
     public ResultsWriter(OutputStream outputStream) {
+        this(outputStream, new PipelineMetrics());
+    }
+
+
+    /**
+     * @param metrics {@link PipelineMetrics} where number of the written lines and bytes, and duration of formatting
+     *                and writing of each model are recorded
+     */
+    public ResultsWriter(OutputStream outputStream, PipelineMetrics metrics) {
+        this(outputStream, null, false, metrics);
+    }
+
+
+    /**
+     * Create writer whose progress can be saved by {@link #checkpoint()}.
+     *
+     * @param outputStream {@link OutputStream} writing into the <code>channel</code>
+     * @param channel      {@link FileChannel} of the output file
+     * @param append       <code>true</code> if the lines are appended to the results of an interrupted run, the header
+     *                     is not written then
+     * @param metrics      {@link PipelineMetrics} where number of the written lines and bytes, and duration of formatting
+     *                     and writing of each model are recorded
+     */
+    public ResultsWriter(OutputStream outputStream, FileChannel channel, boolean append, PipelineMetrics metrics) {
+        this(outputStream, channel, append, metrics, new String[0]);
+    }
+
+
+    /**
+     * Create writer of results whose lines are extended by the <code>extraColumns</code> in {@link #writeLines}.
+     *
+     * @param extraColumns names of the columns that follow the columns of the results in the header
+     */
+    protected ResultsWriter(OutputStream outputStream, FileChannel channel, boolean append, PipelineMetrics metrics,
+                            String... extraColumns) {
         this.outputStream = outputStream;
-        String header = Arrays.stream(HEADER).collect(Collectors.joining(String.valueOf(D), "#", System.lineSeparator()));
-        try { // write header
-            outputStream.write(header.getBytes(CHARSET));
-        } catch (IOException e) {
-            LOGGER.warn("Unable to write header '{}'", header.getBytes(CHARSET));
+        this.channel = channel;
+        this.metrics = metrics;
+        if (!append) {
+            byte[] header = makeHeader(extraColumns);
+            try { // write header
+                outputStream.write(header);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write header '{}'", new String(header, StandardCharsets.US_ASCII));
+            }
         }
     }
 
 
+    private static byte[] makeHeader(String[] extraColumns) {
+        StringBuilder header = new StringBuilder("#");
+        for (int i = 0; i < HEADER.length; i++) {
+            if (i > 0)
+                header.append((char) D);
+            header.append(HEADER[i]);
+        }
+        for (String column : extraColumns) {
+            header.append((char) D).append(column);
+        }
+        return header.append(System.lineSeparator()).toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+
     /**
-     * Melt the <code>model</code> into <em>one-exon-per-line</em> and write the lines.
+     * Melt the <code>model</code> into <em>one-exon-per-line</em> and write the lines. Lines of a single model are
+     * never interleaved with lines of other models, even if this method is called concurrently.
      *
      * @param model {@link ScoredTranscriptModel} to be written out
      */
-    public void write(ScoredTranscriptModel model) {
-
+    public synchronized void write(ScoredTranscriptModel model) {
+        long begin = System.nanoTime();
         TranscriptModel tm = model.getTranscriptModel();
         ReferenceDictionary rd = tm.getTXRegion().getRefDict();
         String chr = rd.getContigIDToName().get(tm.getChr());
-        StringBuilder builder = new StringBuilder(1000); //
+        // missing symbol or accession is written as 'null'
+        String symbol = String.valueOf(tm.getGeneSymbol());
+        String accession = String.valueOf(tm.getAccession());
+        byte strand = (byte) (tm.getStrand().isForward() ? '+' : '-');
+        int variableLength = 3 * (chr.length() + symbol.length() + accession.length()); // 3 bytes per char at most
 
-        for (int i = 0; i < tm.getExonRegions().size(); i++) {
+        int nLines = tm.getExonRegions().size();
+        if (lineEnds.length < nLines)
+            lineEnds = new int[Math.max(lineEnds.length * 2, nLines)];
+
+        pos = 0;
+        for (int i = 0; i < nLines; i++) {
             GenomeInterval exon = tm.getExonRegions().get(i);
-            builder = builder.append(chr).append(D) // chromosome
-                    .append(exon.getGenomeBeginPos().withStrand(Strand.FWD).getPos()).append(D) // begin (FWD)
-                    .append(exon.getGenomeEndPos().withStrand(Strand.FWD).getPos()).append(D) // end (FWD)
-                    .append(exon.getBeginPos()).append(D) // begin (transcript's strand)
-                    .append(exon.getEndPos()).append(D) // end (transcript's strand)
-                    .append(tm.getStrand().isForward() ? '+' : '-').append(D) // strand of the transcript
-                    .append(tm.getGeneSymbol()).append(D) // e.g. GCK
-                    .append(tm.getAccession()).append(D) // e.g. NM_000162.3
-                    .append(model.getDonors().get(i)).append(D) // donor score of the exon
-                    .append(model.getAcceptors().get(i)) // acceptor score of the exon
-                    .append(System.lineSeparator());
+            ensureCapacity(MAX_FIXED_LINE_LENGTH + variableLength + LINE_SEPARATOR.length);
+            writeString(chr); // chromosome
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(exon.getGenomeBeginPos().withStrand(Strand.FWD).getPos(), buffer, pos); // begin (FWD)
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(exon.getGenomeEndPos().withStrand(Strand.FWD).getPos(), buffer, pos); // end (FWD)
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(exon.getBeginPos(), buffer, pos); // begin (transcript's strand)
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(exon.getEndPos(), buffer, pos); // end (transcript's strand)
+            buffer[pos++] = D;
+            buffer[pos++] = strand; // strand of the transcript
+            buffer[pos++] = D;
+            writeString(symbol); // e.g. GCK
+            buffer[pos++] = D;
+            writeString(accession); // e.g. NM_000162.3
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatDouble(model.getDonorScore(i), buffer, pos); // donor score of the exon
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatDouble(model.getAcceptorScore(i), buffer, pos); // acceptor score of the exon
+            System.arraycopy(LINE_SEPARATOR, 0, buffer, pos, LINE_SEPARATOR.length);
+            pos += LINE_SEPARATOR.length;
+            lineEnds[i] = pos;
         }
 
+        long formatted = System.nanoTime();
         try {
-            outputStream.write(builder.toString().getBytes(CHARSET));
+            writeLines(model, buffer, lineEnds, nLines);
         } catch (IOException e) {
-            LOGGER.warn("Error writing line '{}'", builder.toString());
+            LOGGER.warn("Error writing lines of '{}'", accession);
+        }
+        metrics.recordWrite(nLines, pos, formatted - begin, System.nanoTime() - formatted);
+    }
+
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Write a line of results that has been formatted by another writer, e.g. when the results of multiple shards of
+     * a run are merged. Columns that follow the columns of the results, e.g. the region columns of
+     * {@link IndexedResultsWriter}, are dropped.
+     *
+     * @param line line of results without the line separator
+     */
+    public synchronized void writeLine(String line) {
+        line = dropExtraColumns(line);
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        long begin = System.nanoTime();
+        try {
+            writeLine(line, bytes);
+        } catch (IOException e) {
+            LOGGER.warn("Error writing line '{}'", line);
+        }
+        metrics.recordWrite(1, bytes.length, 0, System.nanoTime() - begin);
+    }
+
+
+    /**
+     * @return the <code>line</code> without the columns that follow the {@link #N_COLUMNS} columns of the results
+     */
+    private static String dropExtraColumns(String line) {
+        int tab = -1;
+        for (int column = 0; column < N_COLUMNS; column++) {
+            tab = line.indexOf(D, tab + 1);
+            if (tab < 0)
+                return line;
+        }
+        return line.substring(0, tab);
+    }
+
+
+    /**
+     * Write the line together with the line separator.
+     *
+     * @param line  line of results without the line separator
+     * @param bytes the line encoded in UTF-8, including the line separator
+     * @throws IOException if the line cannot be written
+     */
+    protected void writeLine(String line, byte[] bytes) throws IOException {
+        outputStream.write(bytes);
+    }
+
+
+    /**
+     * Write the formatted lines of the <code>model</code>, one line per exon. The arrays are reused by subsequent
+     * calls and must not be retained.
+     *
+     * @param model    {@link ScoredTranscriptModel} whose lines are written
+     * @param lines    array with formatted lines starting at index <code>0</code>
+     * @param lineEnds end offsets of the lines in the <code>lines</code> array, i-th line belongs to i-th exon
+     * @param nLines   number of lines
+     * @throws IOException if the lines cannot be written
+     */
+    protected void writeLines(ScoredTranscriptModel model, byte[] lines, int[] lineEnds, int nLines) throws IOException {
+        if (nLines > 0)
+            outputStream.write(lines, 0, lineEnds[nLines - 1]);
+    }
+
+
+    /**
+     * Write all lines that are kept in memory, flush the stream and force the output file to the storage device, so
+     * that the lines of all models written so far survive a crash of the app.
+     *
+     * @return length of the output file that contains lines of all models written so far
+     * @throws IOException           if the lines cannot be written
+     * @throws IllegalStateException if the results are not written into a file
+     */
+    public synchronized long checkpoint() throws IOException {
+        if (channel == null)
+            throw new IllegalStateException("Results are not written into a file");
+        flushLines();
+        outputStream.flush();
+        channel.force(false);
+        return channel.position();
+    }
+
+
+    /**
+     * Write the lines that are kept in memory into the output stream, called by {@link #checkpoint()}.
+     *
+     * @throws IOException if the lines cannot be written
+     */
+    protected void flushLines() throws IOException {
+        // lines are written immediately
+    }
+
+
+    /**
+     * @return <code>true</code> if the results are indexed and therefore models of each contig must be written
+     * together, without being interleaved with models of other contigs
+     */
+    public boolean isIndexed() {
+        return false;
+    }
+
+
+    private void ensureCapacity(int needed) {
+        if (buffer.length - pos < needed) {
+            byte[] larger = new byte[Math.max(buffer.length * 2, pos + needed)];
+            System.arraycopy(buffer, 0, larger, 0, pos);
+            buffer = larger;
+        }
+    }
+
+
+    /**
+     * Write the characters as ASCII bytes, the string is encoded as UTF-8 if it contains any non-ASCII character.
+     */
+    private void writeString(String s) {
+        int start = pos;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c > 127) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(bytes, 0, buffer, start, bytes.length);
+                pos = start + bytes.length;
+                return;
+            }
+            buffer[pos++] = (byte) c;
         }
     }
 
 
     @Override
-    public void close() throws Exception {
+    public synchronized void close() throws IOException {
         LOGGER.debug("Closing {}", getClass().getSimpleName());
         outputStream.close();
     }
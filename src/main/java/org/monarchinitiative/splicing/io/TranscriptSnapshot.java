@@ -0,0 +1,296 @@
+package org.monarchinitiative.splicing.io;
+
+import com.google.common.collect.ImmutableList;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.data.ReferenceDictionaryBuilder;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact snapshot of the transcripts written by {@link TranscriptSnapshotWriter}. The snapshot contains only the
+ * fields needed for scoring: contig, strand, accession, gene symbol and ID, transcript, CDS and exon coordinates.
+ * Transcript sequences are not stored.
+ * <p>
+ * The transcripts are stored in struct-of-arrays form: one array of ints per field, exon coordinates of all
+ * transcripts in two arrays and strings in a pool of UTF-8 bytes. The file is memory-mapped and the arrays are read in
+ * place, therefore opening the snapshot takes milliseconds regardless of the number of transcripts. Instances are
+ * thread safe.
+ * <p>
+ * All coordinates are 0-based on {@link Strand#FWD}. Exons are stored in the order of the transcript.
+ * <p>
+ * As a {@link TranscriptSource}, the snapshot creates the {@link TranscriptModel}s on demand, one by one or a contig at
+ * a time. The models are not retained by the snapshot.
+ *
+ * @see TranscriptSnapshotWriter
+ */
+public class TranscriptSnapshot implements TranscriptSource {
+
+    static final int MAGIC = 0x50414E53; // 'SNAP'
+
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header - magic, version, and number of contigs, strings, string bytes, transcripts and exons.
+     */
+    static final int HEADER_LENGTH = 7 * 4;
+
+    /**
+     * Number of int arrays with a value per transcript, see {@link TranscriptSnapshotWriter}.
+     */
+    static final int TRANSCRIPT_FIELDS = 10;
+
+    /**
+     * Index of the string that is <code>null</code>.
+     */
+    static final int NULL_STRING = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptSnapshot.class);
+
+    private final ReferenceDictionary referenceDictionary;
+
+    private final int size;
+
+    private final IntBuffer stringOffsets;
+
+    private final ByteBuffer stringBytes;
+
+    private final IntBuffer chr, strand, txBegin, txEnd, cdsBegin, cdsEnd, accession, geneSymbol, geneId, tsl;
+
+    /**
+     * Index of the first exon of each transcript, <code>size + 1</code> entries.
+     */
+    private final IntBuffer exonStart;
+
+    private final IntBuffer exonBegin, exonEnd;
+
+    /**
+     * Indices of the transcripts of each contig.
+     */
+    private final SortedMap<Integer, int[]> byContig = new TreeMap<>();
+
+
+    /**
+     * @param snapshotPath path to the snapshot file
+     * @throws IOException if the file cannot be read or if it is not a valid snapshot
+     */
+    public TranscriptSnapshot(File snapshotPath) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC)
+            throw new IOException(String.format("Invalid signature, '%s' is not a transcript snapshot", snapshotPath));
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(String.format("Unsupported snapshot version '%d'", buffer.getInt(4)));
+
+        int nContigs = buffer.getInt(8);
+        int nStrings = buffer.getInt(12);
+        int nStringBytes = buffer.getInt(16);
+        this.size = buffer.getInt(20);
+        int nExons = buffer.getInt(24);
+        long expectedLength = HEADER_LENGTH + 4L * (3 * nContigs + nStrings + 1 + TRANSCRIPT_FIELDS * size + size + 1 + 2 * nExons) + nStringBytes;
+        if (buffer.limit() != expectedLength)
+            throw new IOException(String.format("Unexpected length of the snapshot: %d, expected %d", buffer.limit(), expectedLength));
+
+        int offset = HEADER_LENGTH;
+        IntBuffer contigIds = ints(buffer, offset, nContigs);
+        IntBuffer contigLengths = ints(buffer, offset += 4 * nContigs, nContigs);
+        IntBuffer contigNames = ints(buffer, offset += 4 * nContigs, nContigs);
+        this.stringOffsets = ints(buffer, offset += 4 * nContigs, nStrings + 1);
+        offset += 4 * (nStrings + 1);
+        IntBuffer[] fields = new IntBuffer[TRANSCRIPT_FIELDS];
+        for (int i = 0; i < TRANSCRIPT_FIELDS; i++) {
+            fields[i] = ints(buffer, offset, size);
+            offset += 4 * size;
+        }
+        chr = fields[0];
+        strand = fields[1];
+        txBegin = fields[2];
+        txEnd = fields[3];
+        cdsBegin = fields[4];
+        cdsEnd = fields[5];
+        accession = fields[6];
+        geneSymbol = fields[7];
+        geneId = fields[8];
+        tsl = fields[9];
+        this.exonStart = ints(buffer, offset, size + 1);
+        this.exonBegin = ints(buffer, offset += 4 * (size + 1), nExons);
+        this.exonEnd = ints(buffer, offset += 4 * nExons, nExons);
+        offset += 4 * nExons;
+        this.stringBytes = slice(buffer, offset, nStringBytes);
+
+        ReferenceDictionaryBuilder builder = new ReferenceDictionaryBuilder();
+        for (int i = 0; i < nContigs; i++) {
+            String name = getString(contigNames.get(i));
+            builder.putContigID(name, contigIds.get(i));
+            builder.putContigName(contigIds.get(i), name);
+            builder.putContigLength(contigIds.get(i), contigLengths.get(i));
+        }
+        this.referenceDictionary = builder.build();
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            counts.merge(chr.get(i), 1, Integer::sum);
+        }
+        counts.forEach((contig, count) -> byContig.put(contig, new int[count]));
+        Map<Integer, Integer> filled = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int contig = chr.get(i);
+            byContig.get(contig)[filled.merge(contig, 1, Integer::sum) - 1] = i;
+        }
+        LOGGER.debug("Mapped {} transcripts on {} contigs from snapshot {}", size, nContigs, snapshotPath.getAbsolutePath());
+    }
+
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    private static IntBuffer ints(ByteBuffer buffer, int offset, int count) {
+        return slice(buffer, offset, 4 * count).asIntBuffer();
+    }
+
+
+    private String getString(int index) {
+        if (index == NULL_STRING)
+            return null;
+        int begin = stringOffsets.get(index);
+        byte[] bytes = new byte[stringOffsets.get(index + 1) - begin];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = stringBytes.get(begin + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return {@link ReferenceDictionary} with the contigs of the transcripts
+     */
+    public ReferenceDictionary getReferenceDictionary() {
+        return referenceDictionary;
+    }
+
+
+    /**
+     * @param i index of the transcript
+     * @return ID of the contig of the transcript
+     */
+    public int getContig(int i) {
+        return chr.get(i);
+    }
+
+
+    /**
+     * @param i index of the transcript
+     * @return accession of the transcript
+     */
+    public String getAccession(int i) {
+        return getString(accession.get(i));
+    }
+
+
+    /**
+     * Create {@link TranscriptModel} of the transcript. The model does not contain the transcript sequence.
+     *
+     * @param i index of the transcript, <code>0</code> to {@link #size()} exclusive
+     * @return the transcript model
+     */
+    public TranscriptModel getTranscriptModel(int i) {
+        int contig = chr.get(i);
+        Strand s = strand.get(i) == 0 ? Strand.FWD : Strand.REV;
+
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession(getString(accession.get(i)));
+        builder.setGeneSymbol(getString(geneSymbol.get(i)));
+        builder.setGeneID(getString(geneId.get(i)));
+        builder.setStrand(s);
+        builder.setTXRegion(new GenomeInterval(referenceDictionary, Strand.FWD, contig, txBegin.get(i), txEnd.get(i)).withStrand(s));
+        builder.setCDSRegion(new GenomeInterval(referenceDictionary, Strand.FWD, contig, cdsBegin.get(i), cdsEnd.get(i)).withStrand(s));
+        for (int e = exonStart.get(i); e < exonStart.get(i + 1); e++) {
+            builder.addExonRegion(new GenomeInterval(referenceDictionary, Strand.FWD, contig, exonBegin.get(e), exonEnd.get(e)).withStrand(s));
+        }
+        builder.setSequence("");
+        builder.setTranscriptSupportLevel(tsl.get(i));
+        return builder.build();
+    }
+
+
+    @Override
+    public Iterator<TranscriptModel> iterator() {
+        return new Iterator<TranscriptModel>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public TranscriptModel next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return getTranscriptModel(next++);
+            }
+        };
+    }
+
+
+    @Override
+    public List<Integer> getContigs() {
+        return new ArrayList<>(byContig.keySet());
+    }
+
+
+    @Override
+    public List<TranscriptModel> getTranscripts(int contig) {
+        int[] indices = byContig.getOrDefault(contig, new int[0]);
+        List<TranscriptModel> models = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            models.add(getTranscriptModel(i));
+        }
+        models.sort(BY_POSITION);
+        return models;
+    }
+
+
+    /**
+     * Create {@link JannovarData} with {@link TranscriptModel}s of all transcripts of the snapshot. The models do not
+     * contain the transcript sequences.
+     *
+     * @return the data
+     */
+    public JannovarData toJannovarData() {
+        ImmutableList.Builder<TranscriptModel> models = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            models.add(getTranscriptModel(i));
+        }
+        return new JannovarData(referenceDictionary, models.build());
+    }
+}
@@ -0,0 +1,144 @@
+package org.monarchinitiative.splicing.io;
+
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Write the transcripts into a compact snapshot that is read by {@link TranscriptSnapshot}.
+ * <p>
+ * The snapshot is a little-endian file with the following sections:
+ * <ul>
+ * <li>header - magic, version, number of contigs, strings, string bytes, transcripts and exons</li>
+ * <li>contigs - arrays of IDs, lengths and name indices</li>
+ * <li>offsets of the strings in the string pool, number of strings + 1 entries</li>
+ * <li>transcripts - arrays of contig ID, strand (0 - FWD, 1 - REV), transcript begin and end, CDS begin and end,
+ * accession, gene symbol and gene ID indices, transcript support level, followed by index of the first exon of each
+ * transcript (number of transcripts + 1 entries)</li>
+ * <li>exons - arrays of begin and end coordinates</li>
+ * <li>string pool - UTF-8 bytes of the distinct strings</li>
+ * </ul>
+ *
+ * @see TranscriptSnapshot
+ */
+public class TranscriptSnapshotWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptSnapshotWriter.class);
+
+    private final ReferenceDictionary referenceDictionary;
+
+    private final Collection<TranscriptModel> transcripts;
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+
+    /**
+     * @param referenceDictionary {@link ReferenceDictionary} with contigs of the transcripts
+     * @param transcripts         transcripts to be written in the order of the collection
+     */
+    public TranscriptSnapshotWriter(ReferenceDictionary referenceDictionary, Collection<TranscriptModel> transcripts) {
+        this.referenceDictionary = referenceDictionary;
+        this.transcripts = transcripts;
+    }
+
+
+    private static void writeInts(DataOutput output, ByteBuffer buffer, int[] values) throws IOException {
+        for (int value : values) {
+            buffer.clear();
+            buffer.putInt(value);
+            output.write(buffer.array(), 0, 4);
+        }
+    }
+
+
+    private int stringIndex(String s) {
+        return s == null ? TranscriptSnapshot.NULL_STRING : strings.computeIfAbsent(s, k -> strings.size());
+    }
+
+
+    /**
+     * Write the snapshot.
+     *
+     * @param snapshotPath where to write the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(File snapshotPath) throws IOException {
+        List<Integer> contigIds = new ArrayList<>(referenceDictionary.getContigIDToName().keySet());
+        int[] ids = new int[contigIds.size()], lengths = new int[contigIds.size()], names = new int[contigIds.size()];
+        for (int i = 0; i < contigIds.size(); i++) {
+            ids[i] = contigIds.get(i);
+            Integer length = referenceDictionary.getContigIDToLength().get(ids[i]);
+            lengths[i] = length == null ? 0 : length;
+            names[i] = stringIndex(referenceDictionary.getContigIDToName().get(ids[i]));
+        }
+
+        int n = transcripts.size();
+        int[][] fields = new int[TranscriptSnapshot.TRANSCRIPT_FIELDS][n];
+        int[] exonStart = new int[n + 1];
+        int nExons = transcripts.stream().mapToInt(tm -> tm.getExonRegions().size()).sum();
+        int[] exonBegin = new int[nExons], exonEnd = new int[nExons];
+        int i = 0, e = 0;
+        for (TranscriptModel tm : transcripts) {
+            GenomeInterval tx = tm.getTXRegion().withStrand(Strand.FWD);
+            GenomeInterval cds = tm.getCDSRegion().withStrand(Strand.FWD);
+            fields[0][i] = tm.getChr();
+            fields[1][i] = tm.getStrand().isForward() ? 0 : 1;
+            fields[2][i] = tx.getBeginPos();
+            fields[3][i] = tx.getEndPos();
+            fields[4][i] = cds.getBeginPos();
+            fields[5][i] = cds.getEndPos();
+            fields[6][i] = stringIndex(tm.getAccession());
+            fields[7][i] = stringIndex(tm.getGeneSymbol());
+            fields[8][i] = stringIndex(tm.getGeneID());
+            fields[9][i] = tm.getTranscriptSupportLevel();
+            exonStart[i] = e;
+            for (GenomeInterval exon : tm.getExonRegions()) {
+                GenomeInterval fwd = exon.withStrand(Strand.FWD);
+                exonBegin[e] = fwd.getBeginPos();
+                exonEnd[e] = fwd.getEndPos();
+                e++;
+            }
+            i++;
+        }
+        exonStart[n] = e;
+
+        // string pool
+        int[] stringOffsets = new int[strings.size() + 1];
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        int s = 0;
+        for (String string : strings.keySet()) {
+            stringOffsets[s++] = pool.size();
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            pool.write(bytes, 0, bytes.length);
+        }
+        stringOffsets[s] = pool.size();
+
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotPath), 1 << 16))) {
+            writeInts(output, buffer, new int[]{TranscriptSnapshot.MAGIC, TranscriptSnapshot.VERSION, ids.length,
+                    strings.size(), pool.size(), n, nExons});
+            writeInts(output, buffer, ids);
+            writeInts(output, buffer, lengths);
+            writeInts(output, buffer, names);
+            writeInts(output, buffer, stringOffsets);
+            for (int[] field : fields) {
+                writeInts(output, buffer, field);
+            }
+            writeInts(output, buffer, exonStart);
+            writeInts(output, buffer, exonBegin);
+            writeInts(output, buffer, exonEnd);
+            pool.writeTo(output);
+        }
+        LOGGER.info("Wrote {} transcripts with {} exons on {} contigs into snapshot {}", n, nExons, ids.length,
+                snapshotPath.getAbsolutePath());
+    }
+}
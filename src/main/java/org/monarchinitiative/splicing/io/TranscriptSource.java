@@ -0,0 +1,51 @@
+package org.monarchinitiative.splicing.io;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implementations of this interface provide the transcripts to be scored. The transcripts can be obtained either one by
+ * one in the order of the source, or grouped by contig. Implementations may create the {@link TranscriptModel}s on
+ * demand, therefore the models that are not referenced by the caller anymore can be garbage-collected.
+ *
+ * @see JannovarTranscriptSource
+ * @see TranscriptSnapshot
+ */
+public interface TranscriptSource {
+
+    /**
+     * Order of the transcripts of a contig, by begin position on {@link Strand#FWD} and by accession. Transcripts on
+     * both strands are therefore ordered by the same coordinates.
+     */
+    Comparator<TranscriptModel> BY_POSITION = Comparator.comparing((TranscriptModel tm) -> tm.getTXRegion().withStrand(Strand.FWD).getBeginPos())
+            .thenComparing(TranscriptModel::getAccession);
+
+    /**
+     * @return number of the transcripts
+     */
+    int size();
+
+
+    /**
+     * @return iterator over all transcripts in the order of the source
+     */
+    Iterator<TranscriptModel> iterator();
+
+
+    /**
+     * @return IDs of the contigs with at least one transcript, in ascending order
+     */
+    List<Integer> getContigs();
+
+
+    /**
+     * @param contig ID of the contig
+     * @return transcripts of the contig sorted by {@link #BY_POSITION} or an empty list if there are no transcripts on
+     * the contig
+     */
+    List<TranscriptModel> getTranscripts(int contig);
+}
@@ -0,0 +1,286 @@
+package org.monarchinitiative.splicing.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * This class allows to fetch arbitrary nucleotide sequence from the reference genome stored in the UCSC
+ * <a href="https://genome.ucsc.edu/goldenPath/help/twoBit.html">2bit format</a>. The file can be either downloaded
+ * from UCSC or created from a FASTA file by {@link FastaToTwoBitConverter}.
+ * <p>
+ * The packed nucleotides are memory-mapped, therefore the file is read by the OS on demand and the pages are shared by
+ * all processes that use the same file. Only the tables with runs of <code>N</code>s and soft-masked (lowercase)
+ * nucleotides are loaded into the heap. Fetching a sequence does not involve any system calls and the instances are
+ * safe to be used by multiple threads.
+ *
+ * @see FastaToTwoBitConverter
+ */
+public class TwoBitSequenceAccessor implements GenomeSequenceAccessor {
+
+    /**
+     * The first 4 bytes of the 2bit file. The byte order of the signature determines the byte order of the file.
+     */
+    static final int SIGNATURE = 0x1A412743;
+
+    /**
+     * Version 0 uses 32-bit offsets of sequence records, version 1 uses 64-bit offsets.
+     */
+    static final int VERSION_32_BIT = 0;
+
+    static final int VERSION_64_BIT = 1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TwoBitSequenceAccessor.class);
+
+    /**
+     * Nucleotides represented by the 2-bit codes.
+     */
+    private static final byte[] BASES = {'T', 'C', 'A', 'G'};
+
+    /**
+     * Four nucleotides decoded from each possible value of a packed byte.
+     */
+    private static final byte[] DECODED_BYTES = new byte[256 * 4];
+
+    private static final byte LOWERCASE_OFFSET = 'a' - 'A';
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            for (int j = 0; j < 4; j++) {
+                DECODED_BYTES[i * 4 + j] = BASES[(i >>> (6 - 2 * j)) & 3];
+            }
+        }
+    }
+
+    private final File twoBitPath;
+
+    private final Map<String, Contig> contigs;
+
+    private final ContigNameResolver contigNameResolver;
+
+
+    /**
+     * Create an instance using 2bit file on provided <code>twoBitPath</code>.
+     *
+     * @param twoBitPath path to 2bit file
+     * @throws IOException if the file cannot be read or if it is not a valid 2bit file
+     */
+    public TwoBitSequenceAccessor(File twoBitPath) throws IOException {
+        this.twoBitPath = twoBitPath;
+        try (FileChannel channel = FileChannel.open(twoBitPath.toPath(), StandardOpenOption.READ)) {
+            this.contigs = readContigs(channel);
+        }
+        this.contigNameResolver = new ContigNameResolver(contigs.keySet());
+        LOGGER.debug("Mapped {} contigs from 2bit file {}", contigs.size(), twoBitPath.getAbsolutePath());
+    }
+
+
+    private static Map<String, Contig> readContigs(FileChannel channel) throws IOException {
+        ByteBuffer header = read(channel, 0, 16, ByteOrder.LITTLE_ENDIAN);
+        ByteOrder order;
+        if (header.getInt(0) == SIGNATURE) {
+            order = ByteOrder.LITTLE_ENDIAN;
+        } else if (header.order(ByteOrder.BIG_ENDIAN).getInt(0) == SIGNATURE) {
+            order = ByteOrder.BIG_ENDIAN;
+        } else {
+            throw new IOException("Invalid signature, the file is not in 2bit format");
+        }
+        header.order(order);
+        int version = header.getInt(4);
+        if (version != VERSION_32_BIT && version != VERSION_64_BIT)
+            throw new IOException(String.format("Unsupported 2bit file version '%d'", version));
+        int sequenceCount = header.getInt(8);
+
+        // read the index - name and offset of each sequence record
+        int offsetSize = version == VERSION_32_BIT ? 4 : 8;
+        long maxIndexSize = (long) sequenceCount * (1 + 255 + offsetSize);
+        ByteBuffer index = read(channel, 16, (int) Math.min(maxIndexSize, channel.size() - 16), order);
+        Map<String, Contig> contigs = new LinkedHashMap<>();
+        byte[] nameBytes = new byte[255];
+        for (int i = 0; i < sequenceCount; i++) {
+            int nameSize = index.get() & 0xFF;
+            index.get(nameBytes, 0, nameSize);
+            String name = new String(nameBytes, 0, nameSize, StandardCharsets.US_ASCII);
+            long offset = offsetSize == 4 ? index.getInt() & 0xFFFFFFFFL : index.getLong();
+            contigs.put(name, readContig(channel, offset, order));
+        }
+        return contigs;
+    }
+
+
+    private static Contig readContig(FileChannel channel, long offset, ByteOrder order) throws IOException {
+        ByteBuffer buffer = read(channel, offset, 8, order);
+        int length = buffer.getInt();
+        int nBlockCount = buffer.getInt();
+        long position = offset + 8;
+
+        buffer = read(channel, position, 8 * nBlockCount + 4, order);
+        int[] nBlockStarts = readInts(buffer, nBlockCount);
+        int[] nBlockSizes = readInts(buffer, nBlockCount);
+        int maskBlockCount = buffer.getInt();
+        position += 8 * nBlockCount + 4;
+
+        buffer = read(channel, position, 8 * maskBlockCount + 4, order);
+        int[] maskBlockStarts = readInts(buffer, maskBlockCount);
+        int[] maskBlockSizes = readInts(buffer, maskBlockCount);
+        position += 8 * maskBlockCount + 4; // skip the reserved field
+
+        MappedByteBuffer packed = channel.map(FileChannel.MapMode.READ_ONLY, position, (length + 3L) / 4);
+        return new Contig(length, nBlockStarts, nBlockSizes, maskBlockStarts, maskBlockSizes, packed);
+    }
+
+
+    private static ByteBuffer read(FileChannel channel, long position, int length, ByteOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(order);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of 2bit file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] ints = new int[count];
+        for (int i = 0; i < count; i++) {
+            ints[i] = buffer.getInt();
+        }
+        return ints;
+    }
+
+
+    /**
+     * @param starts sorted begin coordinates of non-overlapping blocks
+     * @param sizes  sizes of the blocks
+     * @param pos    0-based position
+     * @return index of the first block that ends after <code>pos</code>
+     */
+    private static int firstBlockEndingAfter(int[] starts, int[] sizes, int pos) {
+        int idx = Arrays.binarySearch(starts, pos);
+        if (idx >= 0)
+            return idx;
+        idx = -idx - 2; // the last block that starts before pos
+        return idx >= 0 && starts[idx] + sizes[idx] > pos ? idx : idx + 1;
+    }
+
+
+    /**
+     * @return names of the contigs present in the 2bit file in the order of the file
+     */
+    @Override
+    public Set<String> getContigNames() {
+        return Collections.unmodifiableSet(contigs.keySet());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getContigLength(String chr) {
+        Contig contig = contigs.get(contigNameResolver.resolve(chr));
+        return contig == null ? -1 : contig.length;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File getSequenceFile() {
+        return twoBitPath;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Soft-masked nucleotides are returned in lowercase, the same as they were present in the original FASTA file.
+     */
+    @Override
+    public byte[] fetchBases(String chr, int start, int end) {
+        Contig contig = contigs.get(contigNameResolver.resolve(chr));
+        if (contig == null || start < 0 || end > contig.length || start > end) {
+            LOGGER.warn("Error fetching sequence for '{}:{}-{}'", chr, start, end);
+            return null;
+        }
+        byte[] bases = new byte[end - start];
+        contig.decode(start, end, bases);
+        return bases;
+    }
+
+
+    @Override
+    public void close() {
+        // the mapped buffers are released by the garbage collector
+        LOGGER.debug("Closing 2bit file {}", twoBitPath.getAbsolutePath());
+    }
+
+
+    private static final class Contig {
+
+        private final int length;
+
+        private final int[] nBlockStarts, nBlockSizes, maskBlockStarts, maskBlockSizes;
+
+        private final MappedByteBuffer packed;
+
+
+        private Contig(int length, int[] nBlockStarts, int[] nBlockSizes, int[] maskBlockStarts, int[] maskBlockSizes,
+                       MappedByteBuffer packed) {
+            this.length = length;
+            this.nBlockStarts = nBlockStarts;
+            this.nBlockSizes = nBlockSizes;
+            this.maskBlockStarts = maskBlockStarts;
+            this.maskBlockSizes = maskBlockSizes;
+            this.packed = packed;
+        }
+
+
+        /**
+         * Decode nucleotides <code>[start, end)</code> into <code>dest</code>. Only absolute reads are used, hence the
+         * method is safe to be called concurrently.
+         */
+        private void decode(int start, int end, byte[] dest) {
+            int pos = start;
+            int i = 0;
+            // bases before the first byte boundary
+            for (; pos < end && (pos & 3) != 0; pos++, i++) {
+                dest[i] = BASES[(packed.get(pos >>> 2) >>> ((3 - (pos & 3)) << 1)) & 3];
+            }
+            // whole bytes
+            for (; pos + 4 <= end; pos += 4, i += 4) {
+                System.arraycopy(DECODED_BYTES, (packed.get(pos >>> 2) & 0xFF) << 2, dest, i, 4);
+            }
+            // bases after the last byte boundary
+            for (; pos < end; pos++, i++) {
+                dest[i] = BASES[(packed.get(pos >>> 2) >>> ((3 - (pos & 3)) << 1)) & 3];
+            }
+
+            // runs of N
+            for (int b = firstBlockEndingAfter(nBlockStarts, nBlockSizes, start); b < nBlockStarts.length && nBlockStarts[b] < end; b++) {
+                int from = Math.max(start, nBlockStarts[b]);
+                int to = Math.min(end, nBlockStarts[b] + nBlockSizes[b]);
+                Arrays.fill(dest, from - start, to - start, (byte) 'N');
+            }
+            // soft-masked runs
+            for (int b = firstBlockEndingAfter(maskBlockStarts, maskBlockSizes, start); b < maskBlockStarts.length && maskBlockStarts[b] < end; b++) {
+                int from = Math.max(start, maskBlockStarts[b]);
+                int to = Math.min(end, maskBlockStarts[b] + maskBlockSizes[b]);
+                for (int j = from - start; j < to - start; j++) {
+                    dest[j] += LOWERCASE_OFFSET;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.monarchinitiative.splicing.merge;
+
+import org.monarchinitiative.splicing.io.BgzfOutputStream;
+import org.monarchinitiative.splicing.io.ConcatenatedGzipOutputStream;
+import org.monarchinitiative.splicing.io.IndexedResultsWriter;
+import org.monarchinitiative.splicing.io.ResultsWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Merge results of the shards of a <code>calculate</code> run, see {@link ShardMerger}.
+ */
+@Component
+public class MergeApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergeApplicationRunner.class);
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+
+    /**
+     * The output is BGZF compressed and indexed if the path ends with <code>.bgz</code>, g-zipped if the path ends
+     * with <code>.gz</code>.
+     */
+    private static ResultsWriter openOutput(File output) throws IOException {
+        BufferedOutputStream os = new BufferedOutputStream(new FileOutputStream(output), OUTPUT_BUFFER_SIZE);
+        if (output.getName().endsWith(".bgz"))
+            return new IndexedResultsWriter(new BgzfOutputStream(os, Runtime.getRuntime().availableProcessors()),
+                    new File(output.getAbsolutePath() + ".tbi"));
+        else if (output.getName().endsWith(".gz"))
+            return new ResultsWriter(new BufferedOutputStream(new ConcatenatedGzipOutputStream(os, OUTPUT_BUFFER_SIZE), OUTPUT_BUFFER_SIZE));
+        else
+            return new ResultsWriter(os);
+    }
+
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar merge --input=hg38_out.1.tsv.bgz
+     * --input=hg38_out.2.tsv.bgz --output=hg38_out.tsv.bgz</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("merge")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        try {
+            if (!args.containsOption("input") || !args.containsOption("output")) {
+                LOGGER.warn("Please provide paths to results of the shards and to output file");
+                return;
+            }
+            List<File> inputs = args.getOptionValues("input").stream().map(File::new).collect(Collectors.toList());
+            File output = new File(args.getOptionValues("output").get(0));
+
+            long begin = System.currentTimeMillis();
+            LOGGER.info("Merging results of {} shards into '{}'", inputs.size(), output.getAbsolutePath());
+            long lines;
+            try (ResultsWriter writer = openOutput(output)) {
+                lines = new ShardMerger(writer).merge(inputs);
+            }
+            LOGGER.info("Merged {} lines in {} seconds", lines, (System.currentTimeMillis() - begin) / 1000);
+        } catch (Exception e) {
+            LOGGER.error("Exception: ", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.monarchinitiative.splicing.merge;
+
+import org.monarchinitiative.splicing.calculate.Checkpoint;
+import org.monarchinitiative.splicing.io.ResultsWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Merge results of the shards of a <code>calculate</code> run into a single file. The shards are contiguous ranges of
+ * the transcripts in the order in which they are written, therefore the lines of the shards are written in the order
+ * of the shards. The {@link ResultsWriter} writes the header once and the indexed writer sorts and indexes lines of
+ * each contig, hence the merged results are equal to the results of a single run.
+ */
+public class ShardMerger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardMerger.class);
+
+    private final ResultsWriter writer;
+
+
+    /**
+     * @param writer {@link ResultsWriter} for the merged results
+     */
+    public ShardMerger(ResultsWriter writer) {
+        this.writer = writer;
+    }
+
+
+    private static BufferedReader openInput(File input) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(input));
+        if (input.getName().endsWith(".gz") || input.getName().endsWith(".bgz"))
+            // concatenated gzip members and BGZF blocks are decompressed as a single stream
+            is = new GZIPInputStream(is, 1 << 16);
+        return new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+
+    /**
+     * @param inputs results of the shards in the order of the shards, plain text, gzip or BGZF compressed
+     * @return number of the merged lines
+     * @throws IOException           if the results cannot be read
+     * @throws IllegalStateException if a shard has not finished, i.e. there is a checkpoint next to its results
+     */
+    public long merge(List<File> inputs) throws IOException {
+        for (File input : inputs) {
+            if (Checkpoint.fileFor(input).exists())
+                throw new IllegalStateException(String.format("Results '%s' are incomplete, finish the shard by running it with --resume",
+                        input.getAbsolutePath()));
+        }
+
+        long total = 0;
+        for (File input : inputs) {
+            long lines = 0;
+            try (BufferedReader reader = openInput(input)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("#")) // the header is written by the writer
+                        continue;
+                    writer.writeLine(line);
+                    lines++;
+                }
+            }
+            LOGGER.info("Merged {} lines of '{}'", lines, input.getAbsolutePath());
+            total += lines;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,90 @@
+package org.monarchinitiative.splicing.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with buckets of exponentially growing width. Latency <code>t</code> nanoseconds falls into
+ * bucket <code>floor(log2(t))</code>, therefore the percentiles are reported with precision of a factor of 2, which is
+ * enough to tell the stages of the pipeline apart.
+ * <p>
+ * Recording is lock-free and cheap enough to be called for each transcript from many threads. Instances are thread
+ * safe, the percentiles of a histogram that is being updated are approximate.
+ */
+public final class LatencyHistogram {
+
+    private static final int N_BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[N_BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+
+    public LatencyHistogram() {
+        for (int i = 0; i < N_BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+
+    private static int bucketOf(long nanos) {
+        return nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+
+    /**
+     * @param nanos latency in nanoseconds, negative values are recorded as <code>0</code>
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets[bucketOf(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+
+    /**
+     * @return number of the recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    /**
+     * @return sum of the recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+
+    /**
+     * @param percentile percentile from range <code>(0, 100]</code>
+     * @return upper bound of the bucket containing the percentile in nanoseconds or <code>0</code> if nothing has been
+     * recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException(String.format("Percentile must be in range (0, 100]: %f", percentile));
+        long[] counts = new long[N_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < N_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+
+        // nearest rank
+        long rank = (long) Math.ceil(percentile / 100. * total);
+        long seen = 0;
+        for (int i = 0; i < N_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return i == N_BUCKETS - 1 ? Long.MAX_VALUE : 1L << (i + 1);
+        }
+        return Long.MAX_VALUE;
+    }
+}
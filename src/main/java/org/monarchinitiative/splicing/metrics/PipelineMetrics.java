@@ -0,0 +1,221 @@
+package org.monarchinitiative.splicing.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the stages of the scoring pipeline:
+ * <ul>
+ * <li>{@link Stage#FETCH} - fetching bases from the reference genome, per read</li>
+ * <li>{@link Stage#SCORE} - scoring sites of a transcript, including the coordinate calculations and excluding the
+ * fetches, per transcript</li>
+ * <li>{@link Stage#FORMAT} - formatting lines of a transcript, per transcript</li>
+ * <li>{@link Stage#WRITE} - handing the lines over to the output stream, including compression of the output, per
+ * transcript</li>
+ * </ul>
+ * The metrics are updated by the instrumented components once per read or transcript, the counters are
+ * {@link LongAdder}s, therefore the instrumentation has low overhead even when the components are used by many threads.
+ * The metrics can be observed over JMX, see {@link #registerMBean()}, and summarized in JSON format.
+ * <p>
+ * Instances are thread safe.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.monarchinitiative.splicing:type=PipelineMetrics";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    private final LongAdder transcriptsScored = new LongAdder();
+
+    private final LongAdder sitesScored = new LongAdder();
+
+    private final LongAdder cachedSites = new LongAdder();
+
+    private final LongAdder basesFetched = new LongAdder();
+
+    private final LongAdder linesWritten = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+
+    /**
+     * @param bases number of fetched bases, <code>0</code> if the bases are not available
+     * @param nanos duration of the read
+     */
+    public void recordFetch(int bases, long nanos) {
+        basesFetched.add(bases);
+        histograms[Stage.FETCH.ordinal()].record(nanos);
+    }
+
+
+    /**
+     * @param sites       number of the sites scored by the annotator
+     * @param cachedSites number of the sites whose scores were found in the cache
+     * @param nanos       duration of scoring of the transcript, excluding the fetches
+     */
+    public void recordTranscript(int sites, int cachedSites, long nanos) {
+        transcriptsScored.increment();
+        sitesScored.add(sites);
+        this.cachedSites.add(cachedSites);
+        histograms[Stage.SCORE.ordinal()].record(nanos);
+    }
+
+
+    /**
+     * @param lines       number of the written lines
+     * @param bytes       number of the written bytes, before compression
+     * @param formatNanos duration of formatting of the lines
+     * @param writeNanos  duration of writing of the lines
+     */
+    public void recordWrite(int lines, int bytes, long formatNanos, long writeNanos) {
+        linesWritten.add(lines);
+        bytesWritten.add(bytes);
+        histograms[Stage.FORMAT.ordinal()].record(formatNanos);
+        histograms[Stage.WRITE.ordinal()].record(writeNanos);
+    }
+
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+
+    @Override
+    public long getTranscriptsScored() {
+        return transcriptsScored.sum();
+    }
+
+
+    @Override
+    public long getSitesScored() {
+        return sitesScored.sum();
+    }
+
+
+    @Override
+    public long getCachedSites() {
+        return cachedSites.sum();
+    }
+
+
+    @Override
+    public long getFetches() {
+        return getHistogram(Stage.FETCH).getCount();
+    }
+
+
+    @Override
+    public long getBasesFetched() {
+        return basesFetched.sum();
+    }
+
+
+    @Override
+    public long getLinesWritten() {
+        return linesWritten.sum();
+    }
+
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+
+    @Override
+    public long getFetchNanos() {
+        return getHistogram(Stage.FETCH).getTotalNanos();
+    }
+
+
+    @Override
+    public long getScoreNanos() {
+        return getHistogram(Stage.SCORE).getTotalNanos();
+    }
+
+
+    @Override
+    public long getFormatNanos() {
+        return getHistogram(Stage.FORMAT).getTotalNanos();
+    }
+
+
+    @Override
+    public long getWriteNanos() {
+        return getHistogram(Stage.WRITE).getTotalNanos();
+    }
+
+
+    /**
+     * @return all metrics as a single line JSON object. The stages contain number of the recorded events, total
+     * nanoseconds, and upper bounds of the 50th, 90th, 99th and 100th percentile of the latencies in nanoseconds
+     */
+    @Override
+    public String getSummary() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"transcriptsScored\":").append(getTranscriptsScored())
+                .append(",\"sitesScored\":").append(getSitesScored())
+                .append(",\"cachedSites\":").append(getCachedSites())
+                .append(",\"basesFetched\":").append(getBasesFetched())
+                .append(",\"linesWritten\":").append(getLinesWritten())
+                .append(",\"bytesWritten\":").append(getBytesWritten())
+                .append(",\"stages\":{");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            if (stage.ordinal() > 0)
+                json.append(',');
+            json.append('"').append(stage.name().toLowerCase(Locale.ROOT)).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"totalNanos\":").append(histogram.getTotalNanos());
+            for (double percentile : PERCENTILES) {
+                json.append(",\"p").append((int) percentile).append("Nanos\":").append(histogram.percentile(percentile));
+            }
+            json.append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+
+    /**
+     * Register the metrics in the platform MBean server under {@link #OBJECT_NAME}, replacing metrics registered
+     * before. Failure to register is logged, the metrics are still collected.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(new StandardMBean(this, PipelineMetricsMXBean.class, true), name);
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register pipeline metrics in the MBean server", e);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+
+    public enum Stage {
+        FETCH, SCORE, FORMAT, WRITE
+    }
+}
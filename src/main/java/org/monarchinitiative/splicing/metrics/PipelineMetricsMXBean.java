@@ -0,0 +1,34 @@
+package org.monarchinitiative.splicing.metrics;
+
+/**
+ * Management interface of {@link PipelineMetrics}, e.g. for <code>jconsole</code>.
+ */
+public interface PipelineMetricsMXBean {
+
+    long getTranscriptsScored();
+
+    long getSitesScored();
+
+    long getCachedSites();
+
+    long getFetches();
+
+    long getBasesFetched();
+
+    long getLinesWritten();
+
+    long getBytesWritten();
+
+    long getFetchNanos();
+
+    long getScoreNanos();
+
+    long getFormatNanos();
+
+    long getWriteNanos();
+
+    /**
+     * @return all metrics as a JSON object
+     */
+    String getSummary();
+}
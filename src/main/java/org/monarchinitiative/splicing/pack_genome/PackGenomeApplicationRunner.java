@@ -0,0 +1,53 @@
+package org.monarchinitiative.splicing.pack_genome;
+
+import org.monarchinitiative.splicing.io.FastaToTwoBitConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * Convert the reference genome FASTA file into 2bit file that can be used via <code>ref.genome.2bit.file</code>
+ * property.
+ */
+@Component
+public class PackGenomeApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackGenomeApplicationRunner.class);
+
+    private final ObjectProvider<File> refGenomeFastaFileProvider;
+
+    public PackGenomeApplicationRunner(@Qualifier("refGenomeFastaFile") ObjectProvider<File> refGenomeFastaFileProvider) {
+        this.refGenomeFastaFileProvider = refGenomeFastaFileProvider;
+    }
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
+     * pack_genome --output=hg38.2bit</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("pack_genome")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        if (!args.containsOption("output")) {
+            LOGGER.warn("Please provide path to output file");
+            return;
+        }
+        File output = new File(args.getOptionValues("output").get(0));
+
+        long begin = System.currentTimeMillis();
+        new FastaToTwoBitConverter(refGenomeFastaFileProvider.getObject()).convert(output);
+        LOGGER.info("Packed genome into '{}' in {} seconds", output.getAbsolutePath(),
+                (System.currentTimeMillis() - begin) / 1000);
+    }
+}
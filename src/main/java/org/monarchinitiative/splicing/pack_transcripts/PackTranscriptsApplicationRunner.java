@@ -0,0 +1,57 @@
+package org.monarchinitiative.splicing.pack_transcripts;
+
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.JannovarDataSerializer;
+import org.monarchinitiative.splicing.io.TranscriptSnapshotWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Convert the Jannovar transcript database into compact snapshot that can be used via
+ * <code>transcript.snapshot.file</code> property.
+ */
+@Component
+public class PackTranscriptsApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackTranscriptsApplicationRunner.class);
+
+    private final ObjectProvider<Path> jannovarDataFileProvider;
+
+    public PackTranscriptsApplicationRunner(ObjectProvider<Path> jannovarDataFileProvider) {
+        this.jannovarDataFileProvider = jannovarDataFileProvider;
+    }
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
+     * pack_transcripts --output=hg38_ensembl.snapshot</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("pack_transcripts")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        if (!args.containsOption("output")) {
+            LOGGER.warn("Please provide path to output file");
+            return;
+        }
+        File output = new File(args.getOptionValues("output").get(0));
+
+        long begin = System.currentTimeMillis();
+        // always read the Jannovar cache, the snapshot may not exist yet
+        JannovarData jannovarData = new JannovarDataSerializer(jannovarDataFileProvider.getObject().toString()).load();
+        new TranscriptSnapshotWriter(jannovarData.getRefDict(), jannovarData.getTmByAccession().values()).write(output);
+        LOGGER.info("Packed transcripts into '{}' in {} seconds", output.getAbsolutePath(),
+                (System.currentTimeMillis() - begin) / 1000);
+    }
+}
@@ -0,0 +1,220 @@
+package org.monarchinitiative.splicing.scan;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.monarchinitiative.splicing.calculate.SpliceSiteScanner;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.NumberFormatter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Scan chunks of the reference genome for splice sites and format the sites into lines of the output TSV file.
+ * <p>
+ * Sequence of the chunk is fetched together with <code>maxSiteLength - 1</code> bases following the chunk, therefore
+ * the sites starting near the end of the chunk are scored as well and each site is reported by exactly one chunk.
+ * <p>
+ * Instances are thread safe, if the {@link GenomeSequenceAccessor} is thread safe.
+ */
+final class RegionScanner {
+
+    static final String[] HEADER = {"CHR", "BEGIN", "END", "STRAND", "SITE", "SCORE"};
+
+    private static final byte D = '\t';
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DONOR = "DONOR".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ACCEPTOR = "ACCEPTOR".getBytes(StandardCharsets.US_ASCII);
+
+    private final GenomeSequenceAccessor sequenceAccessor;
+
+    private final SpliceSiteScanner scanner;
+
+    private final int donorLength, acceptorLength;
+
+
+    RegionScanner(GenomeSequenceAccessor sequenceAccessor, SpliceSiteScanner scanner) {
+        this.sequenceAccessor = sequenceAccessor;
+        this.scanner = scanner;
+        this.donorLength = scanner.getSiteLength(SpliceSiteScanner.SiteType.DONOR);
+        this.acceptorLength = scanner.getSiteLength(SpliceSiteScanner.SiteType.ACCEPTOR);
+    }
+
+
+    static byte[] makeHeader() {
+        return ("#" + String.join("\t", HEADER) + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * Scan the sites starting within the <code>chunk</code>.
+     *
+     * @param chunk {@link Chunk} to be scanned
+     * @return {@link ScannedChunk} with lines of the sites ordered by position
+     */
+    ScannedChunk scan(Chunk chunk) {
+        long start = System.nanoTime();
+        int contigLength = sequenceAccessor.getContigLength(chunk.contig);
+        int fetchEnd = chunk.end + scanner.getMaxSiteLength() - 1;
+        if (contigLength >= 0)
+            fetchEnd = Math.min(fetchEnd, contigLength);
+
+        byte[] bases = sequenceAccessor.fetchBases(chunk.contig, chunk.begin, fetchEnd);
+        if (bases == null && fetchEnd > chunk.end)
+            // length of the contig is not known, the chunk might be at the end of the contig
+            bases = sequenceAccessor.fetchBases(chunk.contig, chunk.begin, chunk.end);
+        if (bases == null)
+            return new ScannedChunk(chunk, new byte[0], 0, 0, false, System.nanoTime() - start);
+
+        SiteFormatter formatter = new SiteFormatter(chunk);
+        int sites = scanner.scan(bases, 0, chunk.end - chunk.begin, formatter);
+        return new ScannedChunk(chunk, formatter.buffer, formatter.pos, sites, true, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Part of a contig, 0-based half-open coordinates on the forward strand.
+     */
+    static final class Chunk {
+
+        private final String contig;
+
+        private final int begin;
+
+        private final int end;
+
+        Chunk(String contig, int begin, int end) {
+            this.contig = contig;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        String getContig() {
+            return contig;
+        }
+
+        int getBegin() {
+            return begin;
+        }
+
+        int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return contig + ":" + begin + "-" + end;
+        }
+    }
+
+
+    /**
+     * Formatted lines of the sites found in a chunk together with the chunk statistics.
+     */
+    static final class ScannedChunk {
+
+        private final Chunk chunk;
+
+        private final byte[] lines;
+
+        private final int length;
+
+        private final int sites;
+
+        private final boolean available;
+
+        private final long scanningNanos;
+
+        ScannedChunk(Chunk chunk, byte[] lines, int length, int sites, boolean available, long scanningNanos) {
+            this.chunk = chunk;
+            this.lines = lines;
+            this.length = length;
+            this.sites = sites;
+            this.available = available;
+            this.scanningNanos = scanningNanos;
+        }
+
+        Chunk getChunk() {
+            return chunk;
+        }
+
+        /**
+         * @return array with the lines in the first {@link #getLength()} bytes, each line is terminated by line
+         * separator
+         */
+        byte[] getLines() {
+            return lines;
+        }
+
+        int getLength() {
+            return length;
+        }
+
+        int getSites() {
+            return sites;
+        }
+
+        /**
+         * @return <code>false</code> if sequence of the chunk is not present in the reference genome
+         */
+        boolean isAvailable() {
+            return available;
+        }
+
+        long getScanningNanos() {
+            return scanningNanos;
+        }
+    }
+
+
+    /**
+     * Formats the sites of a single chunk into a growing byte array.
+     */
+    private final class SiteFormatter implements SpliceSiteScanner.SiteConsumer {
+
+        private final byte[] contig;
+
+        private final int offset;
+
+        private final int maxLineLength;
+
+        private byte[] buffer = new byte[8192];
+
+        private int pos;
+
+        private SiteFormatter(Chunk chunk) {
+            this.contig = chunk.contig.getBytes(StandardCharsets.UTF_8);
+            this.offset = chunk.begin;
+            this.maxLineLength = contig.length + 2 * NumberFormatter.MAX_LONG_LENGTH + NumberFormatter.MAX_DOUBLE_LENGTH
+                    + ACCEPTOR.length + 6 + LINE_SEPARATOR.length;
+        }
+
+        private void write(byte[] bytes) {
+            System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        @Override
+        public void accept(int position, SpliceSiteScanner.SiteType type, Strand strand, double score) {
+            if (buffer.length - pos < maxLineLength)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+            boolean donor = type == SpliceSiteScanner.SiteType.DONOR;
+            long begin = (long) offset + position;
+            write(contig); // chromosome
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(begin, buffer, pos); // begin (FWD)
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatLong(begin + (donor ? donorLength : acceptorLength), buffer, pos); // end (FWD)
+            buffer[pos++] = D;
+            buffer[pos++] = (byte) (strand.isForward() ? '+' : '-');
+            buffer[pos++] = D;
+            write(donor ? DONOR : ACCEPTOR);
+            buffer[pos++] = D;
+            pos = NumberFormatter.formatDouble(score, buffer, pos);
+            write(LINE_SEPARATOR);
+        }
+    }
+}
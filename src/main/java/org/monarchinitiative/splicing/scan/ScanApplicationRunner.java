@@ -0,0 +1,247 @@
+package org.monarchinitiative.splicing.scan;
+
+import org.monarchinitiative.splicing.CommandLineArguments;
+import org.monarchinitiative.splicing.calculate.SpliceSiteScanner;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.concurrent.OrderedBatchExecutor;
+import org.monarchinitiative.splicing.io.BgzfOutputStream;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Score every position of the reference genome, or of the given regions, as a potential splice donor and acceptor site
+ * on both strands and write the sites with score above the threshold.
+ * <p>
+ * The regions are split into chunks of {@link #CHUNK_SIZE} bases, the chunks are scanned on <code>--threads</code>
+ * worker threads and written in the order of the regions, sites of each chunk ordered by position.
+ */
+@Component
+public class ScanApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanApplicationRunner.class);
+
+    /**
+     * Number of positions scanned by a single task.
+     */
+    static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Sites with score at least this value are reported, unless set by <code>--threshold</code> option.
+     */
+    private static final double DEFAULT_THRESHOLD = 6.;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    private final ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider;
+
+    private final ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider;
+
+
+    /**
+     * The resources are loaded only if the command is run.
+     */
+    public ScanApplicationRunner(ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider,
+                                 ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider) {
+        this.sequenceAccessorProvider = sequenceAccessorProvider;
+        this.splicingInformationContentAnnotatorProvider = splicingInformationContentAnnotatorProvider;
+    }
+
+
+    /**
+     * Parse region in format <code>chr7</code> (whole contig) or <code>chr7:39606001-39612480</code> (1-based,
+     * inclusive coordinates, as used by samtools and tabix).
+     *
+     * @return {@link RegionScanner.Chunk} with 0-based half-open coordinates of the region
+     * @throws IllegalArgumentException if the region is not valid or if the contig is not present in the reference
+     *                                  genome
+     */
+    static RegionScanner.Chunk parseRegion(String region, GenomeSequenceAccessor sequenceAccessor) {
+        int colon = region.lastIndexOf(':');
+        String contig = colon < 0 ? region : region.substring(0, colon);
+        int length = sequenceAccessor.getContigLength(contig);
+
+        int begin, end;
+        if (colon < 0) {
+            if (length < 0)
+                throw new IllegalArgumentException(String.format("Unknown length of contig '%s'", contig));
+            begin = 0;
+            end = length;
+        } else {
+            String[] coordinates = region.substring(colon + 1).replace(",", "").split("-");
+            if (coordinates.length != 2)
+                throw new IllegalArgumentException(String.format("Invalid region '%s'", region));
+            begin = Integer.parseInt(coordinates[0]) - 1;
+            end = Integer.parseInt(coordinates[1]);
+            if (length >= 0)
+                end = Math.min(end, length);
+        }
+        if (begin < 0 || begin > end)
+            throw new IllegalArgumentException(String.format("Invalid region '%s'", region));
+        return new RegionScanner.Chunk(contig, begin, end);
+    }
+
+
+    /**
+     * @return {@link Iterator} over chunks of at most {@link #CHUNK_SIZE} bases covering the <code>regions</code>
+     */
+    static Iterator<RegionScanner.Chunk> splitIntoChunks(List<RegionScanner.Chunk> regions, int chunkSize) {
+        return new Iterator<RegionScanner.Chunk>() {
+
+            private int region;
+
+            private int begin = regions.isEmpty() ? 0 : regions.get(0).getBegin();
+
+            @Override
+            public boolean hasNext() {
+                // skip empty regions
+                while (region < regions.size() && begin >= regions.get(region).getEnd()) {
+                    region++;
+                    if (region < regions.size())
+                        begin = regions.get(region).getBegin();
+                }
+                return region < regions.size();
+            }
+
+            @Override
+            public RegionScanner.Chunk next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                RegionScanner.Chunk current = regions.get(region);
+                int end = (int) Math.min((long) begin + chunkSize, current.getEnd());
+                RegionScanner.Chunk chunk = new RegionScanner.Chunk(current.getContig(), begin, end);
+                begin = end;
+                return chunk;
+            }
+        };
+    }
+
+
+    private static OutputStream openOutput(File output, int threads) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(output), OUTPUT_BUFFER_SIZE);
+        // BGZF is a valid gzip file and it is compressed on multiple threads
+        return output.getName().endsWith(".gz") ? new BgzfOutputStream(os, threads) : os;
+    }
+
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
+     * scan --output=hg38.sites.tsv.gz --threshold=6 --threads=8</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("scan")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        try {
+            if (!args.containsOption("output")) {
+                LOGGER.warn("Please provide path to output file");
+                return;
+            }
+            File output = new File(args.getOptionValues("output").get(0));
+            double threshold = args.containsOption("threshold")
+                    ? Double.parseDouble(args.getOptionValues("threshold").get(0))
+                    : DEFAULT_THRESHOLD;
+            int threads = CommandLineArguments.getThreads(args);
+            GenomeSequenceAccessor sequenceAccessor = sequenceAccessorProvider.getObject();
+
+            List<RegionScanner.Chunk> regions = new ArrayList<>();
+            if (args.containsOption("region")) {
+                for (String region : args.getOptionValues("region")) {
+                    regions.add(parseRegion(region, sequenceAccessor));
+                }
+            } else {
+                for (String contig : sequenceAccessor.getContigNames()) {
+                    regions.add(new RegionScanner.Chunk(contig, 0, sequenceAccessor.getContigLength(contig)));
+                }
+            }
+            if (regions.isEmpty()) {
+                LOGGER.warn("No regions to scan, please provide the regions by --region option");
+                return;
+            }
+
+            LOGGER.info("Scanning {} regions for sites with score at least {}", regions.size(), threshold);
+            LOGGER.info("Writing results to '{}'", output.getAbsolutePath());
+            RegionScanner scanner = new RegionScanner(sequenceAccessor,
+                    new SpliceSiteScanner(splicingInformationContentAnnotatorProvider.getObject(), threshold));
+            try (OutputStream os = openOutput(output, threads)) {
+                os.write(RegionScanner.makeHeader());
+                ChunkCounter counter = new ChunkCounter(os);
+                Iterator<RegionScanner.Chunk> chunks = splitIntoChunks(regions, CHUNK_SIZE);
+                if (threads == 1) {
+                    chunks.forEachRemaining(chunk -> counter.accept(scanner.scan(chunk)));
+                } else {
+                    LOGGER.info("Scanning chunks using {} worker threads", threads);
+                    try (OrderedBatchExecutor executor = new OrderedBatchExecutor(threads, 1)) {
+                        executor.process(chunks, scanner::scan, counter::accept);
+                    }
+                }
+                counter.logTotals();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception: ", e);
+        }
+    }
+
+
+    /**
+     * Writes the scanned chunks and keeps track of the throughput.
+     */
+    private static final class ChunkCounter {
+
+        private final OutputStream os;
+
+        private final long start = System.nanoTime();
+
+        private long positions;
+
+        private long sites;
+
+        private String contig;
+
+        private ChunkCounter(OutputStream os) {
+            this.os = os;
+        }
+
+        private void accept(RegionScanner.ScannedChunk scanned) {
+            try {
+                os.write(scanned.getLines(), 0, scanned.getLength());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            RegionScanner.Chunk chunk = scanned.getChunk();
+            if (!chunk.getContig().equals(contig)) {
+                contig = chunk.getContig();
+                LOGGER.info("Scanning contig '{}'", contig);
+            }
+            if (!scanned.isAvailable())
+                LOGGER.warn("Sequence of region {} is not available", chunk);
+            positions += chunk.getEnd() - chunk.getBegin();
+            sites += scanned.getSites();
+            LOGGER.debug("Scanned {} in {} ms, found {} sites", chunk,
+                    TimeUnit.NANOSECONDS.toMillis(scanned.getScanningNanos()), scanned.getSites());
+        }
+
+        private void logTotals() {
+            long elapsed = System.nanoTime() - start;
+            LOGGER.info("Scanned {} positions in {} s ({} positions/s), found {} sites", positions,
+                    TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                    String.format("%.0f", elapsed == 0 ? 0. : positions * 1E9 / elapsed), sites);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.monarchinitiative.splicing.serve;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies of the requests and calculates percentiles of the most recent {@link #WINDOW} latencies. The
+ * latencies are kept in a ring buffer, therefore recording is cheap and the percentiles are exact within the window.
+ * The maximum latency is tracked over all recorded latencies.
+ * <p>
+ * Instances are thread safe.
+ */
+final class LatencyRecorder {
+
+    /**
+     * Number of the most recent latencies used to calculate the percentiles.
+     */
+    static final int WINDOW = 8192;
+
+    private final long[] latencies = new long[WINDOW];
+
+    private long count;
+
+    private long max;
+
+
+    /**
+     * @param nanos latency of a request in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        latencies[(int) (count % WINDOW)] = nanos;
+        count++;
+        max = Math.max(max, nanos);
+    }
+
+
+    /**
+     * @return total number of the recorded latencies
+     */
+    synchronized long getCount() {
+        return count;
+    }
+
+
+    /**
+     * @return maximum of all recorded latencies in nanoseconds, zero if no latency has been recorded
+     */
+    synchronized long getMax() {
+        return max;
+    }
+
+
+    /**
+     * @param percentiles percentiles to calculate, values from <code>(0, 100]</code>
+     * @return latencies in nanoseconds at the <code>percentiles</code> of the recent latencies (nearest-rank method),
+     * zeros if no latency has been recorded
+     */
+    long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, (int) Math.min(count, WINDOW));
+        }
+        Arrays.sort(sorted);
+
+        long[] result = new long[percentiles.length];
+        if (sorted.length == 0)
+            return result;
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100. * sorted.length);
+            result[i] = sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,175 @@
+package org.monarchinitiative.splicing.serve;
+
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.monarchinitiative.splicing.analyze_selected_exons.SelectedExonScorer;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.calculate.TranscriptScorer;
+import org.monarchinitiative.splicing.io.ResultsWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Answers the scoring queries of the server. The queries are answered using the transcripts, reference genome and
+ * splice site definitions that are loaded once, when the server starts.
+ * <p>
+ * Three kinds of queries are supported, the query arguments are separated by tabs in the batch queries:
+ * <ul>
+ * <li><code>transcript ACCESSION</code> - lines of the transcript in the same format as written by
+ * {@link ResultsWriter}</li>
+ * <li><code>exon CHR STRAND BEGIN END</code> - donor and acceptor score of the exon, the coordinates are 0-based on
+ * the forward strand, as in the <code>analyze_selected_exons</code> command</li>
+ * <li><code>donor SEQUENCE</code>, <code>acceptor SEQUENCE</code> - score of the raw site sequence</li>
+ * </ul>
+ * Instances are thread safe.
+ */
+final class ScoringService {
+
+    private final JannovarData jannovarData;
+
+    private final TranscriptScorer transcriptScorer;
+
+    private final SelectedExonScorer exonScorer;
+
+    private final SplicingInformationContentAnnotator annotator;
+
+
+    ScoringService(JannovarData jannovarData, TranscriptScorer transcriptScorer, SelectedExonScorer exonScorer,
+                   SplicingInformationContentAnnotator annotator) {
+        this.jannovarData = jannovarData;
+        this.transcriptScorer = transcriptScorer;
+        this.exonScorer = exonScorer;
+        this.annotator = annotator;
+    }
+
+
+    private static Strand parseStrand(String strand) {
+        switch (strand) {
+            case "+":
+                return Strand.FWD;
+            case "-":
+                return Strand.REV;
+            default:
+                throw new IllegalArgumentException(String.format("Invalid strand '%s'", strand));
+        }
+    }
+
+
+    private static int parseCoordinate(String coordinate) {
+        try {
+            return Integer.parseInt(coordinate);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate '%s'", coordinate));
+        }
+    }
+
+
+    /**
+     * @return lines of the scored transcript including the header, as written by {@link ResultsWriter}
+     * @throws NoSuchElementException if there is no transcript with the <code>accession</code>
+     */
+    String scoreTranscript(String accession) {
+        TranscriptModel tm = jannovarData.getTmByAccession().get(accession);
+        if (tm == null)
+            throw new NoSuchElementException(String.format("Unknown transcript '%s'", accession));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream(1024);
+        new ResultsWriter(os).write(transcriptScorer.scoreTranscriptModel().apply(tm));
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * @return line with donor and acceptor score of the exon separated by tab
+     */
+    String scoreExon(String contig, String strand, String begin, String end) {
+        double[] scores = exonScorer.scoreExon(contig, parseStrand(strand), parseCoordinate(begin), parseCoordinate(end));
+        return scores[0] + "\t" + scores[1] + System.lineSeparator();
+    }
+
+
+    /**
+     * @param site <code>donor</code> or <code>acceptor</code>
+     * @return line with the score of the <code>sequence</code>
+     */
+    String scoreSequence(String site, String sequence) {
+        double score;
+        switch (site) {
+            case "donor":
+                score = annotator.getSpliceDonorScore(sequence);
+                break;
+            case "acceptor":
+                score = annotator.getSpliceAcceptorScore(sequence);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Invalid site '%s', expected 'donor' or 'acceptor'", site));
+        }
+        return score + System.lineSeparator();
+    }
+
+
+    /**
+     * Answer a single query, the arguments of the query are separated by tabs.
+     */
+    private String answer(String query) {
+        String[] fields = query.split("\t");
+        switch (fields[0]) {
+            case "transcript":
+                if (fields.length == 2) {
+                    String lines = scoreTranscript(fields[1]);
+                    // skip the header
+                    return lines.substring(lines.indexOf('\n') + 1);
+                }
+                break;
+            case "exon":
+                if (fields.length == 5)
+                    return scoreExon(fields[1], fields[2], fields[3], fields[4]);
+                break;
+            case "donor":
+            case "acceptor":
+                if (fields.length == 2)
+                    return scoreSequence(fields[0], fields[1]);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown query '%s'", fields[0]));
+        }
+        throw new IllegalArgumentException(String.format("Invalid number of arguments of query '%s'", query));
+    }
+
+
+    /**
+     * Answer the batch of queries, one query per line. Each line of the answer starts with the 1-based number of the
+     * query followed by tab. A query that cannot be answered yields a single line with <code>ERROR</code> and the
+     * reason, the remaining queries are answered regardless.
+     *
+     * @param queries queries of the batch, empty lines are skipped
+     * @return lines with answers to all queries
+     */
+    String scoreBatch(List<String> queries) {
+        StringBuilder answer = new StringBuilder(queries.size() * 64);
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i);
+            if (query.isEmpty())
+                continue;
+            String lines;
+            try {
+                lines = answer(query);
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                lines = "ERROR\t" + e.getMessage() + System.lineSeparator();
+            }
+            int from = 0;
+            while (from < lines.length()) {
+                int to = lines.indexOf('\n', from) + 1;
+                if (to == 0)
+                    to = lines.length();
+                answer.append(i + 1).append('\t').append(lines, from, to);
+                from = to;
+            }
+        }
+        return answer.toString();
+    }
+}
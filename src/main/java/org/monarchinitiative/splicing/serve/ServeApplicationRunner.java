@@ -0,0 +1,233 @@
+package org.monarchinitiative.splicing.serve;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.charite.compbio.jannovar.data.JannovarData;
+import org.monarchinitiative.splicing.CommandLineArguments;
+import org.monarchinitiative.splicing.analyze_selected_exons.SelectedExonScorer;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.calculate.TranscriptScorer;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keep the transcripts, reference genome and splice site definitions loaded and answer scoring queries over local HTTP
+ * endpoint. The queries are answered concurrently on <code>--threads</code> worker threads (all available processors
+ * by default). Endpoints:
+ * <ul>
+ * <li><code>GET /transcript?accession=NM_020192.3</code></li>
+ * <li><code>GET /exon?chr=chr7&amp;strand=%2B&amp;begin=39610104&amp;end=39610226</code> - strand <code>+</code> must be URL-encoded</li>
+ * <li><code>GET /sequence?site=donor&amp;seq=CAGGTAAGT</code></li>
+ * <li><code>POST /batch</code> - one query per line of the request body, see {@link ScoringService#scoreBatch(List)}</li>
+ * <li><code>GET /stats</code> - number of requests and latency percentiles of each endpoint</li>
+ * </ul>
+ * The server runs until the app is terminated.
+ */
+@Component
+public class ServeApplicationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServeApplicationRunner.class);
+
+    private static final int DEFAULT_PORT = 8080;
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ObjectProvider<JannovarData> jannovarDataProvider;
+
+    private final ObjectProvider<TranscriptScorer> transcriptScorerProvider;
+
+    private final ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider;
+
+    private final ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider;
+
+    /**
+     * Latencies of the endpoints, in the order of registration.
+     */
+    private final Map<String, LatencyRecorder> latencies = new LinkedHashMap<>();
+
+
+    /**
+     * The resources are loaded only if the command is run.
+     */
+    public ServeApplicationRunner(ObjectProvider<JannovarData> jannovarDataProvider,
+                                  ObjectProvider<TranscriptScorer> transcriptScorerProvider,
+                                  ObjectProvider<GenomeSequenceAccessor> sequenceAccessorProvider,
+                                  ObjectProvider<SplicingInformationContentAnnotator> splicingInformationContentAnnotatorProvider) {
+        this.jannovarDataProvider = jannovarDataProvider;
+        this.transcriptScorerProvider = transcriptScorerProvider;
+        this.sequenceAccessorProvider = sequenceAccessorProvider;
+        this.splicingInformationContentAnnotatorProvider = splicingInformationContentAnnotatorProvider;
+    }
+
+
+    /**
+     * @return decoded parameters of the request URI query
+     */
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty())
+            return params;
+        try {
+            for (String param : rawQuery.split("&")) {
+                int eq = param.indexOf('=');
+                if (eq > 0)
+                    params.put(URLDecoder.decode(param.substring(0, eq), "UTF-8"), URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); // UTF-8 is always supported
+        }
+        return params;
+    }
+
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null)
+            throw new IllegalArgumentException(String.format("Missing parameter '%s'", name));
+        return value;
+    }
+
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+
+    /**
+     * Run this code using <code>java -jar target/SplicingCalculator-1.0.2.jar --spring.config.location=src/main/resources/application.properties
+     * serve --port=8080 --threads=8</code>
+     *
+     * @param args application args
+     * @throws Exception if troubles
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.getNonOptionArgs().contains("serve")) { // this runner is run only if cmdline contains this token
+            return;
+        }
+
+        int port = args.containsOption("port") ? Integer.parseInt(args.getOptionValues("port").get(0)) : DEFAULT_PORT;
+        int threads = args.containsOption("threads")
+                ? CommandLineArguments.getThreads(args)
+                : Runtime.getRuntime().availableProcessors();
+
+        JannovarData transcripts = jannovarDataProvider.getObject();
+        SplicingInformationContentAnnotator annotator = splicingInformationContentAnnotatorProvider.getObject();
+        ScoringService service = new ScoringService(transcripts, transcriptScorerProvider.getObject(),
+                new SelectedExonScorer(sequenceAccessorProvider.getObject(), annotator), annotator);
+        // listen on the loopback interface only
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        register(server, "/transcript", "GET", exchange -> service.scoreTranscript(require(parseQuery(exchange.getRequestURI().getRawQuery()), "accession")));
+        register(server, "/exon", "GET", exchange -> {
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            return service.scoreExon(require(params, "chr"), require(params, "strand"), require(params, "begin"), require(params, "end"));
+        });
+        register(server, "/sequence", "GET", exchange -> {
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            return service.scoreSequence(require(params, "site"), require(params, "seq"));
+        });
+        register(server, "/batch", "POST", exchange -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                return service.scoreBatch(reader.lines().collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        server.createContext("/stats", exchange -> respond(exchange, 200, makeStats()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("splicing-server-%d")
+                .build());
+        server.setExecutor(executor);
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LOGGER.info("Stopping the server");
+            server.stop(1);
+            executor.shutdown();
+            stopped.countDown();
+        }));
+        server.start();
+        LOGGER.info("Serving {} transcripts at http://localhost:{}/ using {} threads", transcripts.getTmByAccession().size(),
+                server.getAddress().getPort(), threads);
+        stopped.await();
+    }
+
+
+    /**
+     * Register handler of the endpoint. The answer is sent with status <code>200</code>, <code>400</code> if the
+     * request is not valid, <code>404</code> if the requested item is not found, and <code>500</code> if the request
+     * cannot be answered. Latencies of the successful requests are recorded.
+     */
+    private void register(HttpServer server, String path, String method, Function<HttpExchange, String> handler) {
+        LatencyRecorder recorder = new LatencyRecorder();
+        latencies.put(path, recorder);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    respond(exchange, 405, String.format("Use %s method%n", method));
+                    return;
+                }
+                String answer;
+                try {
+                    answer = handler.apply(exchange);
+                } catch (IllegalArgumentException e) {
+                    respond(exchange, 400, e.getMessage() + System.lineSeparator());
+                    return;
+                } catch (NoSuchElementException e) {
+                    respond(exchange, 404, e.getMessage() + System.lineSeparator());
+                    return;
+                }
+                respond(exchange, 200, answer);
+                recorder.record(System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error answering request '{}'", exchange.getRequestURI(), e);
+                respond(exchange, 500, "Internal error" + System.lineSeparator());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+
+    /**
+     * @return TSV table with number of answered requests, latency percentiles of the recent requests and maximum latency
+     * of all requests of each endpoint in milliseconds
+     */
+    private String makeStats() {
+        StringBuilder stats = new StringBuilder("#ENDPOINT\tCOUNT\tP50_MS\tP90_MS\tP99_MS\tMAX_MS").append(System.lineSeparator());
+        for (Map.Entry<String, LatencyRecorder> entry : latencies.entrySet()) {
+            stats.append(entry.getKey()).append('\t').append(entry.getValue().getCount());
+            for (long nanos : entry.getValue().percentiles(PERCENTILES)) {
+                stats.append('\t').append(String.format(Locale.ROOT, "%.3f", nanos / 1E6));
+            }
+            // the percentiles are calculated from the recent requests, the maximum from all requests
+            stats.append('\t').append(String.format(Locale.ROOT, "%.3f", entry.getValue().getMax() / 1E6));
+            stats.append(System.lineSeparator());
+        }
+        return stats.toString();
+    }
+}
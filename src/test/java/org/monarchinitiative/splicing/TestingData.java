@@ -3,9 +3,14 @@ package org.monarchinitiative.splicing;
 import de.charite.compbio.jannovar.data.ReferenceDictionary;
 import de.charite.compbio.jannovar.reference.*;
 import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.PositionalWeightMatrixParser;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 /**
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
@@ -16,6 +21,104 @@ public class TestingData {
 
     private static ReferenceDictionary RD = HG19RefDictBuilder.build();
 
+    /**
+     * 0-based begin positions of the sequences of the <em>YAE1</em> and <em>GJB2</em> genes on {@link Strand#FWD}.
+     */
+    public static final int YAE1_BEGIN = 39606002, GJB2_BEGIN = 20761601;
+
+
+    /**
+     * Path to the splice site definitions used by the tests.
+     */
+    private static final String SPLICE_SITES = "/org/monarchinitiative/splicing/calculate/spliceSites.yaml";
+
+
+    /**
+     * @return parser of the splice site definitions used by the tests
+     */
+    public static PositionalWeightMatrixParser getSpliceSitesParser() throws IOException {
+        try (InputStream is = TestingData.class.getResourceAsStream(SPLICE_SITES)) {
+            return new PositionalWeightMatrixParser(is);
+        }
+    }
+
+
+    /**
+     * @return annotator with the information content of the splice sites used by the tests
+     */
+    public static SplicingInformationContentAnnotator getInformationContentAnnotator() throws IOException {
+        PositionalWeightMatrixParser parser = getSpliceSitesParser();
+        return new SplicingInformationContentAnnotator(parser.getDonorFrequencies(), parser.getAcceptorFrequencies());
+    }
+
+
+    /**
+     * @return {@link GenomeSequenceAccessor} serving the sequences of <em>YAE1</em> (chr7:39606002-39612480) and
+     * <em>GJB2</em> (chr13:20761601-20767114) genes. The contigs end with the genes, other regions are not available.
+     * Contig names are accepted with or without the <code>'chr'</code> prefix
+     */
+    public static GenomeSequenceAccessor getGenomeSequenceAccessor() {
+        Map<String, Integer> contigLengths = new HashMap<>();
+        contigLengths.put("chr7", YAE1_BEGIN + getYAE1Seq().length());
+        contigLengths.put("chr13", GJB2_BEGIN + GJB2Seq().length());
+        return getGenomeSequenceAccessor(contigLengths);
+    }
+
+
+    /**
+     * @param contigLengths names of the contigs (with the <code>'chr'</code> prefix) mapped to their lengths
+     * @return {@link GenomeSequenceAccessor} with the <code>contigLengths</code> serving the sequences of
+     * <em>YAE1</em> and <em>GJB2</em> genes, if chr7 and chr13 are among the contigs, other regions are not available
+     */
+    public static GenomeSequenceAccessor getGenomeSequenceAccessor(Map<String, Integer> contigLengths) {
+        return new GenomeSequenceAccessor() {
+            @Override
+            public byte[] fetchBases(String chr, int start, int end) {
+                String sequence = sequence(chr);
+                int begin = begin(chr);
+                if (sequence == null || start < begin || end > begin + sequence.length())
+                    return null;
+                return sequence.substring(start - begin, end - begin).getBytes(StandardCharsets.US_ASCII);
+            }
+
+            @Override
+            public Set<String> getContigNames() {
+                return new HashSet<>(contigLengths.keySet());
+            }
+
+            @Override
+            public int getContigLength(String chr) {
+                return contigLengths.getOrDefault(contig(chr), -1);
+            }
+
+            private String contig(String chr) {
+                return chr.startsWith("chr") ? chr : "chr" + chr;
+            }
+
+            private String sequence(String chr) {
+                if (!contigLengths.containsKey(contig(chr)))
+                    return null;
+                switch (contig(chr)) {
+                    case "chr7":
+                        return getYAE1Seq();
+                    case "chr13":
+                        return GJB2Seq();
+                    default:
+                        return null;
+                }
+            }
+
+            private int begin(String chr) {
+                return contig(chr).equals("chr7") ? YAE1_BEGIN : GJB2_BEGIN;
+            }
+
+            @Override
+            public void close() {
+                // no-op
+            }
+        };
+    }
+
 
     public static ScoredTranscriptModel singleExonScoredTranscriptModel() {
         return new ScoredTranscriptModel(getSingleExonTranscriptModel(), Collections.singletonList(Double.NaN), Collections.singletonList(Double.NaN));
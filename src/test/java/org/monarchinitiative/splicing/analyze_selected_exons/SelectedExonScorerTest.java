@@ -0,0 +1,50 @@
+package org.monarchinitiative.splicing.analyze_selected_exons;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SelectedExonScorerTest {
+
+    private static SplicingInformationContentAnnotator IC_ANNOTATOR;
+
+    private static final GenomeSequenceAccessor ACCESSOR = TestingData.getGenomeSequenceAccessor();
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        IC_ANNOTATOR = TestingData.getInformationContentAnnotator();
+    }
+
+
+    @Test
+    public void scoreExonsOnBothStrands() {
+        SelectedExonScorer.ScoredBatch batch = new SelectedExonScorer(ACCESSOR, IC_ANNOTATOR).scoreBatch(Arrays.asList(
+                "1\tYAE1\tNM_020192.3\tchr7\t+\t39610104\t39610226",  // middle exon of YAE1
+                "2\tGJB2\tNM_004004.5\tchr13\t-\t20766921\t20767114\textra",  // the first exon of GJB2
+                "3\tGJB2\tNM_004004.5\tchr13\t-\t20761601\t20763742")); // the last exon of GJB2
+
+        String n = System.lineSeparator();
+        assertThat(batch.getOutput(), is(
+                "1\tYAE1\tNM_020192.3\tchr7\t+\t39610104\t39610226\t8.566571105600822\t10.44145682272866" + n +
+                        "2\tGJB2\tNM_004004.5\tchr13\t-\t20766921\t20767114\textra\t10.33267367738815\tNaN" + n +
+                        "3\tGJB2\tNM_004004.5\tchr13\t-\t20761601\t20763742\tNaN\t10.293715220799694" + n));
+        assertThat(batch.getLines(), is(3));
+        // the sites beyond the ends of the genes are not available
+        assertThat(batch.getUnscoredSites(), is(2));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lineWithTooFewColumns() {
+        new SelectedExonScorer(ACCESSOR, IC_ANNOTATOR).scoreBatch(Collections.singletonList("1\tYAE1\tNM_020192.3\tchr7\t+\t39610104"));
+    }
+}
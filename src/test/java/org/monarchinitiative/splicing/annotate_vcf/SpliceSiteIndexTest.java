@@ -0,0 +1,63 @@
+package org.monarchinitiative.splicing.annotate_vcf;
+
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SpliceSiteIndexTest {
+
+    private final SpliceSiteIndex instance = SpliceSiteIndex.build(Arrays.asList(TestingData.getSingleExonTranscriptModel(),
+            TestingData.getTwoExonTranscriptModel(), TestingData.getThreeExonTranscriptModel()));
+
+
+    private static List<String> describe(List<SpliceSiteIndex.Site> sites) {
+        return sites.stream()
+                .map(s -> s.getBegin() + "-" + s.getEnd() + (s.isAcceptor() ? " ACCEPTOR " : " DONOR ")
+                        + (s.getStrand().isForward() ? "+ " : "- ") + s.getTranscripts())
+                .collect(Collectors.toList());
+    }
+
+
+    @Test
+    public void onlySitesScoredByTranscriptScorerAreIndexed() {
+        // the single-exon transcript has no sites, the two-exon transcript has 2 sites and the three-exon one has 4
+        assertThat(instance.size(), is(6));
+    }
+
+
+    @Test
+    public void findSitesOverlappingInterval() {
+        // donor site of the middle exon of YAE1
+        assertThat(describe(instance.overlapping("chr7", 39610223, 39610224)),
+                is(Arrays.asList("39610223-39610232 DONOR + NM_020192.3")));
+        assertThat(describe(instance.overlapping("7", 39610231, 39610240)),
+                is(Arrays.asList("39610223-39610232 DONOR + NM_020192.3")));
+        // acceptor site of the last exon of GJB2 on the reverse strand
+        assertThat(describe(instance.overlapping("chr13", 20763700, 20763741)),
+                is(Arrays.asList("20763740-20763767 ACCEPTOR - NM_004004.5")));
+    }
+
+
+    @Test
+    public void intervalsOutsideOfSitesAreSkipped() {
+        assertThat(instance.overlapping("chr7", 39610232, 39610240).isEmpty(), is(true));
+        assertThat(instance.overlapping("chr7", 39610200, 39610223).isEmpty(), is(true));
+        assertThat(instance.overlapping("chr6", 26017259, 26018040).isEmpty(), is(true));
+        assertThat(instance.overlapping("chrX", 0, Integer.MAX_VALUE).isEmpty(), is(true));
+    }
+
+
+    @Test
+    public void sitesSharedByTranscriptsAreStoredOnce() {
+        SpliceSiteIndex index = SpliceSiteIndex.build(Arrays.asList(TestingData.getThreeExonTranscriptModel(),
+                TestingData.getThreeExonTranscriptModel()));
+
+        assertThat(index.size(), is(4));
+    }
+}
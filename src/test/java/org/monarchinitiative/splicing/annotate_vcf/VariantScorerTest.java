@@ -0,0 +1,131 @@
+package org.monarchinitiative.splicing.annotate_vcf;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VariantScorerTest {
+
+    private static final int YAE1_BEGIN = TestingData.YAE1_BEGIN;
+
+    private static final int GJB2_BEGIN = TestingData.GJB2_BEGIN;
+
+    private static final GenomeSequenceAccessor ACCESSOR = TestingData.getGenomeSequenceAccessor();
+
+    private static final SpliceSiteIndex INDEX = SpliceSiteIndex.build(Arrays.asList(TestingData.getTwoExonTranscriptModel(),
+            TestingData.getThreeExonTranscriptModel()));
+
+    private static SplicingInformationContentAnnotator IC_ANNOTATOR;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        IC_ANNOTATOR = TestingData.getInformationContentAnnotator();
+    }
+
+
+    private static String yae1(int begin, int end) {
+        return TestingData.getYAE1Seq().substring(begin - YAE1_BEGIN, end - YAE1_BEGIN);
+    }
+
+
+    @Test
+    public void scoreSnvInDonorSite() {
+        VariantScorer instance = new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR);
+        // the donor site of the middle exon of YAE1 is chr7:39610223-39610232, 'G' of the 'GT' dinucleotide is at 39610226
+        String ref = yae1(39610226, 39610227);
+        VariantScorer.ScoredBatch batch = instance.scoreBatch(Arrays.asList(
+                "##fileformat=VCFv4.2",
+                "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO",
+                "7\t39610227\trs1\t" + ref + "\tA\t.\tPASS\t."));
+
+        double refScore = 8.566571105600822;
+        double altScore = IC_ANNOTATOR.getSpliceDonorScore(yae1(39610223, 39610226) + "A" + yae1(39610227, 39610232));
+        String n = System.lineSeparator();
+        assertThat(batch.getOutput(), is("7\t39610227\t" + ref + "\tA\tDONOR\t+\t39610223\t39610232\tNM_020192.3\t"
+                + refScore + "\t" + altScore + "\t" + (altScore - refScore) + n));
+        assertThat(batch.getVariants(), is(1));
+        assertThat(batch.getVariantsInSites(), is(1));
+    }
+
+
+    @Test
+    public void scoreMultipleAltAllelesInAcceptorSiteOnReverseStrand() {
+        VariantScorer instance = new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR);
+        // acceptor site of the last exon of GJB2 is chr13:20763740-20763767 on the reverse strand
+        String site = TestingData.GJB2Seq().substring(20763740 - GJB2_BEGIN, 20763767 - GJB2_BEGIN);
+        String ref = site.substring(1, 2);
+        VariantScorer.ScoredBatch batch = instance.scoreBatch(Collections.singletonList(
+                "chr13\t20763742\t.\t" + ref + "\tA,<DEL>,C\t.\tPASS\t."));
+
+        double refScore = IC_ANNOTATOR.getSpliceAcceptorScore(site.getBytes(StandardCharsets.US_ASCII), 0, Strand.REV);
+        double a = IC_ANNOTATOR.getSpliceAcceptorScore((site.charAt(0) + "A" + site.substring(2)).getBytes(StandardCharsets.US_ASCII), 0, Strand.REV);
+        double c = IC_ANNOTATOR.getSpliceAcceptorScore((site.charAt(0) + "C" + site.substring(2)).getBytes(StandardCharsets.US_ASCII), 0, Strand.REV);
+        String n = System.lineSeparator();
+        assertThat(refScore, is(10.293715220799694));
+        assertThat(batch.getOutput(), is(
+                "chr13\t20763742\t" + ref + "\tA\tACCEPTOR\t-\t20763740\t20763767\tNM_004004.5\t" + refScore + "\t" + a + "\t" + (a - refScore) + n +
+                        "chr13\t20763742\t" + ref + "\tC\tACCEPTOR\t-\t20763740\t20763767\tNM_004004.5\t" + refScore + "\t" + c + "\t" + (c - refScore) + n));
+    }
+
+
+    @Test
+    public void deletionIsPatchedIntoTheReferenceWindow() {
+        VariantScorer instance = new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR);
+        // delete 2 bases following the anchor base at 39610226, the site window is filled by the downstream bases
+        String ref = yae1(39610226, 39610229);
+        String alt = ref.substring(0, 1);
+        VariantScorer.ScoredBatch batch = instance.scoreBatch(Collections.singletonList(
+                "chr7\t39610227\t.\t" + ref + "\t" + alt + "\t.\tPASS\t."));
+
+        double altScore = IC_ANNOTATOR.getSpliceDonorScore(yae1(39610223, 39610227) + yae1(39610229, 39610234));
+        assertThat(batch.getOutput().split("\t")[10], is(String.valueOf(altScore)));
+    }
+
+
+    @Test
+    public void deletionStartingUpstreamOfSiteKeepsTheDownstreamBases() {
+        VariantScorer instance = new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR);
+        // delete 4 bases at 39610221-39610225, the variant ends within the donor site chr7:39610223-39610232
+        String ref = yae1(39610220, 39610225);
+        String alt = ref.substring(0, 1);
+        VariantScorer.ScoredBatch batch = instance.scoreBatch(Collections.singletonList(
+                "chr7\t39610221\t.\t" + ref + "\t" + alt + "\t.\tPASS\t."));
+
+        double altScore = IC_ANNOTATOR.getSpliceDonorScore(yae1(39610219, 39610221) + yae1(39610225, 39610232));
+        assertThat(batch.getOutput().split("\t")[10], is(String.valueOf(altScore)));
+    }
+
+
+    @Test
+    public void variantsOutsideOfSitesAndMismatchesAreSkipped() {
+        VariantScorer instance = new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR);
+        String ref = yae1(39610226, 39610227);
+        String wrongRef = ref.equals("A") ? "C" : "A";
+        VariantScorer.ScoredBatch batch = instance.scoreBatch(Arrays.asList(
+                "chr7\t39610000\t.\tA\tC\t.\tPASS\t.", // intronic
+                "chr7\t39610227\t.\t" + wrongRef + "\tT\t.\tPASS\t.", // REF does not match the genome
+                "chr8\t39610227\t.\tA\tT")); // other contig
+
+        assertThat(batch.getOutput(), is(""));
+        assertThat(batch.getVariants(), is(3));
+        assertThat(batch.getVariantsInSites(), is(1));
+        assertThat(batch.getRefMismatches(), is(1));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lineWithTooFewColumns() {
+        new VariantScorer(INDEX, ACCESSOR, IC_ANNOTATOR).scoreBatch(Collections.singletonList("chr7\t39610227\t.\tA"));
+    }
+}
@@ -0,0 +1,41 @@
+package org.monarchinitiative.splicing.calculate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    @Test
+    public void checkpointIsStoredNextToOutputFile() {
+        assertThat(Checkpoint.fileFor(new File("/data/hg38_out.tsv.bgz")), is(new File("/data/hg38_out.tsv.bgz.checkpoint")));
+    }
+
+
+    @Test
+    public void writeAndReadCheckpoint() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "out.tsv.checkpoint");
+        assertThat(Checkpoint.read(file), is(nullValue()));
+
+        new Checkpoint(10000, 1234567890123L, true, 200000).write(file);
+        new Checkpoint(20000, 2345678901234L, true, 200000).write(file);
+
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertThat(checkpoint.getTranscripts(), is(20000));
+        assertThat(checkpoint.getLength(), is(2345678901234L));
+        assertThat(checkpoint.isByContig(), is(true));
+        assertThat(checkpoint.getTotal(), is(200000));
+        // the temporary file replaced the checkpoint
+        assertThat(temporaryFolder.getRoot().list().length, is(1));
+    }
+}
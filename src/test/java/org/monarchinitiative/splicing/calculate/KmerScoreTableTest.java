@@ -0,0 +1,112 @@
+package org.monarchinitiative.splicing.calculate;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class KmerScoreTableTest {
+
+    private static final byte[] NUCLEOTIDES = "ACGT".getBytes(StandardCharsets.US_ASCII);
+
+    private static InformationContentTable DONOR_TABLE, ACCEPTOR_TABLE;
+
+    private static KmerScoreTable DONOR_KMERS, ACCEPTOR_KMERS;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        SplicingInformationContentAnnotator annotator = TestingData.getInformationContentAnnotator();
+        DONOR_TABLE = annotator.getDonorTable();
+        ACCEPTOR_TABLE = annotator.getAcceptorTable();
+        DONOR_KMERS = new KmerScoreTable(DONOR_TABLE);
+        ACCEPTOR_KMERS = new KmerScoreTable(ACCEPTOR_TABLE);
+    }
+
+
+    /**
+     * Compare bits of the scores, so that even the rounding errors of the sums must be the same.
+     */
+    private static void assertSameScores(KmerScoreTable kmers, InformationContentTable table, byte[] bases, int offset) {
+        assertThat(Double.doubleToLongBits(kmers.score(bases, offset)), is(Double.doubleToLongBits(table.score(bases, offset))));
+        assertThat(Double.doubleToLongBits(kmers.scoreReverseComplement(bases, offset)),
+                is(Double.doubleToLongBits(table.scoreReverseComplement(bases, offset))));
+    }
+
+
+    @Test
+    public void donorSiteIsScoredByPrefixOnly() {
+        assertThat(DONOR_KMERS.length(), is(9));
+        assertThat(DONOR_KMERS.getK(), is(9));
+        assertThat(ACCEPTOR_KMERS.length(), is(27));
+        assertThat(ACCEPTOR_KMERS.getK(), is(KmerScoreTable.MAX_K));
+    }
+
+
+    @Test
+    public void scoresOfAllDonorSitesAreTheSameAsScoresOfInformationContentTable() {
+        byte[] site = new byte[9];
+        for (int index = 0; index < 1 << 18; index++) {
+            for (int pos = 0; pos < 9; pos++) {
+                site[pos] = NUCLEOTIDES[index >>> 2 * (8 - pos) & 3];
+            }
+            assertThat(DONOR_KMERS.index(site, 0), is(index));
+            assertSameScores(DONOR_KMERS, DONOR_TABLE, site, 0);
+        }
+    }
+
+
+    @Test
+    public void scoresOfRandomSitesAreTheSameAsScoresOfInformationContentTable() {
+        Random random = new Random(42);
+        byte[] bases = new byte[10_000];
+        for (int i = 0; i < bases.length; i++) {
+            byte nt = NUCLEOTIDES[random.nextInt(4)];
+            // mix the lower case nucleotides in
+            bases[i] = random.nextInt(10) == 0 ? (byte) Character.toLowerCase(nt) : nt;
+        }
+        for (int i = 0; i + ACCEPTOR_TABLE.length() <= bases.length; i++) {
+            assertSameScores(DONOR_KMERS, DONOR_TABLE, bases, i);
+            assertSameScores(ACCEPTOR_KMERS, ACCEPTOR_TABLE, bases, i);
+        }
+    }
+
+
+    @Test
+    public void scoresOfYae1SitesAreTheSameAsScoresOfInformationContentTable() {
+        byte[] bases = TestingData.getYAE1Seq().getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + ACCEPTOR_TABLE.length() <= bases.length; i++) {
+            assertSameScores(DONOR_KMERS, DONOR_TABLE, bases, i);
+            assertSameScores(ACCEPTOR_KMERS, ACCEPTOR_TABLE, bases, i);
+        }
+    }
+
+
+    @Test
+    public void rollingIndexIsTheSameAsIndexOfKmer() {
+        byte[] bases = TestingData.getYAE1Seq().getBytes(StandardCharsets.US_ASCII);
+        int index = DONOR_KMERS.index(bases, 0);
+        for (int i = 1; i + 9 <= bases.length; i++) {
+            index = DONOR_KMERS.roll(index, InformationContentTable.nucleotideIndex(bases[i + 8]));
+            assertThat(index, is(DONOR_KMERS.index(bases, i)));
+        }
+    }
+
+
+    @Test
+    public void sitesWithInvalidCharactersAreNotScored() {
+        // the invalid character within the prefix and beyond the prefix of the acceptor site
+        byte[] bases = "CAGGTNAGTTTTTTTTTTTTTTTTCAGG".getBytes(StandardCharsets.US_ASCII);
+        assertThat(DONOR_KMERS.index(bases, 0), is(-1));
+        assertThat(Double.isNaN(DONOR_KMERS.score(bases, 0)), is(true));
+        assertThat(Double.isNaN(DONOR_KMERS.scoreReverseComplement(bases, 0)), is(true));
+        assertThat(Double.isNaN(ACCEPTOR_KMERS.score(bases, 0)), is(true));
+        assertThat(Double.isNaN(ACCEPTOR_KMERS.scoreReverseComplement(bases, 1)), is(true));
+        assertThat(Double.isNaN(ACCEPTOR_KMERS.score(bases, 1)), is(true));
+    }
+}
@@ -0,0 +1,44 @@
+package org.monarchinitiative.splicing.calculate;
+
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NucleotidesTest {
+
+    @Test
+    public void reverseComplement() {
+        assertThat(Nucleotides.reverseComplement("ACGTTCGATC"), is("GATCGAACGT"));
+        assertThat(Nucleotides.reverseComplement("acgtNn"), is("nNacgt"));
+        assertThat(Nucleotides.reverseComplement(""), is(""));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalNucleotide() {
+        Nucleotides.reverseComplement("ACGRT");
+    }
+
+
+    /**
+     * Sites scored on the forward strand must have exactly the same scores as their reverse complements.
+     */
+    @Test
+    public void scoresOfReverseComplementOnForwardStrandAreTheSameAsScoresOfReverseComplement() throws Exception {
+        InformationContentTable acceptor = TestingData.getInformationContentAnnotator().getAcceptorTable();
+        Random random = new Random(7);
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sequence.append("ACGTacgt".charAt(random.nextInt(8)));
+        }
+        for (int offset = 0; offset + acceptor.length() <= sequence.length(); offset++) {
+            String rc = Nucleotides.reverseComplement(sequence.subSequence(offset, offset + acceptor.length()));
+            assertThat(Double.doubleToLongBits(acceptor.scoreReverseComplement(sequence, offset)),
+                    is(Double.doubleToLongBits(acceptor.score(rc))));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+import org.monarchinitiative.splicing.io.IndexedFastaSequenceAccessor;
+import org.monarchinitiative.splicing.io.PositionalWeightMatrixParser;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ScoreIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * @return copy of the YAE1 transcript whose last exon begins at <code>lastExonBegin</code>
+     */
+    private static TranscriptModel yae1WithLastExonAt(int lastExonBegin) {
+        TranscriptModel tm = TestingData.getThreeExonTranscriptModel();
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession(tm.getAccession());
+        builder.setGeneSymbol(tm.getGeneSymbol());
+        builder.setTXRegion(tm.getTXRegion());
+        builder.setCDSRegion(tm.getCDSRegion());
+        builder.addExonRegion(tm.getExonRegions().get(0));
+        builder.addExonRegion(tm.getExonRegions().get(1));
+        GenomeInterval last = tm.getExonRegions().get(2);
+        builder.addExonRegion(new GenomeInterval(last.getRefDict(), last.getStrand(), last.getChr(), lastExonBegin, last.getEndPos()));
+        builder.setSequence(tm.getSequence());
+        builder.setGeneID(tm.getGeneID());
+        builder.setStrand(tm.getStrand());
+        builder.setTranscriptSupportLevel(-1);
+        return builder.build();
+    }
+
+
+    /**
+     * @return accessor of a reference with contigs chr6 and chr7 of length <code>chr7Length</code>
+     */
+    private static GenomeSequenceAccessor accessor(int chr7Length) {
+        Map<String, Integer> contigLengths = new HashMap<>();
+        contigLengths.put("chr6", 171115067);
+        contigLengths.put("chr7", chr7Length);
+        return TestingData.getGenomeSequenceAccessor(contigLengths);
+    }
+
+
+    @Test
+    public void indexIsStoredNextToOutputFile() {
+        assertThat(ScoreIndex.fileFor(new File("/data/hg38_out.tsv.bgz")), is(new File("/data/hg38_out.tsv.bgz.fingerprints")));
+    }
+
+
+    @Test
+    public void writeAndLookupScores() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "out.tsv.fingerprints");
+        assertThat(ScoreIndex.read(file), is(nullValue()));
+
+        try (ScoreIndex.Writer writer = new ScoreIndex.Writer(file, 42L)) {
+            writer.add(TestingData.threeExonScoredTranscriptModel());
+            writer.add(TestingData.singleExonScoredTranscriptModel());
+            writer.add(TestingData.twoExonScoredTranscriptModel());
+        }
+
+        ScoreIndex index = ScoreIndex.read(file);
+        assertThat(index.getRunFingerprint(), is(42L));
+        assertThat(index.size(), is(3));
+        assertThat(index.lookup(TestingData.getSingleExonTranscriptModel()), is(TestingData.singleExonScoredTranscriptModel()));
+        assertThat(index.lookup(TestingData.getTwoExonTranscriptModel()), is(TestingData.twoExonScoredTranscriptModel()));
+        assertThat(index.lookup(TestingData.getThreeExonTranscriptModel()), is(TestingData.threeExonScoredTranscriptModel()));
+        // the changed transcript must be scored again
+        assertThat(index.lookup(yae1WithLastExonAt(39611870)), is(nullValue()));
+        // the temporary file replaced the index
+        assertThat(temporaryFolder.getRoot().list().length, is(1));
+    }
+
+
+    @Test
+    public void abortedIndexKeepsPreviousIndex() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "out.tsv.fingerprints");
+        try (ScoreIndex.Writer writer = new ScoreIndex.Writer(file, 42L)) {
+            writer.add(TestingData.singleExonScoredTranscriptModel());
+        }
+        ScoreIndex.Writer writer = new ScoreIndex.Writer(file, 43L);
+        writer.add(TestingData.twoExonScoredTranscriptModel());
+        writer.abort();
+        writer.close();
+
+        ScoreIndex index = ScoreIndex.read(file);
+        assertThat(index.getRunFingerprint(), is(42L));
+        assertThat(index.size(), is(1));
+        assertThat(temporaryFolder.getRoot().list().length, is(1));
+    }
+
+
+    @Test
+    public void fingerprintChangesWithExonCoordinates() {
+        long fingerprint = ScoreIndex.fingerprint(TestingData.getThreeExonTranscriptModel());
+        assertThat(ScoreIndex.fingerprint(yae1WithLastExonAt(39611875)), is(fingerprint));
+        assertThat(ScoreIndex.fingerprint(yae1WithLastExonAt(39611870)), is(not(fingerprint)));
+        assertThat(ScoreIndex.fingerprint(TestingData.getTwoExonTranscriptModel()), is(not(fingerprint)));
+    }
+
+
+    @Test
+    public void runFingerprintChangesWithSpliceSitesAndGenome() throws Exception {
+        SplicingInformationContentAnnotator annotator = TestingData.getInformationContentAnnotator();
+        long fingerprint = ScoreIndex.runFingerprint(annotator, accessor(159138663));
+
+        assertThat(ScoreIndex.runFingerprint(TestingData.getInformationContentAnnotator(), accessor(159138663)), is(fingerprint));
+        assertThat(ScoreIndex.runFingerprint(annotator, accessor(159345973)), is(not(fingerprint)));
+        PositionalWeightMatrixParser parser = TestingData.getSpliceSitesParser();
+        assertThat(ScoreIndex.runFingerprint(new SplicingInformationContentAnnotator(parser.getAcceptorFrequencies(), parser.getDonorFrequencies()),
+                accessor(159138663)), is(not(fingerprint)));
+    }
+
+
+    /**
+     * @return indexed FASTA file with contig <code>chr1</code> with the <code>sequence</code> and a short
+     * <code>chrM</code>
+     */
+    private File fasta(String name, String sequence) throws Exception {
+        File fasta = new File(temporaryFolder.getRoot(), name);
+        Files.write(fasta.toPath(), (">chr1\n" + sequence + "\n>chrM\nACGT\n").getBytes(StandardCharsets.US_ASCII));
+        int n = sequence.length();
+        Files.write(new File(fasta.getAbsolutePath() + ".fai").toPath(),
+                String.format("chr1\t%d\t6\t%d\t%d\nchrM\t4\t%d\t4\t5\n", n, n, n + 1, 6 + n + 1 + 6)
+                        .getBytes(StandardCharsets.US_ASCII));
+        return fasta;
+    }
+
+
+    @Test
+    public void runFingerprintChangesWhenReferenceIsModified() throws Exception {
+        SplicingInformationContentAnnotator annotator = TestingData.getInformationContentAnnotator();
+        File fasta = fasta("ref.fa", "ACGTACGTACGTAAGGTAAGT");
+        long fingerprint;
+        try (IndexedFastaSequenceAccessor reference = new IndexedFastaSequenceAccessor(fasta)) {
+            fingerprint = ScoreIndex.runFingerprint(annotator, reference);
+        }
+        try (IndexedFastaSequenceAccessor reopened = new IndexedFastaSequenceAccessor(fasta)) {
+            assertThat(ScoreIndex.runFingerprint(annotator, reopened), is(fingerprint));
+        }
+
+        // the contigs keep their names and lengths, but the sequence is masked
+        long lastModified = fasta.lastModified();
+        fasta("ref.fa", "NNNNNNNNACGTAAGGTAAGT");
+        assertThat(fasta.setLastModified(lastModified + 2000), is(true));
+        try (IndexedFastaSequenceAccessor masked = new IndexedFastaSequenceAccessor(fasta)) {
+            assertThat(masked.getContigLength("chr1"), is(21));
+            assertThat(ScoreIndex.runFingerprint(annotator, masked), is(not(fingerprint)));
+        }
+    }
+}
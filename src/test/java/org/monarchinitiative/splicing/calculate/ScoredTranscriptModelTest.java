@@ -0,0 +1,43 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ScoredTranscriptModelTest {
+
+    @Test
+    public void scoresAreStoredAsPrimitives() {
+        TranscriptModel tm = TestingData.getThreeExonTranscriptModel();
+        ScoredTranscriptModel model = new ScoredTranscriptModel(tm,
+                new double[]{4.898803136983307, 8.566571105600822, Double.NaN},
+                new double[]{Double.NaN, 10.44145682272866, 8.727129021978236});
+
+        assertThat(model.getExonCount(), is(3));
+        assertThat(model.getDonorScore(1), is(8.566571105600822));
+        assertThat(Double.isNaN(model.getAcceptorScore(0)), is(true));
+        // the compatibility view contains the same scores including NaNs
+        assertThat(model.getDonors(), is(Arrays.asList(4.898803136983307, 8.566571105600822, Double.NaN)));
+        assertThat(model.getAcceptors(), is(Arrays.asList(Double.NaN, 10.44145682272866, 8.727129021978236)));
+        // models with NaN scores are equal
+        assertThat(model, is(TestingData.threeExonScoredTranscriptModel()));
+        assertThat(model.hashCode(), is(TestingData.threeExonScoredTranscriptModel().hashCode()));
+    }
+
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void compatibilityViewIsUnmodifiable() {
+        TestingData.twoExonScoredTranscriptModel().getDonors().set(0, 1.);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void numbersOfScoresMustBeEqual() {
+        new ScoredTranscriptModel(TestingData.getTwoExonTranscriptModel(), new double[]{1.}, new double[]{Double.NaN, 2.});
+    }
+}
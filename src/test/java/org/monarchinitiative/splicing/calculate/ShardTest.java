@@ -0,0 +1,77 @@
+package org.monarchinitiative.splicing.calculate;
+
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ShardTest {
+
+    @Test
+    public void parseShard() {
+        assertThat(Shard.parse("2/4"), is(new Shard(2, 4)));
+        assertThat(Shard.parse(" 1/1 "), is(Shard.ALL));
+        assertThat(Shard.parse("3/7").toString(), is("3/7"));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardIndexIsOneBased() {
+        Shard.parse("0/4");
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidShard() {
+        Shard.parse("2-4");
+    }
+
+
+    @Test
+    public void weightGrowsWithSpanAndExons() {
+        long single = Shard.weight(TestingData.getSingleExonTranscriptModel());
+        long three = Shard.weight(TestingData.getThreeExonTranscriptModel());
+        // HIST1H1A spans 781 bp in 1 exon, YAE1 spans 6478 bp in 3 exons
+        assertThat(single, is((long) TranscriptScorer.READ_COST_IN_BASES + 781 + Shard.EXON_COST_IN_BASES));
+        assertThat(three, is((long) TranscriptScorer.READ_COST_IN_BASES + 6478 + 3 * Shard.EXON_COST_IN_BASES));
+    }
+
+
+    @Test
+    public void shardsAreContiguousAndBalancedByWeight() {
+        Random random = new Random(42);
+        long[] weights = new long[1000];
+        for (int i = 0; i < weights.length; i++) {
+            // a few heavy transcripts among many light ones
+            weights[i] = i % 100 == 0 ? 100_000 : 1000 + random.nextInt(5000);
+        }
+        long total = Arrays.stream(weights).sum();
+
+        int n = 7;
+        int expectedBegin = 0;
+        for (int i = 1; i <= n; i++) {
+            int[] range = new Shard(i, n).range(weights, weights.length);
+            assertThat(range[0], is(expectedBegin));
+            long weight = Arrays.stream(weights, range[0], range[1]).sum();
+            // at most one transcript more or less than the ideal share
+            assertTrue(Math.abs(weight - total / n) <= 100_000);
+            expectedBegin = range[1];
+        }
+        assertThat(expectedBegin, is(weights.length));
+    }
+
+
+    @Test
+    public void moreShardsThanTranscripts() {
+        long[] weights = {10, 10};
+        assertThat(new Shard(1, 4).range(weights, 2), is(new int[]{0, 1}));
+        assertThat(new Shard(2, 4).range(weights, 2), is(new int[]{1, 1}));
+        assertThat(new Shard(3, 4).range(weights, 2), is(new int[]{1, 2}));
+        assertThat(new Shard(4, 4).range(weights, 2), is(new int[]{2, 2}));
+    }
+}
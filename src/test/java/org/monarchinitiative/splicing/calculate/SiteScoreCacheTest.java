@@ -0,0 +1,133 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class SiteScoreCacheTest {
+
+
+    @Test
+    public void keysOfDifferentSitesAreDifferent() {
+        long key = SiteScoreCache.key(1, 1000, Strand.FWD, false);
+        assertThat(SiteScoreCache.key(2, 1000, Strand.FWD, false), is(not(key)));
+        assertThat(SiteScoreCache.key(1, 1001, Strand.FWD, false), is(not(key)));
+        assertThat(SiteScoreCache.key(1, 1000, Strand.REV, false), is(not(key)));
+        assertThat(SiteScoreCache.key(1, 1000, Strand.FWD, true), is(not(key)));
+        assertThat(SiteScoreCache.key(1, Integer.MAX_VALUE, Strand.REV, true) > 0, is(true));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePositionIsRejected() {
+        SiteScoreCache.key(1, -1, Strand.FWD, false);
+    }
+
+
+    @Test
+    public void lookupAndCounters() {
+        SiteScoreCache cache = new SiteScoreCache(1000);
+        long donor = SiteScoreCache.key(1, 1000, Strand.FWD, false);
+        long acceptor = SiteScoreCache.key(1, 1000, Strand.FWD, true);
+
+        assertThat(cache.lookup(donor), is(SiteScoreCache.MISSING));
+        cache.put(donor, 8.5);
+        cache.put(acceptor, Double.NaN);
+
+        assertThat(Double.longBitsToDouble(cache.lookup(donor)), is(8.5));
+        assertThat(Double.isNaN(Double.longBitsToDouble(cache.lookup(acceptor))), is(true));
+        assertThat(cache.lookup(acceptor), is(not(SiteScoreCache.MISSING)));
+        assertThat(cache.getHits(), is(3L));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+
+    @Test
+    public void memoryIsBoundedByCapacity() {
+        SiteScoreCache cache = new SiteScoreCache(1024);
+        assertThat(cache.getCapacity(), is(1024));
+
+        for (int i = 0; i < 100_000; i++) {
+            cache.put(SiteScoreCache.key(1, i, Strand.FWD, false), i);
+        }
+        assertThat(cache.getEvictions() >= 100_000 - 1024, is(true));
+
+        int present = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long bits = cache.lookup(SiteScoreCache.key(1, i, Strand.FWD, false));
+            if (bits != SiteScoreCache.MISSING) {
+                present++;
+                assertThat(Double.longBitsToDouble(bits), is((double) i));
+            }
+        }
+        assertThat(present <= 1024, is(true));
+        // the most recently stored site is never evicted
+        assertThat(cache.lookup(SiteScoreCache.key(1, 99_999, Strand.FWD, false)), is(not(SiteScoreCache.MISSING)));
+    }
+
+
+    @Test
+    public void recentlyUsedSitesAreKept() {
+        SiteScoreCache cache = new SiteScoreCache(SiteScoreCache.WAYS); // a single bucket
+        for (int i = 0; i < SiteScoreCache.WAYS; i++) {
+            cache.put(SiteScoreCache.key(1, i, Strand.FWD, false), i);
+        }
+        // use the oldest site, then add a new site
+        cache.lookup(SiteScoreCache.key(1, 0, Strand.FWD, false));
+        cache.put(SiteScoreCache.key(1, 100, Strand.FWD, false), 100);
+
+        assertThat(cache.lookup(SiteScoreCache.key(1, 0, Strand.FWD, false)), is(not(SiteScoreCache.MISSING)));
+        assertThat(cache.lookup(SiteScoreCache.key(1, 1, Strand.FWD, false)), is(SiteScoreCache.MISSING));
+        assertThat(cache.getEvictions(), is(1L));
+    }
+
+
+    @Test
+    public void disabledCacheStoresNothing() {
+        SiteScoreCache cache = new SiteScoreCache(0);
+        long key = SiteScoreCache.key(1, 1000, Strand.FWD, false);
+        cache.put(key, 1.);
+        assertThat(cache.lookup(key), is(SiteScoreCache.MISSING));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+
+    @Test
+    public void concurrentAccessReturnsStoredScores() throws Exception {
+        SiteScoreCache cache = new SiteScoreCache(4096);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executorService.submit(() -> {
+                    int wrong = 0;
+                    for (int i = 0; i < 200_000; i++) {
+                        int position = i % 10_000;
+                        long key = SiteScoreCache.key(3, position, Strand.REV, true);
+                        long bits = cache.lookup(key);
+                        if (bits == SiteScoreCache.MISSING)
+                            cache.put(key, position * 0.5);
+                        else if (Double.longBitsToDouble(bits) != position * 0.5)
+                            wrong++;
+                    }
+                    return wrong;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertThat(future.get(1, TimeUnit.MINUTES), is(0));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SpliceSiteScannerTest {
+
+    private static SplicingInformationContentAnnotator IC_ANNOTATOR;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        IC_ANNOTATOR = TestingData.getInformationContentAnnotator();
+    }
+
+
+    /**
+     * @return lines describing the sites in the order in which they are reported by the scanner
+     */
+    private static List<String> scan(SpliceSiteScanner scanner, byte[] bases, int from, int to) {
+        List<String> sites = new ArrayList<>();
+        int reported = scanner.scan(bases, from, to, (position, type, strand, score) ->
+                sites.add(position + " " + type + " " + (strand.isForward() ? "+" : "-") + " " + score));
+        assertThat(reported, is(sites.size()));
+        return sites;
+    }
+
+
+    /**
+     * @return lines describing the sites scored one by one by the annotator
+     */
+    private static List<String> annotate(byte[] bases, int from, int to, double threshold) {
+        List<String> sites = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            for (SpliceSiteScanner.SiteType type : SpliceSiteScanner.SiteType.values()) {
+                for (Strand strand : new Strand[]{Strand.FWD, Strand.REV}) {
+                    double score = type == SpliceSiteScanner.SiteType.DONOR
+                            ? IC_ANNOTATOR.getSpliceDonorScore(bases, i, strand)
+                            : IC_ANNOTATOR.getSpliceAcceptorScore(bases, i, strand);
+                    if (!Double.isNaN(score) && score >= threshold)
+                        sites.add(i + " " + type + " " + (strand.isForward() ? "+" : "-") + " " + score);
+                }
+            }
+        }
+        return sites;
+    }
+
+
+    @Test
+    public void scoresAreTheSameAsScoresOfAnnotator() {
+        byte[] bases = TestingData.getYAE1Seq().getBytes(StandardCharsets.US_ASCII);
+        SpliceSiteScanner scanner = new SpliceSiteScanner(IC_ANNOTATOR, Double.NEGATIVE_INFINITY);
+
+        assertThat(scan(scanner, bases, 0, bases.length), is(annotate(bases, 0, bases.length, Double.NEGATIVE_INFINITY)));
+    }
+
+
+    @Test
+    public void onlySitesAboveThresholdAreReported() {
+        byte[] bases = TestingData.getYAE1Seq().getBytes(StandardCharsets.US_ASCII);
+        SpliceSiteScanner scanner = new SpliceSiteScanner(IC_ANNOTATOR, 8.);
+
+        List<String> sites = scan(scanner, bases, 0, bases.length);
+        assertThat(sites, is(annotate(bases, 0, bases.length, 8.)));
+        // donor site of the middle exon of YAE1 (chr7:39610226) is present
+        assertThat(sites.contains((39610226 - 3 - 39606002) + " DONOR + 8.566571105600822"), is(true));
+    }
+
+
+    @Test
+    public void sitesSpanningInvalidCharactersAreSkipped() {
+        String site = "CAGGTAAGT";
+        byte[] bases = (site + "N" + site + "-ACGT").getBytes(StandardCharsets.US_ASCII);
+        SpliceSiteScanner scanner = new SpliceSiteScanner(IC_ANNOTATOR, Double.NEGATIVE_INFINITY);
+
+        List<String> sites = new ArrayList<>();
+        scanner.scan(bases, 0, bases.length, (position, type, strand, score) -> sites.add(position + " " + type + " " + (strand.isForward() ? "+" : "-")));
+        assertThat(sites, is(Arrays.asList("0 DONOR +", "0 DONOR -", "10 DONOR +", "10 DONOR -")));
+    }
+
+
+    @Test
+    public void sitesStartingOutsideOfRangeAreNotReported() {
+        byte[] bases = TestingData.getYAE1Seq().getBytes(StandardCharsets.US_ASCII);
+        SpliceSiteScanner scanner = new SpliceSiteScanner(IC_ANNOTATOR, Double.NEGATIVE_INFINITY);
+
+        // the sites starting near the end of the range are scored using the bases beyond the range
+        assertThat(scan(scanner, bases, 1000, 2000), is(annotate(bases, 1000, 2000, Double.NEGATIVE_INFINITY)));
+        assertThat(scan(scanner, bases, 1000, 1000).isEmpty(), is(true));
+    }
+}
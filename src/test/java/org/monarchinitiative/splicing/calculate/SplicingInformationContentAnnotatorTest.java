@@ -0,0 +1,70 @@
+package org.monarchinitiative.splicing.calculate;
+
+import de.charite.compbio.jannovar.reference.Strand;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SplicingInformationContentAnnotatorTest {
+
+    private static SplicingInformationContentAnnotator instance;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        instance = TestingData.getInformationContentAnnotator();
+    }
+
+
+    @Test
+    public void scoreDoesNotDependOnCase() {
+        assertThat(instance.getSpliceDonorScore("cagGTAAGT"), is(instance.getSpliceDonorScore("CAGGTAAGT")));
+        assertThat(instance.getSpliceAcceptorScore("ttttttttttttttttttttttagGTT"),
+                is(instance.getSpliceAcceptorScore("TTTTTTTTTTTTTTTTTTTTTTAGGTT")));
+    }
+
+
+    @Test
+    public void invalidSequencesAreNotScored() {
+        assertThat(instance.getSpliceDonorScore(null), is(Double.NaN));
+        assertThat(instance.getSpliceDonorScore("CAGGTAAG"), is(Double.NaN));
+        assertThat(instance.getSpliceDonorScore("CAGGTNAGT"), is(Double.NaN));
+        assertThat(instance.getSpliceAcceptorScore(null), is(Double.NaN));
+        assertThat(instance.getSpliceAcceptorScore("CAGGTAAGT"), is(Double.NaN));
+        assertThat(instance.getSpliceAcceptorScore("TTTTTTTTTTTTTTTTTTTTTTAGGT-"), is(Double.NaN));
+    }
+
+
+    @Test
+    public void scoreSitesWithinLargerSequence() {
+        // donor site CAGGTAAGT on FWD strand, its reverse complement ACTTACCTG is used on REV strand
+        String fwd = "NNCAGGTAAGTNN";
+        String rev = "NNACTTACCTGNN";
+        double expected = instance.getSpliceDonorScore("CAGGTAAGT");
+
+        assertThat(instance.getSpliceDonorScore(fwd, 2, Strand.FWD), is(expected));
+        assertThat(instance.getSpliceDonorScore(rev, 2, Strand.REV), is(expected));
+        assertThat(instance.getSpliceDonorScore(fwd.getBytes(StandardCharsets.US_ASCII), 2, Strand.FWD), is(expected));
+        assertThat(instance.getSpliceDonorScore(rev.getBytes(StandardCharsets.US_ASCII), 2, Strand.REV), is(expected));
+
+        // the site must be within the sequence and it must not contain N
+        assertThat(instance.getSpliceDonorScore(fwd, 1, Strand.FWD), is(Double.NaN));
+        assertThat(instance.getSpliceDonorScore(fwd.getBytes(StandardCharsets.US_ASCII), 5, Strand.FWD), is(Double.NaN));
+        assertThat(instance.getSpliceDonorScore(fwd.getBytes(StandardCharsets.US_ASCII), -1, Strand.FWD), is(Double.NaN));
+    }
+
+
+    @Test
+    public void scoreAcceptorSiteOnReverseStrand() {
+        String site = "TTTCTTTTTTCTTTTTTCCTTCAGGTT";
+        String reverseComplement = "AACCTGAAGGAAAAAAGAAAAAAGAAA";
+
+        assertThat(instance.getSpliceAcceptorScore(reverseComplement.getBytes(StandardCharsets.US_ASCII), 0, Strand.REV),
+                is(instance.getSpliceAcceptorScore(site)));
+    }
+}
@@ -15,9 +15,14 @@ import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
 import org.monarchinitiative.splicing.io.PositionalWeightMatrixParser;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 
@@ -53,8 +58,8 @@ public class TranscriptScorerTest {
     @Test
     public void scoreTranscriptModelSingleExon() {
         TranscriptModel model = TestingData.getSingleExonTranscriptModel();
-        Mockito.when(sequenceAccessor.fetchSequence("chr6", 26017259, 26018040))
-                .thenReturn(TestingData.getHIST1H1ASeq());
+        Mockito.when(sequenceAccessor.fetchBases("chr6", 26017259, 26018040))
+                .thenReturn(TestingData.getHIST1H1ASeq().getBytes());
         ScoredTranscriptModel result = instance.scoreTranscriptModel().apply(model);
         assertThat(result.getAcceptors(), hasItem(Double.NaN));
         assertThat(result.getAcceptors(), hasSize(1));
@@ -66,8 +71,8 @@ public class TranscriptScorerTest {
     @Test
     public void scoreTranscriptModelTwoExons() {
         TranscriptModel model = TestingData.getTwoExonTranscriptModel();
-        Mockito.when(sequenceAccessor.fetchSequence("chr13", 20761601, 20767114))
-                .thenReturn(TestingData.GJB2Seq());
+        Mockito.when(sequenceAccessor.fetchBases("chr13", 20761601, 20767114))
+                .thenReturn(TestingData.GJB2Seq().getBytes());
         ScoredTranscriptModel result = instance.scoreTranscriptModel().apply(model);
         assertThat(result.getDonors(), hasItems(Double.NaN, 10.33267367738815));
         assertThat(result.getDonors(), hasSize(2));
@@ -79,8 +84,8 @@ public class TranscriptScorerTest {
     @Test
     public void scoreTranscriptModelThreeExons() {
         TranscriptModel model = TestingData.getThreeExonTranscriptModel();
-        Mockito.when(sequenceAccessor.fetchSequence("chr7", 39606002, 39612480))
-                .thenReturn(TestingData.getYAE1Seq());
+        Mockito.when(sequenceAccessor.fetchBases("chr7", 39606002, 39612480))
+                .thenReturn(TestingData.getYAE1Seq().getBytes());
         ScoredTranscriptModel result = instance.scoreTranscriptModel().apply(model);
         assertThat(result.getDonors(), hasItems(Double.NaN, 4.898803136983307, 8.566571105600822));
         assertThat(result.getDonors(), hasSize(3));
@@ -88,4 +93,79 @@ public class TranscriptScorerTest {
         assertThat(result.getAcceptors(), hasSize(3));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void scoreTranscriptModelWithinContigSequence() {
+        TranscriptModel model = TestingData.getThreeExonTranscriptModel();
+        // the transcript is located at chr7:39606002-39612480, add some bases around
+        ContigSequence sequence = new ContigSequence("chr7", 39605990,
+                ("ACGTACGTACGT" + TestingData.getYAE1Seq() + "TTTT").getBytes());
+        ScoredTranscriptModel result = instance.scoreTranscriptModel(sequence).apply(model);
+        assertThat(result.getDonors(), hasItems(Double.NaN, 4.898803136983307, 8.566571105600822));
+        assertThat(result.getDonors(), hasSize(3));
+        assertThat(result.getAcceptors(), hasItems(Double.NaN, 10.44145682272866, 8.727129021978236));
+        assertThat(result.getAcceptors(), hasSize(3));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scoreTranscriptModelOutsideOfContigSequence() {
+        TranscriptModel model = TestingData.getThreeExonTranscriptModel();
+        ContigSequence sequence = new ContigSequence("chr7", 39606010, TestingData.getYAE1Seq().getBytes());
+        instance.scoreTranscriptModel(sequence).apply(model);
+    }
+
+
+    @Test
+    public void sitesSharedByTranscriptsAreScoredOnce() {
+        SiteScoreCache cache = new SiteScoreCache(1000);
+        TranscriptScorer scorer = new TranscriptScorer(IC_ANNOTATOR, sequenceAccessor, cache, TranscriptScorer.FetchStrategy.WHOLE_REGION);
+        TranscriptModel model = TestingData.getThreeExonTranscriptModel();
+        Mockito.when(sequenceAccessor.fetchBases("chr7", 39606002, 39612480))
+                .thenReturn(TestingData.getYAE1Seq().getBytes());
+
+        ScoredTranscriptModel first = scorer.scoreTranscriptModel().apply(model);
+        assertThat(cache.getMisses(), is(4L));
+        assertThat(cache.getHits(), is(0L));
+
+        ScoredTranscriptModel second = scorer.scoreTranscriptModel().apply(model);
+        assertThat(cache.getMisses(), is(4L));
+        assertThat(cache.getHits(), is(4L));
+        assertThat(second.getDonors(), is(first.getDonors()));
+        assertThat(second.getAcceptors(), is(first.getAcceptors()));
+        assertThat(scorer.getMetrics().getTranscriptsScored(), is(2L));
+        assertThat(scorer.getMetrics().getSitesScored(), is(4L));
+        assertThat(scorer.getMetrics().getCachedSites(), is(4L));
+    }
+
+
+    @Test
+    public void scoreTranscriptModelUsingSiteWindows() {
+        // YAE1 is located at chr7:39606002-39612480, serve the windows from its sequence and record the reads
+        List<String> reads = new ArrayList<>();
+        GenomeSequenceAccessor accessor = new GenomeSequenceAccessor() {
+            @Override
+            public byte[] fetchBases(String chr, int start, int end) {
+                reads.add(chr + ":" + start + "-" + end);
+                return TestingData.getYAE1Seq().substring(start - 39606002, end - 39606002).getBytes();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        TranscriptScorer scorer = new TranscriptScorer(IC_ANNOTATOR, accessor, new SiteScoreCache(0), TranscriptScorer.FetchStrategy.WINDOWS);
+
+        ScoredTranscriptModel result = scorer.scoreTranscriptModel().apply(TestingData.getThreeExonTranscriptModel());
+        assertThat(result.getDonors(), is(Arrays.asList(4.898803136983307, 8.566571105600822, Double.NaN)));
+        assertThat(result.getAcceptors(), is(Arrays.asList(Double.NaN, 10.44145682272866, 8.727129021978236)));
+        // the windows are less than 4kb apart and they are coalesced into a single read that spans the sites only
+        assertThat(reads, is(Collections.singletonList("chr7:39606143-39611877")));
+
+        // automatic strategy prefers the shorter read
+        reads.clear();
+        scorer = new TranscriptScorer(IC_ANNOTATOR, accessor, new SiteScoreCache(0), TranscriptScorer.FetchStrategy.AUTO);
+        assertThat(scorer.scoreTranscriptModel().apply(TestingData.getThreeExonTranscriptModel()), is(result));
+        assertThat(reads, is(Collections.singletonList("chr7:39606143-39611877")));
+    }
+}
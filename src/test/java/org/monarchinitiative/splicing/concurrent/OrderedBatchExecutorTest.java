@@ -0,0 +1,48 @@
+package org.monarchinitiative.splicing.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OrderedBatchExecutorTest {
+
+
+    @Test
+    public void resultsAreConsumedInOrderOfItems() throws Exception {
+        List<Integer> items = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        List<String> results = new ArrayList<>();
+
+        try (OrderedBatchExecutor executor = new OrderedBatchExecutor(8, 7)) {
+            executor.process(items.iterator(), i -> {
+                // shuffle the order in which the tasks complete
+                if (ThreadLocalRandom.current().nextInt(100) == 0)
+                    Thread.yield();
+                return "item-" + i;
+            }, results::add);
+        }
+
+        assertThat(results, is(items.stream().map(i -> "item-" + i).collect(Collectors.toList())));
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void exceptionInWorkerIsPropagated() throws Exception {
+        List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        try (OrderedBatchExecutor executor = new OrderedBatchExecutor(2, 10)) {
+            executor.process(items.iterator(), i -> {
+                if (i == 55)
+                    throw new IllegalStateException("Failed on " + i);
+                return i;
+            }, i -> {
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.monarchinitiative.splicing.io;
+
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BgzfOutputStreamTest {
+
+    /**
+     * Compressible text with random numbers, spanning multiple blocks.
+     */
+    private static byte[] makeData(int length) {
+        Random random = new Random(7);
+        ByteArrayOutputStream os = new ByteArrayOutputStream(length);
+        while (os.size() < length) {
+            byte[] line = String.format("chr%d\t%d\t%f%n", random.nextInt(22) + 1, random.nextInt(), random.nextDouble()).getBytes();
+            os.write(line, 0, Math.min(line.length, length - os.size()));
+        }
+        return os.toByteArray();
+    }
+
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            os.write(buffer, 0, n);
+        }
+        return os.toByteArray();
+    }
+
+
+    private static byte[] compress(byte[] data, int threads) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (BgzfOutputStream bgzf = new BgzfOutputStream(os, threads)) {
+            // write in pieces of various length
+            Random random = new Random(11);
+            int offset = 0;
+            while (offset < data.length) {
+                int length = Math.min(random.nextInt(20_000), data.length - offset);
+                bgzf.write(data, offset, length);
+                offset += length;
+            }
+        }
+        return os.toByteArray();
+    }
+
+
+    @Test
+    public void compressedDataAreReadableByGzipAndBgzfReaders() throws Exception {
+        byte[] data = makeData(10 * BgzfOutputStream.BLOCK_SIZE + 1234);
+        byte[] compressed = compress(data, 4);
+
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))), is(data));
+        assertThat(readAll(new BlockCompressedInputStream(new ByteArrayInputStream(compressed))), is(data));
+        // the output does not depend on the number of threads
+        assertThat(compress(data, 1), is(compressed));
+    }
+
+
+    @Test
+    public void incompressibleDataAreStored() throws Exception {
+        byte[] data = new byte[3 * BgzfOutputStream.BLOCK_SIZE];
+        new Random(3).nextBytes(data);
+        byte[] compressed = compress(data, 2);
+
+        assertThat(readAll(new BlockCompressedInputStream(new ByteArrayInputStream(compressed))), is(data));
+    }
+
+
+    @Test
+    public void virtualOffsetsPointToTheWrittenData() throws Exception {
+        byte[] data = makeData(5 * BgzfOutputStream.BLOCK_SIZE);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        long[] positions = {0, 1, BgzfOutputStream.BLOCK_SIZE - 1, BgzfOutputStream.BLOCK_SIZE, 3 * BgzfOutputStream.BLOCK_SIZE + 100};
+        long[] virtualOffsets = new long[positions.length];
+        try (BgzfOutputStream bgzf = new BgzfOutputStream(os, 3)) {
+            bgzf.write(data, 0, 1000);
+            // flush ends the block, the data after it start at the next block
+            bgzf.flush();
+            assertThat(bgzf.getVirtualOffset(1000) & 0xFFFF, is(0L));
+            bgzf.write(data, 1000, data.length - 1000);
+            bgzf.flush();
+            for (int i = 0; i < positions.length; i++) {
+                virtualOffsets[i] = bgzf.getVirtualOffset(positions[i]);
+            }
+        }
+
+        try (BlockCompressedInputStream is = new BlockCompressedInputStream(new ByteArraySeekableStream(os.toByteArray()))) {
+            for (int i = 0; i < positions.length; i++) {
+                is.seek(virtualOffsets[i]);
+                assertThat(is.read(), is(data[(int) positions[i]] & 0xFF));
+            }
+        }
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void virtualOffsetOfUnwrittenDataIsNotAvailable() throws Exception {
+        try (BgzfOutputStream bgzf = new BgzfOutputStream(new ByteArrayOutputStream(), 1)) {
+            bgzf.write(new byte[100]);
+            bgzf.getVirtualOffset(10);
+        }
+    }
+}
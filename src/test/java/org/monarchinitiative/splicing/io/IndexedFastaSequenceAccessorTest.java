@@ -0,0 +1,119 @@
+package org.monarchinitiative.splicing.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IndexedFastaSequenceAccessorTest {
+
+    private static final String[] CONTIGS = {"chr1", "chr2", "chrM"};
+
+    private static final int[] LENGTHS = {1110, 1003, 333};
+
+    private IndexedFastaSequenceAccessor instance;
+
+
+    @Before
+    public void setUp() throws Exception {
+        instance = new IndexedFastaSequenceAccessor(new File(IndexedFastaSequenceAccessorTest.class.getResource("small_genome.fa").toURI()));
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        instance.close();
+    }
+
+
+    @Test
+    public void fetchSequenceSpanningLines() {
+        // lines are 60 bases long
+        assertThat(instance.fetchSequence("chr1", 18, 25), is("NNNNNGC"));
+        assertThat(instance.fetchSequence("chr1", 57, 63).length(), is(6));
+        assertThat(instance.fetchSequence("chr1", 57, 63), is(instance.fetchSequence("chr1", 57, 60) + instance.fetchSequence("chr1", 60, 63)));
+        assertThat(instance.fetchSequence("chr1", 999, 1002), is("RYK"));
+        assertThat(instance.fetchSequence("chr1", 1100, 1110), is("CAANNNNNNN"));
+    }
+
+
+    @Test
+    public void fetchWithEnsemblContigNames() {
+        assertThat(instance.fetchSequence("2", 100, 130), is(instance.fetchSequence("chr2", 100, 130)));
+        assertThat(instance.fetchSequence("MT", 0, 10), is(instance.fetchSequence("chrM", 0, 10)));
+    }
+
+
+    @Test
+    public void contigsAreReadFromIndex() {
+        assertThat(String.join(",", instance.getContigNames()), is(String.join(",", CONTIGS)));
+        for (int i = 0; i < CONTIGS.length; i++) {
+            assertThat(instance.getContigLength(CONTIGS[i]), is(LENGTHS[i]));
+        }
+        assertThat(instance.getContigLength("2"), is(1003));
+        assertThat(instance.getContigLength("chr3"), is(-1));
+    }
+
+
+    @Test
+    public void invalidQueriesReturnNull() {
+        assertThat(instance.fetchBases("chr1", 1100, 1111), is(nullValue()));
+        assertThat(instance.fetchBases("chr1", -6, -1), is(nullValue()));
+        assertThat(instance.fetchBases("chr3", 0, 10), is(nullValue()));
+    }
+
+
+    /**
+     * Fetch random intervals from many threads and compare the sequences with the sequences fetched by a single thread.
+     */
+    @Test
+    public void concurrentFetchesReturnTheSameSequencesAsSingleThread() throws Exception {
+        Random random = new Random(123);
+        List<int[]> queries = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int contig = random.nextInt(CONTIGS.length);
+            int begin = random.nextInt(LENGTHS[contig]);
+            int end = begin + random.nextInt(Math.min(200, LENGTHS[contig] - begin) + 1);
+            queries.add(new int[]{contig, begin, end});
+            expected.add(instance.fetchSequence(CONTIGS[contig], begin, end));
+        }
+
+        int threads = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    // each thread walks all queries, starting at a different one
+                    for (int i = 0; i < queries.size(); i++) {
+                        int idx = (first * 1_249 + i) % queries.size();
+                        int[] q = queries.get(idx);
+                        if (!expected.get(idx).equals(instance.fetchSequence(CONTIGS[q[0]], q[1], q[2])))
+                            mismatches++;
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertThat(future.get(1, TimeUnit.MINUTES), is(0));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.monarchinitiative.splicing.io;
+
+import htsjdk.tribble.readers.TabixReader;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class IndexedResultsWriterTest {
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    private static List<String> query(TabixReader reader, String region) throws Exception {
+        List<String> lines = new ArrayList<>();
+        TabixReader.Iterator iterator = reader.query(region);
+        String line;
+        while ((line = iterator.next()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+
+    private static FileChannel openTruncated(File file, long length) throws Exception {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(length);
+        channel.position(length);
+        return channel;
+    }
+
+
+    @Test
+    public void writeAndQueryIndexedResults() throws Exception {
+        File output = temporaryFolder.newFile("results.tsv.bgz");
+        File index = new File(output.getAbsolutePath() + ".tbi");
+        try (IndexedResultsWriter instance = new IndexedResultsWriter(new BgzfOutputStream(new FileOutputStream(output), 2), index)) {
+            instance.write(TestingData.singleExonScoredTranscriptModel());
+            instance.write(TestingData.twoExonScoredTranscriptModel());
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        // the file is a valid gzip file, the lines of the contig are sorted by REGION_BEGIN
+        String content;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(output))))) {
+            content = reader.lines().collect(Collectors.joining("\n", "", "\n"));
+        }
+        assertThat(content, is("#CHR\tBEGIN\tEND\tBEGIN_T\tEND_T\tSTRAND\tSYMBOL\tACCESSION_ID\tDONOR\tACCEPTOR\tREGION_BEGIN\tREGION_END\n" +
+                "6\t26018039\t26017258\t145097027\t145097808\t-\tHIST1H1A\tNM_005325.3\tNaN\tNaN\t26017259\t26018040\n" +
+                "13\t20763741\t20761600\t94406136\t94408277\t-\tGJB2\tNM_004004.5\tNaN\t10.293715220799694\t20761601\t20763742\n" +
+                "13\t20767113\t20766920\t94402764\t94402957\t-\tGJB2\tNM_004004.5\t10.33267367738815\tNaN\t20766921\t20767114\n" +
+                "7\t39606002\t39606146\t39606002\t39606146\t+\tYAE1\tNM_020192.3\t4.898803136983307\tNaN\t39606002\t39606146\n" +
+                "7\t39610104\t39610226\t39610104\t39610226\t+\tYAE1\tNM_020192.3\t8.566571105600822\t10.44145682272866\t39610104\t39610226\n" +
+                "7\t39611875\t39612480\t39611875\t39612480\t+\tYAE1\tNM_020192.3\tNaN\t8.727129021978236\t39611875\t39612480\n"));
+
+        TabixReader reader = new TabixReader(output.getAbsolutePath(), index.getAbsolutePath());
+        try {
+            assertThat(query(reader, "7:39610000-39611000").size(), is(1));
+            assertThat(query(reader, "7:39610000-39612000").size(), is(2));
+            assertThat(query(reader, "13:20767114-20767114").get(0).startsWith("13\t20767113\t"), is(true));
+            assertThat(query(reader, "6:1-1000000").isEmpty(), is(true));
+        } finally {
+            reader.close();
+        }
+    }
+
+
+    @Test
+    public void queryReturnsExonsOverlappingTheRegionOnBothStrands() throws Exception {
+        File output = temporaryFolder.newFile("overlapping.tsv.bgz");
+        File index = new File(output.getAbsolutePath() + ".tbi");
+        try (IndexedResultsWriter instance = new IndexedResultsWriter(new BgzfOutputStream(new FileOutputStream(output), 2), index)) {
+            instance.write(TestingData.twoExonScoredTranscriptModel());
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        TabixReader reader = new TabixReader(output.getAbsolutePath(), index.getAbsolutePath());
+        try {
+            // the middle of the YAE1 exon 39610104-39610226 on FWD strand
+            List<String> lines = query(reader, "7:39610150-39610160");
+            assertThat(lines.size(), is(1));
+            assertThat(lines.get(0).startsWith("7\t39610104\t39610226\t"), is(true));
+            // the middle of the GJB2 exon 20761601-20763742 on REV strand, its BEGIN is the last base of the region
+            lines = query(reader, "13:20762000-20762010");
+            assertThat(lines.size(), is(1));
+            assertThat(lines.get(0).startsWith("13\t20763741\t20761600\t"), is(true));
+            // the first and the last base of the region of the REV exon
+            assertThat(query(reader, "13:20761602-20761602").size(), is(1));
+            assertThat(query(reader, "13:20763742-20763742").size(), is(1));
+            assertThat(query(reader, "13:20761601-20761601").isEmpty(), is(true));
+        } finally {
+            reader.close();
+        }
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void contigsMustNotBeInterleaved() throws Exception {
+        File output = temporaryFolder.newFile("interleaved.tsv.bgz");
+        IndexedResultsWriter instance = new IndexedResultsWriter(new BgzfOutputStream(new FileOutputStream(output), 1),
+                new File(output.getAbsolutePath() + ".tbi"));
+        instance.write(TestingData.singleExonScoredTranscriptModel());
+        instance.write(TestingData.twoExonScoredTranscriptModel());
+        instance.write(TestingData.singleExonScoredTranscriptModel());
+    }
+
+
+    @Test
+    public void resumedResultsAreEqualToUninterruptedRun() throws Exception {
+        File expected = temporaryFolder.newFile("uninterrupted.tsv.bgz");
+        File expectedIndex = new File(expected.getAbsolutePath() + ".tbi");
+        FileChannel channel = openTruncated(expected, 0);
+        try (IndexedResultsWriter instance = new IndexedResultsWriter(new BgzfOutputStream(Channels.newOutputStream(channel), 2),
+                channel, null, expectedIndex, new PipelineMetrics())) {
+            instance.write(TestingData.singleExonScoredTranscriptModel());
+            instance.checkpoint();
+            instance.write(TestingData.twoExonScoredTranscriptModel());
+            instance.checkpoint();
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        File output = temporaryFolder.newFile("resumed.tsv.bgz");
+        File index = new File(output.getAbsolutePath() + ".tbi");
+        channel = openTruncated(output, 0);
+        IndexedResultsWriter interrupted = new IndexedResultsWriter(new BgzfOutputStream(Channels.newOutputStream(channel), 2),
+                channel, null, index, new PipelineMetrics());
+        interrupted.write(TestingData.singleExonScoredTranscriptModel());
+        interrupted.write(TestingData.twoExonScoredTranscriptModel());
+        long length = interrupted.checkpoint();
+        interrupted.write(TestingData.threeExonScoredTranscriptModel()); // lost
+        channel.close();
+
+        channel = openTruncated(output, length);
+        try (IndexedResultsWriter instance = new IndexedResultsWriter(new BgzfOutputStream(Channels.newOutputStream(channel), 2,
+                6, length), channel, new FileInputStream(output), index, new PipelineMetrics())) {
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        assertThat(Files.readAllBytes(output.toPath()), is(Files.readAllBytes(expected.toPath())));
+        assertThat(Files.readAllBytes(index.toPath()), is(Files.readAllBytes(expectedIndex.toPath())));
+    }
+}
@@ -0,0 +1,87 @@
+package org.monarchinitiative.splicing.io;
+
+import com.google.common.collect.ImmutableList;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class JannovarTranscriptSourceTest {
+
+    private TranscriptModel yae1, gjb2, hist1h1a, yae1Downstream;
+
+    private JannovarTranscriptSource instance;
+
+
+    @Before
+    public void setUp() {
+        hist1h1a = TestingData.getSingleExonTranscriptModel();
+        gjb2 = TestingData.getTwoExonTranscriptModel();
+        yae1 = TestingData.getThreeExonTranscriptModel();
+        // the same transcript moved 1 base downstream
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession("NM_000001.1");
+        builder.setGeneSymbol("YAE1");
+        builder.setStrand(yae1.getStrand());
+        builder.setTXRegion(new GenomeInterval(yae1.getTXRegion().getRefDict(), Strand.FWD, 7, 39606003, 39612480));
+        builder.setCDSRegion(yae1.getCDSRegion());
+        yae1.getExonRegions().forEach(builder::addExonRegion);
+        yae1Downstream = builder.build();
+
+        JannovarData jannovarData = new JannovarData(yae1.getTXRegion().getRefDict(),
+                ImmutableList.of(yae1Downstream, gjb2, yae1, hist1h1a));
+        instance = new JannovarTranscriptSource(jannovarData);
+    }
+
+
+    @Test
+    public void transcriptsAreGroupedByContigAndSortedByPosition() {
+        assertThat(instance.size(), is(4));
+        assertThat(instance.getContigs(), is(Arrays.asList(6, 7, 13)));
+        List<String> onContig7 = instance.getTranscripts(7).stream().map(TranscriptModel::getAccession).collect(Collectors.toList());
+        assertThat(onContig7, is(Arrays.asList("NM_020192.3", "NM_000001.1")));
+        assertThat(instance.getTranscripts(13), is(Arrays.asList(gjb2)));
+        assertThat(instance.getTranscripts(1).isEmpty(), is(true));
+    }
+
+
+    @Test
+    public void transcriptsOnBothStrandsAreSortedByPositionOnForwardStrand() {
+        TranscriptModel revUpstream = reverseStrandTranscript("NM_000002.1", 39500000, 39501000);
+        TranscriptModel revDownstream = reverseStrandTranscript("NM_000003.1", 40000000, 40001000);
+        JannovarData jannovarData = new JannovarData(yae1.getTXRegion().getRefDict(),
+                ImmutableList.of(revDownstream, yae1Downstream, revUpstream, yae1));
+        instance = new JannovarTranscriptSource(jannovarData);
+
+        List<String> onContig7 = instance.getTranscripts(7).stream().map(TranscriptModel::getAccession).collect(Collectors.toList());
+        assertThat(onContig7, is(Arrays.asList("NM_000002.1", "NM_020192.3", "NM_000001.1", "NM_000003.1")));
+    }
+
+
+    /**
+     * @return single exon transcript on {@link Strand#REV} of chr7 spanning <code>[begin, end)</code> on
+     * {@link Strand#FWD}
+     */
+    private TranscriptModel reverseStrandTranscript(String accession, int begin, int end) {
+        GenomeInterval region = new GenomeInterval(yae1.getTXRegion().getRefDict(), Strand.FWD, 7, begin, end).withStrand(Strand.REV);
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession(accession);
+        builder.setGeneSymbol("REV");
+        builder.setStrand(Strand.REV);
+        builder.setTXRegion(region);
+        builder.setCDSRegion(region);
+        builder.addExonRegion(region);
+        return builder.build();
+    }
+}
@@ -0,0 +1,70 @@
+package org.monarchinitiative.splicing.io;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NumberFormatterTest {
+
+    private static String formatDouble(double value) {
+        byte[] buffer = new byte[NumberFormatter.MAX_DOUBLE_LENGTH];
+        int end = NumberFormatter.formatDouble(value, buffer, 0);
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+
+    private static String formatLong(long value) {
+        byte[] buffer = new byte[NumberFormatter.MAX_LONG_LENGTH];
+        int end = NumberFormatter.formatLong(value, buffer, 0);
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+
+    @Test
+    public void formatSpecialValues() {
+        assertThat(formatDouble(Double.NaN), is("NaN"));
+        assertThat(formatDouble(Double.POSITIVE_INFINITY), is("Infinity"));
+        assertThat(formatDouble(Double.NEGATIVE_INFINITY), is("-Infinity"));
+        assertThat(formatDouble(0.), is("0.0"));
+        assertThat(formatDouble(-0.), is("-0.0"));
+    }
+
+
+    @Test
+    public void formatScores() {
+        assertThat(formatDouble(10.33267367738815), is("10.33267367738815"));
+        assertThat(formatDouble(10.293715220799694), is("10.293715220799694"));
+        assertThat(formatDouble(-4.898803136983307), is("-4.898803136983307"));
+        assertThat(formatDouble(0.1), is("0.1"));
+        assertThat(formatDouble(1.), is("1.0"));
+        assertThat(formatDouble(0.001), is("0.001"));
+        assertThat(formatDouble(1.0E-4), is("1.0E-4"));
+        assertThat(formatDouble(1.0E7), is("1.0E7"));
+    }
+
+
+    @Test
+    public void formattedDoublesAreSameAsToStringAndRoundTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double value = (random.nextDouble() - .5) * Math.pow(10, random.nextInt(12) - 4);
+            String formatted = formatDouble(value);
+            assertThat(formatted, is(Double.toString(value)));
+            assertThat(Double.parseDouble(formatted), is(value));
+        }
+    }
+
+
+    @Test
+    public void formatLongs() {
+        assertThat(formatLong(0), is("0"));
+        assertThat(formatLong(-1), is("-1"));
+        assertThat(formatLong(39606002), is("39606002"));
+        assertThat(formatLong(Long.MAX_VALUE), is(Long.toString(Long.MAX_VALUE)));
+        assertThat(formatLong(Long.MIN_VALUE), is(Long.toString(Long.MIN_VALUE)));
+    }
+}
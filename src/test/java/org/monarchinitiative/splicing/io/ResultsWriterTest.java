@@ -1,15 +1,34 @@
 package org.monarchinitiative.splicing.io;
 
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.metrics.PipelineMetrics;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
 public class ResultsWriterTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 
     @Test
     public void testWriteSingleExonTranscript() {
@@ -45,4 +64,84 @@ public class ResultsWriterTest {
                 "7\t39610104\t39610226\t39610104\t39610226\t+\tYAE1\tNM_020192.3\t8.566571105600822\t10.44145682272866\n" +
                 "7\t39611875\t39612480\t39611875\t39612480\t+\tYAE1\tNM_020192.3\tNaN\t8.727129021978236\n"));
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void testWriteTranscriptWithoutSymbol() {
+        TranscriptModel tm = TestingData.getSingleExonTranscriptModel();
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession(tm.getAccession());
+        builder.setGeneSymbol(null);
+        builder.setTXRegion(tm.getTXRegion());
+        builder.setCDSRegion(tm.getCDSRegion());
+        builder.addExonRegion(tm.getExonRegions().get(0));
+        builder.setSequence(tm.getSequence());
+        builder.setGeneID(tm.getGeneID());
+        builder.setStrand(tm.getStrand());
+        builder.setTranscriptSupportLevel(-1);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ResultsWriter instance = new ResultsWriter(os);
+        instance.write(new ScoredTranscriptModel(builder.build(), new double[]{Double.NaN}, new double[]{Double.NaN}));
+
+        assertThat(os.toString(), is("#CHR\tBEGIN\tEND\tBEGIN_T\tEND_T\tSTRAND\tSYMBOL\tACCESSION_ID\tDONOR\tACCEPTOR\n" +
+                "6\t26018039\t26017258\t145097027\t145097808\t-\tnull\tNM_005325.3\tNaN\tNaN\n"));
+    }
+
+
+    @Test
+    public void writtenLinesAreRecordedInMetrics() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        PipelineMetrics metrics = new PipelineMetrics();
+        ResultsWriter instance = new ResultsWriter(os, metrics);
+        int headerLength = os.size();
+        instance.write(TestingData.threeExonScoredTranscriptModel());
+
+        assertThat(metrics.getLinesWritten(), is(3L));
+        assertThat(metrics.getBytesWritten(), is((long) (os.size() - headerLength)));
+        assertThat(metrics.getHistogram(PipelineMetrics.Stage.FORMAT).getCount(), is(1L));
+    }
+
+
+    @Test
+    public void resumedCompressedResultsAreEqualToUninterruptedRun() throws Exception {
+        File expected = temporaryFolder.newFile("uninterrupted.tsv.gz");
+        FileChannel channel = FileChannel.open(expected.toPath(), StandardOpenOption.WRITE);
+        try (ResultsWriter instance = new ResultsWriter(new ConcatenatedGzipOutputStream(Channels.newOutputStream(channel), 512),
+                channel, false, new PipelineMetrics())) {
+            instance.write(TestingData.singleExonScoredTranscriptModel());
+            instance.write(TestingData.twoExonScoredTranscriptModel());
+            instance.checkpoint();
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        File output = temporaryFolder.newFile("resumed.tsv.gz");
+        channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE);
+        ResultsWriter interrupted = new ResultsWriter(new ConcatenatedGzipOutputStream(Channels.newOutputStream(channel), 512),
+                channel, false, new PipelineMetrics());
+        interrupted.write(TestingData.singleExonScoredTranscriptModel());
+        interrupted.write(TestingData.twoExonScoredTranscriptModel());
+        long length = interrupted.checkpoint();
+        interrupted.write(TestingData.threeExonScoredTranscriptModel()); // lost
+        channel.close();
+
+        channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE);
+        channel.truncate(length);
+        channel.position(length);
+        try (ResultsWriter instance = new ResultsWriter(new ConcatenatedGzipOutputStream(Channels.newOutputStream(channel), 512),
+                channel, true, new PipelineMetrics())) {
+            instance.write(TestingData.threeExonScoredTranscriptModel());
+        }
+
+        assertThat(Files.readAllBytes(output.toPath()), is(Files.readAllBytes(expected.toPath())));
+        // concatenated gzip members are decompressed as a single file
+        StringBuilder content = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(output)), StandardCharsets.US_ASCII)) {
+            int c;
+            while ((c = reader.read()) != -1)
+                content.append((char) c);
+        }
+        assertThat(content.toString().split("\n").length, is(7));
+        assertThat(content.toString().startsWith("#CHR\t"), is(true));
+    }
+}
@@ -0,0 +1,147 @@
+package org.monarchinitiative.splicing.io;
+
+import com.google.common.collect.ImmutableList;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.splicing.TestingData;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TranscriptSnapshotTest {
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static List<TranscriptModel> transcripts;
+
+    private static TranscriptSnapshot instance;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        transcripts = ImmutableList.of(TestingData.getSingleExonTranscriptModel(),
+                TestingData.getTwoExonTranscriptModel(), TestingData.getThreeExonTranscriptModel());
+        File snapshotPath = temporaryFolder.newFile("transcripts.snapshot");
+        new TranscriptSnapshotWriter(transcripts.get(0).getTXRegion().getRefDict(), transcripts).write(snapshotPath);
+        instance = new TranscriptSnapshot(snapshotPath);
+    }
+
+
+    private static void assertSameModel(TranscriptModel actual, TranscriptModel expected) {
+        assertThat(actual.getAccession(), is(expected.getAccession()));
+        assertThat(actual.getGeneSymbol(), is(expected.getGeneSymbol()));
+        assertThat(actual.getGeneID(), is(expected.getGeneID()));
+        assertThat(actual.getChr(), is(expected.getChr()));
+        assertThat(actual.getStrand().isForward(), is(expected.getStrand().isForward()));
+        assertSameInterval(actual.getTXRegion(), expected.getTXRegion());
+        assertSameInterval(actual.getCDSRegion(), expected.getCDSRegion());
+        assertThat(actual.getExonRegions().size(), is(expected.getExonRegions().size()));
+        for (int i = 0; i < expected.getExonRegions().size(); i++) {
+            assertSameInterval(actual.getExonRegions().get(i), expected.getExonRegions().get(i));
+        }
+        assertThat(actual.getTranscriptSupportLevel(), is(expected.getTranscriptSupportLevel()));
+    }
+
+
+    private static void assertSameInterval(GenomeInterval actual, GenomeInterval expected) {
+        assertThat(actual.getStrand().isForward(), is(expected.getStrand().isForward()));
+        assertThat(actual.getBeginPos(), is(expected.getBeginPos()));
+        assertThat(actual.getEndPos(), is(expected.getEndPos()));
+    }
+
+
+    @Test
+    public void transcriptsAreTheSameAsWritten() {
+        assertThat(instance.size(), is(3));
+        for (int i = 0; i < transcripts.size(); i++) {
+            assertThat(instance.getAccession(i), is(transcripts.get(i).getAccession()));
+            assertThat(instance.getContig(i), is(transcripts.get(i).getChr()));
+            assertSameModel(instance.getTranscriptModel(i), transcripts.get(i));
+        }
+    }
+
+
+    @Test
+    public void referenceDictionaryIsTheSameAsWritten() {
+        TranscriptModel yae1 = TestingData.getThreeExonTranscriptModel();
+        assertThat(instance.getReferenceDictionary().getContigIDToName(), is(yae1.getTXRegion().getRefDict().getContigIDToName()));
+        assertThat(instance.getReferenceDictionary().getContigIDToLength(), is(yae1.getTXRegion().getRefDict().getContigIDToLength()));
+        assertThat(instance.getTranscriptModel(2).getTXRegion().getRefDict().getContigIDToName().get(7), is("7"));
+    }
+
+
+    @Test
+    public void iteratorReturnsTranscriptsInOrderOfTheSnapshot() {
+        Iterator<TranscriptModel> iterator = instance.iterator();
+        for (TranscriptModel tm : transcripts) {
+            assertThat(iterator.hasNext(), is(true));
+            assertSameModel(iterator.next(), tm);
+        }
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+
+    @Test
+    public void transcriptsAreGroupedByContig() {
+        assertThat(instance.getContigs(), is(Arrays.asList(6, 7, 13)));
+        assertSameModel(instance.getTranscripts(6).get(0), transcripts.get(0));
+        assertSameModel(instance.getTranscripts(7).get(0), transcripts.get(2));
+        assertSameModel(instance.getTranscripts(13).get(0), transcripts.get(1));
+        assertThat(instance.getTranscripts(1).isEmpty(), is(true));
+    }
+
+
+    @Test
+    public void jannovarDataContainsAllTranscripts() {
+        JannovarData data = instance.toJannovarData();
+
+        assertThat(data.getTmByAccession().size(), is(3));
+        for (TranscriptModel tm : transcripts) {
+            assertSameModel(data.getTmByAccession().get(tm.getAccession()), tm);
+        }
+    }
+
+
+    @Test
+    public void transcriptWithoutGeneSymbolIsTheSameAsWritten() throws Exception {
+        TranscriptModel yae1 = TestingData.getThreeExonTranscriptModel();
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setAccession("NM_020192.3");
+        builder.setStrand(yae1.getStrand());
+        builder.setTXRegion(yae1.getTXRegion());
+        builder.setCDSRegion(yae1.getCDSRegion());
+        yae1.getExonRegions().forEach(builder::addExonRegion);
+        builder.setSequence("");
+        builder.setTranscriptSupportLevel(-1);
+
+        File snapshotPath = temporaryFolder.newFile("no_symbol.snapshot");
+        TranscriptModel written = builder.build();
+        new TranscriptSnapshotWriter(yae1.getTXRegion().getRefDict(), ImmutableList.of(written)).write(snapshotPath);
+
+        assertSameModel(new TranscriptSnapshot(snapshotPath).getTranscriptModel(0), written);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void fileWithoutSignatureIsRejected() throws Exception {
+        File notSnapshot = temporaryFolder.newFile("not.snapshot");
+        try (FileOutputStream os = new FileOutputStream(notSnapshot)) {
+            os.write(new byte[64]);
+        }
+        new TranscriptSnapshot(notSnapshot);
+    }
+}
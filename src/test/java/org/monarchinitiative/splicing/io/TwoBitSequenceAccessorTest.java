@@ -0,0 +1,122 @@
+package org.monarchinitiative.splicing.io;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TwoBitSequenceAccessorTest {
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static IndexedFastaSequenceAccessor fasta;
+
+    private static TwoBitSequenceAccessor instance;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        File fastaPath = new File(TwoBitSequenceAccessorTest.class.getResource("small_genome.fa").toURI());
+        fasta = new IndexedFastaSequenceAccessor(fastaPath);
+
+        File twoBitPath = temporaryFolder.newFile("small_genome.2bit");
+        new FastaToTwoBitConverter(fastaPath).convert(twoBitPath);
+        instance = new TwoBitSequenceAccessor(twoBitPath);
+    }
+
+
+    @AfterClass
+    public static void tearDownAfter() throws Exception {
+        fasta.close();
+        instance.close();
+    }
+
+
+    /**
+     * 2bit format is able to store A, C, G, T and N only.
+     */
+    private static String fetchFromFasta(String chr, int begin, int end) {
+        return fasta.fetchSequence(chr, begin, end).replaceAll("[^ACGTNacgtn]", "N");
+    }
+
+
+    @Test
+    public void contigsArePresentInOriginalOrder() {
+        assertThat(instance.getContigNames(), hasItems("chr1", "chr2", "chrM"));
+        assertThat(String.join(",", instance.getContigNames()), is("chr1,chr2,chrM"));
+    }
+
+
+    @Test
+    public void allSubsequencesAreTheSameAsInFasta() {
+        int[][] contigs = {{1, 1110}, {2, 1003}};
+        for (int[] contig : contigs) {
+            String chr = "chr" + contig[0];
+            int length = contig[1];
+            for (int begin = 0; begin < length; begin += 7) {
+                for (int end = begin; end <= Math.min(length, begin + 40); end++) {
+                    assertThat(chr + ":" + begin + "-" + end, instance.fetchSequence(chr, begin, end),
+                            is(fetchFromFasta(chr, begin, end)));
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void wholeContigsAreTheSameAsInFasta() {
+        assertThat(new String(instance.fetchBases("chr1", 0, 1110), StandardCharsets.US_ASCII),
+                is(fetchFromFasta("chr1", 0, 1110)));
+        assertThat(new String(instance.fetchBases("chrM", 0, 333), StandardCharsets.US_ASCII),
+                is(fasta.fetchSequence("chrM", 0, 333)));
+    }
+
+
+    @Test
+    public void nucleotidesOtherThanAcgtAreReturnedAsN() {
+        // chr1 begins with 23 Ns, IUPAC codes at 999-1002 are stored as Ns
+        assertThat(instance.fetchSequence("chr1", 20, 25), is("NNN" + fasta.fetchSequence("chr1", 23, 25)));
+        assertThat(fasta.fetchSequence("chr1", 999, 1002), is("RYK"));
+        assertThat(instance.fetchSequence("chr1", 999, 1002), is("NNN"));
+    }
+
+
+    @Test
+    public void softMaskedNucleotidesAreLowercase() {
+        // lowercase 'n' run followed by lowercase nucleotides
+        assertThat(instance.fetchSequence("chr1", 764, 776), is(fasta.fetchSequence("chr1", 764, 776)));
+        assertThat(instance.fetchSequence("chr1", 764, 769), is("nnnnn"));
+    }
+
+
+    @Test
+    public void contigNamesAreResolved() {
+        assertThat(instance.fetchSequence("2", 100, 150), is(fasta.fetchSequence("chr2", 100, 150)));
+        assertThat(instance.fetchSequence("MT", 0, 10), is(fasta.fetchSequence("chrM", 0, 10)));
+    }
+
+
+    @Test
+    public void contigLengthsAreTheSameAsInFasta() {
+        assertThat(instance.getContigLength("chr1"), is(1110));
+        assertThat(instance.getContigLength("1"), is(1110));
+        assertThat(instance.getContigLength("MT"), is(333));
+        assertThat(instance.getContigLength("chr3"), is(-1));
+    }
+
+
+    @Test
+    public void invalidQueriesReturnNull() {
+        assertThat(instance.fetchBases("chr1", 1100, 1111), is(nullValue()));
+        assertThat(instance.fetchBases("chr1", -1, 10), is(nullValue()));
+        assertThat(instance.fetchBases("chr3", 0, 10), is(nullValue()));
+    }
+}
@@ -0,0 +1,107 @@
+package org.monarchinitiative.splicing.merge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.Checkpoint;
+import org.monarchinitiative.splicing.calculate.ScoredTranscriptModel;
+import org.monarchinitiative.splicing.io.BgzfOutputStream;
+import org.monarchinitiative.splicing.io.IndexedResultsWriter;
+import org.monarchinitiative.splicing.io.ResultsWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ShardMergerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    private File writePlain(String name, ScoredTranscriptModel... models) throws Exception {
+        File file = temporaryFolder.newFile(name);
+        try (ResultsWriter writer = new ResultsWriter(new FileOutputStream(file))) {
+            Arrays.stream(models).forEach(writer::write);
+        }
+        return file;
+    }
+
+
+    private File writeIndexed(String name, ScoredTranscriptModel... models) throws Exception {
+        File file = temporaryFolder.newFile(name);
+        try (ResultsWriter writer = new IndexedResultsWriter(new BgzfOutputStream(new FileOutputStream(file), 1),
+                new File(file.getAbsolutePath() + ".tbi"))) {
+            Arrays.stream(models).forEach(writer::write);
+        }
+        return file;
+    }
+
+
+    @Test
+    public void mergedResultsAreEqualToSingleRun() throws Exception {
+        File expected = writePlain("single.tsv", TestingData.singleExonScoredTranscriptModel(),
+                TestingData.twoExonScoredTranscriptModel(), TestingData.threeExonScoredTranscriptModel());
+        List<File> shards = Arrays.asList(
+                writePlain("shard1.tsv", TestingData.singleExonScoredTranscriptModel(), TestingData.twoExonScoredTranscriptModel()),
+                writePlain("shard2.tsv", TestingData.threeExonScoredTranscriptModel()));
+
+        File merged = temporaryFolder.newFile("merged.tsv");
+        try (ResultsWriter writer = new ResultsWriter(new FileOutputStream(merged))) {
+            assertThat(new ShardMerger(writer).merge(shards), is(6L));
+        }
+        assertThat(Files.readAllBytes(merged.toPath()), is(Files.readAllBytes(expected.toPath())));
+    }
+
+
+    @Test
+    public void regionColumnsOfIndexedResultsAreDroppedWhenMergedIntoPlainResults() throws Exception {
+        File expected = writePlain("single.tsv", TestingData.singleExonScoredTranscriptModel(),
+                TestingData.threeExonScoredTranscriptModel());
+        List<File> shards = Arrays.asList(
+                writeIndexed("shard1.tsv.bgz", TestingData.singleExonScoredTranscriptModel()),
+                writeIndexed("shard2.tsv.bgz", TestingData.threeExonScoredTranscriptModel()));
+
+        File merged = temporaryFolder.newFile("merged.tsv");
+        try (ResultsWriter writer = new ResultsWriter(new FileOutputStream(merged))) {
+            assertThat(new ShardMerger(writer).merge(shards), is(4L));
+        }
+        assertThat(Files.readAllBytes(merged.toPath()), is(Files.readAllBytes(expected.toPath())));
+    }
+
+
+    @Test
+    public void linesOfEachContigAreSortedWhenMergedIntoIndexedResults() throws Exception {
+        // lines of GJB2 on contig 13 are written in reverse order of their BEGIN column
+        File expected = writeIndexed("single.tsv.bgz", TestingData.singleExonScoredTranscriptModel(),
+                TestingData.twoExonScoredTranscriptModel(), TestingData.threeExonScoredTranscriptModel());
+        List<File> shards = Arrays.asList(
+                writeIndexed("shard1.tsv.bgz", TestingData.singleExonScoredTranscriptModel()),
+                writePlain("shard2.tsv", TestingData.twoExonScoredTranscriptModel(), TestingData.threeExonScoredTranscriptModel()));
+
+        File merged = temporaryFolder.newFile("merged.tsv.bgz");
+        File index = new File(merged.getAbsolutePath() + ".tbi");
+        try (ResultsWriter writer = new IndexedResultsWriter(new BgzfOutputStream(new FileOutputStream(merged), 1), index)) {
+            new ShardMerger(writer).merge(shards);
+        }
+        assertThat(Files.readAllBytes(merged.toPath()), is(Files.readAllBytes(expected.toPath())));
+        assertThat(Files.readAllBytes(index.toPath()), is(Files.readAllBytes(new File(expected.getAbsolutePath() + ".tbi").toPath())));
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void unfinishedShardIsNotMerged() throws Exception {
+        File shard = writePlain("shard1.tsv", TestingData.singleExonScoredTranscriptModel());
+        new Checkpoint(1, shard.length(), false, 2).write(Checkpoint.fileFor(shard));
+
+        try (ResultsWriter writer = new ResultsWriter(new FileOutputStream(temporaryFolder.newFile("merged.tsv")))) {
+            new ShardMerger(writer).merge(Arrays.asList(shard));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.monarchinitiative.splicing.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PipelineMetricsTest {
+
+    private PipelineMetrics instance;
+
+
+    @Before
+    public void setUp() {
+        instance = new PipelineMetrics();
+    }
+
+
+    @Test
+    public void histogramReportsUpperBoundsOfBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentile(50), is(0L));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100); // 64 <= 100 < 128
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000); // 4096 <= 5000 < 8192
+        }
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getTotalNanos(), is(59000L));
+        assertThat(histogram.percentile(50), is(128L));
+        assertThat(histogram.percentile(90), is(128L));
+        assertThat(histogram.percentile(91), is(8192L));
+        assertThat(histogram.percentile(100), is(8192L));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        new LatencyHistogram().percentile(0);
+    }
+
+
+    @Test
+    public void recordedEventsAreCounted() {
+        instance.recordFetch(100, 1000);
+        instance.recordFetch(50, 1000);
+        instance.recordTranscript(4, 2, 3000);
+        instance.recordWrite(3, 120, 500, 700);
+
+        assertThat(instance.getFetches(), is(2L));
+        assertThat(instance.getBasesFetched(), is(150L));
+        assertThat(instance.getFetchNanos(), is(2000L));
+        assertThat(instance.getTranscriptsScored(), is(1L));
+        assertThat(instance.getSitesScored(), is(4L));
+        assertThat(instance.getCachedSites(), is(2L));
+        assertThat(instance.getScoreNanos(), is(3000L));
+        assertThat(instance.getLinesWritten(), is(3L));
+        assertThat(instance.getBytesWritten(), is(120L));
+        assertThat(instance.getFormatNanos(), is(500L));
+        assertThat(instance.getWriteNanos(), is(700L));
+    }
+
+
+    @Test
+    public void summaryIsJson() {
+        instance.recordTranscript(4, 0, 3000);
+
+        String summary = instance.getSummary();
+        assertThat(summary.startsWith("{\"transcriptsScored\":1,\"sitesScored\":4,"), is(true));
+        assertThat(summary, containsString("\"score\":{\"count\":1,\"totalNanos\":3000,\"p50Nanos\":4096,\"p90Nanos\":4096,\"p99Nanos\":4096,\"p100Nanos\":4096}"));
+        assertThat(summary, containsString("\"fetch\":{\"count\":0,"));
+        assertThat(summary.endsWith("}}}"), is(true));
+    }
+
+
+    @Test
+    public void metricsAreAvailableOverJmx() throws Exception {
+        instance.registerMBean();
+        instance.recordFetch(10, 100);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(PipelineMetrics.OBJECT_NAME);
+        assertThat(server.getAttribute(name, "BasesFetched"), is(10L));
+
+        // registering another instance replaces the previous one
+        new PipelineMetrics().registerMBean();
+        assertThat(server.getAttribute(name, "BasesFetched"), is(0L));
+    }
+}
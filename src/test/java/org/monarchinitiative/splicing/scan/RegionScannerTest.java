@@ -0,0 +1,113 @@
+package org.monarchinitiative.splicing.scan;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.calculate.SpliceSiteScanner;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RegionScannerTest {
+
+    private static final int YAE1_BEGIN = TestingData.YAE1_BEGIN;
+
+    private static final int YAE1_END = YAE1_BEGIN + TestingData.getYAE1Seq().length();
+
+    /**
+     * Serves the sequence of YAE1 gene (chr7:39606002-39612480) as if it was the end of the contig.
+     */
+    private static final GenomeSequenceAccessor ACCESSOR = TestingData.getGenomeSequenceAccessor();
+
+    private static SplicingInformationContentAnnotator IC_ANNOTATOR;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        IC_ANNOTATOR = TestingData.getInformationContentAnnotator();
+    }
+
+
+    private static String scanInChunks(RegionScanner scanner, RegionScanner.Chunk region, int chunkSize) {
+        StringBuilder lines = new StringBuilder();
+        Iterator<RegionScanner.Chunk> chunks = ScanApplicationRunner.splitIntoChunks(Collections.singletonList(region), chunkSize);
+        while (chunks.hasNext()) {
+            RegionScanner.ScannedChunk scanned = scanner.scan(chunks.next());
+            assertThat(scanned.isAvailable(), is(true));
+            lines.append(new String(scanned.getLines(), 0, scanned.getLength(), StandardCharsets.US_ASCII));
+        }
+        return lines.toString();
+    }
+
+
+    @Test
+    public void sitesAreFormattedIntoLines() {
+        RegionScanner scanner = new RegionScanner(ACCESSOR, new SpliceSiteScanner(IC_ANNOTATOR, 8.5));
+        // the donor site of the middle exon of YAE1 starts at 39610223
+        RegionScanner.ScannedChunk scanned = scanner.scan(new RegionScanner.Chunk("chr7", 39610223, 39610224));
+
+        String n = System.lineSeparator();
+        assertThat(new String(scanned.getLines(), 0, scanned.getLength(), StandardCharsets.US_ASCII),
+                is("chr7\t39610223\t39610232\t+\tDONOR\t8.566571105600822" + n));
+        assertThat(scanned.getSites(), is(1));
+    }
+
+
+    @Test
+    public void sitesAreTheSameRegardlessOfChunkBoundaries() {
+        RegionScanner scanner = new RegionScanner(ACCESSOR, new SpliceSiteScanner(IC_ANNOTATOR, 2.));
+        RegionScanner.Chunk region = new RegionScanner.Chunk("chr7", YAE1_BEGIN, YAE1_END);
+
+        String expected = scanInChunks(scanner, region, Integer.MAX_VALUE);
+        assertThat(expected.isEmpty(), is(false));
+        assertThat(scanInChunks(scanner, region, 1000), is(expected));
+        assertThat(scanInChunks(scanner, region, 7), is(expected));
+    }
+
+
+    @Test
+    public void unavailableChunkIsReported() {
+        RegionScanner scanner = new RegionScanner(ACCESSOR, new SpliceSiteScanner(IC_ANNOTATOR, 2.));
+        RegionScanner.ScannedChunk scanned = scanner.scan(new RegionScanner.Chunk("chr8", 0, 100));
+
+        assertThat(scanned.isAvailable(), is(false));
+        assertThat(scanned.getLength(), is(0));
+    }
+
+
+    @Test
+    public void regionsAreSplitIntoChunks() {
+        List<RegionScanner.Chunk> regions = Arrays.asList(new RegionScanner.Chunk("chr1", 10, 35),
+                new RegionScanner.Chunk("chr2", 5, 5), new RegionScanner.Chunk("chr3", 0, 10));
+        List<String> chunks = new ArrayList<>();
+        ScanApplicationRunner.splitIntoChunks(regions, 10).forEachRemaining(chunk -> chunks.add(chunk.toString()));
+
+        assertThat(chunks, is(Arrays.asList("chr1:10-20", "chr1:20-30", "chr1:30-35", "chr3:0-10")));
+    }
+
+
+    @Test
+    public void parseRegions() {
+        assertThat(ScanApplicationRunner.parseRegion("chr7", ACCESSOR).toString(), is("chr7:0-" + YAE1_END));
+        assertThat(ScanApplicationRunner.parseRegion("chr7:39,606,003-39606010", ACCESSOR).toString(),
+                is("chr7:39606002-39606010"));
+        // the end is clipped to the contig length
+        assertThat(ScanApplicationRunner.parseRegion("chr7:39606003-99999999", ACCESSOR).toString(),
+                is("chr7:39606002-" + YAE1_END));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void regionOfUnknownContig() {
+        ScanApplicationRunner.parseRegion("chr8", ACCESSOR);
+    }
+}
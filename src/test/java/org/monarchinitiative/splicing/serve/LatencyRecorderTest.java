@@ -0,0 +1,44 @@
+package org.monarchinitiative.splicing.serve;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void percentilesOfRecordedLatencies() {
+        LatencyRecorder instance = new LatencyRecorder();
+        for (int i = 100; i > 0; i--) {
+            instance.record(i);
+        }
+
+        assertThat(instance.getCount(), is(100L));
+        assertThat(instance.percentiles(50, 90, 99, 100), is(new long[]{50, 90, 99, 100}));
+    }
+
+
+    @Test
+    public void onlyRecentLatenciesAreUsed() {
+        LatencyRecorder instance = new LatencyRecorder();
+        for (int i = 0; i < LatencyRecorder.WINDOW; i++) {
+            instance.record(1_000);
+        }
+        for (int i = 0; i < LatencyRecorder.WINDOW; i++) {
+            instance.record(1);
+        }
+
+        assertThat(instance.getCount(), is(2L * LatencyRecorder.WINDOW));
+        assertThat(instance.percentiles(100), is(new long[]{1}));
+        // the maximum is kept for all latencies
+        assertThat(instance.getMax(), is(1_000L));
+    }
+
+
+    @Test
+    public void noLatencies() {
+        assertThat(new LatencyRecorder().percentiles(50, 99), is(new long[]{0, 0}));
+        assertThat(new LatencyRecorder().getMax(), is(0L));
+    }
+}
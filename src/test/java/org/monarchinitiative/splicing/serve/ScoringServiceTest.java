@@ -0,0 +1,85 @@
+package org.monarchinitiative.splicing.serve;
+
+import com.google.common.collect.ImmutableList;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.splicing.TestingData;
+import org.monarchinitiative.splicing.analyze_selected_exons.SelectedExonScorer;
+import org.monarchinitiative.splicing.calculate.SplicingInformationContentAnnotator;
+import org.monarchinitiative.splicing.calculate.TranscriptScorer;
+import org.monarchinitiative.splicing.io.GenomeSequenceAccessor;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ScoringServiceTest {
+
+    private static final GenomeSequenceAccessor ACCESSOR = TestingData.getGenomeSequenceAccessor();
+
+    private static final String N = System.lineSeparator();
+
+    private static ScoringService instance;
+
+
+    @BeforeClass
+    public static void setUpBefore() throws Exception {
+        SplicingInformationContentAnnotator annotator = TestingData.getInformationContentAnnotator();
+        JannovarData jannovarData = new JannovarData(HG19RefDictBuilder.build(), ImmutableList.of(TestingData.getThreeExonTranscriptModel()));
+        instance = new ScoringService(jannovarData, new TranscriptScorer(annotator, ACCESSOR),
+                new SelectedExonScorer(ACCESSOR, annotator), annotator);
+    }
+
+
+    @Test
+    public void scoreTranscript() {
+        String lines = instance.scoreTranscript("NM_020192.3");
+
+        assertThat(lines.split(N)[0].startsWith("#CHR\tBEGIN"), is(true));
+        assertThat(lines.split(N)[2], is("7\t39610104\t39610226\t39610104\t39610226\t+\tYAE1\tNM_020192.3\t8.566571105600822\t10.44145682272866"));
+    }
+
+
+    @Test(expected = NoSuchElementException.class)
+    public void unknownTranscript() {
+        instance.scoreTranscript("NM_000000.0");
+    }
+
+
+    @Test
+    public void scoreExonAndSequence() {
+        assertThat(instance.scoreExon("chr7", "+", "39610104", "39610226"), is("8.566571105600822\t10.44145682272866" + N));
+        assertThat(instance.scoreSequence("donor", "CAGGTAAGT"), is(instance.scoreSequence("donor", "cagGTAAGT")));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidStrand() {
+        instance.scoreExon("chr7", "x", "39610104", "39610226");
+    }
+
+
+    @Test
+    public void answerBatchOfQueries() {
+        String answer = instance.scoreBatch(Arrays.asList(
+                "exon\tchr7\t+\t39610104\t39610226",
+                "",
+                "transcript\tNM_000000.0",
+                "acceptor\tCAGGTAAGT",
+                "transcript\tNM_020192.3",
+                "unknown"));
+
+        String[] lines = answer.split(N);
+        assertThat(lines.length, is(7));
+        assertThat(lines[0], is("1\t8.566571105600822\t10.44145682272866"));
+        assertThat(lines[1], is("3\tERROR\tUnknown transcript 'NM_000000.0'"));
+        // the site sequence is too short for acceptor
+        assertThat(lines[2], is("4\tNaN"));
+        assertThat(lines[4], is("5\t7\t39610104\t39610226\t39610104\t39610226\t+\tYAE1\tNM_020192.3\t8.566571105600822\t10.44145682272866"));
+        assertThat(lines[6], is("6\tERROR\tUnknown query 'unknown'"));
+    }
+}